@@ -0,0 +1,97 @@
+package com.codeforall.online.benchmarks;
+
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Runs the benchmarks with the usual JMH command line, with three additions:
+ * <ul>
+ *     <li>the GC profiler is enabled unless other profilers are given with {@code -prof}, so allocation rates are always reported;</li>
+ *     <li>{@code --threads 1,2,4,8} runs the selected benchmarks once per thread count, to show how concurrent callers scale;</li>
+ *     <li>throughput scores are also printed as megabytes of corpus per second, which compare across corpus sizes.</li>
+ * </ul>
+ */
+public class BenchmarkRunner {
+
+    private static final String THREADS_OPTION = "--threads";
+
+
+    public static void main(String[] args) throws Exception {
+        List<String> jmhArgs = new ArrayList<>(Arrays.asList(args));
+        List<Integer> threadCounts = new ArrayList<>();
+        int threadsAt = jmhArgs.indexOf(THREADS_OPTION);
+        if (threadsAt >= 0) {
+            if (threadsAt + 1 == jmhArgs.size()) {
+                throw new IllegalArgumentException(THREADS_OPTION + " needs a list of thread counts, such as 1,2,4,8");
+            }
+            for (String count : jmhArgs.get(threadsAt + 1).split(",")) {
+                threadCounts.add(Integer.parseInt(count.trim()));
+            }
+            jmhArgs.subList(threadsAt, threadsAt + 2).clear();
+        }
+
+        CommandLineOptions options = new CommandLineOptions(jmhArgs.toArray(new String[0]));
+        if (options.shouldHelp()) {
+            options.showHelp();
+            System.out.println("  " + THREADS_OPTION + " <int>,<int>...  Runs the benchmarks once per number of threads.");
+            return;
+        }
+        if (options.shouldList() || options.shouldListWithParams()) {
+            new Runner(options).list();
+            return;
+        }
+
+        List<RunResult> results = new ArrayList<>();
+        for (Integer threads : threadCounts.isEmpty() ? List.of((Integer) null) : threadCounts) {
+            ChainedOptionsBuilder builder = new OptionsBuilder().parent(options);
+            if (options.getProfilers().isEmpty()) {
+                builder.addProfiler(GCProfiler.class);
+            }
+            if (threads != null) {
+                builder.threads(threads);
+            }
+            results.addAll(new Runner(builder.build()).run());
+        }
+        printDataRates(results);
+    }
+
+
+    /**
+     * Prints the throughput of every benchmark that ran on a corpus of a known size in megabytes per second.
+     */
+    private static void printDataRates(Collection<RunResult> results) {
+        System.out.println();
+        System.out.println("Corpus throughput:");
+        for (RunResult result : results) {
+            BenchmarkParams params = result.getParams();
+            String size = params.getParam("size");
+            if (size == null || params.getMode() != Mode.Throughput) {
+                continue;
+            }
+            double operationsPerSecond = result.getPrimaryResult().getScore()
+                    * TimeUnit.SECONDS.toNanos(1) / params.getTimeUnit().toNanos(1);
+            double megabytesPerSecond = operationsPerSecond * CorpusGenerator.parseSize(size) / (1 << 20);
+            StringBuilder line = new StringBuilder(params.getBenchmark());
+            for (String key : params.getParamsKeys()) {
+                line.append(' ').append(key).append('=').append(params.getParam(key));
+            }
+            line.append(" threads=").append(params.getThreads());
+            System.out.println(String.format(Locale.ROOT, "%-100s %12.1f MB/s", line, megabytesPerSecond));
+        }
+    }
+
+}
@@ -0,0 +1,162 @@
+package com.codeforall.online.benchmarks;
+
+import com.codeforall.online.AnalysisReport;
+import com.codeforall.online.AnalysisRequest;
+import com.codeforall.online.FileAnalyser;
+import com.codeforall.online.Metric;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * Measures what analysing a corpus straight from a gzip file costs compared to the uncompressed corpus,
+ * for a single gzip stream, which is decompressed on one thread, and for BGZF blocks, which are decompressed in parallel.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class CompressedInputBenchmark {
+
+    public enum Format { PLAIN, GZIP, BGZF }
+
+    private static final int BGZF_BLOCK_SIZE = 0xFF00;
+
+    @Param({"LONG_LINES", "SHORT_LINES", "HIGH_CARDINALITY", "UNICODE"})
+    public CorpusGenerator.Shape shape;
+
+    @Param({"16MB"})
+    public String size;
+
+    @Param({"PLAIN", "GZIP", "BGZF"})
+    public Format format;
+
+    private String file;
+
+
+    @Setup
+    public void setUp() throws IOException {
+        Path corpus = CorpusGenerator.corpus(shape, size, 1);
+        switch (format) {
+            case GZIP:
+                file = compressed(corpus, ".gz", CompressedInputBenchmark::gzip).toString();
+                break;
+            case BGZF:
+                file = compressed(corpus, ".bgz", CompressedInputBenchmark::bgzf).toString();
+                break;
+            default:
+                file = corpus.toString();
+        }
+    }
+
+
+    @Benchmark
+    public long countWords() throws IOException {
+        return FileAnalyser.countWords(file);
+    }
+
+
+    @Benchmark
+    public AnalysisReport analyseVocabulary() throws IOException {
+        return FileAnalyser.analyse(file, new AnalysisRequest(Metric.UNIQUE_WORD_COUNT, Metric.TOP_N_FREQUENT_WORDS).topN(10));
+    }
+
+
+    private interface Compressor {
+        void compress(InputStream in, OutputStream out) throws IOException;
+    }
+
+
+    /**
+     * Returns the compressed copy of a corpus beside it, compressing it first if it is not there yet.
+     */
+    private static Path compressed(Path corpus, String suffix, Compressor compressor) throws IOException {
+        Path path = corpus.resolveSibling(corpus.getFileName() + suffix);
+        if (Files.exists(path)) {
+            return path;
+        }
+        Path partial = Files.createTempFile(corpus.getParent(), path.getFileName().toString(), ".partial");
+        try {
+            try (InputStream in = Files.newInputStream(corpus);
+                 OutputStream out = new BufferedOutputStream(Files.newOutputStream(partial), 1 << 16)) {
+                compressor.compress(in, out);
+            }
+            Files.move(partial, path, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+        return path;
+    }
+
+
+    private static void gzip(InputStream in, OutputStream out) throws IOException {
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out, 1 << 16)) {
+            in.transferTo(gzip);
+        }
+    }
+
+
+    /**
+     * Writes one gzip member per block, with the size of the member in a BGZF extra field, and the empty end-of-file member.
+     */
+    private static void bgzf(InputStream in, OutputStream out) throws IOException {
+        byte[] block = new byte[BGZF_BLOCK_SIZE];
+        byte[] deflated = new byte[BGZF_BLOCK_SIZE * 2];
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        CRC32 crc = new CRC32();
+        try {
+            int length;
+            do {
+                length = in.readNBytes(block, 0, block.length);
+                deflater.reset();
+                deflater.setInput(block, 0, length);
+                deflater.finish();
+                int deflatedLength = 0;
+                while (!deflater.finished()) {
+                    deflatedLength += deflater.deflate(deflated, deflatedLength, deflated.length - deflatedLength);
+                }
+                crc.reset();
+                crc.update(block, 0, length);
+                int memberSize = 18 + deflatedLength + 8;
+                out.write(new byte[]{0x1F, (byte) 0x8B, 8, 4, 0, 0, 0, 0, 0, (byte) 0xFF, 6, 0, 'B', 'C', 2, 0});
+                writeIntLE(out, memberSize - 1, 2);
+                out.write(deflated, 0, deflatedLength);
+                writeIntLE(out, crc.getValue(), 4);
+                writeIntLE(out, length, 4);
+            } while (length > 0);
+        } finally {
+            deflater.end();
+        }
+    }
+
+
+    private static void writeIntLE(OutputStream out, long value, int bytes) throws IOException {
+        for (int i = 0; i < bytes; i++) {
+            out.write((int) (value >>> (8 * i)));
+        }
+    }
+
+}
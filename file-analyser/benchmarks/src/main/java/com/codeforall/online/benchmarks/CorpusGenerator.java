@@ -0,0 +1,256 @@
+package com.codeforall.online.benchmarks;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+
+/**
+ * Generates the text files the benchmarks run on.
+ * A corpus is fully determined by its shape, size and seed: the same arguments always produce the same bytes,
+ * on any machine and with any version of the analyser, so benchmark results can be compared across commits.
+ * Generated corpora are kept in the corpus directory and reused by later runs.
+ * <p>
+ * Words are drawn from a fixed vocabulary with a Zipf-like distribution, as in natural text, and lines
+ * regularly contain the words, numbers and palindromes the search benchmarks look for.
+ */
+public class CorpusGenerator {
+
+    /**
+     * Bumped whenever the generated text changes, so corpora cached by an older generator are not reused.
+     */
+    private static final int VERSION = 1;
+
+    private static final String CORPUS_DIRECTORY_PROPERTY = "corpus.dir";
+    private static final String DEFAULT_CORPUS_DIRECTORY = "target/corpora";
+
+    private static final int VOCABULARY_SIZE = 20_000;
+    private static final String[] PLANTED_WORDS = {"analysis", "Level", "racecar", "noon", "Analyser", "stats"};
+
+    private static final String LATIN = "abcdefghijklmnopqrstuvwxyz";
+    private static final String[] UNICODE_ALPHABETS = {
+            "àáâãäåæçèéêëìíîïñòóôõöøùúûüýþÿœšž",
+            "αβγδεζηθικλμνξοπρστυφχψω",
+            "абвгдежзийклмнопрстуфхцчшщъыьэюя",
+            "的一是不了人我在有他这中大来上国个到说们为子和你地出道也时年",
+            "あいうえおかきくけこさしすせそたちつてとなにぬねの"
+    };
+    private static final String[] EMOJI = {"😀", "🚀", "🎉", "📈"};
+
+
+    /**
+     * The kinds of text a corpus can hold.
+     */
+    public enum Shape {
+
+        /**
+         * Thousands of words per line, so per-line overhead disappears and line buffers grow large.
+         */
+        LONG_LINES(2_000, 8_000),
+
+        /**
+         * Lines of a handful of words, and some empty ones, so per-line overhead dominates.
+         */
+        SHORT_LINES(0, 8),
+
+        /**
+         * Mostly random words, so almost every word is new and frequency tables keep growing.
+         */
+        HIGH_CARDINALITY(8, 20),
+
+        /**
+         * Accented Latin, Greek, Cyrillic, CJK and emoji, so most characters take several bytes in UTF-8.
+         */
+        UNICODE(8, 20);
+
+        private final int minWords;
+        private final int maxWords;
+
+
+        Shape(int minWords, int maxWords) {
+            this.minWords = minWords;
+            this.maxWords = maxWords;
+        }
+    }
+
+
+    /**
+     * Returns the corpus of the given shape and size, generating it first if it is not in the corpus directory yet.
+     * The corpus directory is {@code target/corpora} unless the {@code corpus.dir} system property says otherwise.
+     *
+     * @param shape The kind of text.
+     * @param size  The size of the corpus, such as {@code 64KB}, {@code 16MB} or {@code 4GB}.
+     * @param seed  The seed of the random text; different seeds give different corpora of the same shape.
+     * @return The path to the corpus.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static Path corpus(Shape shape, String size, long seed) throws IOException {
+        Path directory = Paths.get(System.getProperty(CORPUS_DIRECTORY_PROPERTY, DEFAULT_CORPUS_DIRECTORY));
+        Path path = directory.resolve(String.format(Locale.ROOT, "%s-%s-%d-v%d.txt",
+                shape.name().toLowerCase(Locale.ROOT), size.toUpperCase(Locale.ROOT), seed, VERSION));
+        if (Files.exists(path)) {
+            return path;
+        }
+        Files.createDirectories(directory);
+        Path partial = Files.createTempFile(directory, path.getFileName().toString(), ".partial");
+        try {
+            try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(partial), 1 << 16)) {
+                generate(shape, parseSize(size), seed, out);
+            }
+            Files.move(partial, path, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(partial);
+        }
+        return path;
+    }
+
+
+    /**
+     * Writes whole lines of text until at least the given number of bytes has been written.
+     *
+     * @param shape The kind of text.
+     * @param bytes The minimum number of bytes to write.
+     * @param seed  The seed of the random text.
+     * @param out   The stream receiving the UTF-8 encoded text.
+     * @return The number of bytes written.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static long generate(Shape shape, long bytes, long seed, OutputStream out) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        String[] vocabulary = vocabulary(shape, new SplittableRandom(seed ^ 0x5DEECE66DL));
+        StringBuilder line = new StringBuilder();
+        long written = 0;
+        while (written < bytes) {
+            line.setLength(0);
+            int words = shape.minWords + random.nextInt(shape.maxWords - shape.minWords + 1);
+            for (int i = 0; i < words; i++) {
+                if (i > 0) {
+                    line.append(random.nextInt(16) == 0 ? "\t" : " ");
+                }
+                appendWord(shape, vocabulary, random, line);
+            }
+            line.append('\n');
+            byte[] encoded = line.toString().getBytes(StandardCharsets.UTF_8);
+            out.write(encoded);
+            written += encoded.length;
+        }
+        return written;
+    }
+
+
+    /**
+     * Parses a size such as {@code 512}, {@code 64KB}, {@code 16MB} or {@code 4GB}, in powers of 1024.
+     *
+     * @param size The size.
+     * @return The number of bytes.
+     * @throws IllegalArgumentException If the size cannot be parsed.
+     */
+    public static long parseSize(String size) {
+        String upper = size.trim().toUpperCase(Locale.ROOT);
+        long unit = 1;
+        if (upper.endsWith("KB")) {
+            unit = 1L << 10;
+        } else if (upper.endsWith("MB")) {
+            unit = 1L << 20;
+        } else if (upper.endsWith("GB")) {
+            unit = 1L << 30;
+        }
+        String digits = unit == 1 ? upper : upper.substring(0, upper.length() - 2);
+        try {
+            long value = Long.parseLong(digits.trim());
+            if (value <= 0) {
+                throw new IllegalArgumentException("Size must be positive: " + size);
+            }
+            return Math.multiplyExact(value, unit);
+        } catch (NumberFormatException | ArithmeticException e) {
+            throw new IllegalArgumentException("Invalid size: " + size, e);
+        }
+    }
+
+
+    /**
+     * Generates corpora ahead of a benchmark run, so their generation is not part of the first fork.
+     *
+     * @param args The shapes, sizes and seed to generate, such as {@code SHORT_LINES 64KB 16MB 4GB},
+     *             followed optionally by {@code --seed <seed>}.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: CorpusGenerator <shape>[,<shape>...] <size>... [--seed <seed>]");
+            return;
+        }
+        long seed = 1;
+        int sizes = args.length;
+        if (args.length > 3 && args[args.length - 2].equals("--seed")) {
+            seed = Long.parseLong(args[args.length - 1]);
+            sizes -= 2;
+        }
+        for (String shape : args[0].split(",")) {
+            for (int i = 1; i < sizes; i++) {
+                System.out.println(corpus(Shape.valueOf(shape.toUpperCase(Locale.ROOT)), args[i], seed));
+            }
+        }
+    }
+
+
+    private static void appendWord(Shape shape, String[] vocabulary, SplittableRandom random, StringBuilder line) {
+        int pick = random.nextInt(64);
+        if (pick == 0) {
+            line.append(PLANTED_WORDS[random.nextInt(PLANTED_WORDS.length)]);
+        } else if (pick == 1) {
+            line.append(random.nextInt(100_000));
+        } else if (shape == Shape.HIGH_CARDINALITY && pick < 48) {
+            appendRandomWord(LATIN, 3 + random.nextInt(10), random, line);
+        } else {
+            line.append(vocabulary[zipfRank(random)]);
+        }
+    }
+
+
+    /**
+     * @return A rank drawn with a probability roughly inversely proportional to the rank, as word frequencies in text are.
+     * StrictMath gives the same result on every platform, which Math does not promise.
+     */
+    private static int zipfRank(SplittableRandom random) {
+        return (int) StrictMath.exp(random.nextDouble() * StrictMath.log(VOCABULARY_SIZE)) - 1;
+    }
+
+
+    private static String[] vocabulary(Shape shape, SplittableRandom random) {
+        String[] vocabulary = new String[VOCABULARY_SIZE];
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < VOCABULARY_SIZE; i++) {
+            word.setLength(0);
+            // frequent words are short, as in natural text
+            int length = 1 + Math.min(14, i / 500 + random.nextInt(6));
+            String alphabet = shape == Shape.UNICODE && random.nextInt(4) != 0
+                    ? UNICODE_ALPHABETS[random.nextInt(UNICODE_ALPHABETS.length)]
+                    : LATIN;
+            appendRandomWord(alphabet, length, random, word);
+            if (shape == Shape.UNICODE && random.nextInt(32) == 0) {
+                word.append(EMOJI[random.nextInt(EMOJI.length)]);
+            }
+            if (random.nextInt(8) == 0) {
+                word.setCharAt(0, Character.toUpperCase(word.charAt(0)));
+            }
+            vocabulary[i] = word.toString();
+        }
+        return vocabulary;
+    }
+
+
+    private static void appendRandomWord(String alphabet, int length, SplittableRandom random, StringBuilder word) {
+        for (int i = 0; i < length; i++) {
+            word.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+    }
+
+}
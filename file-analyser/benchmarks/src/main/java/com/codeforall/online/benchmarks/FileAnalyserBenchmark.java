@@ -0,0 +1,304 @@
+package com.codeforall.online.benchmarks;
+
+import com.codeforall.online.AnalysisReport;
+import com.codeforall.online.AnalysisRequest;
+import com.codeforall.online.CountMinSketch;
+import com.codeforall.online.FileAnalyser;
+import com.codeforall.online.LineMatch;
+import com.codeforall.online.WordIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+
+/**
+ * Benchmarks every public operation of {@link FileAnalyser} on generated corpora of every shape and size.
+ * Scores are operations per second; {@link BenchmarkRunner} also turns them into bytes per second.
+ * <p>
+ * The operations that a fresh {@link WordIndex} can answer are benchmarked here without an index,
+ * and with one in {@link IndexedQueryBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class FileAnalyserBenchmark {
+
+    static final String WORD = "analysis";
+    static final List<String> WORDS = List.of("analysis", "racecar", "stats");
+    static final String REGEX = "analy[sz]\\w+ \\d+";
+    static final int N = 10;
+    static final long LIMIT = 10;
+    static final double SKETCH_ERROR = 0.01;
+
+    @Param({"LONG_LINES", "SHORT_LINES", "HIGH_CARDINALITY", "UNICODE"})
+    public CorpusGenerator.Shape shape;
+
+    @Param({"64KB", "16MB"})
+    public String size;
+
+    private String file;
+    private String otherFile;
+
+
+    @Setup
+    public void setUp() throws IOException {
+        Path corpus = CorpusGenerator.corpus(shape, size, 1);
+        Path other = CorpusGenerator.corpus(shape, size, 2);
+        // an index left behind by another run would answer some of the operations instead of the scan measured here
+        Files.deleteIfExists(WordIndex.indexPath(corpus));
+        Files.deleteIfExists(WordIndex.indexPath(other));
+        file = corpus.toString();
+        otherFile = other.toString();
+    }
+
+
+    @Benchmark
+    public AnalysisReport analyseAll() throws IOException {
+        return FileAnalyser.analyse(file, AnalysisRequest.all(WORD, N, REGEX));
+    }
+
+
+    @Benchmark
+    public long countLines() throws IOException {
+        return FileAnalyser.countLines(file);
+    }
+
+
+    @Benchmark
+    public long countWords() throws IOException {
+        return FileAnalyser.countWords(file);
+    }
+
+
+    @Benchmark
+    public long countLinesParallel() throws IOException {
+        return FileAnalyser.countLinesParallel(file);
+    }
+
+
+    @Benchmark
+    public long countWordsParallel() throws IOException {
+        return FileAnalyser.countWordsParallel(file);
+    }
+
+
+    @Benchmark
+    public long countNonEmptyLines() throws IOException {
+        return FileAnalyser.countNonEmptyLines(file);
+    }
+
+
+    @Benchmark
+    public long countUniqueWords() throws IOException {
+        return FileAnalyser.countUniqueWords(file);
+    }
+
+
+    @Benchmark
+    public long countWordOccurrences() throws IOException {
+        return FileAnalyser.countWordOccurrences(file, WORD);
+    }
+
+
+    @Benchmark
+    public List<String> findLinesContainingWord() throws IOException {
+        return FileAnalyser.findLinesContainingWord(file, WORD);
+    }
+
+
+    @Benchmark
+    public long findFirstLinesContainingWord(Blackhole blackhole) throws IOException {
+        return FileAnalyser.findLinesContainingWord(file, WORD, LIMIT, blackhole::consume);
+    }
+
+
+    @Benchmark
+    public long streamLinesContainingWord() throws IOException {
+        try (Stream<LineMatch> lines = FileAnalyser.streamLinesContainingWord(file, WORD)) {
+            return lines.count();
+        }
+    }
+
+
+    @Benchmark
+    public Map<String, List<String>> findLinesContainingWords() throws IOException {
+        return FileAnalyser.findLinesContainingWords(file, WORDS);
+    }
+
+
+    @Benchmark
+    public double averageLineLength() throws IOException {
+        return FileAnalyser.averageLineLength(file);
+    }
+
+
+    @Benchmark
+    public double averageWordLength() throws IOException {
+        return FileAnalyser.averageWordLength(file);
+    }
+
+
+    @Benchmark
+    public Optional<String> findShortestLine() throws IOException {
+        return FileAnalyser.findShortestLine(file);
+    }
+
+
+    @Benchmark
+    public Optional<String> findLongestLine() throws IOException {
+        return FileAnalyser.findLongestLine(file);
+    }
+
+
+    @Benchmark
+    public List<String> findTopNLongestWord() throws IOException {
+        return FileAnalyser.findTopNLongestWord(file, N);
+    }
+
+
+    @Benchmark
+    public List<Map.Entry<String, Long>> findTopNMostFrequentWords() throws IOException {
+        return FileAnalyser.findTopNMostFrequentWords(file, N);
+    }
+
+
+    @Benchmark
+    public List<String> findTopNLongestLines() throws IOException {
+        return FileAnalyser.findTopNLongestLines(file, N);
+    }
+
+
+    @Benchmark
+    public Optional<String> getFirstWordWithMoreThanNCharacters() throws IOException {
+        return FileAnalyser.getFirstWordWithMoreThanNCharacters(file, N);
+    }
+
+
+    @Benchmark
+    public Set<String> findCommonWordsBetweenFiles() throws IOException {
+        return FileAnalyser.findCommonWordsBetweenFiles(file, otherFile);
+    }
+
+
+    @Benchmark
+    public Set<String> findCommonWordsAcrossFiles() throws IOException {
+        return FileAnalyser.findCommonWordsAcrossFiles(List.of(file, otherFile));
+    }
+
+
+    @Benchmark
+    public Set<String> findAllWordsAcrossFiles() throws IOException {
+        return FileAnalyser.findAllWordsAcrossFiles(List.of(file, otherFile));
+    }
+
+
+    @Benchmark
+    public Map<String, Long> getWordFrequency() throws IOException {
+        return FileAnalyser.getWordFrequency(file);
+    }
+
+
+    @Benchmark
+    public long estimateUniqueWords() throws IOException {
+        return FileAnalyser.estimateUniqueWords(file, SKETCH_ERROR);
+    }
+
+
+    @Benchmark
+    public CountMinSketch sketchWordFrequency() throws IOException {
+        return FileAnalyser.sketchWordFrequency(file, SKETCH_ERROR / 10, 0.99);
+    }
+
+
+    @Benchmark
+    public List<Map.Entry<String, Long>> estimateMostFrequentWords() throws IOException {
+        return FileAnalyser.estimateMostFrequentWords(file, N, SKETCH_ERROR / 10);
+    }
+
+
+    @Benchmark
+    public long estimateCommonWordsBetweenFiles() throws IOException {
+        return FileAnalyser.estimateCommonWordsBetweenFiles(file, otherFile, SKETCH_ERROR);
+    }
+
+
+    @Benchmark
+    public List<Map.Entry<String, Long>> findTopNMostFrequentBigrams() throws IOException {
+        return FileAnalyser.findTopNMostFrequentNGrams(file, 2, N);
+    }
+
+
+    @Benchmark
+    public List<Map.Entry<String, Long>> findTopNCooccurringWords() throws IOException {
+        return FileAnalyser.findTopNCooccurringWords(file, 5, N);
+    }
+
+
+    @Benchmark
+    public List<String> findLinesContainingNumbers() throws IOException {
+        return FileAnalyser.findLinesContainingNumbers(file);
+    }
+
+
+    @Benchmark
+    public long findFirstLinesContainingNumbers(Blackhole blackhole) throws IOException {
+        return FileAnalyser.findLinesContainingNumbers(file, LIMIT, blackhole::consume);
+    }
+
+
+    @Benchmark
+    public long streamLinesContainingNumbers() throws IOException {
+        try (Stream<LineMatch> lines = FileAnalyser.streamLinesContainingNumbers(file)) {
+            return lines.count();
+        }
+    }
+
+
+    @Benchmark
+    public List<String> findLinesMatchingRegex() throws IOException {
+        return FileAnalyser.findLinesMatchingRegex(file, REGEX);
+    }
+
+
+    @Benchmark
+    public long findFirstLinesMatchingRegex(Blackhole blackhole) throws IOException {
+        return FileAnalyser.findLinesMatchingRegex(file, REGEX, LIMIT, blackhole::consume);
+    }
+
+
+    @Benchmark
+    public long streamLinesMatchingRegex() throws IOException {
+        try (Stream<LineMatch> lines = FileAnalyser.streamLinesMatchingRegex(file, REGEX)) {
+            return lines.count();
+        }
+    }
+
+
+    @Benchmark
+    public List<String> findPalindromicWords() throws IOException {
+        return FileAnalyser.findPalindromicWords(file);
+    }
+
+}
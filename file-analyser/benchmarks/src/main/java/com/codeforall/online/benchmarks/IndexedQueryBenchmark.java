@@ -0,0 +1,93 @@
+package com.codeforall.online.benchmarks;
+
+import com.codeforall.online.FileAnalyser;
+import com.codeforall.online.WordIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Benchmarks building a {@link WordIndex} and the {@link FileAnalyser} operations that a fresh index answers.
+ * The index is built beside a copy of the corpus, so that {@link FileAnalyserBenchmark} keeps measuring the scans.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class IndexedQueryBenchmark {
+
+    @Param({"LONG_LINES", "SHORT_LINES", "HIGH_CARDINALITY", "UNICODE"})
+    public CorpusGenerator.Shape shape;
+
+    @Param({"64KB", "16MB"})
+    public String size;
+
+    private String file;
+
+
+    @Setup
+    public void setUp() throws IOException {
+        Path corpus = CorpusGenerator.corpus(shape, size, 1);
+        Path copy = corpus.resolveSibling(corpus.getFileName().toString().replace(".txt", ".indexed.txt"));
+        if (!Files.exists(copy)) {
+            Files.copy(corpus, copy, StandardCopyOption.COPY_ATTRIBUTES);
+        }
+        file = copy.toString();
+        FileAnalyser.buildIndex(file);
+    }
+
+
+    @Benchmark
+    public Path buildIndex() throws IOException {
+        return FileAnalyser.buildIndex(file);
+    }
+
+
+    @Benchmark
+    public long countLines() throws IOException {
+        return FileAnalyser.countLines(file);
+    }
+
+
+    @Benchmark
+    public long countWords() throws IOException {
+        return FileAnalyser.countWords(file);
+    }
+
+
+    @Benchmark
+    public long countUniqueWords() throws IOException {
+        return FileAnalyser.countUniqueWords(file);
+    }
+
+
+    @Benchmark
+    public long countWordOccurrences() throws IOException {
+        return FileAnalyser.countWordOccurrences(file, FileAnalyserBenchmark.WORD);
+    }
+
+
+    @Benchmark
+    public List<String> findLinesContainingWord() throws IOException {
+        return FileAnalyser.findLinesContainingWord(file, FileAnalyserBenchmark.WORD);
+    }
+
+}
@@ -0,0 +1,72 @@
+package com.codeforall.online.benchmarks;
+
+import com.codeforall.online.MappedFileScanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Measures how the parallel line and word count of a single file scales with the number of worker threads.
+ * How the other operations scale with the number of concurrent callers is measured by
+ * running {@link FileAnalyserBenchmark} with {@code --threads}, see {@link BenchmarkRunner}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParallelScanBenchmark {
+
+    @Param({"LONG_LINES", "SHORT_LINES", "HIGH_CARDINALITY", "UNICODE"})
+    public CorpusGenerator.Shape shape;
+
+    @Param({"64MB"})
+    public String size;
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    @Param({"1MB", "16MB"})
+    public String chunkSize;
+
+    private Path file;
+    private ForkJoinPool pool;
+    private long chunkBytes;
+
+
+    @Setup
+    public void setUp() throws IOException {
+        file = CorpusGenerator.corpus(shape, size, 1);
+        pool = new ForkJoinPool(parallelism);
+        chunkBytes = CorpusGenerator.parseSize(chunkSize);
+    }
+
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+
+    @Benchmark
+    public MappedFileScanner.Counts scan() throws IOException {
+        return MappedFileScanner.scan(file, pool, chunkBytes);
+    }
+
+}
@@ -0,0 +1,217 @@
+package com.codeforall.online;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Finds any number of words in text at once with the Aho-Corasick algorithm, ignoring case.
+ * The words are compiled into one automaton, so a line is scanned a single time however many words are searched for,
+ * and every occurrence of every word is reported, including overlapping ones.
+ * ASCII characters move through a precomputed transition table; other characters follow failure links.
+ * Case is folded per character with {@link WordTokenizer#fold(char)}, the same way words are compared.
+ * A compiled automaton is immutable and can be shared between threads.
+ */
+public class AhoCorasick {
+
+    private static final int ASCII = 128;
+
+    private final String[] words;
+    private final int[] wordLengths;
+    private final int[][] asciiNext;
+    private final Map<Long, Integer> otherNext = new HashMap<>();
+    private final int[] failures;
+    private final int[][] outputs;
+
+
+    /**
+     * Receives every occurrence found by {@link #findAll(CharSequence, MatchListener)}.
+     */
+    @FunctionalInterface
+    public interface MatchListener {
+
+        /**
+         * @param word  The index of the word that was found, in the order the words were given.
+         * @param start The index of the first character of the occurrence in the text.
+         * @param end   The index just after the last character of the occurrence in the text.
+         */
+        void onMatch(int word, int start, int end);
+    }
+
+
+    /**
+     * Compiles the given words into an automaton.
+     *
+     * @param words The words to search for.
+     * @throws IllegalArgumentException If a word is empty.
+     */
+    public AhoCorasick(Collection<String> words) {
+        this.words = words.toArray(new String[0]);
+        this.wordLengths = new int[this.words.length];
+        List<int[]> nodes = new ArrayList<>();
+        List<List<Integer>> ownOutputs = new ArrayList<>();
+        nodes.add(newNode());
+        ownOutputs.add(new ArrayList<>());
+
+        // build the trie of the folded words
+        for (int word = 0; word < this.words.length; word++) {
+            String folded = WordTokenizer.fold(this.words[word]);
+            if (folded.isEmpty()) {
+                throw new IllegalArgumentException("Words must not be empty");
+            }
+            wordLengths[word] = folded.length();
+            int node = 0;
+            for (int i = 0; i < folded.length(); i++) {
+                int next = child(nodes, node, folded.charAt(i));
+                if (next < 0) {
+                    next = nodes.size();
+                    nodes.add(newNode());
+                    ownOutputs.add(new ArrayList<>());
+                    setChild(nodes, node, folded.charAt(i), next);
+                }
+                node = next;
+            }
+            ownOutputs.get(node).add(word);
+        }
+        Map<Integer, List<Long>> otherByNode = new HashMap<>();
+        for (long key : otherNext.keySet()) {
+            otherByNode.computeIfAbsent((int) (key >>> 16), node -> new ArrayList<>()).add(key);
+        }
+
+        // breadth first, link every node to its longest proper suffix in the trie and complete the ASCII transitions;
+        // the failure node is always shallower, so its transitions and outputs are already final
+        failures = new int[nodes.size()];
+        outputs = new int[nodes.size()][];
+        outputs[0] = new int[0];
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        queue.add(0);
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            int[] next = nodes.get(node);
+            for (char c = 0; c < ASCII; c++) {
+                int failureNext = node == 0 ? 0 : nodes.get(failures[node])[c];
+                if (next[c] < 0) {
+                    next[c] = failureNext;
+                } else {
+                    link(next[c], failureNext, ownOutputs);
+                    queue.add(next[c]);
+                }
+            }
+            for (long key : otherByNode.getOrDefault(node, List.of())) {
+                int child = otherNext.get(key);
+                link(child, node == 0 ? 0 : step(failures[node], (char) key, nodes), ownOutputs);
+                queue.add(child);
+            }
+        }
+        asciiNext = nodes.toArray(new int[0][]);
+    }
+
+
+    /**
+     * Reports every occurrence of every word in the text, in the order the occurrences end.
+     *
+     * @param text     The text to search.
+     * @param listener The listener receiving the occurrences.
+     */
+    public void findAll(CharSequence text, MatchListener listener) {
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            node = step(node, WordTokenizer.fold(text.charAt(i)), null);
+            for (int word : outputs[node]) {
+                listener.onMatch(word, i + 1 - wordLengths[word], i + 1);
+            }
+        }
+    }
+
+
+    /**
+     * @param text The text to search.
+     * @return True if any of the words occurs in the text, false otherwise.
+     */
+    public boolean isAnyFoundIn(CharSequence text) {
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            node = step(node, WordTokenizer.fold(text.charAt(i)), null);
+            if (outputs[node].length > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    /**
+     * @return The words searched for, in the order they were given.
+     */
+    public List<String> getWords() {
+        return List.of(words);
+    }
+
+
+    /**
+     * Moves from a node on a folded character, following failure links for characters outside the ASCII table.
+     * While the automaton is being built, the nodes are passed in, since the ASCII table is not final yet.
+     */
+    private int step(int node, char c, List<int[]> nodes) {
+        if (c < ASCII) {
+            return nodes == null ? asciiNext[node][c] : nodes.get(node)[c];
+        }
+        while (true) {
+            Integer next = otherNext.get(key(node, c));
+            if (next != null) {
+                return next;
+            }
+            if (node == 0) {
+                return 0;
+            }
+            node = failures[node];
+        }
+    }
+
+
+    private void link(int node, int failure, List<List<Integer>> ownOutputs) {
+        failures[node] = failure;
+        List<Integer> nodeOutputs = ownOutputs.get(node);
+        int[] linked = Arrays.copyOf(outputs[failure], outputs[failure].length + nodeOutputs.size());
+        for (int i = 0; i < nodeOutputs.size(); i++) {
+            linked[outputs[failure].length + i] = nodeOutputs.get(i);
+        }
+        outputs[node] = linked;
+    }
+
+
+    private int child(List<int[]> nodes, int node, char c) {
+        if (c < ASCII) {
+            return nodes.get(node)[c];
+        }
+        Integer next = otherNext.get(key(node, c));
+        return next == null ? -1 : next;
+    }
+
+
+    private void setChild(List<int[]> nodes, int node, char c, int child) {
+        if (c < ASCII) {
+            nodes.get(node)[c] = child;
+        } else {
+            otherNext.put(key(node, c), child);
+        }
+    }
+
+
+    private static long key(int node, char c) {
+        return ((long) node << 16) | c;
+    }
+
+
+    private static int[] newNode() {
+        int[] next = new int[ASCII];
+        Arrays.fill(next, -1);
+        return next;
+    }
+
+}
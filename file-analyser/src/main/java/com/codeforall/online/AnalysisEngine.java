@@ -0,0 +1,617 @@
+package com.codeforall.online;
+
+import java.io.BufferedReader;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.function.Predicate;
+
+
+/**
+ * Computes every requested {@link Metric} in a single pass over a file.
+ * The file is read once, every line is split into words by one reusable {@link WordTokenizer},
+ * and every metric is fed from that one pass, instead of each {@link FileAnalyser} method reading and tokenizing the file on its own.
+ * Lines can also be pushed one at a time with {@link #acceptLine(CharSequence)} and the results collected with {@link #report()}.
+ * <p>
+ * Files in a charset that encodes ASCII as single bytes, such as UTF-8, are read with a {@link LineReader}, so lines of
+ * ASCII bytes are analysed straight from the bytes, without being decoded, and only the lines and words that a metric
+ * keeps become Strings. Files in other charsets, such as UTF-16, are decoded as a whole. Compressed files are analysed
+ * as they are decompressed, see {@link CompressedInput}.
+ */
+public class AnalysisEngine {
+
+    private static final int STATE_MAGIC = 0x46415353;
+    private static final int STATE_VERSION = 3;
+
+    private final AnalysisRequest request;
+    private final String filename;
+
+    private final boolean needsWords;
+    private final boolean needsVocabulary;
+    private final String foldedWord;
+    private final Predicate<String> containsWord;
+    private final Predicate<String> containsNumber = LineSearch.containingNumber();
+    private final Predicate<String> matchesRegex;
+    private final WordTokenizer tokenizer = new WordTokenizer();
+
+    private long lineCount;
+    private long lineLengthSum;
+    private long wordCount;
+    private long nonEmptyLineCount;
+    private WordFrequencyTable vocabulary = new WordFrequencyTable();
+    private long wordOccurrences;
+    private final List<String> linesContainingWord = new ArrayList<>();
+    private long wordLengthSum;
+    private String shortestLine;
+    private String longestLine;
+    private final TopN<String> longestWords;
+    private final TopN<String> longestLines;
+    private String firstWordLongerThanN;
+    private final List<String> linesContainingNumbers = new ArrayList<>();
+    private final List<String> linesMatchingRegex = new ArrayList<>();
+    private final Set<String> palindromicWords = new LinkedHashSet<>();
+
+    private String lineText;
+
+
+    /**
+     * Creates an engine for the given request.
+     *
+     * @param filename The path to the file being analysed, used to label the report.
+     * @param request  The metrics to compute.
+     * @throws IllegalArgumentException If a requested metric is missing its parameter.
+     */
+    public AnalysisEngine(String filename, AnalysisRequest request) {
+        request.validate();
+        this.filename = filename;
+        this.request = request;
+        this.needsWords = request.includes(Metric.WORD_COUNT)
+                || request.includes(Metric.UNIQUE_WORD_COUNT)
+                || request.includes(Metric.WORD_OCCURRENCES)
+                || request.includes(Metric.AVERAGE_WORD_LENGTH)
+                || request.includes(Metric.TOP_N_LONGEST_WORDS)
+                || request.includes(Metric.FIRST_WORD_LONGER_THAN_N)
+                || request.includes(Metric.WORD_FREQUENCY)
+                || request.includes(Metric.TOP_N_FREQUENT_WORDS)
+                || request.includes(Metric.PALINDROMIC_WORDS);
+        this.needsVocabulary = request.includes(Metric.UNIQUE_WORD_COUNT)
+                || request.includes(Metric.WORD_FREQUENCY)
+                || request.includes(Metric.TOP_N_FREQUENT_WORDS);
+        Comparator<String> longestFirst = Comparator.comparingInt(String::length).reversed();
+        this.longestWords = request.includes(Metric.TOP_N_LONGEST_WORDS) ? new TopN<>(request.getTopN(), longestFirst) : null;
+        this.longestLines = request.includes(Metric.TOP_N_LONGEST_LINES) ? new TopN<>(request.getTopN(), longestFirst) : null;
+        this.foldedWord = request.getWord() == null ? null : WordTokenizer.fold(request.getWord());
+        this.containsWord = request.getWord() == null ? null : LineSearch.containingWord(request.getWord());
+        this.matchesRegex = request.getRegex() == null ? null : LineSearch.matching(request.getRegex());
+    }
+
+
+    /**
+     * Reads the specified file once and computes every requested metric. A compressed file is decompressed on other threads
+     * while its lines are analysed.
+     *
+     * @param filename The path to the file.
+     * @param request  The metrics to compute.
+     * @return A report holding the requested metrics.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static AnalysisReport analyse(String filename, AnalysisRequest request) throws IOException {
+        AnalysisEngine engine = new AnalysisEngine(filename, request);
+        OperationTrace trace = Tracing.begin("analyse", filename);
+        try {
+            Path path = Paths.get(filename);
+            Charset charset = charsetOf(path, request);
+            InputStream in = CompressedInput.open(path);
+            if (trace != null) {
+                in = trace.meter(in);
+            }
+            if (LineReader.isAsciiCompatible(charset)) {
+                try (LineReader reader = new LineReader(in, charset, request.isLenient())) {
+                    engine.readLines(reader, trace);
+                }
+                return engine.report();
+            }
+            try (BufferedReader reader = decodingReader(in, charset, request.isLenient())) {
+                engine.readLines(reader, trace);
+            }
+            return engine.report();
+        } finally {
+            engine.endTrace(trace);
+        }
+    }
+
+
+    /**
+     * Hands every line of the specified file to a consumer, reading the file the way {@link #analyse(String, AnalysisRequest)}
+     * does: with a {@link LineReader} if the charset encodes ASCII as single bytes, and decoded as a whole otherwise.
+     *
+     * @param path     The path to the file.
+     * @param charset  The charset of the file, or null to detect it, see {@link CharsetDetector}.
+     * @param lenient  True to replace malformed input with {@code '\uFFFD'}, false to report it as an exception.
+     * @param consumer The consumer receiving the lines; a line may be a view that is only valid during the call.
+     * @throws IOException If an I/O error occurs, or the consumer throws one.
+     */
+    static void forEachLine(Path path, Charset charset, boolean lenient, LineConsumer consumer) throws IOException {
+        Charset fileCharset = charset != null ? charset : CharsetDetector.detect(path);
+        InputStream in = CompressedInput.open(path);
+        if (LineReader.isAsciiCompatible(fileCharset)) {
+            try (LineReader reader = new LineReader(in, fileCharset, lenient)) {
+                while (reader.next()) {
+                    consumer.accept(reader.text());
+                }
+            }
+            return;
+        }
+        try (BufferedReader reader = decodingReader(in, fileCharset, lenient)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                consumer.accept(line);
+            }
+        }
+    }
+
+
+    /**
+     * Receives the lines of a file from {@link #forEachLine(Path, Charset, boolean, LineConsumer)}.
+     */
+    @FunctionalInterface
+    interface LineConsumer {
+
+        /**
+         * @param line The line, without its line terminator.
+         * @throws IOException If handling the line fails.
+         */
+        void accept(CharSequence line) throws IOException;
+    }
+
+
+    private static BufferedReader decodingReader(InputStream in, Charset charset, boolean lenient) {
+        CodingErrorAction action = lenient ? CodingErrorAction.REPLACE : CodingErrorAction.REPORT;
+        return new BufferedReader(new InputStreamReader(in, charset.newDecoder().onMalformedInput(action).onUnmappableCharacter(action)));
+    }
+
+
+    /**
+     * Reads the lines of a byte range of the specified file and computes every requested metric over them.
+     * The range has to start at the beginning of a line and end just after a line terminator or at the end of the file,
+     * like the chunks {@link MappedFileScanner} splits files into. The engine of a range can be merged with the engines
+     * of the ranges around it, see {@link #merge(AnalysisEngine)}. The charset, if detected, is detected from the start of
+     * the file, so every range of a file is decoded alike.
+     *
+     * @param path    The path to the file.
+     * @param start   The offset of the first byte of the range.
+     * @param end     The offset just after the last byte of the range.
+     * @param request The metrics to compute.
+     * @return An engine holding the state of the metrics over the range.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If the file is compressed, or its charset does not encode ASCII as single bytes,
+     *                                  so lines cannot be found in byte ranges.
+     */
+    public static AnalysisEngine analyseRange(Path path, long start, long end, AnalysisRequest request) throws IOException {
+        CompressedInput.requireUncompressed(path, "analysed in byte ranges");
+        Charset charset = charsetOf(path, request);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return analyseRange(path, channel, charset, start, end, request);
+        }
+    }
+
+
+    /**
+     * Reads the lines of a byte range of a file through a channel that stays open, so that every range of a file can be
+     * read through the same one, see {@link #analyseRange(Path, long, long, AnalysisRequest)}.
+     *
+     * @param path    The path to the file, which names the engine.
+     * @param channel The open channel of the uncompressed file, which may be read by other ranges at the same time.
+     * @param charset The charset of the file, which has to encode ASCII as single bytes.
+     * @param start   The offset of the first byte of the range.
+     * @param end     The offset just after the last byte of the range.
+     * @param request The metrics to compute.
+     * @return An engine holding the state of the metrics over the range.
+     * @throws IOException If an I/O error occurs.
+     */
+    static AnalysisEngine analyseRange(Path path, FileChannel channel, Charset charset, long start, long end, AnalysisRequest request)
+            throws IOException {
+        AnalysisEngine engine = new AnalysisEngine(path.toString(), request);
+        OperationTrace trace = Tracing.begin("analyseRange", path.toString());
+        try {
+            InputStream in = new FileRangeInputStream(channel, start, end);
+            if (trace != null) {
+                in = trace.meter(in);
+            }
+            try (LineReader reader = new LineReader(in, charset, request.isLenient(), start == 0)) {
+                engine.readLines(reader, trace);
+            }
+            return engine;
+        } finally {
+            engine.endTrace(trace);
+        }
+    }
+
+
+    /**
+     * Feeds every line of the reader to the metrics, until the reader ends or every metric is complete.
+     * When the operation is traced, every few lines are timed phase by phase, see {@link OperationTrace}.
+     */
+    private void readLines(LineReader reader, OperationTrace trace) throws IOException {
+        if (trace == null) {
+            while (!isComplete() && reader.next()) {
+                acceptLine(reader.text());
+            }
+            return;
+        }
+        trace.startLines();
+        while (!isComplete()) {
+            if (!trace.sampleNextLine()) {
+                if (!reader.next()) {
+                    break;
+                }
+                acceptLine(reader.text());
+                continue;
+            }
+            long start = System.nanoTime();
+            long read = trace.readNanos();
+            if (!reader.next()) {
+                break;
+            }
+            acceptSampledLine(reader.text(), trace, System.nanoTime() - start - (trace.readNanos() - read));
+        }
+        trace.endLines();
+    }
+
+
+    /**
+     * Feeds every line of a decoding reader to the metrics, like {@link #readLines(LineReader, OperationTrace)}.
+     */
+    private void readLines(BufferedReader reader, OperationTrace trace) throws IOException {
+        String line;
+        if (trace == null) {
+            while (!isComplete() && (line = reader.readLine()) != null) {
+                acceptLine(line);
+            }
+            return;
+        }
+        trace.startLines();
+        while (!isComplete()) {
+            if (!trace.sampleNextLine()) {
+                if ((line = reader.readLine()) == null) {
+                    break;
+                }
+                acceptLine(line);
+                continue;
+            }
+            long start = System.nanoTime();
+            long read = trace.readNanos();
+            if ((line = reader.readLine()) == null) {
+                break;
+            }
+            acceptSampledLine(line, trace, System.nanoTime() - start - (trace.readNanos() - read));
+        }
+        trace.endLines();
+    }
+
+
+    /**
+     * Feeds a line to the metrics like {@link #acceptLine(CharSequence)}, timing how long splitting it into words takes
+     * on its own, and how long the rest takes.
+     */
+    private void acceptSampledLine(CharSequence line, OperationTrace trace, long decodeNanos) {
+        long start = System.nanoTime();
+        if (needsWords) {
+            tokenizer.reset(line);
+            while (tokenizer.next() != null) {
+                // only timed
+            }
+        }
+        long tokenized = System.nanoTime();
+        acceptLine(line);
+        long tokenizeNanos = tokenized - start;
+        trace.sample(decodeNanos, tokenizeNanos, System.nanoTime() - tokenized - tokenizeNanos);
+    }
+
+
+    /**
+     * Records the lines and words this engine went through in the trace of its operation, and ends the trace.
+     */
+    private void endTrace(OperationTrace trace) {
+        if (trace != null) {
+            trace.count(0, lineCount, wordCount);
+            Tracing.end(trace);
+        }
+    }
+
+
+    /**
+     * @return The charset the request asks for, or the charset detected from the start of the file.
+     */
+    static Charset charsetOf(Path path, AnalysisRequest request) throws IOException {
+        return request.getCharset() != null ? request.getCharset() : CharsetDetector.detect(path);
+    }
+
+
+    /**
+     * Reads the state of an engine written by {@link #writeTo(DataOutput)}, to go on feeding it lines or to merge it.
+     *
+     * @param in The input to read from.
+     * @return The engine.
+     * @throws IOException If an I/O error occurs or the input is not the state of an engine.
+     */
+    public static AnalysisEngine readFrom(DataInput in) throws IOException {
+        if (in.readInt() != STATE_MAGIC || in.readInt() != STATE_VERSION) {
+            throw new IOException("Not an analysis state of version " + STATE_VERSION);
+        }
+        AnalysisRequest request = AnalysisRequest.readFrom(in);
+        AnalysisEngine engine = new AnalysisEngine(StateCodec.readString(in), request);
+        engine.lineCount = StateCodec.readVarLong(in);
+        engine.lineLengthSum = StateCodec.readVarLong(in);
+        engine.wordCount = StateCodec.readVarLong(in);
+        engine.nonEmptyLineCount = StateCodec.readVarLong(in);
+        engine.wordOccurrences = StateCodec.readVarLong(in);
+        engine.wordLengthSum = StateCodec.readVarLong(in);
+        engine.vocabulary = WordFrequencyTable.readFrom(in);
+        StateCodec.readStrings(in, engine.linesContainingWord);
+        StateCodec.readStrings(in, engine.linesContainingNumbers);
+        StateCodec.readStrings(in, engine.linesMatchingRegex);
+        engine.shortestLine = StateCodec.readString(in);
+        engine.longestLine = StateCodec.readString(in);
+        for (String word : StateCodec.readStrings(in, new ArrayList<>())) {
+            engine.longestWords.offer(word);
+        }
+        for (String line : StateCodec.readStrings(in, new ArrayList<>())) {
+            engine.longestLines.offer(line);
+        }
+        engine.firstWordLongerThanN = StateCodec.readString(in);
+        StateCodec.readStrings(in, engine.palindromicWords);
+        return engine;
+    }
+
+
+    /**
+     * Feeds one line of the file to every requested metric.
+     * The line may be a view that changes after this call, such as {@link LineReader#text()}; it is copied into a String
+     * only if a metric keeps it or has to search it as a String, and then only once.
+     *
+     * @param line The line, without its line terminator.
+     */
+    public void acceptLine(CharSequence line) {
+        lineText = line instanceof String ? (String) line : null;
+        lineCount++;
+        lineLengthSum += line.length();
+
+        if (request.includes(Metric.NON_EMPTY_LINE_COUNT) && !isBlank(line)) {
+            nonEmptyLineCount++;
+        }
+        if (request.includes(Metric.LINES_CONTAINING_WORD) && containsWord.test(lineText(line))) {
+            linesContainingWord.add(lineText(line));
+        }
+        if (request.includes(Metric.SHORTEST_LINE) && (shortestLine == null || line.length() < shortestLine.length())) {
+            shortestLine = lineText(line);
+        }
+        if (request.includes(Metric.LONGEST_LINE) && (longestLine == null || line.length() > longestLine.length())) {
+            longestLine = lineText(line);
+        }
+        if (longestLines != null && beatsWorst(longestLines, line.length())) {
+            longestLines.offer(lineText(line));
+        }
+        if (request.includes(Metric.LINES_CONTAINING_NUMBERS) && containsNumber.test(lineText(line))) {
+            linesContainingNumbers.add(lineText(line));
+        }
+        if (request.includes(Metric.LINES_MATCHING_REGEX) && matchesRegex.test(lineText(line))) {
+            linesMatchingRegex.add(lineText(line));
+        }
+
+        if (needsWords) {
+            tokenizer.reset(line);
+            for (WordTokenizer.Token token = tokenizer.next(); token != null; token = tokenizer.next()) {
+                acceptWord(token);
+            }
+        }
+        lineText = null;
+    }
+
+
+    /**
+     * @return The current line as a String, created the first time it is needed.
+     */
+    private String lineText(CharSequence line) {
+        if (lineText == null) {
+            lineText = line.toString();
+        }
+        return lineText;
+    }
+
+
+    /**
+     * Checks whether a line holds nothing but whitespace and control characters, like {@code line.trim().isEmpty()}.
+     */
+    private static boolean isBlank(CharSequence line) {
+        for (int i = 0, length = line.length(); i < length; i++) {
+            if (line.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Feeds one word to every requested word-level metric.
+     * The token is only a view over the current line, so it is copied into a String only when it has to be kept;
+     * unique words and word frequencies share one {@link WordFrequencyTable}, which copies a word only the first time it is seen.
+     *
+     * @param token The word.
+     */
+    private void acceptWord(WordTokenizer.Token token) {
+        wordCount++;
+        wordLengthSum += token.length();
+
+        if (needsVocabulary) {
+            vocabulary.increment(token);
+        }
+        if (request.includes(Metric.WORD_OCCURRENCES) && token.equalsFolded(foldedWord)) {
+            wordOccurrences++;
+        }
+        if (longestWords != null && beatsWorst(longestWords, token.length())) {
+            longestWords.offer(token.toString());
+        }
+        if (request.includes(Metric.FIRST_WORD_LONGER_THAN_N) && firstWordLongerThanN == null
+                && token.length() > request.getMinWordLength()) {
+            firstWordLongerThanN = token.toString();
+        }
+        if (request.includes(Metric.PALINDROMIC_WORDS) && token.isPalindrome()) {
+            palindromicWords.add(token.toString());
+        }
+    }
+
+
+    /**
+     * Checks whether a word or line of the given length would enter a longest-first selection,
+     * so it is only copied into a String when it does. Equal lengths lose to the element seen first.
+     *
+     * @param top    The selection.
+     * @param length The length of the word or line.
+     * @return True if the word or line would be kept, false otherwise.
+     */
+    private static boolean beatsWorst(TopN<String> top, int length) {
+        return !top.isFull() || (top.size() > 0 && length > top.worst().length());
+    }
+
+
+    /**
+     * Adds the state of another engine, which analysed the lines that come right after the lines of this one,
+     * so that this engine holds the state it would have had after reading the lines of both.
+     * Merging is associative: the ranges of a file can be analysed separately and their engines merged in any grouping,
+     * as long as the order of the ranges is kept. Metrics that depend on the order of the lines, such as the first long word
+     * or which of two equally long lines is the longest, come out as if the file had been read from the beginning.
+     *
+     * @param following The engine of the lines after the lines of this one; it must not be used afterwards.
+     * @return This engine.
+     * @throws IllegalArgumentException If the other engine computes different metrics.
+     */
+    public AnalysisEngine merge(AnalysisEngine following) {
+        if (!request.sameAs(following.request)) {
+            throw new IllegalArgumentException("Only engines computing the same metrics can be merged");
+        }
+        lineCount += following.lineCount;
+        lineLengthSum += following.lineLengthSum;
+        wordCount += following.wordCount;
+        nonEmptyLineCount += following.nonEmptyLineCount;
+        wordOccurrences += following.wordOccurrences;
+        wordLengthSum += following.wordLengthSum;
+        if (vocabulary.size() == 0) {
+            vocabulary = following.vocabulary;
+        } else {
+            vocabulary.addAll(following.vocabulary);
+        }
+        linesContainingWord.addAll(following.linesContainingWord);
+        linesContainingNumbers.addAll(following.linesContainingNumbers);
+        linesMatchingRegex.addAll(following.linesMatchingRegex);
+        if (following.shortestLine != null && (shortestLine == null || following.shortestLine.length() < shortestLine.length())) {
+            shortestLine = following.shortestLine;
+        }
+        if (following.longestLine != null && (longestLine == null || following.longestLine.length() > longestLine.length())) {
+            longestLine = following.longestLine;
+        }
+        if (longestWords != null) {
+            longestWords.addAll(following.longestWords);
+        }
+        if (longestLines != null) {
+            longestLines.addAll(following.longestLines);
+        }
+        if (firstWordLongerThanN == null) {
+            firstWordLongerThanN = following.firstWordLongerThanN;
+        }
+        palindromicWords.addAll(following.palindromicWords);
+        return this;
+    }
+
+
+    /**
+     * Writes the running state of every requested metric, together with the request, in a compact binary form.
+     * Lines and words are only written for the metrics that keep them, so the state of the counting metrics takes a few bytes.
+     *
+     * @param out The output to write to.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeInt(STATE_MAGIC);
+        out.writeInt(STATE_VERSION);
+        request.writeTo(out);
+        StateCodec.writeString(out, filename);
+        StateCodec.writeVarLong(out, lineCount);
+        StateCodec.writeVarLong(out, lineLengthSum);
+        StateCodec.writeVarLong(out, wordCount);
+        StateCodec.writeVarLong(out, nonEmptyLineCount);
+        StateCodec.writeVarLong(out, wordOccurrences);
+        StateCodec.writeVarLong(out, wordLengthSum);
+        vocabulary.writeTo(out);
+        StateCodec.writeStrings(out, linesContainingWord);
+        StateCodec.writeStrings(out, linesContainingNumbers);
+        StateCodec.writeStrings(out, linesMatchingRegex);
+        StateCodec.writeString(out, shortestLine);
+        StateCodec.writeString(out, longestLine);
+        // best first, which offers equally long elements in the order they were seen when read back
+        StateCodec.writeStrings(out, longestWords == null ? List.of() : longestWords.toList());
+        StateCodec.writeStrings(out, longestLines == null ? List.of() : longestLines.toList());
+        StateCodec.writeString(out, firstWordLongerThanN);
+        StateCodec.writeStrings(out, palindromicWords);
+    }
+
+
+    /**
+     * Tells whether reading more lines could still change the report,
+     * which is only the case once the first long word has been found and nothing else was requested.
+     *
+     * @return True if the remaining lines can be skipped, false otherwise.
+     */
+    public boolean isComplete() {
+        return firstWordLongerThanN != null && request.getMetrics().size() == 1;
+    }
+
+
+    /**
+     * @return The metrics this engine computes.
+     */
+    AnalysisRequest request() {
+        return request;
+    }
+
+
+    /**
+     * Builds a report from the lines accepted so far.
+     * The word frequencies are not copied: the report shares the engine's table, so it should be built once all lines are accepted.
+     *
+     * @return A report holding the requested metrics.
+     */
+    public AnalysisReport report() {
+        AnalysisReport report = new AnalysisReport(filename, request.getMetrics());
+        report.lineCount = lineCount;
+        report.wordCount = wordCount;
+        report.nonEmptyLineCount = nonEmptyLineCount;
+        report.uniqueWordCount = vocabulary.size();
+        report.wordOccurrences = wordOccurrences;
+        report.linesContainingWord = new ArrayList<>(linesContainingWord);
+        report.averageLineLength = lineCount == 0 ? 0.0 : (double) lineLengthSum / lineCount;
+        report.averageWordLength = wordCount == 0 ? 0.0 : (double) wordLengthSum / wordCount;
+        report.shortestLine = Optional.ofNullable(shortestLine);
+        report.longestLine = Optional.ofNullable(longestLine);
+        report.topNLongestWords = longestWords == null ? List.of() : longestWords.toList();
+        report.topNFrequentWords = request.includes(Metric.TOP_N_FREQUENT_WORDS) ? vocabulary.mostFrequent(request.getTopN()) : List.of();
+        report.topNLongestLines = longestLines == null ? List.of() : longestLines.toList();
+        report.firstWordLongerThanN = Optional.ofNullable(firstWordLongerThanN);
+        report.wordFrequency = vocabulary;
+        report.linesContainingNumbers = new ArrayList<>(linesContainingNumbers);
+        report.linesMatchingRegex = new ArrayList<>(linesMatchingRegex);
+        report.palindromicWords = new ArrayList<>(palindromicWords);
+        return report;
+    }
+
+}
@@ -0,0 +1,416 @@
+package com.codeforall.online;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * The combined result of a single pass of the {@link AnalysisEngine} over a file.
+ * Only the metrics that were requested are available; asking for any other metric throws an exception.
+ */
+public class AnalysisReport {
+
+    private final String filename;
+    private final Set<Metric> metrics;
+
+    long lineCount;
+    long wordCount;
+    long nonEmptyLineCount;
+    long uniqueWordCount;
+    long wordOccurrences;
+    List<String> linesContainingWord;
+    double averageLineLength;
+    double averageWordLength;
+    Optional<String> shortestLine;
+    Optional<String> longestLine;
+    List<String> topNLongestWords;
+    List<Map.Entry<String, Long>> topNFrequentWords;
+    List<String> topNLongestLines;
+    Optional<String> firstWordLongerThanN;
+    WordFrequencyTable wordFrequency;
+    List<String> linesContainingNumbers;
+    List<String> linesMatchingRegex;
+    List<String> palindromicWords;
+
+
+    AnalysisReport(String filename, Set<Metric> metrics) {
+        this.filename = filename;
+        this.metrics = metrics;
+    }
+
+
+    /**
+     * @return The path to the analysed file.
+     */
+    public String getFilename() {
+        return filename;
+    }
+
+
+    /**
+     * @return The metrics available in this report.
+     */
+    public Set<Metric> getMetrics() {
+        return metrics;
+    }
+
+
+    /**
+     * @return The number of lines in the file.
+     */
+    public long getLineCount() {
+        require(Metric.LINE_COUNT);
+        return lineCount;
+    }
+
+
+    /**
+     * @return The number of words in the file.
+     */
+    public long getWordCount() {
+        require(Metric.WORD_COUNT);
+        return wordCount;
+    }
+
+
+    /**
+     * @return The number of non-empty lines in the file.
+     */
+    public long getNonEmptyLineCount() {
+        require(Metric.NON_EMPTY_LINE_COUNT);
+        return nonEmptyLineCount;
+    }
+
+
+    /**
+     * @return The number of unique words in the file.
+     */
+    public long getUniqueWordCount() {
+        require(Metric.UNIQUE_WORD_COUNT);
+        return uniqueWordCount;
+    }
+
+
+    /**
+     * @return The number of occurrences of the requested word in the file.
+     */
+    public long getWordOccurrences() {
+        require(Metric.WORD_OCCURRENCES);
+        return wordOccurrences;
+    }
+
+
+    /**
+     * @return A list of lines containing the requested word.
+     */
+    public List<String> getLinesContainingWord() {
+        require(Metric.LINES_CONTAINING_WORD);
+        return linesContainingWord;
+    }
+
+
+    /**
+     * @return The average length of lines in the file.
+     */
+    public double getAverageLineLength() {
+        require(Metric.AVERAGE_LINE_LENGTH);
+        return averageLineLength;
+    }
+
+
+    /**
+     * @return The average length of words in the file.
+     */
+    public double getAverageWordLength() {
+        require(Metric.AVERAGE_WORD_LENGTH);
+        return averageWordLength;
+    }
+
+
+    /**
+     * @return An optional containing the shortest line, or empty if the file is empty.
+     */
+    public Optional<String> getShortestLine() {
+        require(Metric.SHORTEST_LINE);
+        return shortestLine;
+    }
+
+
+    /**
+     * @return An optional containing the longest line, or empty if the file is empty.
+     */
+    public Optional<String> getLongestLine() {
+        require(Metric.LONGEST_LINE);
+        return longestLine;
+    }
+
+
+    /**
+     * @return A list containing the top n longest words.
+     */
+    public List<String> getTopNLongestWords() {
+        require(Metric.TOP_N_LONGEST_WORDS);
+        return topNLongestWords;
+    }
+
+
+    /**
+     * @return A list containing the top n most frequent words and their frequencies, most frequent first.
+     */
+    public List<Map.Entry<String, Long>> getTopNFrequentWords() {
+        require(Metric.TOP_N_FREQUENT_WORDS);
+        return topNFrequentWords;
+    }
+
+
+    /**
+     * @return A list containing the top n longest lines, longest first.
+     */
+    public List<String> getTopNLongestLines() {
+        require(Metric.TOP_N_LONGEST_LINES);
+        return topNLongestLines;
+    }
+
+
+    /**
+     * @return An optional containing the first word with more than n characters, or empty if no such word is found.
+     */
+    public Optional<String> getFirstWordLongerThanN() {
+        require(Metric.FIRST_WORD_LONGER_THAN_N);
+        return firstWordLongerThanN;
+    }
+
+
+    /**
+     * @return A map containing each word and its frequency in the file.
+     */
+    public Map<String, Long> getWordFrequency() {
+        require(Metric.WORD_FREQUENCY);
+        return wordFrequency.asMap();
+    }
+
+
+    /**
+     * @return The table holding each word and its frequency in the file.
+     */
+    public WordFrequencyTable getWordFrequencyTable() {
+        require(Metric.WORD_FREQUENCY);
+        return wordFrequency;
+    }
+
+
+    /**
+     * @return A list of lines containing numbers.
+     */
+    public List<String> getLinesContainingNumbers() {
+        require(Metric.LINES_CONTAINING_NUMBERS);
+        return linesContainingNumbers;
+    }
+
+
+    /**
+     * @return A list of lines matching the requested regex pattern.
+     */
+    public List<String> getLinesMatchingRegex() {
+        require(Metric.LINES_MATCHING_REGEX);
+        return linesMatchingRegex;
+    }
+
+
+    /**
+     * @return A list of palindromic words found in the file.
+     */
+    public List<String> getPalindromicWords() {
+        require(Metric.PALINDROMIC_WORDS);
+        return palindromicWords;
+    }
+
+
+    /**
+     * Copies the report, so that changes to the lists of one do not show in the other. The word frequency table, which the
+     * engine also fills for other metrics, is only copied if word frequency was requested.
+     *
+     * @param filename The path to the analysed file, as the copy should report it.
+     * @return A copy of this report.
+     */
+    AnalysisReport copy(String filename) {
+        AnalysisReport copy = new AnalysisReport(filename, metrics);
+        copy.lineCount = lineCount;
+        copy.wordCount = wordCount;
+        copy.nonEmptyLineCount = nonEmptyLineCount;
+        copy.uniqueWordCount = uniqueWordCount;
+        copy.wordOccurrences = wordOccurrences;
+        copy.linesContainingWord = copyOf(linesContainingWord);
+        copy.averageLineLength = averageLineLength;
+        copy.averageWordLength = averageWordLength;
+        copy.shortestLine = shortestLine;
+        copy.longestLine = longestLine;
+        copy.topNLongestWords = copyOf(topNLongestWords);
+        copy.topNFrequentWords = topNFrequentWords == null ? null : new ArrayList<>(topNFrequentWords);
+        copy.topNLongestLines = copyOf(topNLongestLines);
+        copy.firstWordLongerThanN = firstWordLongerThanN;
+        if (metrics.contains(Metric.WORD_FREQUENCY)) {
+            copy.wordFrequency = new WordFrequencyTable(wordFrequency.size());
+            copy.wordFrequency.addAll(wordFrequency);
+        } else {
+            copy.wordFrequency = new WordFrequencyTable();
+        }
+        copy.linesContainingNumbers = copyOf(linesContainingNumbers);
+        copy.linesMatchingRegex = copyOf(linesMatchingRegex);
+        copy.palindromicWords = copyOf(palindromicWords);
+        return copy;
+    }
+
+
+    /**
+     * Estimates the memory a {@link #copy(String)} of the report holds on to, roughly: its lines and words and its word frequency table.
+     *
+     * @return The estimated number of bytes.
+     */
+    long estimatedSize() {
+        long size = 256;
+        for (List<String> lines : List.of(nullToEmpty(linesContainingWord), nullToEmpty(topNLongestWords), nullToEmpty(topNLongestLines),
+                nullToEmpty(linesContainingNumbers), nullToEmpty(linesMatchingRegex), nullToEmpty(palindromicWords))) {
+            for (String line : lines) {
+                size += estimatedSize(line);
+            }
+        }
+        if (topNFrequentWords != null) {
+            for (Map.Entry<String, Long> word : topNFrequentWords) {
+                size += estimatedSize(word.getKey()) + 40;
+            }
+        }
+        size += estimatedSize(orNull(shortestLine)) + estimatedSize(orNull(longestLine)) + estimatedSize(orNull(firstWordLongerThanN));
+        if (metrics.contains(Metric.WORD_FREQUENCY)) {
+            size += wordFrequency.estimatedSize();
+        }
+        return size;
+    }
+
+
+    /**
+     * Writes every field of the report, so that {@link #readFrom(DataInput)} gives back an equal report.
+     *
+     * @param out The output to write to.
+     * @throws IOException If an I/O error occurs.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        StateCodec.writeString(out, filename);
+        long bits = 0;
+        for (Metric metric : metrics) {
+            bits |= 1L << metric.ordinal();
+        }
+        out.writeLong(bits);
+        StateCodec.writeVarLong(out, lineCount);
+        StateCodec.writeVarLong(out, wordCount);
+        StateCodec.writeVarLong(out, nonEmptyLineCount);
+        StateCodec.writeVarLong(out, uniqueWordCount);
+        StateCodec.writeVarLong(out, wordOccurrences);
+        out.writeDouble(averageLineLength);
+        out.writeDouble(averageWordLength);
+        StateCodec.writeString(out, orNull(shortestLine));
+        StateCodec.writeString(out, orNull(longestLine));
+        StateCodec.writeString(out, orNull(firstWordLongerThanN));
+        StateCodec.writeStrings(out, nullToEmpty(linesContainingWord));
+        StateCodec.writeStrings(out, nullToEmpty(topNLongestWords));
+        StateCodec.writeStrings(out, nullToEmpty(topNLongestLines));
+        StateCodec.writeStrings(out, nullToEmpty(linesContainingNumbers));
+        StateCodec.writeStrings(out, nullToEmpty(linesMatchingRegex));
+        StateCodec.writeStrings(out, nullToEmpty(palindromicWords));
+        List<Map.Entry<String, Long>> frequent = topNFrequentWords == null ? List.of() : topNFrequentWords;
+        StateCodec.writeVarLong(out, frequent.size());
+        for (Map.Entry<String, Long> word : frequent) {
+            StateCodec.writeString(out, word.getKey());
+            StateCodec.writeVarLong(out, word.getValue());
+        }
+        out.writeBoolean(metrics.contains(Metric.WORD_FREQUENCY));
+        if (metrics.contains(Metric.WORD_FREQUENCY)) {
+            wordFrequency.writeTo(out);
+        }
+    }
+
+
+    /**
+     * Reads a report written by {@link #writeTo(DataOutput)}.
+     *
+     * @param in The input to read from.
+     * @return The report.
+     * @throws IOException If an I/O error occurs or the input is malformed.
+     */
+    static AnalysisReport readFrom(DataInput in) throws IOException {
+        String filename = StateCodec.readString(in);
+        long bits = in.readLong();
+        Set<Metric> metrics = EnumSet.noneOf(Metric.class);
+        for (Metric metric : Metric.values()) {
+            if ((bits & 1L << metric.ordinal()) != 0) {
+                metrics.add(metric);
+            }
+        }
+        AnalysisReport report = new AnalysisReport(filename, Collections.unmodifiableSet(metrics));
+        report.lineCount = StateCodec.readVarLong(in);
+        report.wordCount = StateCodec.readVarLong(in);
+        report.nonEmptyLineCount = StateCodec.readVarLong(in);
+        report.uniqueWordCount = StateCodec.readVarLong(in);
+        report.wordOccurrences = StateCodec.readVarLong(in);
+        report.averageLineLength = in.readDouble();
+        report.averageWordLength = in.readDouble();
+        report.shortestLine = Optional.ofNullable(StateCodec.readString(in));
+        report.longestLine = Optional.ofNullable(StateCodec.readString(in));
+        report.firstWordLongerThanN = Optional.ofNullable(StateCodec.readString(in));
+        report.linesContainingWord = StateCodec.readStrings(in, new ArrayList<>());
+        report.topNLongestWords = StateCodec.readStrings(in, new ArrayList<>());
+        report.topNLongestLines = StateCodec.readStrings(in, new ArrayList<>());
+        report.linesContainingNumbers = StateCodec.readStrings(in, new ArrayList<>());
+        report.linesMatchingRegex = StateCodec.readStrings(in, new ArrayList<>());
+        report.palindromicWords = StateCodec.readStrings(in, new ArrayList<>());
+        int frequent = StateCodec.readVarInt(in);
+        report.topNFrequentWords = new ArrayList<>(StateCodec.initialCapacity(frequent));
+        for (int i = 0; i < frequent; i++) {
+            report.topNFrequentWords.add(new AbstractMap.SimpleImmutableEntry<>(StateCodec.readString(in), StateCodec.readVarLong(in)));
+        }
+        report.wordFrequency = in.readBoolean() ? WordFrequencyTable.readFrom(in) : new WordFrequencyTable();
+        return report;
+    }
+
+
+    private static List<String> copyOf(List<String> list) {
+        return list == null ? null : new ArrayList<>(list);
+    }
+
+
+    private static List<String> nullToEmpty(List<String> list) {
+        return list == null ? List.of() : list;
+    }
+
+
+    private static String orNull(Optional<String> value) {
+        return value == null ? null : value.orElse(null);
+    }
+
+
+    private static long estimatedSize(String value) {
+        return value == null ? 0 : 48 + 2L * value.length();
+    }
+
+
+    /**
+     * Makes sure the given metric was computed for this report.
+     *
+     * @param metric The metric being read.
+     * @throws IllegalStateException If the metric was not requested.
+     */
+    private void require(Metric metric) {
+        if (!metrics.contains(metric)) {
+            throw new IllegalStateException("Metric " + metric + " was not requested for " + filename);
+        }
+    }
+
+}
@@ -0,0 +1,302 @@
+package com.codeforall.online;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Describes which metrics an {@link AnalysisEngine} should compute in its single pass over a file,
+ * together with the parameters some of those metrics need (the word to search for, n, the regex pattern)
+ * and how the file is decoded (its charset, and whether malformed input is tolerated).
+ */
+public class AnalysisRequest {
+
+    private final EnumSet<Metric> metrics;
+    private String word;
+    private int topN = -1;
+    private boolean topNSet;
+    private int minWordLength = -1;
+    private boolean minWordLengthSet;
+    private Pattern regex;
+    private Charset charset;
+    private boolean lenient;
+
+
+    /**
+     * Creates a request for the given metrics.
+     *
+     * @param first The first metric to compute.
+     * @param rest  Any further metrics to compute.
+     */
+    public AnalysisRequest(Metric first, Metric... rest) {
+        this.metrics = EnumSet.of(first, rest);
+    }
+
+
+    /**
+     * Creates a request for the given metrics.
+     *
+     * @param metrics The metrics to compute.
+     */
+    public AnalysisRequest(Set<Metric> metrics) {
+        this.metrics = metrics.isEmpty() ? EnumSet.noneOf(Metric.class) : EnumSet.copyOf(metrics);
+    }
+
+
+    /**
+     * Creates a request for every available metric.
+     *
+     * @param word  The word used by the word occurrence and line search metrics.
+     * @param n     The n used by the top n metrics and the first word with more than n characters metric.
+     * @param regex The regular expression pattern used by the regex line search metric.
+     * @return A request for all metrics.
+     */
+    public static AnalysisRequest all(String word, int n, String regex) {
+        return new AnalysisRequest(EnumSet.allOf(Metric.class))
+                .word(word)
+                .topN(n)
+                .minWordLength(n)
+                .regex(regex);
+    }
+
+
+    /**
+     * Sets the word used by {@link Metric#WORD_OCCURRENCES} and {@link Metric#LINES_CONTAINING_WORD}.
+     *
+     * @param word The word to search for.
+     * @return This request.
+     */
+    public AnalysisRequest word(String word) {
+        this.word = word;
+        return this;
+    }
+
+
+    /**
+     * Sets the number of words or lines returned by {@link Metric#TOP_N_LONGEST_WORDS},
+     * {@link Metric#TOP_N_FREQUENT_WORDS} and {@link Metric#TOP_N_LONGEST_LINES}.
+     *
+     * @param n The number of words or lines to find.
+     * @return This request.
+     * @throws IllegalArgumentException If n is negative.
+     */
+    public AnalysisRequest topN(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n must not be negative: " + n);
+        }
+        this.topN = n;
+        this.topNSet = true;
+        return this;
+    }
+
+
+    /**
+     * Sets the character threshold used by {@link Metric#FIRST_WORD_LONGER_THAN_N}.
+     *
+     * @param n The word must have more than n characters; a negative n finds the first word.
+     * @return This request.
+     */
+    public AnalysisRequest minWordLength(int n) {
+        this.minWordLength = n;
+        this.minWordLengthSet = true;
+        return this;
+    }
+
+
+    /**
+     * Sets the regular expression pattern used by {@link Metric#LINES_MATCHING_REGEX}.
+     *
+     * @param regex The regular expression pattern to match.
+     * @return This request.
+     */
+    public AnalysisRequest regex(String regex) {
+        this.regex = Pattern.compile(regex);
+        return this;
+    }
+
+
+    /**
+     * Sets the charset of the file. By default the charset is detected with {@link CharsetDetector}.
+     *
+     * @param charset The charset of the file, or null to detect it.
+     * @return This request.
+     */
+    public AnalysisRequest charset(Charset charset) {
+        this.charset = charset;
+        return this;
+    }
+
+
+    /**
+     * Sets whether malformed input is replaced with {@code '\uFFFD'} instead of aborting the analysis with an exception.
+     *
+     * @param lenient True to replace malformed input, false to report it.
+     * @return This request.
+     */
+    public AnalysisRequest lenient(boolean lenient) {
+        this.lenient = lenient;
+        return this;
+    }
+
+
+    /**
+     * @return An unmodifiable view of the requested metrics.
+     */
+    public Set<Metric> getMetrics() {
+        return Collections.unmodifiableSet(metrics);
+    }
+
+
+    /**
+     * @param metric The metric to check.
+     * @return True if the metric was requested, false otherwise.
+     */
+    public boolean includes(Metric metric) {
+        return metrics.contains(metric);
+    }
+
+
+    /**
+     * @return The word to search for, or null if none was set.
+     */
+    public String getWord() {
+        return word;
+    }
+
+
+    /**
+     * @return The number of words or lines the top n metrics find, or -1 if none was set.
+     */
+    public int getTopN() {
+        return topN;
+    }
+
+
+    /**
+     * @return The character threshold for the first long word, which may be negative, or -1 if none was set.
+     */
+    public int getMinWordLength() {
+        return minWordLength;
+    }
+
+
+    /**
+     * @return The compiled regular expression pattern, or null if none was set.
+     */
+    public Pattern getRegex() {
+        return regex;
+    }
+
+
+    /**
+     * @return The charset of the file, or null if it is detected.
+     */
+    public Charset getCharset() {
+        return charset;
+    }
+
+
+    /**
+     * @return True if malformed input is replaced, false if it is reported.
+     */
+    public boolean isLenient() {
+        return lenient;
+    }
+
+
+    /**
+     * Writes the metrics and their parameters, so that {@link #readFrom(DataInput)} gives back an equal request.
+     */
+    void writeTo(DataOutput out) throws IOException {
+        long bits = 0;
+        for (Metric metric : metrics) {
+            bits |= 1L << metric.ordinal();
+        }
+        out.writeLong(bits);
+        StateCodec.writeString(out, word);
+        out.writeBoolean(topNSet);
+        out.writeInt(topN);
+        out.writeBoolean(minWordLengthSet);
+        out.writeInt(minWordLength);
+        StateCodec.writeString(out, regex == null ? null : regex.pattern());
+        out.writeInt(regex == null ? 0 : regex.flags());
+        StateCodec.writeString(out, charset == null ? null : charset.name());
+        out.writeBoolean(lenient);
+    }
+
+
+    static AnalysisRequest readFrom(DataInput in) throws IOException {
+        long bits = in.readLong();
+        Set<Metric> metrics = EnumSet.noneOf(Metric.class);
+        for (Metric metric : Metric.values()) {
+            if ((bits & 1L << metric.ordinal()) != 0) {
+                metrics.add(metric);
+            }
+        }
+        AnalysisRequest request = new AnalysisRequest(metrics);
+        request.word = StateCodec.readString(in);
+        request.topNSet = in.readBoolean();
+        request.topN = in.readInt();
+        request.minWordLengthSet = in.readBoolean();
+        request.minWordLength = in.readInt();
+        String pattern = StateCodec.readString(in);
+        int flags = in.readInt();
+        request.regex = pattern == null ? null : Pattern.compile(pattern, flags);
+        String charset = StateCodec.readString(in);
+        try {
+            request.charset = charset == null ? null : Charset.forName(charset);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unsupported charset " + charset, e);
+        }
+        request.lenient = in.readBoolean();
+        return request;
+    }
+
+
+    /**
+     * @param other Another request.
+     * @return True if both requests compute the same metrics with the same parameters, false otherwise.
+     */
+    boolean sameAs(AnalysisRequest other) {
+        return metrics.equals(other.metrics)
+                && Objects.equals(word, other.word)
+                && topN == other.topN
+                && topNSet == other.topNSet
+                && minWordLength == other.minWordLength
+                && minWordLengthSet == other.minWordLengthSet
+                && Objects.equals(regex == null ? null : regex.pattern(), other.regex == null ? null : other.regex.pattern())
+                && (regex == null ? 0 : regex.flags()) == (other.regex == null ? 0 : other.regex.flags())
+                && Objects.equals(charset, other.charset)
+                && lenient == other.lenient;
+    }
+
+
+    /**
+     * Checks that every parameterised metric received its parameter.
+     *
+     * @throws IllegalArgumentException If a requested metric is missing its parameter.
+     */
+    void validate() {
+        if ((includes(Metric.WORD_OCCURRENCES) || includes(Metric.LINES_CONTAINING_WORD)) && word == null) {
+            throw new IllegalArgumentException("A word is required for " + Metric.WORD_OCCURRENCES + " and " + Metric.LINES_CONTAINING_WORD);
+        }
+        for (Metric metric : EnumSet.of(Metric.TOP_N_LONGEST_WORDS, Metric.TOP_N_FREQUENT_WORDS, Metric.TOP_N_LONGEST_LINES)) {
+            if (includes(metric) && !topNSet) {
+                throw new IllegalArgumentException("n is required for " + metric);
+            }
+        }
+        if (includes(Metric.FIRST_WORD_LONGER_THAN_N) && !minWordLengthSet) {
+            throw new IllegalArgumentException("n is required for " + Metric.FIRST_WORD_LONGER_THAN_N);
+        }
+        if (includes(Metric.LINES_MATCHING_REGEX) && regex == null) {
+            throw new IllegalArgumentException("A regex is required for " + Metric.LINES_MATCHING_REGEX);
+        }
+    }
+
+}
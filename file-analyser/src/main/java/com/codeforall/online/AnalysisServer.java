@@ -0,0 +1,408 @@
+package com.codeforall.online;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+
+/**
+ * Serves analyses over HTTP from one long-running JVM, so that a stream of small requests does not pay for starting a JVM
+ * and compiling the analysis code every time. The server listens on the loopback interface only and reads files from the
+ * local file system with the rights of its process.
+ * <p>
+ * {@code GET /analyse?file=<path>&metrics=<metric>,...} answers with every requested metric of the file, written by a
+ * {@link ReportWriter}. The parameters of the metrics are {@code word}, {@code n}, {@code minWordLength} and {@code regex},
+ * the numbers between 0 and {@value #MAX_NUMBER_PARAMETER},
+ * and {@code charset} and {@code lenient} set how the file is decoded, as in {@link AnalysisRequest};
+ * {@code format} picks the output format by its command line name, JSON Lines by default, and
+ * {@code sortFrequencies=true} writes word frequencies most frequent first.
+ * {@code GET /stats} answers with the counters of the server and its cache as one JSON object.
+ * <p>
+ * Analyses run on a fixed pool of worker threads. At most the number of workers plus the queue size of requests are
+ * admitted at a time; a request beyond that is answered at once with 503 and a Retry-After header instead of waiting,
+ * so a burst cannot pile up unbounded work. Reports are shared between requests through a {@link ResultCache}, and the
+ * analysis code is compiled before the first request by analysing a generated file.
+ */
+public class AnalysisServer implements Closeable {
+
+    /** Default port of the server. */
+    public static final int DEFAULT_PORT = 8173;
+
+    /** Largest {@code n} or {@code minWordLength} a request may ask for. */
+    public static final int MAX_NUMBER_PARAMETER = 100_000;
+
+    private static final int WARM_UP_LINES = 100_000;
+
+    private int port = DEFAULT_PORT;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int queueSize = 64;
+    private ResultCache cache = new ResultCache();
+    private boolean warmUp = true;
+
+    private HttpServer server;
+    private ExecutorService workers;
+    private Semaphore admissions;
+
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicInteger activeCount = new AtomicInteger();
+
+
+    /**
+     * Sets the port to listen on, 0 for any free port; see {@link #getPort()}.
+     *
+     * @param port The port.
+     * @return This server.
+     * @throws IllegalArgumentException If the port is out of range.
+     */
+    public AnalysisServer port(int port) {
+        if (port < 0 || port > 0xFFFF) {
+            throw new IllegalArgumentException("Port out of range: " + port);
+        }
+        this.port = port;
+        return this;
+    }
+
+
+    /**
+     * Sets the number of analyses run at the same time.
+     *
+     * @param threads The number of worker threads.
+     * @return This server.
+     * @throws IllegalArgumentException If the number is not positive.
+     */
+    public AnalysisServer threads(int threads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+        }
+        this.threads = threads;
+        return this;
+    }
+
+
+    /**
+     * Sets how many admitted requests may wait for a worker; requests beyond those are rejected.
+     *
+     * @param queueSize The number of waiting requests.
+     * @return This server.
+     * @throws IllegalArgumentException If the number is negative.
+     */
+    public AnalysisServer queueSize(int queueSize) {
+        if (queueSize < 0) {
+            throw new IllegalArgumentException("Queue size must not be negative: " + queueSize);
+        }
+        this.queueSize = queueSize;
+        return this;
+    }
+
+
+    /**
+     * Sets the cache the reports are shared through.
+     *
+     * @param cache The cache.
+     * @return This server.
+     */
+    public AnalysisServer resultCache(ResultCache cache) {
+        this.cache = cache;
+        return this;
+    }
+
+
+    /**
+     * Sets whether the analysis code is warmed up before the server accepts requests.
+     *
+     * @param warmUp True to warm up, false to start accepting requests at once.
+     * @return This server.
+     */
+    public AnalysisServer warmUp(boolean warmUp) {
+        this.warmUp = warmUp;
+        return this;
+    }
+
+
+    /**
+     * Warms up the analysis code if asked to and starts accepting requests.
+     *
+     * @return This server.
+     * @throws IOException           If the warm-up file cannot be written or the server cannot listen on its port.
+     * @throws IllegalStateException If the server was already started.
+     */
+    public AnalysisServer start() throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("Server already started");
+        }
+        if (warmUp) {
+            warmUp();
+        }
+        workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "analysis-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        admissions = new Semaphore(threads + queueSize);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/analyse", this::admit);
+        server.createContext("/stats", this::stats);
+        server.start();
+        return this;
+    }
+
+
+    /**
+     * @return The port the server listens on.
+     * @throws IllegalStateException If the server is not started.
+     */
+    public int getPort() {
+        if (server == null) {
+            throw new IllegalStateException("Server not started");
+        }
+        return server.getAddress().getPort();
+    }
+
+
+    /**
+     * Stops accepting requests, lets the running analyses finish for a few seconds, and stops the workers.
+     */
+    @Override
+    public void close() {
+        if (server == null) {
+            return;
+        }
+        server.stop(0);
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(5, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * Runs on the thread of the HTTP server: admits the request to the workers, or rejects it at once if too many are waiting.
+     */
+    private void admit(HttpExchange exchange) throws IOException {
+        requestCount.incrementAndGet();
+        if (!admissions.tryAcquire()) {
+            rejectedCount.incrementAndGet();
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            respond(exchange, 503, "Too many requests waiting, try again later\n");
+            return;
+        }
+        try {
+            workers.execute(() -> {
+                activeCount.incrementAndGet();
+                try {
+                    analyse(exchange);
+                } finally {
+                    activeCount.decrementAndGet();
+                    admissions.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            admissions.release();
+            respond(exchange, 503, "Server is shutting down\n");
+        }
+    }
+
+
+    /**
+     * Runs on a worker: analyses the requested file and streams the report. Errors found before the response has started
+     * get their own status; an error while streaming can only cut the response short.
+     */
+    private void analyse(HttpExchange exchange) {
+        try (exchange) {
+            Map<String, String> parameters = parameters(exchange.getRequestURI().getRawQuery());
+            AnalysisReport report;
+            ReportWriter.Format format;
+            try {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    respond(exchange, 405, "Only GET is supported\n");
+                    return;
+                }
+                format = ReportWriter.Format.forOptionName(parameters.getOrDefault("format", ReportWriter.Format.JSON_LINES.getOptionName()));
+                String filename = parameters.get("file");
+                if (filename == null) {
+                    throw new IllegalArgumentException("Missing parameter: file");
+                }
+                report = cache.analyse(filename, request(parameters));
+            } catch (IllegalArgumentException e) {
+                respond(exchange, 400, e.getMessage() + "\n");
+                return;
+            } catch (NoSuchFileException e) {
+                respond(exchange, 404, "No such file: " + e.getFile() + "\n");
+                return;
+            } catch (IOException e) {
+                failedCount.incrementAndGet();
+                respond(exchange, 500, "Error reading the file: " + e.getMessage() + "\n");
+                return;
+            }
+            exchange.getResponseHeaders().set("Content-Type", contentType(format));
+            exchange.sendResponseHeaders(200, 0);
+            try (ReportWriter writer = new ReportWriter(exchange.getResponseBody(), format)) {
+                writer.sortFrequencies(Boolean.parseBoolean(parameters.get("sortFrequencies"))).write(report);
+            }
+        } catch (IOException | RuntimeException e) {
+            // the client went away, or the response was cut short; there is no one left to tell
+            failedCount.incrementAndGet();
+        }
+    }
+
+
+    private void stats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            ResultCache.Stats cacheStats = cache.stats();
+            respond(exchange, 200, "{\"requests\":" + requestCount.get() + ",\"rejected\":" + rejectedCount.get()
+                    + ",\"failed\":" + failedCount.get() + ",\"active\":" + activeCount.get()
+                    + ",\"waiting\":" + Math.max(0, threads + queueSize - admissions.availablePermits() - activeCount.get())
+                    + ",\"cacheHits\":" + (cacheStats.getHitCount() + cacheStats.getDiskHitCount())
+                    + ",\"cacheMisses\":" + cacheStats.getMissCount() + ",\"cacheEntries\":" + cacheStats.getEntryCount() + "}\n");
+        }
+    }
+
+
+    /**
+     * Builds the analysis request from the query parameters.
+     *
+     * @throws IllegalArgumentException If a parameter is missing or malformed.
+     */
+    private static AnalysisRequest request(Map<String, String> parameters) {
+        String metricNames = parameters.get("metrics");
+        if (metricNames == null || metricNames.isEmpty()) {
+            throw new IllegalArgumentException("Missing parameter: metrics");
+        }
+        Set<Metric> metrics = EnumSet.noneOf(Metric.class);
+        for (String name : metricNames.split(",")) {
+            try {
+                metrics.add(Metric.valueOf(name.trim().toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown metric: " + name);
+            }
+        }
+        AnalysisRequest request = new AnalysisRequest(metrics);
+        if (parameters.containsKey("word")) {
+            request.word(parameters.get("word"));
+        }
+        if (parameters.containsKey("n")) {
+            request.topN(numberParameter(parameters, "n"));
+        }
+        if (parameters.containsKey("minWordLength")) {
+            request.minWordLength(numberParameter(parameters, "minWordLength"));
+        }
+        if (parameters.containsKey("regex")) {
+            request.regex(parameters.get("regex"));
+        }
+        if (parameters.containsKey("charset")) {
+            request.charset(Charset.forName(parameters.get("charset")));
+        }
+        request.lenient(Boolean.parseBoolean(parameters.get("lenient")));
+        return request;
+    }
+
+
+    /**
+     * @return The value of a number parameter.
+     * @throws IllegalArgumentException If the value is not a number between 0 and {@link #MAX_NUMBER_PARAMETER}.
+     */
+    private static int numberParameter(Map<String, String> parameters, String name) {
+        String value = parameters.get(name);
+        int number;
+        try {
+            number = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number: " + name + "=" + value);
+        }
+        if (number < 0 || number > MAX_NUMBER_PARAMETER) {
+            throw new IllegalArgumentException("Out of range [0, " + MAX_NUMBER_PARAMETER + "]: " + name + "=" + value);
+        }
+        return number;
+    }
+
+
+    private static Map<String, String> parameters(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = equals < 0 ? pair : pair.substring(0, equals);
+            String value = equals < 0 ? "" : pair.substring(equals + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+
+    private static String contentType(ReportWriter.Format format) {
+        switch (format) {
+            case JSON_LINES:
+                return "application/x-ndjson; charset=utf-8";
+            case CSV:
+                return "text/csv; charset=utf-8";
+            default:
+                return "application/octet-stream";
+        }
+    }
+
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", status == 200 ? "application/json; charset=utf-8" : "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+
+    /**
+     * Analyses a file of generated lines with every metric, so that the hot methods of the line reader, the engine,
+     * the tokenizer and the word table are compiled before the first request, which then runs as fast as the later ones.
+     */
+    private static void warmUp() throws IOException {
+        Path file = Files.createTempFile("analysis-warm-up", ".txt");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(file)) {
+                for (int i = 0; i < WARM_UP_LINES; i++) {
+                    for (int j = 0; j < 12; j++) {
+                        writer.write(Integer.toString((i * 31 + j * 17) % 4096 * 7919, 36));
+                        writer.write(j % 5 == 0 ? ", " : " ");
+                    }
+                    writer.newLine();
+                }
+            }
+            AnalysisEngine.analyse(file.toString(), AnalysisRequest.all("warm", 10, "\\d{3}"));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+}
@@ -0,0 +1,52 @@
+package com.codeforall.online;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+
+/**
+ * The characters of a run of ASCII bytes, one char per byte, read straight from the bytes without decoding them.
+ * A view is repositioned over other bytes by {@link #wrap(byte[], int, int)}, so it is only valid until then;
+ * {@link #toString()} copies the characters into a String that can be kept.
+ * {@link WordTokenizer} scans such a view on its bytes, without going through {@link #charAt(int)}.
+ */
+final class AsciiText implements CharSequence {
+
+    byte[] bytes;
+    int start;
+    private int length;
+
+
+    AsciiText wrap(byte[] bytes, int start, int length) {
+        this.bytes = bytes;
+        this.start = start;
+        this.length = length;
+        return this;
+    }
+
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+
+    @Override
+    public char charAt(int index) {
+        return (char) bytes[start + Objects.checkIndex(index, length)];
+    }
+
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        Objects.checkFromToIndex(start, end, length);
+        return new String(bytes, this.start + start, end - start, StandardCharsets.ISO_8859_1);
+    }
+
+
+    @Override
+    public String toString() {
+        return new String(bytes, start, length, StandardCharsets.ISO_8859_1);
+    }
+
+}
@@ -0,0 +1,500 @@
+package com.codeforall.online;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.Semaphore;
+
+
+/**
+ * Analyses every file of a directory tree without any interaction, handing out each file's report as soon as it is done
+ * and summing up the whole tree at the end.
+ * <p>
+ * Files are found while the tree is walked, so analysis starts right away and the walk holds back once enough files are waiting.
+ * The work runs on a fixed number of threads, while a separate limit caps how many files are open at once, so that
+ * a slow disk is not asked for more parallel reads than it can serve. Small files are analysed in batches, one batch per task,
+ * so that a tree of many tiny files is not dominated by scheduling. Large files are split into chunks at line boundaries,
+ * which are analysed on all threads with {@link AnalysisEngine#analyseRange(Path, long, long, AnalysisRequest)} and merged
+ * in file order. Compressed files and files in a charset that does not encode ASCII as single bytes cannot be split at
+ * line boundaries, so they are analysed whole.
+ */
+public class BatchAnalyser {
+
+    /** Default size below which files are analysed in batches. */
+    public static final long DEFAULT_SMALL_FILE_SIZE = 64L * 1024;
+
+    /** Default size from which a file is split into chunks analysed across threads. */
+    public static final long DEFAULT_LARGE_FILE_SIZE = 256L * 1024 * 1024;
+
+    /** Default number of files open at the same time. */
+    public static final int DEFAULT_MAX_OPEN_FILES = 64;
+
+    private static final long SMALL_FILE_BATCH_SIZE = 4L * 1024 * 1024;
+    private static final int SMALL_FILE_BATCH_FILES = 256;
+    private static final int TASKS_WAITING_PER_THREAD = 4;
+
+    private static final Set<Metric> ADDITIVE = EnumSet.of(Metric.LINE_COUNT, Metric.WORD_COUNT, Metric.NON_EMPTY_LINE_COUNT,
+            Metric.UNIQUE_WORD_COUNT, Metric.WORD_OCCURRENCES, Metric.AVERAGE_LINE_LENGTH, Metric.AVERAGE_WORD_LENGTH,
+            Metric.TOP_N_FREQUENT_WORDS, Metric.WORD_FREQUENCY);
+
+    private final AnalysisRequest request;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int maxOpenFiles = DEFAULT_MAX_OPEN_FILES;
+    private long smallFileSize = DEFAULT_SMALL_FILE_SIZE;
+    private long largeFileSize = DEFAULT_LARGE_FILE_SIZE;
+    private long chunkSize = MappedFileScanner.DEFAULT_CHUNK_SIZE;
+
+
+    /**
+     * Receives the result of every file as soon as it is done.
+     * Calls are never made concurrently, so a listener does not need to be thread-safe,
+     * but they are made from the analysing threads, which wait while the listener runs.
+     */
+    public interface Listener {
+
+        /**
+         * @param report The report of a file that was analysed.
+         */
+        void onFile(AnalysisReport report);
+
+        /**
+         * @param file  The file that could not be read.
+         * @param cause The error that occurred.
+         */
+        void onFailure(Path file, IOException cause);
+    }
+
+
+    /**
+     * The totals of a batch run.
+     */
+    public static class Summary {
+
+        private final long fileCount;
+        private final long failedFileCount;
+        private final long byteCount;
+        private final AnalysisReport aggregate;
+
+
+        Summary(long fileCount, long failedFileCount, long byteCount, AnalysisReport aggregate) {
+            this.fileCount = fileCount;
+            this.failedFileCount = failedFileCount;
+            this.byteCount = byteCount;
+            this.aggregate = aggregate;
+        }
+
+
+        /**
+         * @return The number of files that were analysed.
+         */
+        public long getFileCount() {
+            return fileCount;
+        }
+
+
+        /**
+         * @return The number of files that could not be read.
+         */
+        public long getFailedFileCount() {
+            return failedFileCount;
+        }
+
+
+        /**
+         * @return The total size of the analysed files in bytes.
+         */
+        public long getByteCount() {
+            return byteCount;
+        }
+
+
+        /**
+         * The requested metrics that add up across files, computed over all analysed files together:
+         * the line, word, non-empty line and unique word counts, word occurrences, average line and word lengths,
+         * and the word frequencies with their top n.
+         *
+         * @return A report labelled with the root of the tree.
+         */
+        public AnalysisReport getAggregate() {
+            return aggregate;
+        }
+    }
+
+
+    /**
+     * Creates a batch analyser computing the given metrics for every file.
+     *
+     * @param request The metrics to compute.
+     * @throws IllegalArgumentException If a requested metric is missing its parameter.
+     */
+    public BatchAnalyser(AnalysisRequest request) {
+        request.validate();
+        this.request = request;
+    }
+
+
+    /**
+     * Sets the number of threads analysing files, by default the number of processors.
+     *
+     * @param threads The number of threads.
+     * @return This batch analyser.
+     */
+    public BatchAnalyser threads(int threads) {
+        this.threads = requirePositive(threads, "Threads");
+        return this;
+    }
+
+
+    /**
+     * Sets the maximum number of files open at the same time, by default {@value #DEFAULT_MAX_OPEN_FILES}.
+     *
+     * @param maxOpenFiles The maximum number of open files.
+     * @return This batch analyser.
+     */
+    public BatchAnalyser maxOpenFiles(int maxOpenFiles) {
+        this.maxOpenFiles = requirePositive(maxOpenFiles, "Max open files");
+        return this;
+    }
+
+
+    /**
+     * Sets the size below which files are analysed in batches.
+     *
+     * @param bytes The size in bytes.
+     * @return This batch analyser.
+     */
+    public BatchAnalyser smallFileSize(long bytes) {
+        this.smallFileSize = requirePositive(bytes, "Small file size");
+        return this;
+    }
+
+
+    /**
+     * Sets the size from which a file is split into chunks analysed across threads.
+     *
+     * @param bytes The size in bytes.
+     * @return This batch analyser.
+     */
+    public BatchAnalyser largeFileSize(long bytes) {
+        this.largeFileSize = requirePositive(bytes, "Large file size");
+        return this;
+    }
+
+
+    /**
+     * Sets the approximate size of the chunks a large file is split into, by default {@link MappedFileScanner#DEFAULT_CHUNK_SIZE}.
+     *
+     * @param bytes The size in bytes.
+     * @return This batch analyser.
+     */
+    public BatchAnalyser chunkSize(long bytes) {
+        this.chunkSize = requirePositive(bytes, "Chunk size");
+        return this;
+    }
+
+
+    /**
+     * Analyses every regular file below the specified directory that matches a glob pattern.
+     * Files that cannot be read are reported to the listener and skipped.
+     *
+     * @param root     The directory to walk.
+     * @param glob     A glob pattern such as {@code **.log}, matched against the path relative to the root, or null for every file.
+     * @param listener The listener receiving the result of every file.
+     * @return The totals of all analysed files.
+     * @throws java.nio.file.NoSuchFileException If the directory does not exist.
+     * @throws NotDirectoryException             If the root is not a directory.
+     * @throws IOException                       If the directory cannot be walked.
+     */
+    public Summary analyse(Path root, String glob, Listener listener) throws IOException {
+        if (!Files.readAttributes(root, BasicFileAttributes.class).isDirectory()) {
+            throw new NotDirectoryException(root.toString());
+        }
+        PathMatcher matcher = glob == null ? null : root.getFileSystem().getPathMatcher("glob:" + glob);
+        Run run = new Run(root, listener);
+        try {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                    if (attributes.isRegularFile() && (matcher == null || matcher.matches(root.relativize(file)))) {
+                        run.schedule(file, attributes.size());
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    run.failed(file, e);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+            run.flushSmallFiles();
+            return run.finish();
+        } finally {
+            run.pool.shutdownNow();
+        }
+    }
+
+
+    /**
+     * The state of one call to {@link #analyse(Path, String, Listener)}.
+     */
+    private class Run {
+
+        private final ForkJoinPool pool = new ForkJoinPool(threads);
+        private final Semaphore openFiles = new Semaphore(maxOpenFiles);
+        private final int maxWaitingTasks = threads * TASKS_WAITING_PER_THREAD;
+        private final Semaphore waitingTasks = new Semaphore(maxWaitingTasks);
+
+        private final Listener listener;
+        private final AnalysisReport aggregate;
+        private final WordFrequencyTable vocabulary = new WordFrequencyTable();
+        private double lineLengthSum;
+        private double wordLengthSum;
+        private long fileCount;
+        private long failedFileCount;
+        private long byteCount;
+        private RuntimeException error;
+
+        private final List<Path> smallFiles = new ArrayList<>();
+        private long smallFilesSize;
+
+
+        Run(Path root, Listener listener) {
+            this.listener = listener;
+            Set<Metric> metrics = EnumSet.noneOf(Metric.class);
+            metrics.addAll(request.getMetrics());
+            metrics.retainAll(ADDITIVE);
+            this.aggregate = new AnalysisReport(root.toString(), metrics);
+        }
+
+
+        void schedule(Path file, long size) throws InterruptedIOException {
+            if (size >= smallFileSize) {
+                submit(List.of(file));
+                return;
+            }
+            smallFiles.add(file);
+            smallFilesSize += size;
+            if (smallFilesSize >= SMALL_FILE_BATCH_SIZE || smallFiles.size() >= SMALL_FILE_BATCH_FILES) {
+                flushSmallFiles();
+            }
+        }
+
+
+        void flushSmallFiles() throws InterruptedIOException {
+            if (!smallFiles.isEmpty()) {
+                submit(new ArrayList<>(smallFiles));
+                smallFiles.clear();
+                smallFilesSize = 0;
+            }
+        }
+
+
+        /**
+         * Hands a task to the pool, first waiting until the number of tasks not yet done is below the limit.
+         */
+        private void submit(List<Path> files) throws InterruptedIOException {
+            acquire(waitingTasks, 1);
+            pool.execute(() -> {
+                try {
+                    for (Path file : files) {
+                        analyse(file);
+                    }
+                } catch (RuntimeException e) {
+                    recordError(e);
+                } finally {
+                    waitingTasks.release();
+                }
+            });
+        }
+
+
+        private void analyse(Path file) {
+            AnalysisReport report;
+            long size;
+            try {
+                acquire(openFiles, 1);
+                try {
+                    size = Files.size(file);
+                    Charset charset = size >= largeFileSize && !CompressedInput.isCompressed(file)
+                            ? AnalysisEngine.charsetOf(file, request)
+                            : null;
+                    report = charset != null && LineReader.isAsciiCompatible(charset)
+                            ? analyseInChunks(file, size, charset)
+                            : AnalysisEngine.analyse(file.toString(), request);
+                } finally {
+                    openFiles.release();
+                }
+            } catch (IOException e) {
+                failed(file, e);
+                return;
+            }
+            done(report, size);
+        }
+
+
+        /**
+         * Analyses the chunks of a large file in parallel, all read through one channel, so that the file takes a single
+         * one of the open files however many threads read it.
+         */
+        private AnalysisReport analyseInChunks(Path file, long size, Charset charset) throws IOException {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                long[] boundaries = MappedFileScanner.findChunkBoundaries(channel, size, chunkSize);
+                return pool.invoke(new RangeTask(file, channel, charset, boundaries, 0, boundaries.length - 1)).report();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+
+
+        private synchronized void done(AnalysisReport report, long size) {
+            fileCount++;
+            byteCount += size;
+            aggregate.lineCount += report.lineCount;
+            aggregate.wordCount += report.wordCount;
+            aggregate.nonEmptyLineCount += report.nonEmptyLineCount;
+            aggregate.wordOccurrences += report.wordOccurrences;
+            lineLengthSum += report.averageLineLength * report.lineCount;
+            wordLengthSum += report.averageWordLength * report.wordCount;
+            if (report.wordFrequency != null) {
+                vocabulary.addAll(report.wordFrequency);
+            }
+            tell(() -> listener.onFile(report));
+        }
+
+
+        synchronized void failed(Path file, IOException cause) {
+            failedFileCount++;
+            tell(() -> listener.onFailure(file, cause));
+        }
+
+
+        /**
+         * Calls the listener, unless an earlier error has already doomed the run.
+         */
+        private void tell(Runnable call) {
+            if (error != null) {
+                return;
+            }
+            try {
+                call.run();
+            } catch (RuntimeException e) {
+                error = e;
+            }
+        }
+
+
+        private synchronized void recordError(RuntimeException e) {
+            if (error == null) {
+                error = e;
+            }
+        }
+
+
+        /**
+         * Waits for every task to be done, then completes the aggregate.
+         */
+        Summary finish() throws InterruptedIOException {
+            acquire(waitingTasks, maxWaitingTasks);
+            synchronized (this) {
+                if (error != null) {
+                    throw error;
+                }
+                aggregate.uniqueWordCount = vocabulary.size();
+                aggregate.wordFrequency = vocabulary;
+                aggregate.topNFrequentWords = aggregate.getMetrics().contains(Metric.TOP_N_FREQUENT_WORDS)
+                        ? vocabulary.mostFrequent(request.getTopN())
+                        : List.of();
+                aggregate.averageLineLength = aggregate.lineCount == 0 ? 0.0 : lineLengthSum / aggregate.lineCount;
+                aggregate.averageWordLength = aggregate.wordCount == 0 ? 0.0 : wordLengthSum / aggregate.wordCount;
+                return new Summary(fileCount, failedFileCount, byteCount, aggregate);
+            }
+        }
+    }
+
+
+    /**
+     * Analyses the chunks between two boundaries, splitting them in halves that are analysed in parallel and merged in order.
+     */
+    private class RangeTask extends RecursiveTask<AnalysisEngine> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Path file;
+        private final FileChannel channel;
+        private final Charset charset;
+        private final long[] boundaries;
+        private final int from;
+        private final int to;
+
+
+        RangeTask(Path file, FileChannel channel, Charset charset, long[] boundaries, int from, int to) {
+            this.file = file;
+            this.channel = channel;
+            this.charset = charset;
+            this.boundaries = boundaries;
+            this.from = from;
+            this.to = to;
+        }
+
+
+        @Override
+        protected AnalysisEngine compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                RangeTask left = new RangeTask(file, channel, charset, boundaries, from, middle);
+                left.fork();
+                AnalysisEngine right = new RangeTask(file, channel, charset, boundaries, middle, to).compute();
+                return left.join().merge(right);
+            }
+            try {
+                return AnalysisEngine.analyseRange(file, channel, charset, boundaries[from], boundaries[to], request);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+
+    private static void acquire(Semaphore semaphore, int permits) throws InterruptedIOException {
+        try {
+            semaphore.acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the batch");
+        }
+    }
+
+
+    private static int requirePositive(int value, String name) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive: " + value);
+        }
+        return value;
+    }
+
+
+    private static long requirePositive(long value, String name) {
+        if (value <= 0) {
+            throw new IllegalArgumentException(name + " must be positive: " + value);
+        }
+        return value;
+    }
+
+}
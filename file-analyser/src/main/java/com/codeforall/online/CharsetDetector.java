@@ -0,0 +1,164 @@
+package com.codeforall.online;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+
+/**
+ * Guesses the charset of a text file from its first bytes.
+ * <ul>
+ *     <li>A byte order mark decides: UTF-8, or UTF-16 in either byte order.</li>
+ *     <li>Without one, text with a zero byte in most of its even or odd positions is taken for UTF-16 without a mark.</li>
+ *     <li>Otherwise, text that is valid UTF-8, which includes pure ASCII, is UTF-8, and so is text whose valid UTF-8
+ *     sequences of several bytes outnumber its invalid bytes: a stray byte in UTF-8 text does not make it ISO-8859-1.</li>
+ *     <li>Anything else is read as ISO-8859-1, which maps every byte to a character, so reading it never fails.</li>
+ * </ul>
+ * Invalid UTF-8 in text taken for UTF-8 is malformed input, reported or replaced as the {@link AnalysisRequest} says,
+ * wherever it is; only the first {@value #SAMPLE_SIZE} bytes are looked at for the guess.
+ */
+public final class CharsetDetector {
+
+    /** The number of bytes at the start of a file that the guess is based on. */
+    public static final int SAMPLE_SIZE = 64 * 1024;
+
+    private CharsetDetector() {
+    }
+
+
+    /**
+     * Guesses the charset of the specified file, from its uncompressed contents if it is compressed.
+     *
+     * @param path The path to the file.
+     * @return The charset of the file; UTF-8 for an empty file.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static Charset detect(Path path) throws IOException {
+        byte[] sample = new byte[SAMPLE_SIZE];
+        int length = 0;
+        try (InputStream in = CompressedInput.open(path)) {
+            int read;
+            while (length < sample.length && (read = in.read(sample, length, sample.length - length)) > 0) {
+                length += read;
+            }
+        }
+        return detect(sample, length);
+    }
+
+
+    /**
+     * Guesses the charset of text from its first bytes.
+     *
+     * @param sample The first bytes of the text; a character cut off at the end of the sample is fine.
+     * @param length The number of bytes in the sample.
+     * @return The charset of the text.
+     */
+    public static Charset detect(byte[] sample, int length) {
+        if (startsWith(sample, length, 0xEF, 0xBB, 0xBF)) {
+            return StandardCharsets.UTF_8;
+        }
+        if (startsWith(sample, length, 0xFE, 0xFF) || startsWith(sample, length, 0xFF, 0xFE)) {
+            return StandardCharsets.UTF_16;
+        }
+        int evenZeros = 0;
+        int oddZeros = 0;
+        for (int i = 0; i < length; i++) {
+            if (sample[i] == 0) {
+                if ((i & 1) == 0) {
+                    evenZeros++;
+                } else {
+                    oddZeros++;
+                }
+            }
+        }
+        // mostly ASCII text in UTF-16 has a zero in every other byte
+        if (evenZeros > length / 4 && oddZeros < evenZeros / 8) {
+            return StandardCharsets.UTF_16BE;
+        }
+        if (oddZeros > length / 4 && evenZeros < oddZeros / 8) {
+            return StandardCharsets.UTF_16LE;
+        }
+        return isUtf8(sample, length) ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1;
+    }
+
+
+    private static boolean isUtf8(byte[] sample, int length) {
+        int valid = 0;
+        int invalid = 0;
+        int i = 0;
+        while (i < length) {
+            if (sample[i] >= 0) {
+                i++;
+                continue;
+            }
+            int sequenceLength = sequenceLength(sample, i, length);
+            if (sequenceLength < 0) {
+                // a sequence cut off by the end of the sample is neither
+                break;
+            }
+            if (sequenceLength == 0) {
+                invalid++;
+                i++;
+            } else {
+                valid++;
+                i += sequenceLength;
+            }
+        }
+        return valid > invalid || invalid == 0;
+    }
+
+
+    /**
+     * @return The length of the valid UTF-8 sequence starting at index i, 0 if it is not valid, -1 if it is valid as far
+     * as the end of the sample.
+     */
+    private static int sequenceLength(byte[] sample, int i, int length) {
+        int lead = sample[i] & 0xFF;
+        int sequenceLength;
+        // the range of the second byte, narrower after some leads to exclude overlong forms, surrogates and code points
+        // above U+10FFFF
+        int min = 0x80;
+        int max = 0xBF;
+        if (lead >= 0xC2 && lead <= 0xDF) {
+            sequenceLength = 2;
+        } else if (lead >= 0xE0 && lead <= 0xEF) {
+            sequenceLength = 3;
+            min = lead == 0xE0 ? 0xA0 : min;
+            max = lead == 0xED ? 0x9F : max;
+        } else if (lead >= 0xF0 && lead <= 0xF4) {
+            sequenceLength = 4;
+            min = lead == 0xF0 ? 0x90 : min;
+            max = lead == 0xF4 ? 0x8F : max;
+        } else {
+            return 0;
+        }
+        for (int k = 1; k < sequenceLength; k++) {
+            if (i + k >= length) {
+                return -1;
+            }
+            int b = sample[i + k] & 0xFF;
+            if (b < min || b > max) {
+                return 0;
+            }
+            min = 0x80;
+            max = 0xBF;
+        }
+        return sequenceLength;
+    }
+
+
+    private static boolean startsWith(byte[] sample, int length, int... prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if ((sample[i] & 0xFF) != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+}
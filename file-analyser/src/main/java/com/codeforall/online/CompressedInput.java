@@ -0,0 +1,80 @@
+package com.codeforall.online;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+
+/**
+ * Opens files for reading whether they are compressed or not, so that gzip files are analysed straight from the archive
+ * instead of being decompressed to disk first. Files are recognised as gzip by their first two bytes, not by their name.
+ * <p>
+ * A gzip file is decompressed with a {@link ParallelGzipInputStream} on the common pool, so the decompression runs
+ * on other threads than the analysis that reads it. The operations that split a file into byte ranges, see
+ * {@link MappedFileScanner}, cannot split compressed bytes, so they either read a compressed file as a whole or refuse it.
+ */
+public final class CompressedInput {
+
+    private static final int GZIP_MAGIC_1 = 0x1F;
+    private static final int GZIP_MAGIC_2 = 0x8B;
+
+    private CompressedInput() {
+    }
+
+
+    /**
+     * Checks whether the specified file is compressed.
+     *
+     * @param path The path to the file.
+     * @return True if the file starts like a gzip file, false otherwise.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static boolean isCompressed(Path path) throws IOException {
+        try (InputStream in = Files.newInputStream(path)) {
+            return in.read() == GZIP_MAGIC_1 && in.read() == GZIP_MAGIC_2;
+        }
+    }
+
+
+    /**
+     * Opens a stream of the contents of the specified file, decompressing it if it is compressed.
+     *
+     * @param path The path to the file.
+     * @return A stream of the uncompressed bytes of the file.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static InputStream open(Path path) throws IOException {
+        PushbackInputStream in = new PushbackInputStream(Files.newInputStream(path), 2);
+        try {
+            byte[] magic = in.readNBytes(2);
+            in.unread(magic);
+            if (magic.length == 2 && (magic[0] & 0xFF) == GZIP_MAGIC_1 && (magic[1] & 0xFF) == GZIP_MAGIC_2) {
+                ForkJoinPool pool = ForkJoinPool.commonPool();
+                return new ParallelGzipInputStream(in, pool, 4 * Math.max(1, pool.getParallelism()));
+            }
+            return in;
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+
+    /**
+     * Refuses a compressed file for an operation that works on byte ranges of the file.
+     *
+     * @param path      The path to the file.
+     * @param operation What is done with the file, for the message of the exception.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If the file is compressed.
+     */
+    static void requireUncompressed(Path path, String operation) throws IOException {
+        if (isCompressed(path)) {
+            throw new IllegalArgumentException("Compressed files cannot be " + operation + ": " + path);
+        }
+    }
+
+}
@@ -0,0 +1,159 @@
+package com.codeforall.online;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+
+/**
+ * Estimates how often any word occurs in a fixed amount of memory, with a Count-Min sketch.
+ * Every word is counted in one cell of each of d rows of w counters, picked by d hash functions derived from one 64-bit hash;
+ * the estimate is the smallest of its d cells. Other words sharing a cell can only add to it, so the estimate is never
+ * below the true count, and with w = e / epsilon and d = ln(1 / delta) it exceeds it by more than epsilon times the total
+ * number of words with a probability of at most delta. Merging adds the cells.
+ */
+public class CountMinSketch implements WordSketch<CountMinSketch> {
+
+    private static final int MAX_CELLS = 1 << 28;
+
+    private final int depth;
+    private final int mask;
+    private final long[] cells;
+    private long total;
+
+
+    /**
+     * Creates a sketch for the given error bound.
+     *
+     * @param epsilon    The error of an estimate, as a fraction of the total number of words, such as 0.001.
+     * @param confidence The probability that an estimate is within the error, such as 0.99.
+     * @throws IllegalArgumentException If epsilon or the confidence is not between 0 and 1, or the sketch would be too large.
+     */
+    public CountMinSketch(double epsilon, double confidence) {
+        if (!(epsilon > 0 && epsilon < 1)) {
+            throw new IllegalArgumentException("Epsilon must be between 0 and 1: " + epsilon);
+        }
+        if (!(confidence > 0 && confidence < 1)) {
+            throw new IllegalArgumentException("Confidence must be between 0 and 1: " + confidence);
+        }
+        long width = Long.highestOneBit((long) Math.ceil(Math.E / epsilon) - 1) << 1;
+        int depth = Math.max(1, (int) Math.ceil(Math.log(1 / (1 - confidence))));
+        if (width * depth > MAX_CELLS) {
+            throw new IllegalArgumentException("Sketch of " + depth + " rows of " + width + " counters is too large");
+        }
+        this.depth = depth;
+        this.mask = (int) width - 1;
+        this.cells = new long[(int) width * depth];
+    }
+
+
+    private CountMinSketch(int depth, int width) {
+        this.depth = depth;
+        this.mask = width - 1;
+        this.cells = new long[width * depth];
+    }
+
+
+    @Override
+    public void add(CharSequence word) {
+        add(word, 1);
+    }
+
+
+    /**
+     * Adds occurrences of a word.
+     *
+     * @param word  The word, in any case.
+     * @param count The number of occurrences.
+     */
+    public void add(CharSequence word, long count) {
+        long hash = WordHash.hash(word);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        int width = mask + 1;
+        for (int row = 0; row < depth; row++) {
+            cells[row * width + ((h1 + row * h2) & mask)] += count;
+        }
+        total += count;
+    }
+
+
+    /**
+     * @param word The word, in any case.
+     * @return The estimated number of occurrences of the word, which is never below the true number.
+     */
+    public long estimate(CharSequence word) {
+        long hash = WordHash.hash(word);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32) | 1;
+        int width = mask + 1;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < depth; row++) {
+            estimate = Math.min(estimate, cells[row * width + ((h1 + row * h2) & mask)]);
+        }
+        return estimate;
+    }
+
+
+    /**
+     * @return The total number of words added.
+     */
+    public long getTotalCount() {
+        return total;
+    }
+
+
+    /**
+     * @return The number of occurrences by which an estimate may exceed the true count, with the confidence of the sketch.
+     */
+    public long errorBound() {
+        return (long) Math.ceil(Math.E / (mask + 1) * total);
+    }
+
+
+    @Override
+    public CountMinSketch merge(CountMinSketch other) {
+        if (other.depth != depth || other.mask != mask) {
+            throw new IllegalArgumentException("Cannot merge sketches of different sizes");
+        }
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] += other.cells[i];
+        }
+        total += other.total;
+        return this;
+    }
+
+
+    @Override
+    public void writeTo(DataOutput out) throws IOException {
+        StateCodec.writeVarLong(out, depth);
+        StateCodec.writeVarLong(out, mask + 1);
+        StateCodec.writeVarLong(out, total);
+        for (long cell : cells) {
+            StateCodec.writeVarLong(out, cell);
+        }
+    }
+
+
+    /**
+     * Reads a sketch written by {@link #writeTo(DataOutput)}.
+     *
+     * @param in The input to read from.
+     * @return The sketch.
+     * @throws IOException If an I/O error occurs or the input is not a sketch.
+     */
+    public static CountMinSketch readFrom(DataInput in) throws IOException {
+        int depth = StateCodec.readVarInt(in);
+        int width = StateCodec.readVarInt(in);
+        if (depth < 1 || Integer.bitCount(width) != 1 || (long) depth * width > MAX_CELLS) {
+            throw new IOException("Not a Count-Min sketch of " + depth + " rows of " + width + " counters");
+        }
+        CountMinSketch sketch = new CountMinSketch(depth, width);
+        sketch.total = StateCodec.readVarLong(in);
+        for (int i = 0; i < sketch.cells.length; i++) {
+            sketch.cells[i] = StateCodec.readVarLong(in);
+        }
+        return sketch;
+    }
+
+}
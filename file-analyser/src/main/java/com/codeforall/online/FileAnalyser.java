@@ -1,9 +1,13 @@
 package com.codeforall.online;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.*;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -16,11 +20,16 @@ import java.util.stream.Stream;
  * finding the first word with more than n characters, finding common words between two files,
  * getting word frequency, finding lines containing numbers, finding lines matching a regex pattern,
  * and collecting palindromic words.
+ * Each method is a view over a single {@link AnalysisEngine} pass; use {@link #analyse(String, AnalysisRequest)}
+ * to compute several metrics while reading the file only once. With a {@link ResultCache} set, see
+ * {@link #setResultCache(ResultCache)}, the reports of these passes are cached until their file changes.
  */
 public class FileAnalyser {
 
     private static String ROOT_DIR = "file-analyser/src/main/resources/";
 
+    private static volatile ResultCache resultCache;
+
 
     /**
      * Prompts the user to enter the path to the first file to analyze and returns the path.
@@ -66,6 +75,98 @@ public class FileAnalyser {
     }
 
 
+    /**
+     * Computes several metrics in a single pass over the specified file.
+     *
+     * @param filename The path to the file.
+     * @param request  The metrics to compute.
+     * @return A report holding the requested metrics.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static AnalysisReport analyse(String filename, AnalysisRequest request) throws IOException {
+        return analyseCached(filename, request);
+    }
+
+
+    /**
+     * Computes several metrics over the specified file in chunks, saving the running state to a checkpoint file as it goes,
+     * so that an interrupted run resumes from the last completed chunk, see {@link ResumableAnalysis}.
+     *
+     * @param filename   The path to the file.
+     * @param request    The metrics to compute.
+     * @param checkpoint The checkpoint file, which is deleted once the file is done.
+     * @return A report holding the requested metrics.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If the file is compressed.
+     */
+    public static AnalysisReport analyse(String filename, AnalysisRequest request, Path checkpoint) throws IOException {
+        return ResumableAnalysis.analyse(Paths.get(filename), request, checkpoint);
+    }
+
+
+    /**
+     * Sets the cache that the single pass operations of this class look their reports up in, so that asking the same
+     * question about an unchanged file again does not read it again.
+     *
+     * @param cache The cache, or null to read the file on every call, which is the default.
+     */
+    public static void setResultCache(ResultCache cache) {
+        resultCache = cache;
+    }
+
+
+    /**
+     * @return The cache the single pass operations look their reports up in, or null if there is none.
+     */
+    public static ResultCache getResultCache() {
+        return resultCache;
+    }
+
+
+    /**
+     * Guesses the charset of the specified file, which every analysis does unless its request sets the charset.
+     *
+     * @param filename The path to the file.
+     * @return The charset of the file, see {@link CharsetDetector}.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static Charset detectCharset(String filename) throws IOException {
+        return CharsetDetector.detect(Paths.get(filename));
+    }
+
+
+    /**
+     * Builds a persistent word index beside the specified file, see {@link WordIndex}.
+     * As long as the file does not change, line, word and unique word counts, word occurrences and
+     * lines containing a word are then read from the index instead of scanning the file.
+     *
+     * @param filename The path to the file.
+     * @return The path of the index.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If the file is compressed, or its charset does not encode ASCII as single bytes.
+     */
+    public static Path buildIndex(String filename) throws IOException {
+        return WordIndex.build(Paths.get(filename));
+    }
+
+
+    /**
+     * Starts following the specified file as it grows, see {@link FileFollower}.
+     * Only appended lines are analysed, and the metrics are published to the listener at most once per interval.
+     *
+     * @param filename        The path to the file.
+     * @param request         The metrics to compute.
+     * @param publishInterval The minimum time between two publications of the metrics.
+     * @param listener        The listener receiving the metrics.
+     * @return The running follower, which has to be closed to stop following the file.
+     */
+    public static FileFollower follow(String filename, AnalysisRequest request, Duration publishInterval, FileFollower.Listener listener) {
+        return new FileFollower(Paths.get(filename), request)
+                .publishInterval(publishInterval)
+                .start(listener);
+    }
+
+
     /**
      * Counts the number of lines in the specified file.
      *
@@ -74,9 +175,11 @@ public class FileAnalyser {
      * @throws IOException If an I/O error occurs.
      */
     public static long countLines(String filename) throws IOException {
-        try (Stream<String> stream = Files.lines(Paths.get(filename))) {
-            return stream.count();
+        WordIndex index = WordIndex.openIfFresh(Paths.get(filename));
+        if (index != null) {
+            return index.getLineCount();
         }
+        return analyseCached(filename, new AnalysisRequest(Metric.LINE_COUNT)).getLineCount();
     }
 
 
@@ -88,12 +191,41 @@ public class FileAnalyser {
      * @throws IOException If an I/O error occurs.
      */
     public static long countWords(String filename) throws IOException {
-        try (Stream<String> stream = Files.lines(Paths.get(filename))) {
-            return stream
-                    .flatMap(line -> Arrays.stream(line.split(" ")))
-                    .filter(word -> !word.isEmpty())
-                    .count();
+        WordIndex index = WordIndex.openIfFresh(Paths.get(filename));
+        if (index != null) {
+            return index.getWordCount();
         }
+        return analyseCached(filename, new AnalysisRequest(Metric.WORD_COUNT)).getWordCount();
+    }
+
+
+    /**
+     * Counts the number of lines in the specified file by memory-mapping it and counting chunks of it in parallel.
+     * Gives the same result as {@link #countLines(String)} without decoding the file into Strings, for a file in a charset
+     * that encodes ASCII as single bytes.
+     *
+     * @param filename The path to the file.
+     * @return The number of lines in the file.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If the charset of the file does not encode ASCII as single bytes, see {@link MappedFileScanner}.
+     */
+    public static long countLinesParallel(String filename) throws IOException {
+        return MappedFileScanner.scan(Paths.get(filename)).getLineCount();
+    }
+
+
+    /**
+     * Counts the number of words in the specified file by memory-mapping it and counting chunks of it in parallel.
+     * Gives the same result as {@link #countWords(String)} without decoding the file into Strings, for a file in a charset
+     * that encodes ASCII as single bytes.
+     *
+     * @param filename The path to the file.
+     * @return The number of words in the file.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If the charset of the file does not encode ASCII as single bytes, see {@link MappedFileScanner}.
+     */
+    public static long countWordsParallel(String filename) throws IOException {
+        return MappedFileScanner.scan(Paths.get(filename)).getWordCount();
     }
 
 
@@ -105,11 +237,7 @@ public class FileAnalyser {
      * @throws IOException If an I/O error occurs.
      */
     public static long countNonEmptyLines(String filename) throws IOException {
-        try (Stream<String> stream = Files.lines(Paths.get(filename))) {
-            return stream
-                    .filter(line -> !line.trim().isEmpty())
-                    .count();
-        }
+        return analyseCached(filename, new AnalysisRequest(Metric.NON_EMPTY_LINE_COUNT)).getNonEmptyLineCount();
     }
 
 
@@ -121,13 +249,11 @@ public class FileAnalyser {
      * @throws IOException If an I/O error occurs.
      */
     public static long countUniqueWords(String filename) throws IOException {
-        try (Stream<String> stream = Files.lines(Paths.get(filename))) {
-            return stream
-                    .flatMap(line -> Arrays.stream(line.split(" ")))
-                    .map(String::toLowerCase)
-                    .distinct()
-                    .count();
+        WordIndex index = WordIndex.openIfFresh(Paths.get(filename));
+        if (index != null) {
+            return index.getUniqueWordCount();
         }
+        return analyseCached(filename, new AnalysisRequest(Metric.UNIQUE_WORD_COUNT)).getUniqueWordCount();
     }
 
 
@@ -140,12 +266,11 @@ public class FileAnalyser {
      * @throws IOException If an I/O error occurs.
      */
     public static long countWordOccurrences(String filename, String word) throws IOException {
-        try (Stream<String> lines = Files.lines(Paths.get(filename))) {
-            return lines.flatMap(line -> Arrays.stream(line.split("\\s+")))
-                    .map(String::toLowerCase)
-                    .filter(w -> w.equals(word.toLowerCase()))
-                    .count();
+        WordIndex index = WordIndex.openIfFresh(Paths.get(filename));
+        if (index != null) {
+            return index.countOccurrences(word);
         }
+        return analyseCached(filename, new AnalysisRequest(Metric.WORD_OCCURRENCES).word(word)).getWordOccurrences();
     }
 
 
@@ -158,11 +283,73 @@ public class FileAnalyser {
      * @throws IOException If an I/O error occurs.
      */
     public static List<String> findLinesContainingWord(String filename, String word) throws IOException {
-        try (Stream<String> stream = Files.lines(Paths.get(filename))) {
-            return stream
-                    .filter(line -> line.toLowerCase().contains(word.toLowerCase()))
-                    .collect(Collectors.toList());
+        WordIndex index = isIndexable(word) ? WordIndex.openIfFresh(Paths.get(filename)) : null;
+        if (index != null) {
+            return index.findLinesContaining(word).stream().map(LineMatch::getLine).collect(Collectors.toList());
         }
+        return analyseCached(filename, new AnalysisRequest(Metric.LINES_CONTAINING_WORD).word(word)).getLinesContainingWord();
+    }
+
+
+    /**
+     * Finds lines in the specified file that contain a specific word, and hands them to a consumer as they are found.
+     * Unlike {@link #findLinesContainingWord(String, String)}, no list is built: the consumer runs on the calling thread
+     * and the file is no longer read once the limit is reached.
+     *
+     * @param filename The path to the file.
+     * @param word     The word to search for.
+     * @param limit    The maximum number of lines to hand out.
+     * @param consumer The consumer receiving each matching line with its line number and byte offset.
+     * @return The number of lines handed to the consumer.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If the charset of the file does not encode ASCII as single bytes.
+     */
+    public static long findLinesContainingWord(String filename, String word, long limit, Consumer<? super LineMatch> consumer) throws IOException {
+        return LineSearch.forEach(Paths.get(filename), LineSearch.containingWord(word), limit, consumer);
+    }
+
+
+    /**
+     * Returns a lazy stream of the lines in the specified file that contain a specific word, with their line numbers and byte offsets.
+     * The file is read as the stream is consumed, so {@link Stream#limit(long)} stops reading early;
+     * the stream must be closed to close the file.
+     *
+     * @param filename The path to the file.
+     * @param word     The word to search for.
+     * @return A stream of the lines containing the word.
+     * @throws IOException              If the file cannot be opened.
+     * @throws IllegalArgumentException If the charset of the file does not encode ASCII as single bytes.
+     */
+    public static Stream<LineMatch> streamLinesContainingWord(String filename, String word) throws IOException {
+        return LineSearch.stream(Paths.get(filename), LineSearch.containingWord(word));
+    }
+
+
+    /**
+     * Finds, for each of several words, the lines in the specified file that contain it, ignoring case.
+     * All words are searched for at once with {@link AhoCorasick}, in a single pass over the file.
+     *
+     * @param filename The path to the file.
+     * @param words    The words to search for.
+     * @return A map from each word to the lines containing it, in the order the words were given.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static Map<String, List<String>> findLinesContainingWords(String filename, Collection<String> words) throws IOException {
+        AhoCorasick automaton = new AhoCorasick(new LinkedHashSet<>(words));
+        List<String> wordList = automaton.getWords();
+        Map<String, List<String>> lines = new LinkedHashMap<>();
+        wordList.forEach(word -> lines.put(word, new ArrayList<>()));
+
+        BitSet found = new BitSet(wordList.size());
+        AnalysisEngine.forEachLine(Paths.get(filename), null, false, text -> {
+            automaton.findAll(text, (word, start, end) -> found.set(word));
+            if (!found.isEmpty()) {
+                String line = text.toString();
+                found.stream().forEach(word -> lines.get(wordList.get(word)).add(line));
+                found.clear();
+            }
+        });
+        return lines;
     }
 
 
@@ -174,9 +361,7 @@ public class FileAnalyser {
      * @throws IOException If an I/O error occurs.
      */
     public static double averageLineLength(String filename) throws IOException {
-        try (Stream<String> lines = Files.lines(Paths.get(filename))) {
-            return lines.collect(Collectors.averagingInt(String::length));
-        }
+        return analyseCached(filename, new AnalysisRequest(Metric.AVERAGE_LINE_LENGTH)).getAverageLineLength();
     }
 
 
@@ -188,10 +373,7 @@ public class FileAnalyser {
      * @throws IOException If an I/O error occurs.
      */
     public static double averageWordLength(String filename) throws IOException {
-        try (Stream<String> lines = Files.lines(Paths.get(filename))) {
-            return lines.flatMap(line -> Arrays.stream(line.split("\\s+")))
-                    .collect(Collectors.averagingInt(String::length));
-        }
+        return analyseCached(filename, new AnalysisRequest(Metric.AVERAGE_WORD_LENGTH)).getAverageWordLength();
     }
 
 
@@ -203,9 +385,7 @@ public class FileAnalyser {
      * @throws IOException If an I/O error occurs.
      */
     public static Optional<String> findShortestLine(String filename) throws IOException {
-        try (Stream<String> lines = Files.lines(Paths.get(filename))) {
-            return lines.min(Comparator.comparingInt(String::length));
-        }
+        return analyseCached(filename, new AnalysisRequest(Metric.SHORTEST_LINE)).getShortestLine();
     }
 
 
@@ -217,9 +397,7 @@ public class FileAnalyser {
      * @throws IOException If an I/O error occurs.
      */
     public static Optional<String> findLongestLine(String filename) throws IOException {
-        try (Stream<String> lines = Files.lines(Paths.get(filename))) {
-            return lines.max(Comparator.comparingInt(String::length));
-        }
+        return analyseCached(filename, new AnalysisRequest(Metric.LONGEST_LINE)).getLongestLine();
     }
 
 
@@ -232,12 +410,33 @@ public class FileAnalyser {
      * @throws IOException If an I/O error occurs.
      */
     public static List<String> findTopNLongestWord(String filename, int n) throws IOException {
-        try (Stream<String> lines = Files.lines(Paths.get(filename))) {
-            return lines.flatMap(line -> Arrays.stream(line.split("\\s+")))
-                    .sorted(Comparator.comparingInt(String::length).reversed())
-                    .limit(n)
-                    .collect(Collectors.toList());
-        }
+        return analyseCached(filename, new AnalysisRequest(Metric.TOP_N_LONGEST_WORDS).topN(n)).getTopNLongestWords();
+    }
+
+
+    /**
+     * Finds the top n most frequent words in the specified file.
+     *
+     * @param filename The path to the file.
+     * @param n        The number of most frequent words to find.
+     * @return A list containing the top n most frequent words and their frequencies, most frequent first.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static List<Map.Entry<String, Long>> findTopNMostFrequentWords(String filename, int n) throws IOException {
+        return analyseCached(filename, new AnalysisRequest(Metric.TOP_N_FREQUENT_WORDS).topN(n)).getTopNFrequentWords();
+    }
+
+
+    /**
+     * Finds the top n longest lines in the specified file.
+     *
+     * @param filename The path to the file.
+     * @param n        The number of longest lines to find.
+     * @return A list containing the top n longest lines, longest first.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static List<String> findTopNLongestLines(String filename, int n) throws IOException {
+        return analyseCached(filename, new AnalysisRequest(Metric.TOP_N_LONGEST_LINES).topN(n)).getTopNLongestLines();
     }
 
 
@@ -250,11 +449,7 @@ public class FileAnalyser {
      * @throws IOException If an I/O error occurs.
      */
     public static Optional<String> getFirstWordWithMoreThanNCharacters(String filename, int n) throws IOException {
-        try (Stream<String> lines = Files.lines(Paths.get(filename))) {
-            return lines.flatMap(line -> Arrays.stream(line.split("\\s+")))
-                    .filter(word -> word.length() > n)
-                    .findFirst();
-        }
+        return analyseCached(filename, new AnalysisRequest(Metric.FIRST_WORD_LONGER_THAN_N).minWordLength(n)).getFirstWordLongerThanN();
     }
 
 
@@ -267,19 +462,31 @@ public class FileAnalyser {
      * @throws IOException If an I/O error occurs.
      */
     public static Set<String> findCommonWordsBetweenFiles (String filename1, String filename2) throws IOException {
-        try (Stream<String> lines1 = Files.lines(Paths.get(filename1));
-             Stream<String> lines2 = Files.lines(Paths.get(filename2))) {
+        return VocabularySets.intersection(List.of(Paths.get(filename1), Paths.get(filename2)));
+    }
 
-            Set<String> wordsInFile1 = lines1.flatMap(line -> Arrays.stream(line.split("\\s+")))
-                    .map(String::toLowerCase)
-                    .collect(Collectors.toSet());
 
-            return lines2.flatMap(line -> Arrays.stream(line.split("\\s+")))
-                    .map(String::toLowerCase)
-                    .filter(wordsInFile1::contains)
-                    .collect(Collectors.toSet());
-        }
+    /**
+     * Finds the words that all of the specified files have in common, reading the files concurrently.
+     *
+     * @param filenames The paths to the files.
+     * @return A set containing the words common to all files.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static Set<String> findCommonWordsAcrossFiles(List<String> filenames) throws IOException {
+        return VocabularySets.intersection(toPaths(filenames));
+    }
+
 
+    /**
+     * Finds the words that occur in any of the specified files, reading the files concurrently.
+     *
+     * @param filenames The paths to the files.
+     * @return A set containing the words of all files.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static Set<String> findAllWordsAcrossFiles(List<String> filenames) throws IOException {
+        return VocabularySets.union(toPaths(filenames));
     }
 
 
@@ -291,11 +498,93 @@ public class FileAnalyser {
      * @throws IOException If an I/O error occurs.
      */
     public static Map<String, Long> getWordFrequency(String filename) throws IOException {
-        try (Stream<String> lines = Files.lines(Paths.get(filename))) {
-            return lines.flatMap(line -> Arrays.stream(line.split("\\s+")))
-                    .map(String::toLowerCase)
-                    .collect(Collectors.groupingBy(word -> word, Collectors.counting()));
-        }
+        return analyseCached(filename, new AnalysisRequest(Metric.WORD_FREQUENCY)).getWordFrequency();
+    }
+
+
+    /**
+     * Estimates the number of unique words in the specified file in a fixed amount of memory, see {@link HyperLogLog}.
+     *
+     * @param filename      The path to the file.
+     * @param relativeError The relative standard error of the estimate, such as 0.01 for 1%.
+     * @return The estimated number of unique words in the file.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static long estimateUniqueWords(String filename, double relativeError) throws IOException {
+        return Sketches.sketch(Paths.get(filename), () -> new HyperLogLog(relativeError)).estimate();
+    }
+
+
+    /**
+     * Sketches the frequency of every word in the specified file in a fixed amount of memory, see {@link CountMinSketch}.
+     *
+     * @param filename   The path to the file.
+     * @param epsilon    The error of an estimated frequency, as a fraction of the number of words in the file, such as 0.001.
+     * @param confidence The probability that an estimated frequency is within the error, such as 0.99.
+     * @return A sketch estimating the frequency of any word.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static CountMinSketch sketchWordFrequency(String filename, double epsilon, double confidence) throws IOException {
+        return Sketches.sketch(Paths.get(filename), () -> new CountMinSketch(epsilon, confidence));
+    }
+
+
+    /**
+     * Estimates the n most frequent words in the specified file in a fixed amount of memory, see {@link SpaceSaving}.
+     *
+     * @param filename The path to the file.
+     * @param n        The number of words to find.
+     * @param epsilon  The largest overcount of a frequency, as a fraction of the number of words in the file, such as 0.001.
+     * @return The words with their estimated frequencies, most frequent first.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static List<Map.Entry<String, Long>> estimateMostFrequentWords(String filename, int n, double epsilon) throws IOException {
+        return Sketches.sketch(Paths.get(filename), () -> SpaceSaving.forError(epsilon, n)).mostFrequent(n);
+    }
+
+
+    /**
+     * Estimates the number of words two files have in common in a fixed amount of memory, see {@link MinHash}.
+     *
+     * @param filename1 The path to the first file.
+     * @param filename2 The path to the second file.
+     * @param error     The standard error of the estimated overlap, as a fraction of the words of either file, such as 0.01.
+     * @return The estimated number of common words.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static long estimateCommonWordsBetweenFiles(String filename1, String filename2, double error) throws IOException {
+        MinHash first = Sketches.sketch(Paths.get(filename1), () -> new MinHash(error));
+        MinHash second = Sketches.sketch(Paths.get(filename2), () -> new MinHash(error));
+        return first.estimateShared(second);
+    }
+
+
+    /**
+     * Finds the n most frequent n-grams, runs of consecutive words within a line, in the specified file, see {@link NGramTable}.
+     *
+     * @param filename The path to the file.
+     * @param words    The number of words per n-gram, 2 for bigrams or 3 for trigrams.
+     * @param n        The number of n-grams to find.
+     * @return The n-grams, their words separated by single spaces, with their counts, most frequent first.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static List<Map.Entry<String, Long>> findTopNMostFrequentNGrams(String filename, int words, int n) throws IOException {
+        return NGramCounter.count(Paths.get(filename), () -> NGramTable.ngrams(words, NGramTable.DEFAULT_MAX_ENTRIES)).mostFrequent(n);
+    }
+
+
+    /**
+     * Finds the n pairs of different words that most often occur close to each other within a line in the specified file,
+     * see {@link NGramTable}.
+     *
+     * @param filename The path to the file.
+     * @param window   The number of consecutive words a pair lies within, such as 5.
+     * @param n        The number of pairs to find.
+     * @return The pairs, their words separated by a single space, with their counts, most frequent first.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static List<Map.Entry<String, Long>> findTopNCooccurringWords(String filename, int window, int n) throws IOException {
+        return NGramCounter.count(Paths.get(filename), () -> NGramTable.cooccurrences(window, NGramTable.DEFAULT_MAX_ENTRIES)).mostFrequent(n);
     }
 
 
@@ -307,10 +596,39 @@ public class FileAnalyser {
      * @throws IOException If an I/O error occurs.
      */
     public static List<String> findLinesContainingNumbers(String filename) throws IOException {
-        try (Stream<String> lines = Files.lines(Paths.get(filename))) {
-            return lines.filter(line -> line.matches(".*\\d+.*"))
-                    .collect(Collectors.toList());
-        }
+        return analyseCached(filename, new AnalysisRequest(Metric.LINES_CONTAINING_NUMBERS)).getLinesContainingNumbers();
+    }
+
+
+    /**
+     * Finds lines in the specified file that contain numbers, and hands them to a consumer as they are found.
+     * Unlike {@link #findLinesContainingNumbers(String)}, no list is built: the consumer runs on the calling thread
+     * and the file is no longer read once the limit is reached.
+     *
+     * @param filename The path to the file.
+     * @param limit    The maximum number of lines to hand out.
+     * @param consumer The consumer receiving each matching line with its line number and byte offset.
+     * @return The number of lines handed to the consumer.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If the charset of the file does not encode ASCII as single bytes.
+     */
+    public static long findLinesContainingNumbers(String filename, long limit, Consumer<? super LineMatch> consumer) throws IOException {
+        return LineSearch.forEach(Paths.get(filename), LineSearch.containingNumber(), limit, consumer);
+    }
+
+
+    /**
+     * Returns a lazy stream of the lines in the specified file that contain numbers, with their line numbers and byte offsets.
+     * The file is read as the stream is consumed, so {@link Stream#limit(long)} stops reading early;
+     * the stream must be closed to close the file.
+     *
+     * @param filename The path to the file.
+     * @return A stream of the lines containing numbers.
+     * @throws IOException              If the file cannot be opened.
+     * @throws IllegalArgumentException If the charset of the file does not encode ASCII as single bytes.
+     */
+    public static Stream<LineMatch> streamLinesContainingNumbers(String filename) throws IOException {
+        return LineSearch.stream(Paths.get(filename), LineSearch.containingNumber());
     }
 
 
@@ -323,11 +641,41 @@ public class FileAnalyser {
      * @throws IOException If an I/O error occurs.
      */
     public static List<String> findLinesMatchingRegex(String filename, String regex) throws IOException {
-        Pattern pattern = Pattern.compile(regex);
-        try (Stream<String> lines = Files.lines(Paths.get(filename))) {
-            return lines.filter(line -> pattern.matcher(line).find())
-                    .collect(Collectors.toList());
-        }
+        return analyseCached(filename, new AnalysisRequest(Metric.LINES_MATCHING_REGEX).regex(regex)).getLinesMatchingRegex();
+    }
+
+
+    /**
+     * Finds lines in the specified file that match a regular expression pattern, and hands them to a consumer as they are found.
+     * Unlike {@link #findLinesMatchingRegex(String, String)}, no list is built: the consumer runs on the calling thread
+     * and the file is no longer read once the limit is reached.
+     *
+     * @param filename The path to the file.
+     * @param regex    The regular expression pattern to match.
+     * @param limit    The maximum number of lines to hand out.
+     * @param consumer The consumer receiving each matching line with its line number and byte offset.
+     * @return The number of lines handed to the consumer.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If the charset of the file does not encode ASCII as single bytes.
+     */
+    public static long findLinesMatchingRegex(String filename, String regex, long limit, Consumer<? super LineMatch> consumer) throws IOException {
+        return LineSearch.forEach(Paths.get(filename), LineSearch.matching(Pattern.compile(regex)), limit, consumer);
+    }
+
+
+    /**
+     * Returns a lazy stream of the lines in the specified file that match a regular expression pattern, with their line numbers and byte offsets.
+     * The file is read as the stream is consumed, so {@link Stream#limit(long)} stops reading early;
+     * the stream must be closed to close the file.
+     *
+     * @param filename The path to the file.
+     * @param regex    The regular expression pattern to match.
+     * @return A stream of the lines matching the regex pattern.
+     * @throws IOException              If the file cannot be opened.
+     * @throws IllegalArgumentException If the charset of the file does not encode ASCII as single bytes.
+     */
+    public static Stream<LineMatch> streamLinesMatchingRegex(String filename, String regex) throws IOException {
+        return LineSearch.stream(Paths.get(filename), LineSearch.matching(Pattern.compile(regex)));
     }
 
 
@@ -339,25 +687,34 @@ public class FileAnalyser {
      * @throws IOException If an I/O error occurs.
      */
     public static List<String> findPalindromicWords(String filePath) throws IOException {
-        try (Stream<String> lines = Files.lines(Paths.get(filePath))) {
-            return lines.flatMap(line -> Arrays.stream(line.split("\\s+")))
-                    .filter(word -> isPalindrome(word.toLowerCase()))
-                    .distinct()
-                    .collect(Collectors.toList());
-        }
+        return analyseCached(filePath, new AnalysisRequest(Metric.PALINDROMIC_WORDS)).getPalindromicWords();
+    }
+
+
+    private static AnalysisReport analyseCached(String filename, AnalysisRequest request) throws IOException {
+        ResultCache cache = resultCache;
+        return cache == null ? AnalysisEngine.analyse(filename, request) : cache.analyse(filename, request);
+    }
+
+
+    private static List<Path> toPaths(List<String> filenames) {
+        return filenames.stream().map(Paths::get).collect(Collectors.toList());
     }
 
 
     /**
-     * Checks whether a given word is a palindrome.
+     * Checks whether lines containing a word can be looked up in a {@link WordIndex},
+     * which is the case unless the word is empty or spans whitespace.
      *
-     * @param word The word to check.
-     * @return True if the word is a palindrome, false otherwise.
+     * @param word The word to search for.
+     * @return True if the index can answer the query, false otherwise.
      */
-    private static boolean isPalindrome(String word) {
-        int length = word.length();
-        for (int i = 0; i < length / 2; i++) {
-            if (word.charAt(i) != word.charAt(length - i - 1)) {
+    private static boolean isIndexable(String word) {
+        if (word.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++) {
+            if (WordTokenizer.isWhitespace(word.charAt(i))) {
                 return false;
             }
         }
@@ -0,0 +1,427 @@
+package com.codeforall.online;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * Keeps the metrics of a growing file up to date, like {@code tail -f}.
+ * The follower remembers how far it has read and keeps the running state of an {@link AnalysisEngine}, so every update
+ * only reads the bytes appended since the last one; the cost of an update depends on what was appended, not on the size of the file.
+ * Only complete lines are analysed: a line still being written is picked up once its line terminator has been appended.
+ * <p>
+ * When the path names a different file than before, the file was rotated: the rest of the old file is read to its end,
+ * and the new file is followed from its beginning, adding to the same metrics, as one stream of lines.
+ * Files are told apart by their file key, or by their creation time where the platform has no file keys.
+ * When the file shrinks below the remembered offset, or its first bytes are no longer the ones read before, it was truncated,
+ * and the metrics start over. Comparing the first bytes catches a truncation that the file has already grown back past,
+ * as with {@code copytruncate} log rotation, unless the new content starts with the same bytes as the old one.
+ * <p>
+ * Unless the request sets a charset, the charset of every file is detected from its first bytes once it has a complete
+ * line, see {@link CharsetDetector}. Malformed input is always replaced with {@code '\uFFFD'}, whatever the request says:
+ * a follower cannot stop at a malformed line and wait for it to change, as appended bytes never do.
+ * <p>
+ * {@link #start(Listener)} follows the file on a thread of its own, woken by a {@link WatchService} where the platform offers one
+ * and by polling otherwise, and publishes the metrics at most once per publish interval, only if they changed.
+ * Alternatively, {@link #poll()} can be called directly.
+ */
+public class FileFollower implements Closeable {
+
+    /** Default time between two checks of the file when no change notification arrives. */
+    public static final Duration DEFAULT_POLL_INTERVAL = Duration.ofMillis(500);
+
+    /** Default minimum time between two publications of the metrics. */
+    public static final Duration DEFAULT_PUBLISH_INTERVAL = Duration.ofSeconds(1);
+
+    private static final int SCAN_BLOCK_SIZE = 8 * 1024;
+    private static final int HEAD_SIZE = 256;
+
+    private final Path path;
+    private final AnalysisRequest request;
+    private final Charset requestedCharset;
+    private Duration pollInterval = DEFAULT_POLL_INTERVAL;
+    private Duration publishInterval = DEFAULT_PUBLISH_INTERVAL;
+
+    private AnalysisEngine engine;
+    private FileChannel channel;
+    private Object fileIdentity;
+    private byte[] head = new byte[0];
+    private Charset charset;
+    private long offset;
+    private long linesRead;
+    private long resets;
+
+    private Thread thread;
+    private WatchService watcher;
+    private volatile boolean closed;
+
+
+    /**
+     * Receives the metrics of the followed file on the following thread.
+     */
+    public interface Listener {
+
+        /**
+         * Called with the metrics after new lines were analysed.
+         * The word frequencies of the report are the follower's own running table, so they are only stable during this call.
+         *
+         * @param report The metrics of the file so far.
+         * @param offset The byte offset up to which the file has been analysed.
+         */
+        void onUpdate(AnalysisReport report, long offset);
+
+        /**
+         * Called when the file was truncated and its metrics start over.
+         *
+         * @param path The followed path.
+         */
+        default void onReset(Path path) {
+        }
+
+        /**
+         * Called when reading the file failed; following goes on with the next check.
+         *
+         * @param cause The error that occurred.
+         */
+        default void onFailure(IOException cause) {
+        }
+    }
+
+
+    /**
+     * Creates a follower computing the given metrics. Nothing is read until the first update.
+     *
+     * @param path    The path to the file, which does not have to exist yet.
+     * @param request The metrics to compute. Its charset, if it sets one, is used for every file instead of the detected one;
+     *                its lenient flag is ignored, as malformed input is always replaced.
+     * @throws IllegalArgumentException If a requested metric is missing its parameter, or the requested charset does not encode
+     *                                  ASCII as single bytes.
+     */
+    public FileFollower(Path path, AnalysisRequest request) {
+        request.validate();
+        if (request.getCharset() != null && !LineReader.isAsciiCompatible(request.getCharset())) {
+            throw new IllegalArgumentException("Only files in a charset that encodes ASCII as single bytes can be followed: "
+                    + request.getCharset());
+        }
+        this.path = path;
+        this.request = request;
+        this.requestedCharset = request.getCharset();
+        this.engine = new AnalysisEngine(path.toString(), request);
+    }
+
+
+    /**
+     * Sets the time between two checks of the file when no change notification arrives.
+     *
+     * @param interval The poll interval.
+     * @return This follower.
+     */
+    public FileFollower pollInterval(Duration interval) {
+        this.pollInterval = requirePositive(interval, "Poll interval");
+        return this;
+    }
+
+
+    /**
+     * Sets the minimum time between two publications of the metrics.
+     *
+     * @param interval The publish interval.
+     * @return This follower.
+     */
+    public FileFollower publishInterval(Duration interval) {
+        this.publishInterval = requirePositive(interval, "Publish interval");
+        return this;
+    }
+
+
+    /**
+     * Starts following the file on a daemon thread, until the follower is closed.
+     *
+     * @param listener The listener receiving the metrics.
+     * @return This follower.
+     * @throws IllegalStateException If the follower was already started or closed.
+     */
+    public synchronized FileFollower start(Listener listener) {
+        Objects.requireNonNull(listener);
+        if (thread != null || closed) {
+            throw new IllegalStateException("Follower already started or closed");
+        }
+        try {
+            Path directory = path.toAbsolutePath().getParent();
+            watcher = directory.getFileSystem().newWatchService();
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException | UnsupportedOperationException e) {
+            // polling alone still sees every change, only later
+            watcher = null;
+        }
+        thread = new Thread(() -> follow(listener), "follow-" + path.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+        return this;
+    }
+
+
+    /**
+     * Reads and analyses the complete lines appended since the last update, moving on to the new file first if the file
+     * was rotated, and starting over if it was truncated. A missing file counts as an empty one.
+     *
+     * @return True if any line was analysed or the metrics started over, false if nothing changed.
+     * @throws IOException           If an I/O error occurs, or the detected charset of the file does not encode ASCII as
+     *                               single bytes.
+     * @throws IllegalStateException If the follower was closed.
+     */
+    public synchronized boolean poll() throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Follower is closed");
+        }
+        long resetsBefore = resets;
+        long linesBefore = linesRead;
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            // between the rename and the creation of a rotated log; the old file may still have lines to read
+            if (channel != null) {
+                readAppended();
+            }
+            return linesRead != linesBefore;
+        }
+
+        if (channel != null && !identity(attributes).equals(fileIdentity)) {
+            readAppended();
+            closeFile();
+        } else if (channel != null && (channel.size() < offset || !Arrays.equals(readHead(head.length), head))) {
+            closeFile();
+            resets++;
+            engine = new AnalysisEngine(path.toString(), request);
+        }
+        if (channel == null) {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            fileIdentity = identity(attributes);
+        }
+        readAppended();
+        if (head.length < Math.min(offset, HEAD_SIZE)) {
+            head = readHead((int) Math.min(offset, HEAD_SIZE));
+        }
+        return linesRead != linesBefore || resets != resetsBefore;
+    }
+
+
+    /**
+     * @return A report of the metrics of the lines analysed so far.
+     */
+    public synchronized AnalysisReport report() {
+        return engine.report();
+    }
+
+
+    /**
+     * @return The byte offset up to which the current file has been analysed.
+     */
+    public synchronized long offset() {
+        return offset;
+    }
+
+
+    /**
+     * Stops following the file and closes it.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        Thread following;
+        synchronized (this) {
+            closed = true;
+            following = thread;
+            if (watcher != null) {
+                watcher.close();
+            }
+        }
+        if (following != null && following != Thread.currentThread()) {
+            following.interrupt();
+            try {
+                following.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        synchronized (this) {
+            if (channel != null) {
+                channel.close();
+                channel = null;
+            }
+        }
+    }
+
+
+    /**
+     * Analyses the complete lines between the remembered offset and the current end of the open file.
+     */
+    private void readAppended() throws IOException {
+        long start = offset;
+        long end = completeLinesEnd(start, channel.size());
+        if (end == start) {
+            return;
+        }
+        if (charset == null) {
+            charset = requestedCharset != null ? requestedCharset : detectCharset();
+        }
+        LineReader reader = new LineReader(new FileRangeInputStream(channel, start, end), charset, true, start == 0);
+        while (reader.next()) {
+            engine.acceptLine(reader.text());
+            offset = start + reader.endOffset();
+            linesRead++;
+        }
+    }
+
+
+    /**
+     * Detects the charset of the open file, rather than of the path, which may already name a new file after a rotation.
+     */
+    private Charset detectCharset() throws IOException {
+        byte[] sample = readHead(CharsetDetector.SAMPLE_SIZE);
+        Charset detected = CharsetDetector.detect(sample, sample.length);
+        if (!LineReader.isAsciiCompatible(detected)) {
+            throw new IOException("Only files in a charset that encodes ASCII as single bytes can be followed: " + path + " (" + detected + ")");
+        }
+        return detected;
+    }
+
+
+    /**
+     * Finds where the last complete line in a range of the open file ends: just after its {@code '\n'}, or after its {@code '\r'}
+     * when a byte follows, since a {@code '\r'} at the very end may still be followed by the {@code '\n'} that belongs to it.
+     *
+     * @return The offset just after the last complete line, or the start of the range if it holds none.
+     */
+    private long completeLinesEnd(long start, long end) throws IOException {
+        ByteBuffer block = ByteBuffer.allocate(SCAN_BLOCK_SIZE);
+        long blockEnd = end;
+        while (blockEnd > start) {
+            long blockStart = Math.max(start, blockEnd - SCAN_BLOCK_SIZE);
+            block.clear().limit((int) (blockEnd - blockStart));
+            while (block.hasRemaining()) {
+                if (channel.read(block, blockStart + block.position()) < 0) {
+                    break;
+                }
+            }
+            for (int i = block.position() - 1; i >= 0; i--) {
+                byte b = block.get(i);
+                if (b == '\n' || (b == '\r' && blockStart + i + 1 < end)) {
+                    return blockStart + i + 1;
+                }
+            }
+            blockEnd = blockStart;
+        }
+        return start;
+    }
+
+
+    /**
+     * Reads the first bytes of the open file, which are analysed bytes that must not change while the file only grows.
+     *
+     * @return The bytes, fewer than asked for if the file is shorter.
+     */
+    private byte[] readHead(int length) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(length);
+        while (bytes.hasRemaining() && channel.read(bytes, bytes.position()) >= 0) {
+            // keep reading until the head is complete or the file ends
+        }
+        return Arrays.copyOf(bytes.array(), bytes.position());
+    }
+
+
+    private void closeFile() throws IOException {
+        channel.close();
+        channel = null;
+        fileIdentity = null;
+        head = new byte[0];
+        charset = null;
+        offset = 0;
+    }
+
+
+    private static Object identity(BasicFileAttributes attributes) {
+        return attributes.fileKey() != null ? attributes.fileKey() : attributes.creationTime();
+    }
+
+
+    private void follow(Listener listener) {
+        long lastResets = 0;
+        long lastPublished = System.nanoTime() - publishInterval.toNanos();
+        boolean changed = false;
+        while (!closed) {
+            try {
+                synchronized (this) {
+                    if (closed) {
+                        return;
+                    }
+                    changed |= poll();
+                    if (resets != lastResets) {
+                        lastResets = resets;
+                        listener.onReset(path);
+                    }
+                    if (changed && System.nanoTime() - lastPublished >= publishInterval.toNanos()) {
+                        listener.onUpdate(engine.report(), offset);
+                        lastPublished = System.nanoTime();
+                        changed = false;
+                    }
+                }
+            } catch (IOException e) {
+                listener.onFailure(e);
+            }
+            if (!await()) {
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * Waits for a change notification or the poll interval, whichever comes first.
+     *
+     * @return False if the follower was closed while waiting, true otherwise.
+     */
+    private boolean await() {
+        try {
+            if (watcher == null) {
+                Thread.sleep(pollInterval.toMillis());
+                return !closed;
+            }
+            WatchKey key = watcher.poll(pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+            if (key != null) {
+                key.pollEvents();
+                key.reset();
+            }
+            return !closed;
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            return false;
+        }
+    }
+
+
+    private static Duration requirePositive(Duration interval, String name) {
+        if (interval.isNegative() || interval.isZero()) {
+            throw new IllegalArgumentException(name + " must be positive: " + interval);
+        }
+        return interval;
+    }
+
+}
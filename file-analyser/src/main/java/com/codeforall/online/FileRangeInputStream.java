@@ -0,0 +1,52 @@
+package com.codeforall.online;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+
+/**
+ * Reads a byte range of a file with positional reads, so several streams can read one channel at the same time.
+ * Closing the stream leaves the channel open and its position untouched.
+ */
+class FileRangeInputStream extends InputStream {
+
+    private final FileChannel channel;
+    private long position;
+    private final long end;
+
+
+    /**
+     * @param channel The channel of the file.
+     * @param start   The offset of the first byte to read.
+     * @param end     The offset just after the last byte to read.
+     */
+    FileRangeInputStream(FileChannel channel, long start, long end) {
+        this.channel = channel;
+        this.position = start;
+        this.end = end;
+    }
+
+
+    @Override
+    public int read() throws IOException {
+        byte[] one = new byte[1];
+        return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+    }
+
+
+    @Override
+    public int read(byte[] bytes, int from, int length) throws IOException {
+        if (position >= end) {
+            return -1;
+        }
+        int read = channel.read(ByteBuffer.wrap(bytes, from, (int) Math.min(length, end - position)), position);
+        if (read < 0) {
+            return -1;
+        }
+        position += read;
+        return read;
+    }
+
+}
@@ -0,0 +1,151 @@
+package com.codeforall.online;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+
+/**
+ * Estimates the number of distinct words in a fixed amount of memory, with the HyperLogLog algorithm.
+ * The hash of every word picks one of m registers, which keeps the longest run of leading zeros seen in the rest of the hash;
+ * the harmonic mean of the registers gives the estimate, with a relative standard error of about 1.04 / sqrt(m).
+ * Small counts are estimated by linear counting over the empty registers instead, which is more accurate there.
+ * The sketch takes one byte per register, however many words are added; merging takes the larger value of every register.
+ */
+public class HyperLogLog implements WordSketch<HyperLogLog> {
+
+    private static final int MIN_PRECISION = 4;
+    private static final int MAX_PRECISION = 18;
+
+    private final int precision;
+    private final byte[] registers;
+
+
+    /**
+     * Creates a sketch with just enough registers for the given relative standard error.
+     *
+     * @param relativeError The relative standard error of the estimate, such as 0.01 for 1%.
+     * @throws IllegalArgumentException If the error is not between 0 and 1, or needs more than 2^18 registers.
+     */
+    public HyperLogLog(double relativeError) {
+        this(precisionFor(relativeError));
+    }
+
+
+    private HyperLogLog(int precision) {
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+
+    @Override
+    public void add(CharSequence word) {
+        addHash(WordHash.hash(word));
+    }
+
+
+    void addHash(long hash) {
+        int register = (int) (hash >>> (64 - precision));
+        // the guard bit keeps the rank within 64 - precision + 1 when the rest of the hash is zero
+        int rank = Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1;
+        if (rank > registers[register]) {
+            registers[register] = (byte) rank;
+        }
+    }
+
+
+    /**
+     * @return The estimated number of distinct words added.
+     */
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int empty = 0;
+        for (byte register : registers) {
+            sum += Math.scalb(1.0, -register);
+            if (register == 0) {
+                empty++;
+            }
+        }
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && empty > 0) {
+            estimate = m * Math.log((double) m / empty);
+        }
+        return Math.round(estimate);
+    }
+
+
+    /**
+     * @return The relative standard error of the estimate.
+     */
+    public double relativeError() {
+        return 1.04 / Math.sqrt(registers.length);
+    }
+
+
+    @Override
+    public HyperLogLog merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge sketches of " + registers.length + " and " + other.registers.length + " registers");
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+        return this;
+    }
+
+
+    @Override
+    public void writeTo(DataOutput out) throws IOException {
+        out.writeByte(precision);
+        out.write(registers);
+    }
+
+
+    /**
+     * Reads a sketch written by {@link #writeTo(DataOutput)}.
+     *
+     * @param in The input to read from.
+     * @return The sketch.
+     * @throws IOException If an I/O error occurs or the input is not a sketch.
+     */
+    public static HyperLogLog readFrom(DataInput in) throws IOException {
+        int precision = in.readByte();
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IOException("Not a HyperLogLog sketch, precision " + precision);
+        }
+        HyperLogLog sketch = new HyperLogLog(precision);
+        in.readFully(sketch.registers);
+        return sketch;
+    }
+
+
+    private static int precisionFor(double relativeError) {
+        if (!(relativeError > 0 && relativeError < 1)) {
+            throw new IllegalArgumentException("Relative error must be between 0 and 1: " + relativeError);
+        }
+        double registers = Math.pow(1.04 / relativeError, 2);
+        int precision = Math.max(MIN_PRECISION, 64 - Long.numberOfLeadingZeros((long) Math.ceil(registers) - 1));
+        if (precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Relative error too small for " + (1 << MAX_PRECISION) + " registers: " + relativeError);
+        }
+        return precision;
+    }
+
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+
+}
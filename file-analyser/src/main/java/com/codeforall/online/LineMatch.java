@@ -0,0 +1,50 @@
+package com.codeforall.online;
+
+
+/**
+ * A line found by a {@link LineSearch}, together with where it was found in the file.
+ */
+public class LineMatch {
+
+    private final long lineNumber;
+    private final long byteOffset;
+    private final String line;
+
+
+    LineMatch(long lineNumber, long byteOffset, String line) {
+        this.lineNumber = lineNumber;
+        this.byteOffset = byteOffset;
+        this.line = line;
+    }
+
+
+    /**
+     * @return The number of the line in the file, starting at 1.
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+
+    /**
+     * @return The byte offset in the file at which the line starts.
+     */
+    public long getByteOffset() {
+        return byteOffset;
+    }
+
+
+    /**
+     * @return The line, without its line terminator.
+     */
+    public String getLine() {
+        return line;
+    }
+
+
+    @Override
+    public String toString() {
+        return lineNumber + ":" + byteOffset + ": " + line;
+    }
+
+}
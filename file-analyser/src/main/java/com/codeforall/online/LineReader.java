@@ -0,0 +1,326 @@
+package com.codeforall.online;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+
+/**
+ * Reads a file line by line, like {@link java.io.BufferedReader#readLine()}, while keeping track of
+ * the number of every line and the byte offset at which it starts.
+ * Lines end at {@code '\n'}, {@code '\r'} or {@code "\r\n"}, and a last line without a terminator is still a line.
+ * <p>
+ * Lines are split on bytes, so the charset has to encode ASCII as single bytes, as UTF-8 and the ISO-8859 and Windows
+ * code pages do. A line made of ASCII bytes only is never decoded: {@link #text()} is a view of its bytes, and a String
+ * is only created if {@link #line()} asks for one. Other lines are decoded with the charset. Malformed input is reported
+ * as an exception, just like {@link Files#newBufferedReader(Path)} does, unless the reader is lenient, in which case
+ * it is replaced with {@code '\uFFFD'}.
+ * <p>
+ * A UTF-8 byte order mark at the start of the input is skipped, as the UTF-16 decoders skip theirs, rather than read as
+ * a character of the first line; its bytes still count towards the offsets, so they stay offsets into the input.
+ */
+public class LineReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final byte[] UTF_8_BYTE_ORDER_MARK = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    private final InputStream in;
+    private final CharsetDecoder decoder;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private boolean afterCarriageReturn;
+    private boolean atStart;
+
+    private byte[] lineBytes = new byte[256];
+    private final AsciiText asciiText = new AsciiText();
+    private CharSequence text;
+    private String line;
+    private long lineNumber;
+    private long lineOffset;
+    private long offset;
+
+
+    /**
+     * Creates a reader over a stream of UTF-8 bytes, which reports malformed input.
+     *
+     * @param in The stream to read, which is closed with this reader.
+     */
+    public LineReader(InputStream in) {
+        this(in, StandardCharsets.UTF_8, false);
+    }
+
+
+    /**
+     * Creates a reader over a stream of bytes in the given charset.
+     *
+     * @param in      The stream to read, which is closed with this reader.
+     * @param charset The charset of the stream, which has to encode ASCII as single bytes.
+     * @param lenient True to replace malformed input with {@code '\uFFFD'}, false to report it as an exception.
+     * @throws IllegalArgumentException If the charset does not encode ASCII as single bytes.
+     */
+    public LineReader(InputStream in, Charset charset, boolean lenient) {
+        this(in, charset, lenient, true);
+    }
+
+
+    /**
+     * Creates a reader over a stream of bytes in the given charset, which may start in the middle of the text.
+     *
+     * @param in      The stream to read, which is closed with this reader.
+     * @param charset The charset of the stream, which has to encode ASCII as single bytes.
+     * @param lenient True to replace malformed input with {@code '\uFFFD'}, false to report it as an exception.
+     * @param atStart True if the stream starts at the start of the text, where a byte order mark is skipped.
+     * @throws IllegalArgumentException If the charset does not encode ASCII as single bytes.
+     */
+    LineReader(InputStream in, Charset charset, boolean lenient, boolean atStart) {
+        if (!isAsciiCompatible(charset)) {
+            throw new IllegalArgumentException("Lines can only be split on bytes in a charset that encodes ASCII as single bytes: " + charset);
+        }
+        CodingErrorAction action = lenient ? CodingErrorAction.REPLACE : CodingErrorAction.REPORT;
+        this.in = in;
+        this.decoder = charset.newDecoder().onMalformedInput(action).onUnmappableCharacter(action);
+        this.atStart = atStart && charset.equals(StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Opens a reader over the specified file in its detected charset, see {@link CharsetDetector}, which reports malformed input.
+     *
+     * @param path The path to the file.
+     * @return A reader positioned before the first line.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If the charset of the file does not encode ASCII as single bytes.
+     * @see #open(Path, Charset, boolean)
+     */
+    public static LineReader open(Path path) throws IOException {
+        return open(path, null, false);
+    }
+
+
+    /**
+     * Opens a reader over the specified file, decompressing it if it is compressed, see {@link CompressedInput}.
+     * The offsets of the lines of a compressed file are offsets into its uncompressed contents.
+     *
+     * @param path    The path to the file.
+     * @param charset The charset of the file, or null to detect it, see {@link CharsetDetector}.
+     * @param lenient True to replace malformed input with {@code '\uFFFD'}, false to report it as an exception.
+     * @return A reader positioned before the first line.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If the charset does not encode ASCII as single bytes, so lines cannot be split on bytes.
+     */
+    public static LineReader open(Path path, Charset charset, boolean lenient) throws IOException {
+        Charset fileCharset = charset != null ? charset : CharsetDetector.detect(path);
+        if (!isAsciiCompatible(fileCharset)) {
+            throw new IllegalArgumentException("Only files in a charset that encodes ASCII as single bytes can be read by byte offset: "
+                    + path + " (" + fileCharset + ")");
+        }
+        return new LineReader(CompressedInput.open(path), fileCharset, lenient);
+    }
+
+
+    /**
+     * Checks whether lines in a charset can be split on bytes and their ASCII characters read without decoding:
+     * whether the charset encodes every ASCII character as the same single byte.
+     *
+     * @param charset The charset to check.
+     * @return True if the charset encodes ASCII as single bytes, false otherwise, for example for UTF-16.
+     */
+    public static boolean isAsciiCompatible(Charset charset) {
+        if (charset.equals(StandardCharsets.UTF_8) || charset.equals(StandardCharsets.ISO_8859_1) || charset.equals(StandardCharsets.US_ASCII)) {
+            return true;
+        }
+        if (!charset.canEncode()) {
+            return false;
+        }
+        byte[] ascii = new byte[128];
+        for (int i = 0; i < ascii.length; i++) {
+            ascii[i] = (byte) i;
+        }
+        String chars = new String(ascii, StandardCharsets.ISO_8859_1);
+        return Arrays.equals(chars.getBytes(charset), ascii) && new String(ascii, charset).equals(chars);
+    }
+
+
+    /**
+     * Moves to the next line.
+     *
+     * @return True if there is a next line, false at the end of the input.
+     * @throws IOException If an I/O error occurs or the line is malformed and the reader is not lenient.
+     */
+    public boolean next() throws IOException {
+        if (atStart) {
+            atStart = false;
+            skipByteOrderMark();
+        }
+        if (afterCarriageReturn) {
+            afterCarriageReturn = false;
+            if (position < limit && buffer[position] == '\n') {
+                position++;
+                offset++;
+            }
+        }
+        lineOffset = offset;
+        int length = 0;
+        int bits = 0;
+        while (true) {
+            if (position == limit && !fill()) {
+                if (offset == lineOffset) {
+                    text = null;
+                    line = null;
+                    return false;
+                }
+                decode(lineBytes, 0, length, bits);
+                break;
+            }
+            int start = position;
+            int end = start;
+            while (end < limit) {
+                byte b = buffer[end];
+                if (b == '\n' || b == '\r') {
+                    break;
+                }
+                bits |= b;
+                end++;
+            }
+            offset += end - start;
+            if (end == limit) {
+                // the line goes on in the next buffer
+                append(start, end, length);
+                length += end - start;
+                position = limit;
+                continue;
+            }
+            afterCarriageReturn = buffer[end] == '\r';
+            position = end + 1;
+            offset++;
+            if (length == 0 && !(afterCarriageReturn && position == limit)) {
+                // the whole line is in the buffer, which stays as it is until the next line
+                decode(buffer, start, end - start, bits);
+            } else {
+                append(start, end, length);
+                length += end - start;
+                if (afterCarriageReturn && position == limit) {
+                    // look at the next byte, so that endOffset() knows whether a '\n' belongs to this line
+                    fill();
+                }
+                decode(lineBytes, 0, length, bits);
+            }
+            break;
+        }
+        lineNumber++;
+        return true;
+    }
+
+
+    /**
+     * @return The current line, without its line terminator.
+     */
+    public String line() {
+        if (line == null && text != null) {
+            line = text.toString();
+        }
+        return line;
+    }
+
+
+    /**
+     * Gives the current line without necessarily creating a String: a line of ASCII bytes is a view of the
+     * reader's buffer, which the next call to {@link #next()} overwrites. Use {@link #line()} to keep the line.
+     *
+     * @return The characters of the current line, without its line terminator.
+     */
+    public CharSequence text() {
+        return text;
+    }
+
+
+    /**
+     * @return The number of the current line, starting at 1.
+     */
+    public long lineNumber() {
+        return lineNumber;
+    }
+
+
+    /**
+     * @return The byte offset in the input at which the current line starts.
+     */
+    public long offset() {
+        return lineOffset;
+    }
+
+
+    /**
+     * @return The byte offset in the input just after the current line and its whole line terminator.
+     */
+    public long endOffset() {
+        return afterCarriageReturn && position < limit && buffer[position] == '\n' ? offset + 1 : offset;
+    }
+
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+
+    private boolean fill() throws IOException {
+        int read = in.read(buffer);
+        if (read <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+
+    private void skipByteOrderMark() throws IOException {
+        int read;
+        while (limit < UTF_8_BYTE_ORDER_MARK.length && (read = in.read(buffer, limit, buffer.length - limit)) > 0) {
+            limit += read;
+        }
+        if (limit >= UTF_8_BYTE_ORDER_MARK.length
+                && Arrays.equals(buffer, 0, UTF_8_BYTE_ORDER_MARK.length, UTF_8_BYTE_ORDER_MARK, 0, UTF_8_BYTE_ORDER_MARK.length)) {
+            position = UTF_8_BYTE_ORDER_MARK.length;
+            offset = UTF_8_BYTE_ORDER_MARK.length;
+        }
+    }
+
+
+    private void append(int start, int end, int length) {
+        int needed = length + end - start;
+        if (needed > lineBytes.length) {
+            lineBytes = Arrays.copyOf(lineBytes, Math.max(needed, lineBytes.length << 1));
+        }
+        System.arraycopy(buffer, start, lineBytes, length, end - start);
+    }
+
+
+    /**
+     * Makes the bytes of the line its text: a view of them if they are all ASCII, which the sign bit of their union tells.
+     */
+    private void decode(byte[] bytes, int start, int length, int bits) throws CharacterCodingException {
+        if (bits >= 0) {
+            text = asciiText.wrap(bytes, start, length);
+            line = null;
+            return;
+        }
+        CharBuffer chars = decoder.reset().decode(ByteBuffer.wrap(bytes, start, length));
+        line = chars.toString();
+        text = line;
+    }
+
+}
@@ -0,0 +1,354 @@
+package com.codeforall.online;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+
+/**
+ * Searches a file for matching lines and hands them out one at a time, as they are found,
+ * instead of collecting every match into a list first.
+ * Matches come with their line number and byte offset. Both ways of consuming them are pull-based:
+ * a line is only read once the previous match has been taken by the caller or handled by the consumer,
+ * so a slow sink slows the search down instead of making it buffer matches, and stopping early stops reading the file.
+ */
+public class LineSearch {
+
+    /**
+     * Matches lines that contain a word, ignoring case, as {@link FileAnalyser#findLinesContainingWord(String, String)} does.
+     * The word is searched for as a literal with {@link LiteralSearch}, without making a lower-case copy of every line.
+     *
+     * @param word The word to search for.
+     * @return A predicate over lines.
+     */
+    public static Predicate<String> containingWord(String word) {
+        return new LiteralSearch(word, true)::isFoundIn;
+    }
+
+
+    /**
+     * Matches lines that contain any of several words, ignoring case, scanning every line once with {@link AhoCorasick}.
+     *
+     * @param words The words to search for.
+     * @return A predicate over lines.
+     */
+    public static Predicate<String> containingAnyWord(Collection<String> words) {
+        return new AhoCorasick(words)::isAnyFoundIn;
+    }
+
+
+    /**
+     * Matches lines that contain a number, as {@link FileAnalyser#findLinesContainingNumbers(String)} does.
+     * Gives the same result as matching the whole line against {@code ".*\\d+.*"} with a plain scan for an ASCII digit;
+     * like {@code '.'}, the scan rejects lines holding a line separator.
+     *
+     * @return A predicate over lines.
+     */
+    public static Predicate<String> containingNumber() {
+        return line -> {
+            boolean digit = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (c >= '0' && c <= '9') {
+                    digit = true;
+                } else if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                    return false;
+                }
+            }
+            return digit;
+        };
+    }
+
+
+    /**
+     * Matches lines in which a regular expression pattern is found, as {@link FileAnalyser#findLinesMatchingRegex(String, String)} does.
+     * When every match of the pattern has to contain some literal, lines without that literal are rejected by a
+     * {@link LiteralSearch} before the regex engine runs. The returned predicate reuses one matcher, so it is not thread-safe.
+     *
+     * @param regex The regular expression pattern to match.
+     * @return A predicate over lines.
+     */
+    public static Predicate<String> matching(Pattern regex) {
+        Matcher matcher = regex.matcher("");
+        String literal = requiredLiteral(regex);
+        if (literal == null) {
+            return line -> matcher.reset(line).find();
+        }
+        LiteralSearch prefilter = new LiteralSearch(literal, false);
+        return line -> prefilter.isFoundIn(line) && matcher.reset(line).find();
+    }
+
+
+    /**
+     * Finds the longest literal that every match of a pattern contains, looking only at the top level of the pattern.
+     * Anything that could make the literal optional or change its meaning, such as alternation, flags or
+     * quoting, makes this give up rather than risk rejecting a line that matches.
+     *
+     * @param pattern The pattern.
+     * @return The longest required literal, or null if none was found.
+     */
+    static String requiredLiteral(Pattern pattern) {
+        if (pattern.flags() != 0) {
+            return null;
+        }
+        String regex = pattern.pattern();
+        String longest = "";
+        StringBuilder run = new StringBuilder();
+        int depth = 0;
+        for (int i = 0; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            boolean literal = false;
+            switch (c) {
+                case '\\':
+                    if (++i == regex.length()) {
+                        return null;
+                    }
+                    c = regex.charAt(i);
+                    if (Character.isLetterOrDigit(c)) {
+                        if ("dDwWsSbBAzZGRXhHvVntrfea".indexOf(c) < 0) {
+                            return null;
+                        }
+                    } else {
+                        literal = true;
+                    }
+                    break;
+                case '|':
+                    if (depth == 0) {
+                        return null;
+                    }
+                    break;
+                case '(':
+                    if (i + 2 < regex.length() && regex.charAt(i + 1) == '?'
+                            && (Character.isLetter(regex.charAt(i + 2)) || regex.charAt(i + 2) == '-')) {
+                        return null;
+                    }
+                    depth++;
+                    break;
+                case ')':
+                    depth--;
+                    break;
+                case '[':
+                    i = skipCharacterClass(regex, i);
+                    if (i < 0) {
+                        return null;
+                    }
+                    break;
+                case '*':
+                case '?':
+                case '{':
+                    // the character before the quantifier may not occur at all
+                    if (depth == 0 && run.length() > 0) {
+                        run.setLength(run.length() - 1);
+                    }
+                    if (c == '{') {
+                        i = regex.indexOf('}', i);
+                        if (i < 0) {
+                            return null;
+                        }
+                    }
+                    break;
+                case '+':
+                case '.':
+                case '^':
+                case '$':
+                    break;
+                default:
+                    literal = true;
+            }
+
+            if (literal && depth == 0) {
+                run.append(c);
+                // a quantifier right after the character takes it out of the run again
+                continue;
+            }
+            if (run.length() > longest.length()) {
+                longest = run.toString();
+            }
+            run.setLength(0);
+        }
+        if (run.length() > longest.length()) {
+            longest = run.toString();
+        }
+        return longest.isEmpty() ? null : longest;
+    }
+
+
+    /**
+     * @return The index of the closing bracket of the character class opened at the given index, or -1 if there is none.
+     */
+    private static int skipCharacterClass(String regex, int open) {
+        int depth = 0;
+        for (int i = open; i < regex.length(); i++) {
+            char c = regex.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '[') {
+                if (regex.startsWith("]", i + 1) || regex.startsWith("^]", i + 1)) {
+                    // a leading ']' may be a literal, too ambiguous to follow
+                    return -1;
+                }
+                depth++;
+            } else if (c == ']' && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+    /**
+     * Returns a lazy stream of the lines of the specified file that match a predicate, reading the file in its detected
+     * charset and reporting malformed input, see {@link #stream(Path, Charset, boolean, Predicate)}.
+     *
+     * @param path   The path to the file.
+     * @param filter The predicate lines have to match.
+     * @return A stream of the matching lines, in file order.
+     * @throws IOException              If the file cannot be opened.
+     * @throws IllegalArgumentException If the charset of the file does not encode ASCII as single bytes.
+     */
+    public static Stream<LineMatch> stream(Path path, Predicate<String> filter) throws IOException {
+        return stream(path, null, false, filter);
+    }
+
+
+    /**
+     * Returns a lazy stream of the lines of the specified file that match a predicate.
+     * The stream reads the file as it is consumed and must be closed, for example with try-with-resources,
+     * to close the file. I/O errors are thrown as {@link UncheckedIOException}, like {@link java.nio.file.Files#lines(Path)} does.
+     *
+     * @param path    The path to the file.
+     * @param charset The charset of the file, or null to detect it, see {@link CharsetDetector}.
+     * @param lenient True to replace malformed input with {@code '\uFFFD'}, false to report it as an exception.
+     * @param filter  The predicate lines have to match.
+     * @return A stream of the matching lines, in file order.
+     * @throws IOException              If the file cannot be opened.
+     * @throws IllegalArgumentException If the charset does not encode ASCII as single bytes, so the byte offsets of lines cannot be known.
+     */
+    public static Stream<LineMatch> stream(Path path, Charset charset, boolean lenient, Predicate<String> filter) throws IOException {
+        LineReader reader = LineReader.open(path, charset, lenient);
+        Iterator<LineMatch> matches = new MatchIterator(reader, filter);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(matches, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        reader.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+
+    /**
+     * Hands the lines of the specified file that match a predicate to a consumer, as they are found, reading the file in
+     * its detected charset and reporting malformed input, see {@link #forEach(Path, Charset, boolean, Predicate, long, Consumer)}.
+     *
+     * @param path     The path to the file.
+     * @param filter   The predicate lines have to match.
+     * @param limit    The maximum number of matches to hand out.
+     * @param consumer The consumer receiving the matching lines, in file order.
+     * @return The number of matches handed to the consumer.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If the charset of the file does not encode ASCII as single bytes.
+     */
+    public static long forEach(Path path, Predicate<String> filter, long limit, Consumer<? super LineMatch> consumer) throws IOException {
+        return forEach(path, null, false, filter, limit, consumer);
+    }
+
+
+    /**
+     * Hands the lines of the specified file that match a predicate to a consumer, as they are found.
+     * The consumer runs on the calling thread, and the search stops reading the file once the limit is reached.
+     *
+     * @param path     The path to the file.
+     * @param charset  The charset of the file, or null to detect it, see {@link CharsetDetector}.
+     * @param lenient  True to replace malformed input with {@code '\uFFFD'}, false to report it as an exception.
+     * @param filter   The predicate lines have to match.
+     * @param limit    The maximum number of matches to hand out.
+     * @param consumer The consumer receiving the matching lines, in file order.
+     * @return The number of matches handed to the consumer.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If the limit is negative, or the charset does not encode ASCII as single bytes,
+     *                                  so the byte offsets of lines cannot be known.
+     */
+    public static long forEach(Path path, Charset charset, boolean lenient, Predicate<String> filter, long limit,
+                               Consumer<? super LineMatch> consumer) throws IOException {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Limit must not be negative: " + limit);
+        }
+        long found = 0;
+        try (LineReader reader = LineReader.open(path, charset, lenient)) {
+            while (found < limit && reader.next()) {
+                if (filter.test(reader.line())) {
+                    consumer.accept(new LineMatch(reader.lineNumber(), reader.offset(), reader.line()));
+                    found++;
+                }
+            }
+        }
+        return found;
+    }
+
+
+    /**
+     * Reads ahead to the next matching line only when asked whether there is one.
+     */
+    private static class MatchIterator implements Iterator<LineMatch> {
+
+        private final LineReader reader;
+        private final Predicate<String> filter;
+        private LineMatch next;
+        private boolean done;
+
+
+        MatchIterator(LineReader reader, Predicate<String> filter) {
+            this.reader = reader;
+            this.filter = filter;
+        }
+
+
+        @Override
+        public boolean hasNext() {
+            if (next != null) {
+                return true;
+            }
+            if (done) {
+                return false;
+            }
+            try {
+                while (reader.next()) {
+                    if (filter.test(reader.line())) {
+                        next = new LineMatch(reader.lineNumber(), reader.offset(), reader.line());
+                        return true;
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            done = true;
+            return false;
+        }
+
+
+        @Override
+        public LineMatch next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            LineMatch match = next;
+            next = null;
+            return match;
+        }
+    }
+
+}
@@ -0,0 +1,90 @@
+package com.codeforall.online;
+
+import java.util.Arrays;
+
+
+/**
+ * Finds a fixed string in text with the Boyer-Moore-Horspool algorithm, optionally ignoring case.
+ * On a mismatch the search skips ahead by up to the length of the literal, so long literals are found
+ * without looking at most characters of the text, and no lower-case copy of the text is ever made.
+ * Case is folded per character with {@link WordTokenizer#fold(char)}, the same way words are compared.
+ */
+public class LiteralSearch {
+
+    private static final int TABLE_SIZE = 256;
+
+    private final char[] literal;
+    private final boolean ignoreCase;
+    private final int[] shifts = new int[TABLE_SIZE];
+
+
+    /**
+     * Prepares a search for the given literal.
+     *
+     * @param literal    The string to search for.
+     * @param ignoreCase True to match the literal in any case, false to match it exactly.
+     */
+    public LiteralSearch(String literal, boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+        this.literal = (ignoreCase ? WordTokenizer.fold(literal) : literal).toCharArray();
+
+        // characters that share a slot of the table keep the smallest shift, so no occurrence is ever skipped
+        int length = this.literal.length;
+        Arrays.fill(shifts, Math.max(1, length));
+        for (int i = 0; i < length - 1; i++) {
+            char c = this.literal[i];
+            shifts[c & (TABLE_SIZE - 1)] = length - 1 - i;
+            if (ignoreCase && c >= 'a' && c <= 'z') {
+                shifts[c - ('a' - 'A')] = length - 1 - i;
+            }
+        }
+    }
+
+
+    /**
+     * Finds the first occurrence of the literal.
+     *
+     * @param text The text to search.
+     * @return The index of the first occurrence, or -1 if the literal does not occur in the text.
+     */
+    public int indexIn(CharSequence text) {
+        int length = literal.length;
+        int last = text.length() - length;
+        int position = 0;
+        while (position <= last) {
+            int i = length - 1;
+            while (i >= 0 && charAt(text, position + i) == literal[i]) {
+                i--;
+            }
+            if (i < 0) {
+                return position;
+            }
+            position += shifts[shiftSlot(text.charAt(position + length - 1))];
+        }
+        return -1;
+    }
+
+
+    /**
+     * @param text The text to search.
+     * @return True if the literal occurs in the text, false otherwise.
+     */
+    public boolean isFoundIn(CharSequence text) {
+        return indexIn(text) >= 0;
+    }
+
+
+    /**
+     * Both cases of an ASCII letter have their own slot, so only characters outside ASCII need folding to find theirs.
+     */
+    private int shiftSlot(char c) {
+        return (ignoreCase && c >= 0x80 ? WordTokenizer.fold(c) : c) & (TABLE_SIZE - 1);
+    }
+
+
+    private char charAt(CharSequence text, int index) {
+        char c = text.charAt(index);
+        return ignoreCase ? WordTokenizer.fold(c) : c;
+    }
+
+}
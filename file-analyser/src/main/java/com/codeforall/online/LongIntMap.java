@@ -0,0 +1,96 @@
+package com.codeforall.online;
+
+import java.util.Arrays;
+
+
+/**
+ * A fixed-capacity map from long keys to int values, with linear probing over primitive arrays,
+ * for the sketches that look up a word hash on every word and must not create an object to do so.
+ * Removal shifts the following entries back instead of leaving tombstones, so the table never degrades.
+ */
+final class LongIntMap {
+
+    static final int MISSING = -1;
+
+    private final long[] keys;
+    private final int[] values;
+    private final boolean[] used;
+    private final int mask;
+    private int size;
+
+
+    /**
+     * @param maxSize The largest number of entries the map will hold; the table is kept at most half full.
+     */
+    LongIntMap(int maxSize) {
+        int capacity = Integer.highestOneBit(Math.max(2, maxSize) * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.used = new boolean[capacity];
+        this.mask = capacity - 1;
+    }
+
+
+    int get(long key) {
+        for (int slot = slot(key); used[slot]; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+        }
+        return MISSING;
+    }
+
+
+    void put(long key, int value) {
+        int slot = slot(key);
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (!used[slot]) {
+            used[slot] = true;
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+    }
+
+
+    void remove(long key) {
+        int slot = slot(key);
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        if (!used[slot]) {
+            return;
+        }
+        // shift back every following entry that would no longer be reachable across the hole
+        int hole = slot;
+        for (int next = (hole + 1) & mask; used[next]; next = (next + 1) & mask) {
+            int home = slot(keys[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        used[hole] = false;
+        size--;
+    }
+
+
+    int size() {
+        return size;
+    }
+
+
+    void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+
+    private int slot(long key) {
+        return (int) WordHash.mix(key) & mask;
+    }
+
+}
@@ -1,10 +1,42 @@
 package com.codeforall.online;
 
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
 
 public class Main {
+
+    private static final String SEARCH_WORD = "file";
+    private static final int N = 5;
+    private static final String REGEX = "\\b\\w{5}\\b";
+
     public static void main(String[] args) {
 
+        if (args.length > 0 && args[0].equals("--trace")) {
+            Tracing.addListener(System.err::println);
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+        if (args.length > 0 && args[0].equals("--format")) {
+            writeReports(args);
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--serve")) {
+            serve(args);
+            return;
+        }
+        if (args.length == 2 && args[0].equals("--follow")) {
+            followFile(args[1]);
+            return;
+        }
+        if (args.length > 0) {
+            analyseDirectory(args);
+            return;
+        }
+
         System.out.println("Current Working Directory: " + System.getProperty("user.dir"));
 
         String file1 = FileAnalyser.getFirstFileToAnalyse();
@@ -16,41 +48,47 @@ public class Main {
         try {
             // Single file analysis for file1
             System.out.println("-------- Analysis of file: " + file1 + " --------");
-            printLineCount(file1);
-            printWordCount(file1);
-            printNonEmptyLinesCount(file1);
-            printUniqueWordsCount(file1);
-            printWordOccurrencesCount(file1, "file");
-            printLinesContainingWord(file1, "file");
-            printAverageLineLength(file1);
-            printAverageWordLength(file1);
-            printShortestLine(file1);
-            printLongestLine(file1);
-            printTopNLongestWords(file1, 5);
-            printFirstWordWithMoreThanNCharacters(file1, 5);
-            printWordFrequency(file1);
-            printLinesContainingNumbers(file1);
-            printLinesMatchingRegex(file1, "\\b\\w{5}\\b");
-            printPalindromicWords(file1);
+            AnalysisReport report1 = FileAnalyser.analyse(file1, AnalysisRequest.all(SEARCH_WORD, N, REGEX));
+            printLineCount(report1);
+            printWordCount(report1);
+            printNonEmptyLinesCount(report1);
+            printUniqueWordsCount(report1);
+            printWordOccurrencesCount(report1, SEARCH_WORD);
+            printLinesContainingWord(report1, SEARCH_WORD);
+            printAverageLineLength(report1);
+            printAverageWordLength(report1);
+            printShortestLine(report1);
+            printLongestLine(report1);
+            printTopNLongestWords(report1, N);
+            printTopNMostFrequentWords(report1, N);
+            printTopNLongestLines(report1, N);
+            printFirstWordWithMoreThanNCharacters(report1, N);
+            printWordFrequency(report1);
+            printLinesContainingNumbers(report1);
+            printLinesMatchingRegex(report1, REGEX);
+            printPalindromicWords(report1);
 
             // Single file analysis for file2
             System.out.println("-------- Analysis of file: " + file2 + " --------");
-            printLineCount(file2);
-            printWordCount(file2);
-            printNonEmptyLinesCount(file2);
-            printUniqueWordsCount(file2);
-            printWordOccurrencesCount(file2, "file");
-            printLinesContainingWord(file2, "file");
-            printAverageLineLength(file2);
-            printAverageWordLength(file2);
-            printShortestLine(file2);
-            printLongestLine(file2);
-            printTopNLongestWords(file2, 5);
-            printFirstWordWithMoreThanNCharacters(file2, 5);
-            printWordFrequency(file2);
-            printLinesContainingNumbers(file2);
-            printLinesMatchingRegex(file2, "\\b\\w{5}\\b");
-            printPalindromicWords(file2);
+            AnalysisReport report2 = FileAnalyser.analyse(file2, AnalysisRequest.all(SEARCH_WORD, N, REGEX));
+            printLineCount(report2);
+            printWordCount(report2);
+            printNonEmptyLinesCount(report2);
+            printUniqueWordsCount(report2);
+            printWordOccurrencesCount(report2, SEARCH_WORD);
+            printLinesContainingWord(report2, SEARCH_WORD);
+            printAverageLineLength(report2);
+            printAverageWordLength(report2);
+            printShortestLine(report2);
+            printLongestLine(report2);
+            printTopNLongestWords(report2, N);
+            printTopNMostFrequentWords(report2, N);
+            printTopNLongestLines(report2, N);
+            printFirstWordWithMoreThanNCharacters(report2, N);
+            printWordFrequency(report2);
+            printLinesContainingNumbers(report2);
+            printLinesMatchingRegex(report2, REGEX);
+            printPalindromicWords(report2);
 
             // Comparison between file1 and file2
             System.out.println("-------- Comparison between files: " + file1 + " and " + file2 + " --------");
@@ -62,99 +100,302 @@ public class Main {
 
     }
 
-    private static void printLineCount(String file) throws IOException {
+    /**
+     * Analyses files without asking for them and writes every metric of their reports to the standard output in a format
+     * for programs, see {@link ReportWriter}: {@code --format <jsonl|csv|binary> [--sort-frequencies] <file>...}.
+     * Errors go to the standard error, so they do not mix with the reports.
+     */
+    private static void writeReports(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Missing report format");
+            return;
+        }
+        ReportWriter.Format format;
+        try {
+            format = ReportWriter.Format.forOptionName(args[1]);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            return;
+        }
+        int first = 2;
+        boolean sortFrequencies = first < args.length && args[first].equals("--sort-frequencies");
+        if (sortFrequencies) {
+            first++;
+        }
+
+        try (ReportWriter writer = new ReportWriter(new FileOutputStream(FileDescriptor.out).getChannel(), format)
+                .sortFrequencies(sortFrequencies)) {
+            for (int i = first; i < args.length; i++) {
+                try {
+                    writer.write(FileAnalyser.analyse(args[i], AnalysisRequest.all(SEARCH_WORD, N, REGEX)));
+                } catch (IOException e) {
+                    System.err.println(args[i] + ": could not be read (" + e + ")");
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error writing the reports (" + e + ")");
+        }
+    }
+
+    /**
+     * Serves analyses over HTTP until the program is stopped, see {@link AnalysisServer}:
+     * {@code --serve [--port <n>] [--threads <n>] [--queue <n>]}.
+     */
+    private static void serve(String[] args) {
+        AnalysisServer server = new AnalysisServer();
+        try {
+            for (int i = 1; i < args.length; i += 2) {
+                switch (args[i]) {
+                    case "--port":
+                        server.port(intOption(args, i));
+                        break;
+                    case "--threads":
+                        server.threads(intOption(args, i));
+                        break;
+                    case "--queue":
+                        server.queueSize(intOption(args, i));
+                        break;
+                    default:
+                        System.out.println("Unknown option: " + args[i]);
+                        return;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+        try {
+            server.start();
+        } catch (IOException e) {
+            System.out.println("Could not start the server (" + e + ")");
+            return;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close));
+        System.out.println("Serving analyses on http://localhost:" + server.getPort() + "/analyse");
+        try {
+            Thread.currentThread().join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Analyses a whole directory tree without asking for files:
+     * {@code <directory> [--glob <pattern>] [--threads <n>] [--max-open-files <n>]}.
+     */
+    private static void analyseDirectory(String[] args) {
+        Path root = Paths.get(args[0]);
+        String glob = null;
+        BatchAnalyser batch = new BatchAnalyser(new AnalysisRequest(Metric.LINE_COUNT, Metric.WORD_COUNT,
+                Metric.NON_EMPTY_LINE_COUNT, Metric.WORD_OCCURRENCES).word(SEARCH_WORD));
+        try {
+            for (int i = 1; i < args.length; i += 2) {
+                switch (args[i]) {
+                    case "--glob":
+                        glob = option(args, i);
+                        break;
+                    case "--threads":
+                        batch.threads(intOption(args, i));
+                        break;
+                    case "--max-open-files":
+                        batch.maxOpenFiles(intOption(args, i));
+                        break;
+                    default:
+                        System.out.println("Unknown option: " + args[i]);
+                        return;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            System.out.println(e.getMessage());
+            return;
+        }
+
+        try {
+            BatchAnalyser.Summary summary = batch.analyse(root, glob, new BatchAnalyser.Listener() {
+                @Override
+                public void onFile(AnalysisReport report) {
+                    System.out.println(report.getFilename() + ": " + report.getLineCount() + " lines, "
+                            + report.getWordCount() + " words, " + report.getNonEmptyLineCount() + " non-empty lines, '"
+                            + SEARCH_WORD + "' " + report.getWordOccurrences() + " times");
+                }
+
+                @Override
+                public void onFailure(Path file, IOException cause) {
+                    System.out.println(file + ": could not be read (" + cause + ")");
+                }
+            });
+            AnalysisReport total = summary.getAggregate();
+            System.out.println("-------- Analysis of directory: " + root + " --------");
+            System.out.println(summary.getFileCount() + " files analysed, " + summary.getFailedFileCount() + " failed, "
+                    + summary.getByteCount() + " bytes");
+            System.out.println(total.getLineCount() + " lines, " + total.getWordCount() + " words, "
+                    + total.getNonEmptyLineCount() + " non-empty lines, '" + SEARCH_WORD + "' " + total.getWordOccurrences() + " times");
+            System.out.println("--------");
+        } catch (IOException e) {
+            System.out.println("Directory not found or error reading it.");
+        }
+    }
+
+    /**
+     * @return The value following the option at index i of the arguments.
+     * @throws IllegalArgumentException If the option is the last argument.
+     */
+    private static String option(String[] args, int i) {
+        if (i + 1 >= args.length) {
+            throw new IllegalArgumentException("Missing value for " + args[i]);
+        }
+        return args[i + 1];
+    }
+
+    /**
+     * @return The number following the option at index i of the arguments.
+     * @throws IllegalArgumentException If the option is the last argument or is not followed by a number.
+     */
+    private static int intOption(String[] args, int i) {
+        String value = option(args, i);
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a number for " + args[i] + ": " + value);
+        }
+    }
+
+    /**
+     * Prints the counts of a growing file every second until the program is stopped: {@code --follow <file>}.
+     */
+    private static void followFile(String file) {
+        AnalysisRequest request = new AnalysisRequest(Metric.LINE_COUNT, Metric.WORD_COUNT, Metric.AVERAGE_LINE_LENGTH,
+                Metric.UNIQUE_WORD_COUNT, Metric.WORD_OCCURRENCES).word(SEARCH_WORD);
+        FileAnalyser.follow(file, request, Duration.ofSeconds(1), new FileFollower.Listener() {
+            @Override
+            public void onUpdate(AnalysisReport report, long offset) {
+                System.out.println(file + " @" + offset + ": " + report.getLineCount() + " lines, " + report.getWordCount() + " words, "
+                        + report.getUniqueWordCount() + " unique words, average line length " + report.getAverageLineLength()
+                        + ", '" + SEARCH_WORD + "' " + report.getWordOccurrences() + " times");
+            }
+
+            @Override
+            public void onReset(Path path) {
+                System.out.println(path + " was truncated, starting over");
+            }
+
+            @Override
+            public void onFailure(IOException cause) {
+                System.out.println("Error reading " + file + ": " + cause);
+            }
+        });
+        try {
+            Thread.currentThread().join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void printLineCount(AnalysisReport report) {
         System.out.println("-------- Count how many lines are in the file --------");
-        System.out.println(FileAnalyser.countLines(file));
+        System.out.println(report.getLineCount());
         System.out.println("--------");
     }
 
-    private static void printWordCount(String file) throws IOException {
+    private static void printWordCount(AnalysisReport report) {
         System.out.println("-------- Count how many words are in the file --------");
-        System.out.println(FileAnalyser.countWords(file));
+        System.out.println(report.getWordCount());
         System.out.println("--------");
     }
 
-    private static void printNonEmptyLinesCount(String file) throws IOException {
+    private static void printNonEmptyLinesCount(AnalysisReport report) {
         System.out.println("-------- Count how many non-empty lines are in the file --------");
-        System.out.println(FileAnalyser.countNonEmptyLines(file));
+        System.out.println(report.getNonEmptyLineCount());
         System.out.println("--------");
     }
 
-    private static void printUniqueWordsCount(String file) throws IOException {
+    private static void printUniqueWordsCount(AnalysisReport report) {
         System.out.println("-------- Count how many unique words are in the file --------");
-        System.out.println(FileAnalyser.countUniqueWords(file));
+        System.out.println(report.getUniqueWordCount());
         System.out.println("--------");
     }
 
-    private static void printWordOccurrencesCount(String file, String word) throws IOException {
+    private static void printWordOccurrencesCount(AnalysisReport report, String word) {
         System.out.println("-------- Count how many times a specific word is mentioned in the file --------");
-        System.out.println("The word '" + word + "' is mentioned " + FileAnalyser.countWordOccurrences(file, word) + " times");
+        System.out.println("The word '" + word + "' is mentioned " + report.getWordOccurrences() + " times");
         System.out.println("--------");
     }
 
-    private static void printLinesContainingWord(String file, String word) throws IOException {
+    private static void printLinesContainingWord(AnalysisReport report, String word) {
         System.out.println("-------- Find lines which contain a specific word in the file --------");
-        System.out.println("The word '" + word + "' is mentioned in the following lines: \n" + FileAnalyser.findLinesContainingWord(file, word));
+        System.out.println("The word '" + word + "' is mentioned in the following lines: \n" + report.getLinesContainingWord());
         System.out.println("--------");
     }
 
-    private static void printAverageLineLength(String file) throws IOException {
+    private static void printAverageLineLength(AnalysisReport report) {
         System.out.println("-------- Find average line length of the file --------");
-        System.out.println("Average line length: " + FileAnalyser.averageLineLength(file));
+        System.out.println("Average line length: " + report.getAverageLineLength());
         System.out.println("--------");
     }
 
-    private static void printAverageWordLength(String file) throws IOException {
+    private static void printAverageWordLength(AnalysisReport report) {
         System.out.println("-------- Find average word length of the file --------");
-        System.out.println("Average word length: " + FileAnalyser.averageWordLength(file));
+        System.out.println("Average word length: " + report.getAverageWordLength());
         System.out.println("--------");
     }
 
-    private static void printShortestLine(String file) throws IOException {
+    private static void printShortestLine(AnalysisReport report) {
         System.out.println("-------- Find the shortest line in the file --------");
-        System.out.println("Shortest line: " + FileAnalyser.findShortestLine(file).orElse("No lines found"));
+        System.out.println("Shortest line: " + report.getShortestLine().orElse("No lines found"));
         System.out.println("--------");
     }
 
-    private static void printLongestLine(String file) throws IOException {
+    private static void printLongestLine(AnalysisReport report) {
         System.out.println("-------- Find the longest line in the file --------");
-        System.out.println("Longest line: " + FileAnalyser.findLongestLine(file).orElse("No lines found"));
+        System.out.println("Longest line: " + report.getLongestLine().orElse("No lines found"));
         System.out.println("--------");
     }
 
-    private static void printTopNLongestWords(String file, int n) throws IOException {
+    private static void printTopNLongestWords(AnalysisReport report, int n) {
         System.out.println("-------- Find the top " + n + " longest words in the file --------");
-        System.out.println("Longest words: " + FileAnalyser.findTopNLongestWord(file, n));
+        System.out.println("Longest words: " + report.getTopNLongestWords());
+        System.out.println("--------");
+    }
+
+    private static void printTopNMostFrequentWords(AnalysisReport report, int n) {
+        System.out.println("-------- Find the top " + n + " most frequent words in the file --------");
+        System.out.println("Most frequent words: " + report.getTopNFrequentWords());
+        System.out.println("--------");
+    }
+
+    private static void printTopNLongestLines(AnalysisReport report, int n) {
+        System.out.println("-------- Find the top " + n + " longest lines in the file --------");
+        System.out.println("Longest lines: " + report.getTopNLongestLines());
         System.out.println("--------");
     }
 
-    private static void printFirstWordWithMoreThanNCharacters(String file, int n) throws IOException {
+    private static void printFirstWordWithMoreThanNCharacters(AnalysisReport report, int n) {
         System.out.println("-------- Find the first word with more than " + n + " characters in the file --------");
-        System.out.println("First word with more than " + n + " characters: " + FileAnalyser.getFirstWordWithMoreThanNCharacters(file, n).orElse("No word found"));
+        System.out.println("First word with more than " + n + " characters: " + report.getFirstWordLongerThanN().orElse("No word found"));
         System.out.println("--------");
     }
 
-    private static void printWordFrequency(String file) throws IOException {
+    private static void printWordFrequency(AnalysisReport report) {
         System.out.println("-------- Find the frequency of every word in the file --------");
-        System.out.println("Word frequency: " + FileAnalyser.getWordFrequency(file));
+        System.out.println("Word frequency: " + report.getWordFrequency());
         System.out.println("--------");
     }
 
-    private static void printLinesContainingNumbers(String file) throws IOException {
+    private static void printLinesContainingNumbers(AnalysisReport report) {
         System.out.println("-------- Find lines that contain numbers in the file --------");
-        System.out.println("Lines containing numbers: " + FileAnalyser.findLinesContainingNumbers(file));
+        System.out.println("Lines containing numbers: " + report.getLinesContainingNumbers());
         System.out.println("--------");
     }
 
-    private static void printLinesMatchingRegex(String file, String regex) throws IOException {
+    private static void printLinesMatchingRegex(AnalysisReport report, String regex) {
         System.out.println("-------- Find lines that match the regex pattern in the file --------");
-        System.out.println("Lines matching regex pattern '" + regex + "': " + FileAnalyser.findLinesMatchingRegex(file, regex));
+        System.out.println("Lines matching regex pattern '" + regex + "': " + report.getLinesMatchingRegex());
         System.out.println("--------");
     }
 
-    private static void printPalindromicWords(String file) throws IOException {
+    private static void printPalindromicWords(AnalysisReport report) {
         System.out.println("-------- Find palindromic words in the file --------");
-        System.out.println("Palindromic words: " + FileAnalyser.findPalindromicWords(file));
+        System.out.println("Palindromic words: " + report.getPalindromicWords());
         System.out.println("--------");
     }
 
@@ -0,0 +1,326 @@
+package com.codeforall.online;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+
+/**
+ * Counts lines and words of a file by memory-mapping it and scanning its raw bytes in parallel.
+ * The file is split into chunks that always end right after a {@code '\n'}, so every chunk starts at the
+ * beginning of a line and can be counted on its own by a {@link ForkJoinPool} worker.
+ * No line is ever decoded into a String; the results match {@link FileAnalyser#countLines(String)}
+ * and {@link FileAnalyser#countWords(String)} for any well-formed UTF-8 file. Bytes can only be counted this way in a
+ * charset that encodes ASCII as single bytes, so a file detected to be in another one, such as UTF-16, is rejected.
+ * <p>
+ * A compressed file cannot be mapped and split, so its bytes are counted in one pass as they are decompressed,
+ * see {@link CompressedInput}.
+ */
+public class MappedFileScanner {
+
+    /** Default number of bytes handed to a single worker. */
+    public static final long DEFAULT_CHUNK_SIZE = 16L * 1024 * 1024;
+
+    private static final int MAX_MAPPING_SIZE = 1 << 30;
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+    private static final int BOUNDARY_PROBE_SIZE = 8 * 1024;
+
+
+    /**
+     * The line and word counts of a file or of one of its chunks.
+     */
+    public static class Counts {
+
+        private final long lineCount;
+        private final long wordCount;
+
+
+        Counts(long lineCount, long wordCount) {
+            this.lineCount = lineCount;
+            this.wordCount = wordCount;
+        }
+
+
+        /**
+         * @return The number of lines.
+         */
+        public long getLineCount() {
+            return lineCount;
+        }
+
+
+        /**
+         * @return The number of words.
+         */
+        public long getWordCount() {
+            return wordCount;
+        }
+
+
+        private Counts plus(Counts other) {
+            return new Counts(lineCount + other.lineCount, wordCount + other.wordCount);
+        }
+    }
+
+
+    /**
+     * Counts lines and words of the specified file on the common fork/join pool.
+     *
+     * @param path The path to the file.
+     * @return The line and word counts of the file.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If the charset of the file does not encode ASCII as single bytes.
+     */
+    public static Counts scan(Path path) throws IOException {
+        return scan(path, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+    }
+
+
+    /**
+     * Counts lines and words of the specified file.
+     *
+     * @param path      The path to the file.
+     * @param pool      The pool the chunks are counted on.
+     * @param chunkSize The approximate number of bytes handed to a single worker.
+     * @return The line and word counts of the file.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If the charset of the file does not encode ASCII as single bytes.
+     */
+    public static Counts scan(Path path, ForkJoinPool pool, long chunkSize) throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        Charset charset = CharsetDetector.detect(path);
+        if (!LineReader.isAsciiCompatible(charset)) {
+            throw new IllegalArgumentException("Only files in a charset that encodes ASCII as single bytes can be scanned: "
+                    + path + " (" + charset + ")");
+        }
+        OperationTrace trace = Tracing.begin("scan", path.toString());
+        Counts counts = null;
+        try {
+            counts = CompressedInput.isCompressed(path) ? scanCompressed(path, trace) : scanMapped(path, pool, chunkSize, trace);
+            return counts;
+        } finally {
+            if (trace != null) {
+                if (counts != null) {
+                    trace.count(0, counts.getLineCount(), counts.getWordCount());
+                }
+                Tracing.end(trace);
+            }
+        }
+    }
+
+
+    private static Counts scanMapped(Path path, ForkJoinPool pool, long chunkSize, OperationTrace trace) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (trace != null) {
+                trace.count(size, 0, 0);
+            }
+            if (size == 0) {
+                return new Counts(0, 0);
+            }
+            long[] boundaries = findChunkBoundaries(channel, size, chunkSize);
+            Counts counts = pool.invoke(new ChunkTask(channel, boundaries, 0, boundaries.length - 1));
+
+            // a last line without a terminator is still a line
+            if (!isLineTerminator(lastByte(channel, size))) {
+                counts = counts.plus(new Counts(1, 0));
+            }
+            return counts;
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+
+    private static Counts scanCompressed(Path path, OperationTrace trace) throws IOException {
+        ByteCounter counter = new ByteCounter();
+        byte[] buffer = new byte[COPY_BUFFER_SIZE];
+        try (InputStream in = trace == null ? CompressedInput.open(path) : trace.meter(CompressedInput.open(path))) {
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                counter.count(buffer, read);
+            }
+        }
+        return counter.finish();
+    }
+
+
+    /**
+     * Splits the file into chunks of roughly chunkSize bytes, moving every split point forward to just after the next {@code '\n'}.
+     *
+     * @param channel   The channel of the file.
+     * @param size      The size of the file.
+     * @param chunkSize The approximate number of bytes per chunk.
+     * @return The chunk boundaries, starting with 0 and ending with the file size.
+     * @throws IOException If an I/O error occurs.
+     */
+    static long[] findChunkBoundaries(FileChannel channel, long size, long chunkSize) throws IOException {
+        List<Long> boundaries = new ArrayList<>();
+        boundaries.add(0L);
+        ByteBuffer probe = ByteBuffer.allocate(BOUNDARY_PROBE_SIZE);
+        long start = 0;
+        while (size - start > chunkSize) {
+            long position = start + chunkSize;
+            long boundary = size;
+            search:
+            while (position < size) {
+                probe.clear();
+                int read = channel.read(probe, position);
+                if (read <= 0) {
+                    break;
+                }
+                for (int i = 0; i < read; i++) {
+                    if (probe.get(i) == '\n') {
+                        boundary = position + i + 1;
+                        break search;
+                    }
+                }
+                position += read;
+            }
+            if (boundary >= size) {
+                break;
+            }
+            boundaries.add(boundary);
+            start = boundary;
+        }
+        boundaries.add(size);
+        return boundaries.stream().mapToLong(Long::longValue).toArray();
+    }
+
+
+    private static byte lastByte(FileChannel channel, long size) throws IOException {
+        ByteBuffer last = ByteBuffer.allocate(1);
+        channel.read(last, size - 1);
+        return last.get(0);
+    }
+
+
+    private static boolean isLineTerminator(byte b) {
+        return b == '\n' || b == '\r';
+    }
+
+
+    /**
+     * Counts a range of chunks, splitting it in half until a single chunk is left.
+     */
+    private static class ChunkTask extends RecursiveTask<Counts> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long[] boundaries;
+        private final int from;
+        private final int to;
+
+
+        ChunkTask(FileChannel channel, long[] boundaries, int from, int to) {
+            this.channel = channel;
+            this.boundaries = boundaries;
+            this.from = from;
+            this.to = to;
+        }
+
+
+        @Override
+        protected Counts compute() {
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                ChunkTask left = new ChunkTask(channel, boundaries, from, middle);
+                left.fork();
+                Counts right = new ChunkTask(channel, boundaries, middle, to).compute();
+                return left.join().plus(right);
+            }
+            try {
+                return countChunk(boundaries[from], boundaries[to]);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+
+        /**
+         * Counts the terminated lines and the words of a chunk that starts at the beginning of a line, see {@link ByteCounter}.
+         *
+         * @param start The offset of the first byte of the chunk.
+         * @param end   The offset just after the last byte of the chunk.
+         * @return The counts of the chunk.
+         * @throws IOException If an I/O error occurs.
+         */
+        private Counts countChunk(long start, long end) throws IOException {
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            ByteCounter counter = new ByteCounter();
+            for (long windowStart = start; windowStart < end; windowStart += MAX_MAPPING_SIZE) {
+                long windowSize = Math.min(MAX_MAPPING_SIZE, end - windowStart);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowSize);
+
+                while (window.hasRemaining()) {
+                    int length = Math.min(buffer.length, window.remaining());
+                    window.get(buffer, 0, length);
+                    counter.count(buffer, length);
+                }
+            }
+            return new Counts(counter.lines, counter.words);
+        }
+    }
+
+
+    /**
+     * Counts the terminated lines and the words of consecutive buffers of bytes that start at the beginning of a line.
+     * Lines end at {@code '\n'}, {@code '\r'} or {@code "\r\n"}, and words are separated by whitespace and line terminators,
+     * exactly like the {@link WordTokenizer} splits every line.
+     */
+    private static class ByteCounter {
+
+        private long lines;
+        private long words;
+        private boolean inWord;
+        private boolean afterCarriageReturn;
+        private boolean atLineStart = true;
+
+
+        void count(byte[] buffer, int length) {
+            for (int i = 0; i < length; i++) {
+                byte b = buffer[i];
+                if (b == '\n') {
+                    if (!afterCarriageReturn) {
+                        lines++;
+                    }
+                    inWord = false;
+                } else if (b == '\r') {
+                    lines++;
+                    inWord = false;
+                } else if (WordTokenizer.isWhitespace(b)) {
+                    inWord = false;
+                } else if (!inWord) {
+                    words++;
+                    inWord = true;
+                }
+                afterCarriageReturn = b == '\r';
+            }
+            if (length > 0) {
+                atLineStart = isLineTerminator(buffer[length - 1]);
+            }
+        }
+
+
+        /**
+         * @return The counts, with a last line without a terminator counted as a line.
+         */
+        Counts finish() {
+            return new Counts(atLineStart ? lines : lines + 1, words);
+        }
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.codeforall.online;
+
+/**
+ * The metrics that the {@link AnalysisEngine} can compute while reading a file.
+ * Every metric mirrors one of the single-purpose methods of {@link FileAnalyser}.
+ */
+public enum Metric {
+
+    /** Number of lines, see {@link FileAnalyser#countLines(String)}. */
+    LINE_COUNT,
+
+    /** Number of words, see {@link FileAnalyser#countWords(String)}. */
+    WORD_COUNT,
+
+    /** Number of non-empty lines, see {@link FileAnalyser#countNonEmptyLines(String)}. */
+    NON_EMPTY_LINE_COUNT,
+
+    /** Number of unique words, see {@link FileAnalyser#countUniqueWords(String)}. */
+    UNIQUE_WORD_COUNT,
+
+    /** Occurrences of the requested word, see {@link FileAnalyser#countWordOccurrences(String, String)}. */
+    WORD_OCCURRENCES,
+
+    /** Lines containing the requested word, see {@link FileAnalyser#findLinesContainingWord(String, String)}. */
+    LINES_CONTAINING_WORD,
+
+    /** Average line length, see {@link FileAnalyser#averageLineLength(String)}. */
+    AVERAGE_LINE_LENGTH,
+
+    /** Average word length, see {@link FileAnalyser#averageWordLength(String)}. */
+    AVERAGE_WORD_LENGTH,
+
+    /** Shortest line, see {@link FileAnalyser#findShortestLine(String)}. */
+    SHORTEST_LINE,
+
+    /** Longest line, see {@link FileAnalyser#findLongestLine(String)}. */
+    LONGEST_LINE,
+
+    /** Top n longest words, see {@link FileAnalyser#findTopNLongestWord(String, int)}. */
+    TOP_N_LONGEST_WORDS,
+
+    /** Top n most frequent words, see {@link FileAnalyser#findTopNMostFrequentWords(String, int)}. */
+    TOP_N_FREQUENT_WORDS,
+
+    /** Top n longest lines, see {@link FileAnalyser#findTopNLongestLines(String, int)}. */
+    TOP_N_LONGEST_LINES,
+
+    /** First word with more than n characters, see {@link FileAnalyser#getFirstWordWithMoreThanNCharacters(String, int)}. */
+    FIRST_WORD_LONGER_THAN_N,
+
+    /** Frequency of every word, see {@link FileAnalyser#getWordFrequency(String)}. */
+    WORD_FREQUENCY,
+
+    /** Lines containing numbers, see {@link FileAnalyser#findLinesContainingNumbers(String)}. */
+    LINES_CONTAINING_NUMBERS,
+
+    /** Lines matching the requested regex, see {@link FileAnalyser#findLinesMatchingRegex(String, String)}. */
+    LINES_MATCHING_REGEX,
+
+    /** Palindromic words, see {@link FileAnalyser#findPalindromicWords(String)}. */
+    PALINDROMIC_WORDS
+}
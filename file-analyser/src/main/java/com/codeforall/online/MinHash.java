@@ -0,0 +1,240 @@
+package com.codeforall.online;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+
+/**
+ * Estimates how much the vocabularies of two texts overlap in a fixed amount of memory, with a bottom-k MinHash sketch.
+ * The sketch keeps the k smallest distinct word hashes seen, which are a uniform sample of the distinct words.
+ * The k smallest hashes of the union of two sketches sample the union of the vocabularies, and the fraction of them
+ * found in both sketches estimates the Jaccard similarity, with a standard error of about 1 / sqrt(k).
+ * How small the k-th hash is also estimates the number of distinct words, so the sketch estimates the number of
+ * shared words as well. Merging keeps the k smallest hashes of both sketches.
+ */
+public class MinHash implements WordSketch<MinHash> {
+
+    private static final int MAX_SIZE = 1 << 24;
+
+    private final int capacity;
+    // a max-heap of the 63-bit hashes kept, so the largest one, which the next smaller hash replaces, is the root
+    private final long[] heap;
+    private final LongIntMap kept;
+    private int size;
+
+
+    /**
+     * Creates a sketch keeping enough hashes for the given standard error of the similarity.
+     *
+     * @param error The standard error of the estimated Jaccard similarity, such as 0.01.
+     * @throws IllegalArgumentException If the error is not between 0 and 1, or needs too many hashes.
+     */
+    public MinHash(double error) {
+        this(hashesFor(error));
+    }
+
+
+    private MinHash(int capacity) {
+        this.capacity = capacity;
+        this.heap = new long[capacity];
+        this.kept = new LongIntMap(capacity);
+    }
+
+
+    @Override
+    public void add(CharSequence word) {
+        addHash(WordHash.hash(word) >>> 1);
+    }
+
+
+    private void addHash(long hash) {
+        if (size == capacity && hash >= heap[0]) {
+            return;
+        }
+        if (kept.get(hash) != LongIntMap.MISSING) {
+            return;
+        }
+        if (size < capacity) {
+            heap[size] = hash;
+            siftUp(size++);
+        } else {
+            kept.remove(heap[0]);
+            heap[0] = hash;
+            siftDown(0);
+        }
+        kept.put(hash, 0);
+    }
+
+
+    /**
+     * @return The estimated number of distinct words added.
+     */
+    public long estimateDistinct() {
+        if (size < capacity) {
+            return size;
+        }
+        // the k-th smallest of n uniform hashes lies near k / n of the hash range
+        return Math.round((capacity - 1) / (heap[0] / 0x1p63));
+    }
+
+
+    /**
+     * Estimates the Jaccard similarity of the vocabularies: the number of shared words divided by the number of words of either.
+     *
+     * @param other A sketch created with the same error.
+     * @return The estimated similarity, between 0 and 1.
+     * @throws IllegalArgumentException If the other sketch was created with a different error.
+     */
+    public double similarity(MinHash other) {
+        requireSameCapacity(other);
+        long[] union = smallestOfUnion(other);
+        if (union.length == 0) {
+            return 0;
+        }
+        int shared = 0;
+        for (long hash : union) {
+            if (kept.get(hash) != LongIntMap.MISSING && other.kept.get(hash) != LongIntMap.MISSING) {
+                shared++;
+            }
+        }
+        return (double) shared / union.length;
+    }
+
+
+    /**
+     * Estimates the number of words the two vocabularies share.
+     *
+     * @param other A sketch created with the same error.
+     * @return The estimated number of shared words.
+     * @throws IllegalArgumentException If the other sketch was created with a different error.
+     */
+    public long estimateShared(MinHash other) {
+        double similarity = similarity(other);
+        MinHash union = new MinHash(capacity);
+        union.merge(this).merge(other);
+        return Math.round(similarity * union.estimateDistinct());
+    }
+
+
+    @Override
+    public MinHash merge(MinHash other) {
+        requireSameCapacity(other);
+        for (int i = 0; i < other.size; i++) {
+            addHash(other.heap[i]);
+        }
+        return this;
+    }
+
+
+    @Override
+    public void writeTo(DataOutput out) throws IOException {
+        StateCodec.writeVarLong(out, capacity);
+        StateCodec.writeVarLong(out, size);
+        for (int i = 0; i < size; i++) {
+            out.writeLong(heap[i]);
+        }
+    }
+
+
+    /**
+     * Reads a sketch written by {@link #writeTo(DataOutput)}.
+     *
+     * @param in The input to read from.
+     * @return The sketch.
+     * @throws IOException If an I/O error occurs or the input is not a sketch.
+     */
+    public static MinHash readFrom(DataInput in) throws IOException {
+        int capacity = StateCodec.readVarInt(in);
+        int size = StateCodec.readVarInt(in);
+        if (capacity < 1 || capacity > MAX_SIZE || size > capacity) {
+            throw new IOException("Not a MinHash sketch of " + size + " of " + capacity + " hashes");
+        }
+        MinHash sketch = new MinHash(capacity);
+        for (int i = 0; i < size; i++) {
+            long hash = in.readLong();
+            if (hash < 0) {
+                throw new IOException("Not a MinHash sketch, hash " + hash);
+            }
+            sketch.addHash(hash);
+        }
+        return sketch;
+    }
+
+
+    /**
+     * @return The k smallest hashes of both sketches together, in ascending order.
+     */
+    private long[] smallestOfUnion(MinHash other) {
+        long[] all = new long[size + other.size];
+        System.arraycopy(heap, 0, all, 0, size);
+        int length = size;
+        for (int i = 0; i < other.size; i++) {
+            if (kept.get(other.heap[i]) == LongIntMap.MISSING) {
+                all[length++] = other.heap[i];
+            }
+        }
+        Arrays.sort(all, 0, length);
+        return Arrays.copyOf(all, Math.min(capacity, length));
+    }
+
+
+    private void requireSameCapacity(MinHash other) {
+        if (other.capacity != capacity) {
+            throw new IllegalArgumentException("Cannot combine sketches of " + capacity + " and " + other.capacity + " hashes");
+        }
+    }
+
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (heap[parent] >= heap[position]) {
+                return;
+            }
+            swap(parent, position);
+            position = parent;
+        }
+    }
+
+
+    private void siftDown(int position) {
+        while (true) {
+            int largest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < size && heap[left] > heap[largest]) {
+                largest = left;
+            }
+            if (right < size && heap[right] > heap[largest]) {
+                largest = right;
+            }
+            if (largest == position) {
+                return;
+            }
+            swap(position, largest);
+            position = largest;
+        }
+    }
+
+
+    private void swap(int i, int j) {
+        long hash = heap[i];
+        heap[i] = heap[j];
+        heap[j] = hash;
+    }
+
+
+    private static int hashesFor(double error) {
+        if (!(error > 0 && error < 1)) {
+            throw new IllegalArgumentException("Error must be between 0 and 1: " + error);
+        }
+        double hashes = Math.ceil(1 / (error * error));
+        if (hashes > MAX_SIZE) {
+            throw new IllegalArgumentException("Error too small for " + MAX_SIZE + " hashes: " + error);
+        }
+        return Math.max(2, (int) hashes);
+    }
+
+}
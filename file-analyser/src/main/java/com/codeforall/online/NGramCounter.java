@@ -0,0 +1,132 @@
+package com.codeforall.online;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+
+/**
+ * Counts the n-grams or word pairs of files into {@link NGramTable}s, like {@link Sketches} sketches them: a file is split
+ * into chunks like {@link MappedFileScanner} splits it, every chunk is counted on its own thread into a table of its own,
+ * and the tables are merged in the order of the chunks. At most one table per thread is being filled at a time besides
+ * the merged one, and every table holds a bounded number of entries, so the memory used does not grow with the file.
+ * A compressed file cannot be split into chunks, so it is counted as a whole while it is decompressed on other threads.
+ * <p>
+ * The charset of every file is detected with {@link CharsetDetector}, and malformed input is replaced rather than reported.
+ */
+public final class NGramCounter {
+
+    private NGramCounter() {
+    }
+
+
+    /**
+     * Counts the n-grams or word pairs of a file on the common pool.
+     *
+     * @param path    The path to the file.
+     * @param factory Creates an empty table; every table it creates must have the same parameters.
+     * @return A table of all n-grams or pairs of the file.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If the charset of the file does not encode ASCII as single bytes.
+     */
+    public static NGramTable count(Path path, Supplier<NGramTable> factory) throws IOException {
+        return count(List.of(path), factory, ForkJoinPool.commonPool(), MappedFileScanner.DEFAULT_CHUNK_SIZE);
+    }
+
+
+    /**
+     * Counts the n-grams or word pairs of several files into one table.
+     *
+     * @param paths     The paths to the files.
+     * @param factory   Creates an empty table; every table it creates must have the same parameters.
+     * @param pool      The pool the chunks are counted on.
+     * @param chunkSize The approximate number of bytes per chunk.
+     * @return A table of all n-grams or pairs of all files.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If the charset of a file does not encode ASCII as single bytes.
+     */
+    public static NGramTable count(List<Path> paths, Supplier<NGramTable> factory, ForkJoinPool pool, long chunkSize)
+            throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        NGramTable table = factory.get();
+        int window = Math.max(1, pool.getParallelism());
+        for (Path path : paths) {
+            Charset charset = CharsetDetector.detect(path);
+            if (!LineReader.isAsciiCompatible(charset)) {
+                throw new IllegalArgumentException("Only files in a charset that encodes ASCII as single bytes can be counted: " + path);
+            }
+            if (CompressedInput.isCompressed(path)) {
+                countLines(CompressedInput.open(path), true, charset, table);
+                continue;
+            }
+            long[] boundaries;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                boundaries = MappedFileScanner.findChunkBoundaries(channel, Files.size(path), chunkSize);
+            }
+            for (int chunk = 0; chunk < boundaries.length - 1; chunk += window) {
+                List<Future<NGramTable>> chunks = new ArrayList<>();
+                for (int i = chunk; i < Math.min(boundaries.length - 1, chunk + window); i++) {
+                    long start = boundaries[i];
+                    long end = boundaries[i + 1];
+                    chunks.add(pool.submit(() -> {
+                        try {
+                            return countRange(path, start, end, charset, factory.get());
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }));
+                }
+                for (Future<NGramTable> counted : chunks) {
+                    table.merge(join(counted));
+                }
+            }
+        }
+        return table;
+    }
+
+
+    private static NGramTable countRange(Path path, long start, long end, Charset charset, NGramTable table) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return countLines(new FileRangeInputStream(channel, start, end), start == 0, charset, table);
+        }
+    }
+
+
+    private static NGramTable countLines(InputStream in, boolean atStart, Charset charset, NGramTable table) throws IOException {
+        try (LineReader reader = new LineReader(in, charset, true, atStart)) {
+            while (reader.next()) {
+                table.countLine(reader.text());
+            }
+        }
+        return table;
+    }
+
+
+    private static NGramTable join(Future<NGramTable> counted) throws IOException {
+        try {
+            return counted.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while counting a chunk", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+}
@@ -0,0 +1,362 @@
+package com.codeforall.online;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Counts the n-grams of a text, the runs of n consecutive words, or the pairs of words that occur close to each other.
+ * Lines are split into words by the same {@link WordTokenizer} as everywhere else, words are compared ignoring case,
+ * and neither n-grams nor pairs reach across the end of a line, so the counts of a file do not depend on how it is split
+ * into chunks.
+ * <p>
+ * Every word gets an id in a {@link WordFrequencyTable}, and an n-gram or pair is counted under the ids of its words
+ * packed into one long: two ids of 32 bits, or three of 21 bits. The words are stored once however many n-grams they
+ * are part of, and counting an n-gram creates no object. An n-gram with a word whose id does not fit into its bits,
+ * which takes more than two million distinct words for trigrams, is not counted, see {@link #getSkippedCount()}.
+ * <p>
+ * The counts take at most a fixed number of entries. When the table outgrows them, it drops every entry whose count is
+ * not above the median count, at least half of the entries, like lossy counting does. An n-gram that was dropped and
+ * comes back starts counting again from zero, so counts can be too low, but never by more than
+ * {@link #getErrorBound()}; without drops the bound is zero and every count is exact. The words themselves are all kept,
+ * as for {@link AnalysisReport#getWordFrequencyTable()}.
+ * <p>
+ * Tables created with the same parameters can be merged, so the chunks of a file can be counted on separate threads,
+ * see {@link NGramCounter}. A table is not thread-safe.
+ */
+public class NGramTable {
+
+    /** Default maximum number of n-grams or pairs a table holds. */
+    public static final int DEFAULT_MAX_ENTRIES = 1 << 20;
+
+    private static final int MAX_ENTRIES_LIMIT = 1 << 29;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private final int n;
+    private final int window;
+    private final int bits;
+    private final long idLimit;
+    private final int maxEntries;
+
+    private final WordFrequencyTable vocabulary = new WordFrequencyTable();
+    private final WordTokenizer tokenizer = new WordTokenizer();
+    private final int[] recent;
+
+    private long[] keys;
+    private long[] counts;
+    private int mask;
+    private int size;
+
+    private long total;
+    private long skipped;
+    private long errorBound;
+
+
+    private NGramTable(int n, int window, int maxEntries) {
+        if (maxEntries <= 0 || maxEntries > MAX_ENTRIES_LIMIT) {
+            throw new IllegalArgumentException("Maximum number of entries must be between 1 and " + MAX_ENTRIES_LIMIT + ": " + maxEntries);
+        }
+        this.n = n;
+        this.window = window;
+        this.bits = Long.SIZE / (window > 0 ? 2 : n);
+        this.idLimit = 1L << bits;
+        this.maxEntries = maxEntries;
+        this.recent = new int[window > 0 ? window - 1 : n - 1];
+        int capacity = Integer.highestOneBit(2 * Math.min(maxEntries, 1024)) << 1;
+        this.keys = new long[capacity];
+        this.counts = new long[capacity];
+        this.mask = capacity - 1;
+    }
+
+
+    /**
+     * Creates a table of the n-grams of a text, such as bigrams or trigrams.
+     *
+     * @param n          The number of words per n-gram, 2 or 3.
+     * @param maxEntries The most n-grams the table holds before it drops the rarest.
+     * @return The empty table.
+     * @throws IllegalArgumentException If n is not 2 or 3, or the maximum is not positive or above 2^29.
+     */
+    public static NGramTable ngrams(int n, int maxEntries) {
+        if (n < 2 || n > 3) {
+            throw new IllegalArgumentException("n-grams of 2 or 3 words are supported: " + n);
+        }
+        return new NGramTable(n, 0, maxEntries);
+    }
+
+
+    /**
+     * Creates a table of the pairs of different words that occur within a sliding window of each other, in either order.
+     * In a window of 2 words only neighbours are pairs; in a window of 5, every word pairs with the 4 words before it.
+     *
+     * @param window     The number of consecutive words a pair lies within, at least 2.
+     * @param maxEntries The most pairs the table holds before it drops the rarest.
+     * @return The empty table.
+     * @throws IllegalArgumentException If the window is smaller than 2, or the maximum is not positive or above 2^29.
+     */
+    public static NGramTable cooccurrences(int window, int maxEntries) {
+        if (window < 2) {
+            throw new IllegalArgumentException("Window must hold at least 2 words: " + window);
+        }
+        return new NGramTable(2, window, maxEntries);
+    }
+
+
+    /**
+     * Counts the n-grams or pairs of one line.
+     *
+     * @param line The line; it is not kept.
+     */
+    public void countLine(CharSequence line) {
+        tokenizer.reset(line);
+        int seen = 0;
+        for (WordTokenizer.Token token = tokenizer.next(); token != null; token = tokenizer.next()) {
+            int id = vocabulary.increment(token);
+            if (window > 0) {
+                for (int back = 1; back <= Math.min(seen, recent.length); back++) {
+                    int other = recent[(seen - back) % recent.length];
+                    if (other != id) {
+                        count(pack(Math.min(other, id), Math.max(other, id)), 1);
+                    }
+                }
+            } else if (seen >= recent.length) {
+                count(n == 2 ? pack(recent[(seen - 1) % recent.length], id)
+                        : pack(recent[(seen - 2) % recent.length], recent[(seen - 1) % recent.length], id), 1);
+            }
+            recent[seen % recent.length] = id;
+            seen++;
+        }
+    }
+
+
+    /**
+     * Adds the counts of another table, as if its lines had been counted by this one.
+     *
+     * @param other A table created with the same parameters; it must not be used afterwards.
+     * @return This table.
+     * @throws IllegalArgumentException If the other table was created with different parameters.
+     */
+    public NGramTable merge(NGramTable other) {
+        if (other.n != n || other.window != window || other.maxEntries != maxEntries) {
+            throw new IllegalArgumentException("Only tables created with the same parameters can be merged");
+        }
+        int[] ids = new int[other.vocabulary.size()];
+        for (int id = 0; id < ids.length; id++) {
+            ids[id] = vocabulary.add(other.vocabulary.word(id), other.vocabulary.count(id));
+        }
+        long totalBefore = total;
+        long wordMask = idLimit - 1;
+        for (int slot = 0; slot < other.keys.length; slot++) {
+            long count = other.counts[slot];
+            if (count == 0) {
+                continue;
+            }
+            long key = other.keys[slot];
+            if (n == 2) {
+                int first = ids[(int) (key >>> bits)];
+                int second = ids[(int) (key & wordMask)];
+                count(window > 0 ? pack(Math.min(first, second), Math.max(first, second)) : pack(first, second), count);
+            } else {
+                count(pack(ids[(int) (key >>> 2 * bits)], ids[(int) (key >>> bits & wordMask)], ids[(int) (key & wordMask)]), count);
+            }
+        }
+        // the entries of the other table were added to the total again; its total also holds what it dropped and skipped
+        total = totalBefore + other.total;
+        skipped += other.skipped;
+        errorBound += other.errorBound;
+        return this;
+    }
+
+
+    /**
+     * Looks up the count of an n-gram, or of a pair of words in either order.
+     *
+     * @param words The words of the n-gram or pair, in any case.
+     * @return The number of times it was counted, 0 if it was not.
+     * @throws IllegalArgumentException If the number of words does not match the table.
+     */
+    public long count(String... words) {
+        if (words.length != n) {
+            throw new IllegalArgumentException("Expected " + n + " words: " + words.length);
+        }
+        int[] ids = new int[n];
+        for (int i = 0; i < n; i++) {
+            ids[i] = vocabulary.indexOf(WordTokenizer.fold(words[i]));
+            if (ids[i] < 0 || ids[i] >= idLimit) {
+                return 0;
+            }
+        }
+        long key = n == 3 ? pack(ids[0], ids[1], ids[2])
+                : window > 0 ? pack(Math.min(ids[0], ids[1]), Math.max(ids[0], ids[1])) : pack(ids[0], ids[1]);
+        for (int slot = slot(key); counts[slot] != 0; slot = (slot + 1) & mask) {
+            if (keys[slot] == key) {
+                return counts[slot];
+            }
+        }
+        return 0;
+    }
+
+
+    /**
+     * Finds the most frequent n-grams or pairs, with their words separated by single spaces.
+     * Entries with the same count are ranked by the ids of their words, which follow the order the words were first seen.
+     *
+     * @param k The number of n-grams or pairs to find.
+     * @return The n-grams or pairs and their counts, most frequent first.
+     */
+    public List<Map.Entry<String, Long>> mostFrequent(int k) {
+        TopN<Integer> top = new TopN<>(k, (a, b) -> counts[a] != counts[b] ? Long.compare(counts[b], counts[a]) : Long.compare(keys[a], keys[b]));
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (counts[slot] != 0) {
+                top.offer(slot);
+            }
+        }
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(top.size());
+        long wordMask = idLimit - 1;
+        for (int slot : top.toList()) {
+            long key = keys[slot];
+            StringBuilder words = new StringBuilder();
+            for (int shift = (n - 1) * bits; shift >= 0; shift -= bits) {
+                if (words.length() > 0) {
+                    words.append(' ');
+                }
+                words.append(vocabulary.word((int) (key >>> shift & wordMask)));
+            }
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(words.toString(), counts[slot]));
+        }
+        return entries;
+    }
+
+
+    /**
+     * @return The number of distinct n-grams or pairs in the table.
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * @return The number of n-grams or pairs counted, including the ones dropped since.
+     */
+    public long getTotalCount() {
+        return total;
+    }
+
+
+    /**
+     * @return The most any count in the table, or of an n-gram missing from it, may be below the true count, 0 if no
+     * entries were ever dropped.
+     */
+    public long getErrorBound() {
+        return errorBound;
+    }
+
+
+    /**
+     * @return The number of n-grams or pairs that were not counted because the id of one of their words did not fit.
+     */
+    public long getSkippedCount() {
+        return skipped;
+    }
+
+
+    private long pack(int first, int second) {
+        if (first >= idLimit || second >= idLimit) {
+            return -1;
+        }
+        return (long) first << bits | second;
+    }
+
+
+    private long pack(int first, int second, int third) {
+        if (first >= idLimit || second >= idLimit || third >= idLimit) {
+            return -1;
+        }
+        return ((long) first << bits | second) << bits | third;
+    }
+
+
+    /**
+     * Adds to the count of a packed n-gram, and drops the rarest entries if the table has grown past its maximum.
+     *
+     * @param key   The packed n-gram, or -1 if its ids did not fit.
+     * @param count The number of occurrences to add.
+     */
+    private void count(long key, long count) {
+        total += count;
+        if (key == -1) {
+            skipped += count;
+            return;
+        }
+        int slot = slot(key);
+        while (counts[slot] != 0) {
+            if (keys[slot] == key) {
+                counts[slot] += count;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        counts[slot] = count;
+        size++;
+        if (size > maxEntries) {
+            dropRarest();
+        } else if (size > keys.length * LOAD_FACTOR) {
+            rehash(keys.length * 2);
+        }
+    }
+
+
+    /**
+     * Drops every entry whose count is not above the median, and raises the error bound by that count.
+     */
+    private void dropRarest() {
+        long[] live = new long[size];
+        int i = 0;
+        for (long count : counts) {
+            if (count != 0) {
+                live[i++] = count;
+            }
+        }
+        Arrays.sort(live);
+        long threshold = live[(size - 1) / 2];
+        for (int slot = 0; slot < counts.length; slot++) {
+            if (counts[slot] <= threshold) {
+                counts[slot] = 0;
+            }
+        }
+        errorBound += threshold;
+        rehash(keys.length);
+    }
+
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldCounts = counts;
+        keys = new long[capacity];
+        counts = new long[capacity];
+        mask = capacity - 1;
+        size = 0;
+        for (int old = 0; old < oldKeys.length; old++) {
+            if (oldCounts[old] != 0) {
+                int slot = slot(oldKeys[old]);
+                while (counts[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = oldKeys[old];
+                counts[slot] = oldCounts[old];
+                size++;
+            }
+        }
+    }
+
+
+    private int slot(long key) {
+        return (int) WordHash.mix(key) & mask;
+    }
+
+}
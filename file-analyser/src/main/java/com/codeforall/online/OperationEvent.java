@@ -0,0 +1,63 @@
+package com.codeforall.online;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+
+/**
+ * The Flight Recorder event of an analysis operation, committed by {@link Tracing} with the figures of its {@link OperationTrace}.
+ * It is disabled unless a recording enables {@value #NAME}.
+ */
+@Name(OperationEvent.NAME)
+@Label("File Analysis Operation")
+@Description("An operation that read a file, with its throughput and where its time went")
+@Category("File Analyser")
+@StackTrace(false)
+final class OperationEvent extends Event {
+
+    static final String NAME = "com.codeforall.online.Operation";
+
+    @Label("Operation")
+    String operation;
+
+    @Label("File")
+    String file;
+
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+
+    @Label("Lines")
+    long lines;
+
+    @Label("Words")
+    long words;
+
+    @Label("Allocated")
+    @Description("Bytes allocated by the thread that ran the operation, -1 if unknown")
+    @DataAmount
+    long allocated;
+
+    @Label("Read")
+    @Timespan
+    long read;
+
+    @Label("Decode")
+    @Timespan
+    long decode;
+
+    @Label("Tokenize")
+    @Timespan
+    long tokenize;
+
+    @Label("Aggregate")
+    @Timespan
+    long aggregate;
+
+}
@@ -0,0 +1,278 @@
+package com.codeforall.online;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.EnumMap;
+import java.util.Map;
+
+
+/**
+ * What one analysis operation did and where its time went: how long it took, how many bytes, lines and words it went through,
+ * how much the calling thread allocated, and how the time spent reading lines splits into the {@link Phase}s.
+ * <p>
+ * Reading is timed exactly, around every read of the input. Timing every line would cost as much as analysing it, so the rest
+ * of the time is split by a sample: every {@value #SAMPLE_INTERVAL}th line is timed phase by phase, and the time of all the lines
+ * is divided between decoding, tokenizing and aggregating in the proportions of the sampled lines.
+ * Operations that read a file in parallel, such as {@link MappedFileScanner#scan(java.nio.file.Path)}, report no phases.
+ * <p>
+ * Traces are only created while tracing is enabled, see {@link Tracing}, and are handed to its listeners when the operation ends.
+ */
+public class OperationTrace {
+
+    /**
+     * The phases the time of reading lines is divided into.
+     */
+    public enum Phase {
+        /** Waiting for the bytes of the file, from the disk, or from the decompression of a compressed file. */
+        READ,
+        /** Splitting the bytes into lines and decoding the lines that are not plain ASCII. */
+        DECODE,
+        /** Splitting the lines into words. */
+        TOKENIZE,
+        /** Feeding the lines and words to the requested metrics. */
+        AGGREGATE
+    }
+
+    /** One line in this many is timed phase by phase; a power of two. */
+    static final int SAMPLE_INTERVAL = 64;
+
+    private final String operation;
+    private final String filename;
+    private final long startNanos;
+    private final long startAllocatedBytes;
+
+    private long durationNanos;
+    private long byteCount;
+    private long lineCount;
+    private long wordCount;
+    private long allocatedBytes = -1;
+    private final Map<Phase, Long> phaseNanos = new EnumMap<>(Phase.class);
+
+    private long readNanos;
+    private long linesStartNanos;
+    private long linesNanos;
+    private long lineSequence;
+    private long sampledDecodeNanos;
+    private long sampledTokenizeNanos;
+    private long sampledAggregateNanos;
+
+    /** The Flight Recorder event of the operation, if a recording enables it. */
+    OperationEvent event;
+
+
+    OperationTrace(String operation, String filename, long startAllocatedBytes) {
+        this.operation = operation;
+        this.filename = filename;
+        this.startAllocatedBytes = startAllocatedBytes;
+        this.startNanos = System.nanoTime();
+    }
+
+
+    /**
+     * @return The name of the operation, such as "analyse" or "scan".
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return The path to the file the operation read.
+     */
+    public String getFilename() {
+        return filename;
+    }
+
+    /**
+     * @return The time the operation took, in nanoseconds.
+     */
+    public long getDurationNanos() {
+        return durationNanos;
+    }
+
+    /**
+     * @return The number of bytes read, after decompression.
+     */
+    public long getByteCount() {
+        return byteCount;
+    }
+
+    /**
+     * @return The number of lines read.
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    /**
+     * @return The number of words read, 0 if the operation did not split the lines into words.
+     */
+    public long getWordCount() {
+        return wordCount;
+    }
+
+    /**
+     * @return The number of bytes the calling thread allocated during the operation, or -1 if the JVM does not measure it.
+     * Threads that helped, such as the ones decompressing a file, are not included.
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * @param phase The phase.
+     * @return The time spent in the phase, in nanoseconds, 0 if the operation does not report phases.
+     */
+    public long getPhaseNanos(Phase phase) {
+        return phaseNanos.getOrDefault(phase, 0L);
+    }
+
+    /**
+     * @return The number of bytes read per second.
+     */
+    public double getBytesPerSecond() {
+        return durationNanos == 0 ? 0 : byteCount * 1e9 / durationNanos;
+    }
+
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder()
+                .append(operation).append(' ').append(filename).append(": ")
+                .append(String.format("%.3f ms", durationNanos / 1e6)).append(", ")
+                .append(byteCount).append(" bytes, ").append(lineCount).append(" lines, ").append(wordCount).append(" words, ")
+                .append(String.format("%.1f MB/s", getBytesPerSecond() / (1024 * 1024)));
+        if (allocatedBytes >= 0) {
+            text.append(", ").append(allocatedBytes).append(" bytes allocated");
+        }
+        if (!phaseNanos.isEmpty()) {
+            text.append(" (");
+            for (Phase phase : Phase.values()) {
+                text.append(phase.name().toLowerCase()).append(' ')
+                        .append(String.format("%.3f ms", getPhaseNanos(phase) / 1e6))
+                        .append(phase.ordinal() < Phase.values().length - 1 ? ", " : ")");
+            }
+        }
+        return text.toString();
+    }
+
+
+    /**
+     * Wraps the input of the operation so that reading it is timed and its bytes are counted.
+     *
+     * @param in The input, after decompression.
+     * @return The timed input.
+     */
+    InputStream meter(InputStream in) {
+        return new FilterInputStream(in) {
+            @Override
+            public int read() throws IOException {
+                long start = System.nanoTime();
+                int b = super.read();
+                readNanos += System.nanoTime() - start;
+                if (b >= 0) {
+                    byteCount++;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                long start = System.nanoTime();
+                int read = super.read(b, off, len);
+                readNanos += System.nanoTime() - start;
+                if (read > 0) {
+                    byteCount += read;
+                }
+                return read;
+            }
+        };
+    }
+
+
+    /**
+     * Marks the start of the line loop, whose time is divided between the phases.
+     */
+    void startLines() {
+        linesStartNanos = System.nanoTime();
+    }
+
+
+    /**
+     * Marks the end of the line loop.
+     */
+    void endLines() {
+        linesNanos += System.nanoTime() - linesStartNanos;
+    }
+
+
+    /**
+     * Counts a line and tells whether it is one of the lines timed phase by phase.
+     *
+     * @return True if the next line is to be sampled, false otherwise.
+     */
+    boolean sampleNextLine() {
+        return (lineSequence++ & (SAMPLE_INTERVAL - 1)) == 0;
+    }
+
+
+    /**
+     * @return The time spent reading the input so far, in nanoseconds.
+     */
+    long readNanos() {
+        return readNanos;
+    }
+
+
+    /**
+     * Adds the phases of a sampled line.
+     *
+     * @param decodeNanos    The time taken to find and decode the line, without reading.
+     * @param tokenizeNanos  The time taken to split the line into words.
+     * @param aggregateNanos The time taken to feed the line and its words to the metrics.
+     */
+    void sample(long decodeNanos, long tokenizeNanos, long aggregateNanos) {
+        sampledDecodeNanos += Math.max(0, decodeNanos);
+        sampledTokenizeNanos += Math.max(0, tokenizeNanos);
+        sampledAggregateNanos += Math.max(0, aggregateNanos);
+    }
+
+
+    /**
+     * Records the amount of work of the operation.
+     */
+    void count(long bytes, long lines, long words) {
+        byteCount += bytes;
+        lineCount += lines;
+        wordCount += words;
+    }
+
+
+    /**
+     * Ends the operation: takes its duration and allocation, and divides the time of the line loop between the phases.
+     *
+     * @param endAllocatedBytes The bytes the thread has allocated by now, or -1 if unknown.
+     */
+    void finish(long endAllocatedBytes) {
+        durationNanos = System.nanoTime() - startNanos;
+        if (startAllocatedBytes >= 0 && endAllocatedBytes >= 0) {
+            allocatedBytes = endAllocatedBytes - startAllocatedBytes;
+        }
+        if (linesNanos == 0) {
+            return;
+        }
+        phaseNanos.put(Phase.READ, Math.min(readNanos, linesNanos));
+        long rest = Math.max(0, linesNanos - readNanos);
+        long sampled = sampledDecodeNanos + sampledTokenizeNanos + sampledAggregateNanos;
+        if (sampled == 0) {
+            phaseNanos.put(Phase.DECODE, rest);
+            return;
+        }
+        long tokenize = Math.round((double) rest * sampledTokenizeNanos / sampled);
+        long aggregate = Math.round((double) rest * sampledAggregateNanos / sampled);
+        phaseNanos.put(Phase.DECODE, Math.max(0, rest - tokenize - aggregate));
+        phaseNanos.put(Phase.TOKENIZE, tokenize);
+        phaseNanos.put(Phase.AGGREGATE, aggregate);
+    }
+
+}
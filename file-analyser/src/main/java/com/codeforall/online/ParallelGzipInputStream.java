@@ -0,0 +1,345 @@
+package com.codeforall.online;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+
+/**
+ * Decompresses a gzip stream ahead of its reader, on other threads, so that decompressing the input and analysing it
+ * overlap instead of taking turns.
+ * <p>
+ * A reader thread splits the compressed stream into its members. As long as every member carries its compressed size,
+ * as the blocks of BGZF files do (the blocked gzip of bgzip and the genomics tools), the members are decompressed in parallel
+ * on a pool and handed out in order. From the first member without a size on, the members can only be found by decompressing
+ * them, so the reader thread decompresses the rest of the stream itself, like {@link GZIPInputStream} would. Either way at
+ * most a fixed number of decompressed blocks wait to be read, so a slow reader holds the decompression back rather than
+ * filling the memory.
+ * <p>
+ * Like {@code gzip -d}, which ignores trailing zeros, anything after the last member that does not start like a gzip member,
+ * such as the zero padding of a tape or a block device, ends the stream.
+ */
+public class ParallelGzipInputStream extends InputStream {
+
+    private static final int BLOCK_SIZE = 64 * 1024;
+    private static final int HEADER_SIZE = 10;
+    private static final int MAX_HEADER_SIZE = HEADER_SIZE + 2 + 0xFFFF;
+    private static final int TRAILER_SIZE = 8;
+    private static final int FLAG_HEADER_CRC = 0x02;
+    private static final int FLAG_EXTRA = 0x04;
+    private static final int FLAG_NAME = 0x08;
+    private static final int FLAG_COMMENT = 0x10;
+    private static final Future<byte[]> END = CompletableFuture.completedFuture(new byte[0]);
+
+    private final InputStream in;
+    private final ExecutorService pool;
+    private final BlockingQueue<Future<byte[]>> blocks;
+    private final Thread reader;
+
+    private byte[] block = new byte[0];
+    private int position;
+    private boolean ended;
+    private volatile boolean closed;
+
+
+    /**
+     * Starts decompressing a gzip stream.
+     *
+     * @param in          The compressed stream, which is closed with this stream.
+     * @param pool        The pool the members of known size are decompressed on.
+     * @param blocksAhead The maximum number of blocks decompressed, or being decompressed, before they are read.
+     * @throws IllegalArgumentException If the number of blocks ahead is not positive.
+     */
+    public ParallelGzipInputStream(InputStream in, ExecutorService pool, int blocksAhead) {
+        if (blocksAhead <= 0) {
+            throw new IllegalArgumentException("Number of blocks ahead must be positive: " + blocksAhead);
+        }
+        this.in = in;
+        this.pool = pool;
+        this.blocks = new ArrayBlockingQueue<>(blocksAhead);
+        this.reader = new Thread(this::readBlocks, "gunzip-" + Integer.toHexString(System.identityHashCode(this)));
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return block[position++] & 0xFF;
+    }
+
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int read = Math.min(len, block.length - position);
+        System.arraycopy(block, position, b, off, read);
+        position += read;
+        return read;
+    }
+
+
+    @Override
+    public int available() throws IOException {
+        return closed ? 0 : block.length - position;
+    }
+
+
+    /**
+     * Stops the decompression and closes the compressed stream.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        reader.interrupt();
+        try {
+            reader.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Future<byte[]> waiting; (waiting = blocks.poll()) != null; ) {
+            waiting.cancel(false);
+        }
+        in.close();
+    }
+
+
+    /**
+     * Makes sure there are bytes left in the current block, waiting for the next block if there are none.
+     *
+     * @return True if there are bytes to read, false at the end of the stream.
+     */
+    private boolean fill() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (position == block.length) {
+            if (ended) {
+                return false;
+            }
+            try {
+                Future<byte[]> next = blocks.take();
+                if (next == END) {
+                    ended = true;
+                    return false;
+                }
+                block = next.get();
+                position = 0;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for a decompressed block");
+            } catch (ExecutionException e) {
+                ended = true;
+                // a pool may wrap the exception of a task, even more than once
+                for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    }
+                }
+                throw new IOException(e.getCause());
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Runs on the reader thread: hands the members of known size to the pool and decompresses the rest itself,
+     * then marks the end of the stream, or hands on the error that stopped it.
+     */
+    private void readBlocks() {
+        try {
+            BufferedInputStream compressed = new BufferedInputStream(in, BLOCK_SIZE);
+            boolean afterMember = false;
+            while (true) {
+                compressed.mark(MAX_HEADER_SIZE);
+                int size = nextBlockSize(compressed, afterMember);
+                compressed.reset();
+                if (size < 0) {
+                    break;
+                }
+                if (size == 0) {
+                    inflateRest(compressed);
+                    break;
+                }
+                byte[] member = compressed.readNBytes(size);
+                if (member.length < size) {
+                    throw new EOFException("Unexpected end of a gzip member");
+                }
+                blocks.put(pool.submit(() -> inflate(member)));
+                afterMember = true;
+            }
+            blocks.put(END);
+        } catch (InterruptedException e) {
+            // closed
+        } catch (IOException | RuntimeException e) {
+            if (!closed) {
+                try {
+                    blocks.put(CompletableFuture.failedFuture(e));
+                } catch (InterruptedException closing) {
+                    // closed
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Decompresses the remaining members one after the other, in blocks.
+     */
+    private void inflateRest(InputStream compressed) throws IOException, InterruptedException {
+        @SuppressWarnings("resource") // closing it would close the compressed stream, which close() does
+        GZIPInputStream members = new GZIPInputStream(compressed, BLOCK_SIZE);
+        while (true) {
+            byte[] decompressed = members.readNBytes(BLOCK_SIZE);
+            if (decompressed.length == 0) {
+                return;
+            }
+            blocks.put(CompletableFuture.completedFuture(decompressed));
+            if (decompressed.length < BLOCK_SIZE) {
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * Reads the header of the next member and finds its compressed size in the BGZF extra field.
+     *
+     * @param afterMember True if a member was read before, so that bytes without the gzip magic are trailing garbage.
+     * @return The size of the member including its header and trailer, 0 if the member does not carry its size,
+     * or -1 at the end of the stream.
+     */
+    private static int nextBlockSize(InputStream compressed, boolean afterMember) throws IOException {
+        byte[] header = compressed.readNBytes(HEADER_SIZE + 2);
+        if (header.length == 0) {
+            return -1;
+        }
+        boolean magic = header.length >= 2 && (header[0] & 0xFF) == 0x1F && (header[1] & 0xFF) == 0x8B;
+        if (!magic && afterMember) {
+            return -1;
+        }
+        if (!magic || header.length < HEADER_SIZE + 2 || header[2] != 8 || (header[3] & FLAG_EXTRA) == 0) {
+            return 0;
+        }
+        byte[] extra = compressed.readNBytes(unsignedShort(header, HEADER_SIZE));
+        // subfields: two identifier bytes, a two byte length and the data; BGZF stores the member size minus one under "BC"
+        for (int i = 0; i + 4 <= extra.length; ) {
+            int length = unsignedShort(extra, i + 2);
+            if (extra[i] == 'B' && extra[i + 1] == 'C' && length == 2 && i + 6 <= extra.length) {
+                return unsignedShort(extra, i + 4) + 1;
+            }
+            i += 4 + length;
+        }
+        return 0;
+    }
+
+
+    /**
+     * Decompresses a whole member and checks it against its trailer.
+     */
+    private static byte[] inflate(byte[] member) throws IOException {
+        int start = dataOffset(member);
+        int end = member.length - TRAILER_SIZE;
+        if (start > end) {
+            throw new ZipException("Corrupt gzip member header");
+        }
+        long size = unsignedInt(member, end + 4);
+        if (size > BLOCK_SIZE) {
+            throw new ZipException("BGZF block too large: " + size + " bytes");
+        }
+        byte[] decompressed = new byte[(int) size];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(member, start, end - start);
+            int length = 0;
+            while (length < decompressed.length && !inflater.finished()) {
+                int inflated = inflater.inflate(decompressed, length, decompressed.length - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != decompressed.length || !inflater.finished() && inflater.inflate(new byte[1]) != 0) {
+                throw new ZipException("Corrupt gzip member: size does not match its trailer");
+            }
+        } catch (DataFormatException e) {
+            throw new ZipException(e.getMessage());
+        } finally {
+            inflater.end();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(decompressed);
+        if (crc.getValue() != unsignedInt(member, end)) {
+            throw new ZipException("Corrupt gzip member: CRC does not match its trailer");
+        }
+        return decompressed;
+    }
+
+
+    /**
+     * @return The offset of the compressed data of a member, after its header and its optional fields.
+     */
+    private static int dataOffset(byte[] member) {
+        int flags = member[3];
+        int offset = HEADER_SIZE;
+        if ((flags & FLAG_EXTRA) != 0) {
+            offset += 2 + unsignedShort(member, offset);
+        }
+        if ((flags & FLAG_NAME) != 0) {
+            offset = skipZeroTerminated(member, offset);
+        }
+        if ((flags & FLAG_COMMENT) != 0) {
+            offset = skipZeroTerminated(member, offset);
+        }
+        if ((flags & FLAG_HEADER_CRC) != 0) {
+            offset += 2;
+        }
+        return offset;
+    }
+
+
+    private static int skipZeroTerminated(byte[] bytes, int offset) {
+        while (offset < bytes.length && bytes[offset] != 0) {
+            offset++;
+        }
+        return offset + 1;
+    }
+
+
+    private static int unsignedShort(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) | (bytes[offset + 1] & 0xFF) << 8;
+    }
+
+
+    private static long unsignedInt(byte[] bytes, int offset) {
+        return unsignedShort(bytes, offset) | (long) unsignedShort(bytes, offset + 2) << 16;
+    }
+
+}
@@ -0,0 +1,590 @@
+package com.codeforall.online;
+
+import java.io.Closeable;
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+
+/**
+ * Writes analysis reports in a format meant for programs rather than people, one value at a time, through a buffer of
+ * fixed size, so that writing a report with millions of distinct words takes no more memory than writing a small one.
+ * <p>
+ * Every metric of a report becomes one record per value: a count or an average is one record, a list of lines or words
+ * one record per element, and a word frequency one record per word. The word frequencies are written in the order the
+ * words were first seen, which costs nothing, or most frequent first, see {@link #sortFrequencies(boolean)}.
+ * <ul>
+ *     <li>{@link Format#JSON_LINES}: one JSON object per line, {@code {"file":"a.txt","metric":"LINE_COUNT","value":15}},
+ *     and {@code {"file":"a.txt","metric":"WORD_FREQUENCY","word":"the","count":4}} for the entries of word frequencies.
+ *     An empty optional value is written as null, and so is an average that is not a number.</li>
+ *     <li>{@link Format#CSV}: a header line {@code file,metric,key,value}, then one line per record, the key being the word
+ *     of a word frequency entry and empty otherwise. Fields are quoted as RFC 4180 asks.</li>
+ *     <li>{@link Format#BINARY}: the int {@value #BINARY_MAGIC} and the int {@value #BINARY_VERSION}, big-endian, then for
+ *     every report a file record (kind 0) with its filename, its value records, and an end record (kind 0xFF). A record
+ *     starts with its kind byte; value records continue with the ordinal of their {@link Metric} as a byte and then a varlong
+ *     (kind 1), a big-endian double (2), a string (3), nothing for an empty optional value (4), or the string and varlong
+ *     of a word frequency entry (5). Varlongs are unsigned, seven bits per byte, lowest first; strings are their UTF-8
+ *     length as a varlong followed by their UTF-8 bytes.</li>
+ * </ul>
+ * A writer is not thread-safe.
+ */
+public class ReportWriter implements Closeable, Flushable {
+
+    /** The first int of the binary format. */
+    public static final int BINARY_MAGIC = 0x46415250;
+
+    /** The version of the binary format. */
+    public static final int BINARY_VERSION = 1;
+
+    private static final int KIND_FILE = 0;
+    private static final int KIND_LONG = 1;
+    private static final int KIND_DOUBLE = 2;
+    private static final int KIND_STRING = 3;
+    private static final int KIND_NONE = 4;
+    private static final int KIND_ENTRY = 5;
+    private static final int KIND_END = 0xFF;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * The formats a report can be written in.
+     */
+    public enum Format {
+        JSON_LINES("jsonl"),
+        CSV("csv"),
+        BINARY("binary");
+
+        private final String optionName;
+
+        Format(String optionName) {
+            this.optionName = optionName;
+        }
+
+        /**
+         * @return The name of the format on the command line.
+         */
+        public String getOptionName() {
+            return optionName;
+        }
+
+        /**
+         * Finds a format by its name on the command line.
+         *
+         * @param optionName The name, such as "jsonl".
+         * @return The format.
+         * @throws IllegalArgumentException If no format has this name.
+         */
+        public static Format forOptionName(String optionName) {
+            for (Format format : values()) {
+                if (format.optionName.equals(optionName)) {
+                    return format;
+                }
+            }
+            throw new IllegalArgumentException("Unknown report format: " + optionName);
+        }
+    }
+
+    private final WritableByteChannel channel;
+    private final Format format;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private boolean sortFrequencies;
+    private boolean started;
+    private boolean closed;
+
+    private String filename;
+    private Metric metric;
+
+
+    /**
+     * Creates a writer that writes to a channel.
+     *
+     * @param channel The channel, which is closed with the writer.
+     * @param format  The format to write in.
+     */
+    public ReportWriter(WritableByteChannel channel, Format format) {
+        this.channel = channel;
+        this.format = format;
+    }
+
+
+    /**
+     * Creates a writer that writes to a stream.
+     *
+     * @param out    The stream, which is closed with the writer.
+     * @param format The format to write in.
+     */
+    public ReportWriter(OutputStream out, Format format) {
+        this(Channels.newChannel(out), format);
+    }
+
+
+    /**
+     * Sets whether word frequencies are written most frequent first, words with the same count in the order they were
+     * first seen, instead of all in the order they were first seen. Sorting takes time and memory in proportion to
+     * the number of distinct words.
+     *
+     * @param sortFrequencies True to sort word frequencies, false to write them as they are.
+     * @return This writer.
+     */
+    public ReportWriter sortFrequencies(boolean sortFrequencies) {
+        this.sortFrequencies = sortFrequencies;
+        return this;
+    }
+
+
+    /**
+     * Writes every metric of a report, in the order of {@link Metric}.
+     *
+     * @param report The report.
+     * @throws IOException           If an I/O error occurs.
+     * @throws IllegalStateException If the writer is closed.
+     */
+    public void write(AnalysisReport report) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Report writer is closed");
+        }
+        start();
+        filename = report.getFilename();
+        if (format == Format.BINARY) {
+            ensure(1);
+            buffer.put((byte) KIND_FILE);
+            putBinaryString(filename);
+        }
+        for (Metric metric : Metric.values()) {
+            if (report.getMetrics().contains(metric)) {
+                this.metric = metric;
+                writeMetric(report, metric);
+            }
+        }
+        if (format == Format.BINARY) {
+            ensure(1);
+            buffer.put((byte) KIND_END);
+        }
+    }
+
+
+    /**
+     * Writes what is buffered to the channel.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+
+    /**
+     * Writes what is buffered and closes the channel. A binary output that no report was written to still gets its header.
+     *
+     * @throws IOException If an I/O error occurs.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        try {
+            if (format == Format.BINARY) {
+                start();
+            }
+            flush();
+        } finally {
+            closed = true;
+            channel.close();
+        }
+    }
+
+
+    private void start() throws IOException {
+        if (started) {
+            return;
+        }
+        started = true;
+        if (format == Format.CSV) {
+            putAscii("file,metric,key,value\n");
+        } else if (format == Format.BINARY) {
+            ensure(8);
+            buffer.putInt(BINARY_MAGIC).putInt(BINARY_VERSION);
+        }
+    }
+
+
+    private void writeMetric(AnalysisReport report, Metric metric) throws IOException {
+        switch (metric) {
+            case LINE_COUNT:
+                writeLong(report.getLineCount());
+                break;
+            case WORD_COUNT:
+                writeLong(report.getWordCount());
+                break;
+            case NON_EMPTY_LINE_COUNT:
+                writeLong(report.getNonEmptyLineCount());
+                break;
+            case UNIQUE_WORD_COUNT:
+                writeLong(report.getUniqueWordCount());
+                break;
+            case WORD_OCCURRENCES:
+                writeLong(report.getWordOccurrences());
+                break;
+            case LINES_CONTAINING_WORD:
+                writeStrings(report.getLinesContainingWord());
+                break;
+            case AVERAGE_LINE_LENGTH:
+                writeDouble(report.getAverageLineLength());
+                break;
+            case AVERAGE_WORD_LENGTH:
+                writeDouble(report.getAverageWordLength());
+                break;
+            case SHORTEST_LINE:
+                writeOptional(report.getShortestLine());
+                break;
+            case LONGEST_LINE:
+                writeOptional(report.getLongestLine());
+                break;
+            case TOP_N_LONGEST_WORDS:
+                writeStrings(report.getTopNLongestWords());
+                break;
+            case TOP_N_FREQUENT_WORDS:
+                for (Map.Entry<String, Long> word : report.getTopNFrequentWords()) {
+                    writeEntry(word.getKey(), word.getValue());
+                }
+                break;
+            case TOP_N_LONGEST_LINES:
+                writeStrings(report.getTopNLongestLines());
+                break;
+            case FIRST_WORD_LONGER_THAN_N:
+                writeOptional(report.getFirstWordLongerThanN());
+                break;
+            case WORD_FREQUENCY:
+                WordFrequencyTable table = report.getWordFrequencyTable();
+                if (sortFrequencies) {
+                    for (int id : table.idsByCount()) {
+                        writeEntry(table.word(id), table.count(id));
+                    }
+                } else {
+                    for (int id = 0; id < table.size(); id++) {
+                        writeEntry(table.word(id), table.count(id));
+                    }
+                }
+                break;
+            case LINES_CONTAINING_NUMBERS:
+                writeStrings(report.getLinesContainingNumbers());
+                break;
+            case LINES_MATCHING_REGEX:
+                writeStrings(report.getLinesMatchingRegex());
+                break;
+            case PALINDROMIC_WORDS:
+                writeStrings(report.getPalindromicWords());
+                break;
+            default:
+                throw new IllegalStateException("Unknown metric: " + metric);
+        }
+    }
+
+
+    private void writeLong(long value) throws IOException {
+        switch (format) {
+            case JSON_LINES:
+                startJsonRecord();
+                putAscii(",\"value\":");
+                putDecimal(value);
+                putAscii("}\n");
+                break;
+            case CSV:
+                startCsvRecord();
+                putAscii(",");
+                putDecimal(value);
+                putAscii("\n");
+                break;
+            default:
+                startBinaryRecord(KIND_LONG);
+                putVarLong(value);
+        }
+    }
+
+
+    private void writeDouble(double value) throws IOException {
+        switch (format) {
+            case JSON_LINES:
+                startJsonRecord();
+                putAscii(",\"value\":");
+                putAscii(Double.isFinite(value) ? Double.toString(value) : "null");
+                putAscii("}\n");
+                break;
+            case CSV:
+                startCsvRecord();
+                putAscii(",");
+                putAscii(Double.toString(value));
+                putAscii("\n");
+                break;
+            default:
+                startBinaryRecord(KIND_DOUBLE);
+                ensure(8);
+                buffer.putDouble(value);
+        }
+    }
+
+
+    private void writeOptional(Optional<String> value) throws IOException {
+        if (value.isPresent()) {
+            writeString(value.get());
+            return;
+        }
+        switch (format) {
+            case JSON_LINES:
+                startJsonRecord();
+                putAscii(",\"value\":null}\n");
+                break;
+            case CSV:
+                startCsvRecord();
+                putAscii(",\n");
+                break;
+            default:
+                startBinaryRecord(KIND_NONE);
+        }
+    }
+
+
+    private void writeStrings(List<String> values) throws IOException {
+        for (String value : values) {
+            writeString(value);
+        }
+    }
+
+
+    private void writeString(String value) throws IOException {
+        switch (format) {
+            case JSON_LINES:
+                startJsonRecord();
+                putAscii(",\"value\":");
+                putJsonString(value);
+                putAscii("}\n");
+                break;
+            case CSV:
+                startCsvRecord();
+                putAscii(",");
+                putCsvField(value);
+                putAscii("\n");
+                break;
+            default:
+                startBinaryRecord(KIND_STRING);
+                putBinaryString(value);
+        }
+    }
+
+
+    private void writeEntry(String word, long count) throws IOException {
+        switch (format) {
+            case JSON_LINES:
+                startJsonRecord();
+                putAscii(",\"word\":");
+                putJsonString(word);
+                putAscii(",\"count\":");
+                putDecimal(count);
+                putAscii("}\n");
+                break;
+            case CSV:
+                startCsvRecord();
+                putCsvField(word);
+                putAscii(",");
+                putDecimal(count);
+                putAscii("\n");
+                break;
+            default:
+                startBinaryRecord(KIND_ENTRY);
+                putBinaryString(word);
+                putVarLong(count);
+        }
+    }
+
+
+    private void startJsonRecord() throws IOException {
+        putAscii("{\"file\":");
+        putJsonString(filename);
+        putAscii(",\"metric\":\"");
+        putAscii(metric.name());
+        putAscii("\"");
+    }
+
+
+    /**
+     * Writes the file and metric fields of a CSV record, up to its key.
+     */
+    private void startCsvRecord() throws IOException {
+        putCsvField(filename);
+        putAscii(",");
+        putAscii(metric.name());
+        putAscii(",");
+    }
+
+
+    private void startBinaryRecord(int kind) throws IOException {
+        ensure(2);
+        buffer.put((byte) kind).put((byte) metric.ordinal());
+    }
+
+
+    private void putJsonString(String value) throws IOException {
+        putAscii("\"");
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                ensure(2);
+                buffer.put((byte) '\\').put((byte) c);
+            } else if (c < 0x20) {
+                ensure(6);
+                buffer.put((byte) '\\').put((byte) 'u').put((byte) '0').put((byte) '0')
+                        .put((byte) HEX_DIGITS[c >> 4]).put((byte) HEX_DIGITS[c & 0xF]);
+            } else {
+                i = putUtf8(value, i);
+            }
+        }
+        putAscii("\"");
+    }
+
+
+    private void putCsvField(String value) throws IOException {
+        boolean quoted = false;
+        for (int i = 0, length = value.length(); i < length && !quoted; i++) {
+            char c = value.charAt(i);
+            quoted = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quoted) {
+            putUtf8(value);
+            return;
+        }
+        putAscii("\"");
+        for (int i = 0, length = value.length(); i < length; i++) {
+            if (value.charAt(i) == '"') {
+                ensure(2);
+                buffer.put((byte) '"').put((byte) '"');
+            } else {
+                i = putUtf8(value, i);
+            }
+        }
+        putAscii("\"");
+    }
+
+
+    private void putBinaryString(String value) throws IOException {
+        putVarLong(utf8Length(value));
+        putUtf8(value);
+    }
+
+
+    private void putUtf8(String value) throws IOException {
+        for (int i = 0, length = value.length(); i < length; i++) {
+            i = putUtf8(value, i);
+        }
+    }
+
+
+    /**
+     * Writes the character at the given index in UTF-8, together with the one after it if they form a surrogate pair.
+     * A lone surrogate is written as '?', like {@link String#getBytes(java.nio.charset.Charset)} does.
+     *
+     * @return The index of the last character written.
+     */
+    private int putUtf8(String value, int index) throws IOException {
+        ensure(4);
+        char c = value.charAt(index);
+        if (c < 0x80) {
+            buffer.put((byte) c);
+        } else if (c < 0x800) {
+            buffer.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+        } else if (!Character.isSurrogate(c)) {
+            buffer.put((byte) (0xE0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3F)).put((byte) (0x80 | c & 0x3F));
+        } else if (Character.isHighSurrogate(c) && index + 1 < value.length() && Character.isLowSurrogate(value.charAt(index + 1))) {
+            int codePoint = Character.toCodePoint(c, value.charAt(++index));
+            buffer.put((byte) (0xF0 | codePoint >> 18)).put((byte) (0x80 | codePoint >> 12 & 0x3F))
+                    .put((byte) (0x80 | codePoint >> 6 & 0x3F)).put((byte) (0x80 | codePoint & 0x3F));
+        } else {
+            buffer.put((byte) '?');
+        }
+        return index;
+    }
+
+
+    /**
+     * @return The number of bytes {@link #putUtf8(String)} writes for the value.
+     */
+    private static long utf8Length(String value) {
+        long length = 0;
+        for (int i = 0, chars = value.length(); i < chars; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (!Character.isSurrogate(c)) {
+                length += 3;
+            } else if (Character.isHighSurrogate(c) && i + 1 < chars && Character.isLowSurrogate(value.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length++;
+            }
+        }
+        return length;
+    }
+
+
+    private void putAscii(String text) throws IOException {
+        for (int i = 0, length = text.length(); i < length; i++) {
+            ensure(1);
+            buffer.put((byte) text.charAt(i));
+        }
+    }
+
+
+    private void putDecimal(long value) throws IOException {
+        if (value < 0) {
+            putAscii(Long.toString(value));
+            return;
+        }
+        ensure(19);
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        int end = buffer.position() + digits;
+        for (int i = end - 1; i >= buffer.position(); i--) {
+            buffer.put(i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(end);
+    }
+
+
+    private void putVarLong(long value) throws IOException {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+
+    /**
+     * Makes room for the given number of bytes, writing out the buffer if it has less room left.
+     */
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+
+}
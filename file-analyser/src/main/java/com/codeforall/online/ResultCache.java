@@ -0,0 +1,683 @@
+package com.codeforall.online;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * A bounded cache of the reports of {@link AnalysisEngine#analyse(String, AnalysisRequest)}, so that asking the same
+ * question about the same file again does not read the file again.
+ * <p>
+ * A report is cached under the absolute path of the file and the request, which holds the metrics and their parameters,
+ * and it is only handed out while the file still has the size, modification time and file key it had when it was analysed.
+ * A file that changes therefore invalidates its reports on their next lookup. Since a file can change twice within the
+ * resolution of its modification time, the report of a file modified less than {@value #RACY_MILLIS} ms before it was analysed
+ * is not cached at all, nor is the report of a file that changed while it was analysed.
+ * <p>
+ * The cache holds reports up to a maximum weight, their estimated size in bytes, and evicts them with W-TinyLFU:
+ * new reports enter a small LRU window, and a report leaving the window only displaces the least recently used reports
+ * of the main space if it was asked for more often than each of them, according to a frequency sketch of recent lookups.
+ * Reports used once, as in a scan over many files, then pass through the window without flushing the reports that are
+ * asked for again and again.
+ * <p>
+ * Optionally, every cached report is also written to a directory, where it outlives the process and memory evictions,
+ * see {@link #persistTo(Path)}. The directory only saves work: a report that cannot be written there, or a damaged one
+ * read from there, is counted and otherwise ignored, and the analysis goes on. The counts of {@link #stats()} help sizing the cache.
+ */
+public class ResultCache {
+
+    /** Default maximum weight of the reports held in memory, in bytes. */
+    public static final long DEFAULT_MAX_WEIGHT = 64L * 1024 * 1024;
+
+    private static final long RACY_MILLIS = 2000;
+    private static final int WINDOW_PERCENT = 1;
+    private static final int FILE_MAGIC = 0x46414352;
+    private static final int FILE_VERSION = 2;
+    private static final String FILE_SUFFIX = ".report";
+
+    private final long windowMaxWeight;
+    private final long mainMaxWeight;
+    private final LinkedHashMap<Key, Entry> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<Key, Entry> main = new LinkedHashMap<>(16, 0.75f, true);
+    private final FrequencySketch frequencies;
+    private long windowWeight;
+    private long mainWeight;
+    private volatile Path directory;
+
+    private long hitCount;
+    private long diskHitCount;
+    private long missCount;
+    private long evictionCount;
+    private long invalidationCount;
+    private long writeFailureCount;
+
+
+    /**
+     * The counts of a cache since it was created.
+     */
+    public static class Stats {
+
+        private final long hitCount;
+        private final long diskHitCount;
+        private final long missCount;
+        private final long evictionCount;
+        private final long invalidationCount;
+        private final long writeFailureCount;
+        private final int entryCount;
+        private final long weight;
+
+
+        Stats(long hitCount, long diskHitCount, long missCount, long evictionCount, long invalidationCount, long writeFailureCount,
+              int entryCount, long weight) {
+            this.hitCount = hitCount;
+            this.diskHitCount = diskHitCount;
+            this.missCount = missCount;
+            this.evictionCount = evictionCount;
+            this.invalidationCount = invalidationCount;
+            this.writeFailureCount = writeFailureCount;
+            this.entryCount = entryCount;
+            this.weight = weight;
+        }
+
+
+        /**
+         * @return The number of lookups answered from memory.
+         */
+        public long getHitCount() {
+            return hitCount;
+        }
+
+
+        /**
+         * @return The number of lookups answered from the persistent directory.
+         */
+        public long getDiskHitCount() {
+            return diskHitCount;
+        }
+
+
+        /**
+         * @return The number of lookups that had to analyse the file.
+         */
+        public long getMissCount() {
+            return missCount;
+        }
+
+
+        /**
+         * @return The number of reports evicted from memory, or not admitted to it, to stay within the maximum weight.
+         */
+        public long getEvictionCount() {
+            return evictionCount;
+        }
+
+
+        /**
+         * @return The number of reports dropped because their file had changed.
+         */
+        public long getInvalidationCount() {
+            return invalidationCount;
+        }
+
+
+        /**
+         * @return The number of reports that could not be written to the persistent directory.
+         */
+        public long getWriteFailureCount() {
+            return writeFailureCount;
+        }
+
+
+        /**
+         * @return The number of reports held in memory.
+         */
+        public int getEntryCount() {
+            return entryCount;
+        }
+
+
+        /**
+         * @return The estimated size of the reports held in memory, in bytes.
+         */
+        public long getWeight() {
+            return weight;
+        }
+
+
+        /**
+         * @return The fraction of lookups answered from memory or from the persistent directory.
+         */
+        public double getHitRate() {
+            long lookups = hitCount + diskHitCount + missCount;
+            return lookups == 0 ? 0.0 : (double) (hitCount + diskHitCount) / lookups;
+        }
+
+
+        @Override
+        public String toString() {
+            return "hits=" + hitCount + ", diskHits=" + diskHitCount + ", misses=" + missCount + ", evictions=" + evictionCount
+                    + ", invalidations=" + invalidationCount + ", writeFailures=" + writeFailureCount + ", entries=" + entryCount
+                    + ", weight=" + weight;
+        }
+    }
+
+
+    /**
+     * Creates a cache holding reports of up to {@link #DEFAULT_MAX_WEIGHT} bytes in memory.
+     */
+    public ResultCache() {
+        this(DEFAULT_MAX_WEIGHT);
+    }
+
+
+    /**
+     * Creates a cache holding reports of up to the given estimated size in memory.
+     *
+     * @param maxWeight The maximum estimated size of the reports held in memory, in bytes.
+     * @throws IllegalArgumentException If the maximum weight is not positive.
+     */
+    public ResultCache(long maxWeight) {
+        if (maxWeight <= 0) {
+            throw new IllegalArgumentException("Maximum weight must be positive: " + maxWeight);
+        }
+        this.windowMaxWeight = Math.max(1, maxWeight * WINDOW_PERCENT / 100);
+        this.mainMaxWeight = Math.max(1, maxWeight - windowMaxWeight);
+        this.frequencies = new FrequencySketch((int) Math.min(1 << 20, Math.max(256, maxWeight / 4096)));
+    }
+
+
+    /**
+     * Also keeps every cached report in a directory, so that it is found again after it was evicted from memory or by
+     * another process sharing the directory. The directory is created when the first report is written.
+     *
+     * @param directory The directory to keep the reports in, or null to keep them in memory only.
+     * @return This cache.
+     */
+    public ResultCache persistTo(Path directory) {
+        this.directory = directory;
+        return this;
+    }
+
+
+    /**
+     * Returns the report of the given request over the specified file, from the cache if the file has not changed since
+     * it was cached, otherwise by analysing the file and caching the report. Every call returns a report of its own,
+     * so callers can modify its lists.
+     *
+     * @param filename The path to the file.
+     * @param request  The metrics to compute.
+     * @return A report holding the requested metrics.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If a requested metric is missing its parameter.
+     */
+    public AnalysisReport analyse(String filename, AnalysisRequest request) throws IOException {
+        request.validate();
+        Path path = Paths.get(filename).toAbsolutePath().normalize();
+        Key key = new Key(path.toString(), requestBytes(request));
+        long started = System.currentTimeMillis();
+        Identity identity = Identity.of(path);
+
+        AnalysisReport cached = lookUp(key, identity);
+        if (cached != null) {
+            return cached.copy(filename);
+        }
+        cached = readPersisted(key, identity);
+        if (cached != null) {
+            synchronized (this) {
+                diskHitCount++;
+                store(key, new Entry(identity, cached));
+            }
+            return cached.copy(filename);
+        }
+        synchronized (this) {
+            missCount++;
+        }
+
+        AnalysisReport report = AnalysisEngine.analyse(filename, request);
+        if (started - identity.modifiedMillis >= RACY_MILLIS && identity.equals(Identity.of(path))) {
+            AnalysisReport kept = report.copy(filename);
+            synchronized (this) {
+                store(key, new Entry(identity, kept));
+            }
+            try {
+                persist(key, identity, kept);
+            } catch (IOException e) {
+                // the report is still cached in memory; the directory only misses this copy of it
+                synchronized (this) {
+                    writeFailureCount++;
+                }
+            }
+        }
+        return report;
+    }
+
+
+    /**
+     * Drops every report of the specified file from memory and from the persistent directory.
+     *
+     * @param filename The path to the file.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void invalidate(String filename) throws IOException {
+        String path = Paths.get(filename).toAbsolutePath().normalize().toString();
+        List<Key> dropped = new ArrayList<>();
+        synchronized (this) {
+            for (LinkedHashMap<Key, Entry> space : List.of(window, main)) {
+                for (Iterator<Map.Entry<Key, Entry>> entries = space.entrySet().iterator(); entries.hasNext(); ) {
+                    Map.Entry<Key, Entry> entry = entries.next();
+                    if (entry.getKey().path.equals(path)) {
+                        entries.remove();
+                        dropWeight(space, entry.getValue());
+                        dropped.add(entry.getKey());
+                        invalidationCount++;
+                    }
+                }
+            }
+        }
+        // reports evicted from memory are only found by reading the directory
+        Path directory = this.directory;
+        if (directory != null && Files.isDirectory(directory)) {
+            try (var files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Key persisted = readKey(file);
+                    if (persisted != null && persisted.path.equals(path)) {
+                        Files.deleteIfExists(file);
+                    }
+                }
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+
+    /**
+     * Drops every report from memory; reports in the persistent directory are kept.
+     */
+    public synchronized void clear() {
+        window.clear();
+        main.clear();
+        windowWeight = 0;
+        mainWeight = 0;
+    }
+
+
+    /**
+     * @return The counts of this cache since it was created.
+     */
+    public synchronized Stats stats() {
+        return new Stats(hitCount, diskHitCount, missCount, evictionCount, invalidationCount, writeFailureCount,
+                window.size() + main.size(), windowWeight + mainWeight);
+    }
+
+
+    /**
+     * Looks the report up in memory, dropping it if its file has changed since.
+     *
+     * @return The cached report, or null if there is none for the file as it is now.
+     */
+    private synchronized AnalysisReport lookUp(Key key, Identity identity) {
+        frequencies.increment(key.hash);
+        LinkedHashMap<Key, Entry> space = window.containsKey(key) ? window : main;
+        Entry entry = space.get(key);
+        if (entry != null && entry.identity.equals(identity)) {
+            hitCount++;
+            return entry.report;
+        }
+        if (entry != null) {
+            space.remove(key);
+            dropWeight(space, entry);
+            invalidationCount++;
+        }
+        return null;
+    }
+
+
+    /**
+     * Adds a report to the window, moving the least recently used reports of the window on to the main space until the
+     * window is within its weight again.
+     */
+    private void store(Key key, Entry entry) {
+        Entry previous = window.remove(key);
+        if (previous != null) {
+            windowWeight -= previous.weight;
+        }
+        previous = main.remove(key);
+        if (previous != null) {
+            mainWeight -= previous.weight;
+        }
+        if (entry.weight > mainMaxWeight) {
+            evictionCount++;
+            return;
+        }
+        window.put(key, entry);
+        windowWeight += entry.weight;
+        while (windowWeight > windowMaxWeight) {
+            Iterator<Map.Entry<Key, Entry>> oldest = window.entrySet().iterator();
+            Map.Entry<Key, Entry> candidate = oldest.next();
+            oldest.remove();
+            windowWeight -= candidate.getValue().weight;
+            admit(candidate.getKey(), candidate.getValue());
+        }
+    }
+
+
+    /**
+     * Moves a report that left the window into the main space, if it was asked for more often than every report it would
+     * have to displace; otherwise the report itself is evicted.
+     */
+    private void admit(Key key, Entry candidate) {
+        long needed = mainWeight + candidate.weight - mainMaxWeight;
+        if (needed > 0) {
+            int frequency = frequencies.frequency(key.hash);
+            List<Key> victims = new ArrayList<>();
+            long freed = 0;
+            for (Map.Entry<Key, Entry> entry : main.entrySet()) {
+                if (freed >= needed) {
+                    break;
+                }
+                if (frequencies.frequency(entry.getKey().hash) >= frequency) {
+                    evictionCount++;
+                    return;
+                }
+                victims.add(entry.getKey());
+                freed += entry.getValue().weight;
+            }
+            for (Key victim : victims) {
+                mainWeight -= main.remove(victim).weight;
+                evictionCount++;
+            }
+        }
+        main.put(key, candidate);
+        mainWeight += candidate.weight;
+    }
+
+
+    private void dropWeight(LinkedHashMap<Key, Entry> space, Entry entry) {
+        if (space == window) {
+            windowWeight -= entry.weight;
+        } else {
+            mainWeight -= entry.weight;
+        }
+    }
+
+
+    /**
+     * Writes the report to the persistent directory, next to its final place first and then moved over it,
+     * so a reader never sees half a report.
+     */
+    private void persist(Key key, Identity identity, AnalysisReport report) throws IOException {
+        Path directory = this.directory;
+        if (directory == null) {
+            return;
+        }
+        Files.createDirectories(directory);
+        Path file = persistedPath(directory, key);
+        Path temporary = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+                out.writeInt(FILE_MAGIC);
+                out.writeInt(FILE_VERSION);
+                StateCodec.writeString(out, key.path);
+                StateCodec.writeVarLong(out, key.request.length);
+                out.write(key.request);
+                out.writeLong(identity.size);
+                out.writeLong(identity.modified);
+                StateCodec.writeString(out, identity.fileKey);
+                report.writeTo(out);
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+
+    /**
+     * @return The persisted report of the key, or null if there is none for the file as it is now.
+     */
+    private AnalysisReport readPersisted(Key key, Identity identity) {
+        Path directory = this.directory;
+        if (directory == null) {
+            return null;
+        }
+        Path file = persistedPath(directory, key);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (!key.equals(readKey(in))) {
+                // another key with the same hash, which the report of this key will replace
+                return null;
+            }
+            Identity persisted = new Identity(in.readLong(), in.readLong(), StateCodec.readString(in));
+            if (persisted.equals(identity)) {
+                return AnalysisReport.readFrom(in);
+            }
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            // a damaged report only costs the analysis it would have saved
+        }
+        synchronized (this) {
+            invalidationCount++;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // the next report of the key replaces it, if the directory can be written at all
+        }
+        return null;
+    }
+
+
+    private static Key readKey(Path file) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            return readKey(in);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+
+    private static Key readKey(DataInputStream in) throws IOException {
+        if (in.readInt() != FILE_MAGIC || in.readInt() != FILE_VERSION) {
+            return null;
+        }
+        String path = StateCodec.readString(in);
+        byte[] request = StateCodec.readBytes(in, StateCodec.readVarInt(in));
+        return path == null ? null : new Key(path, request);
+    }
+
+
+    private static Path persistedPath(Path directory, Key key) {
+        return directory.resolve(String.format("%016x", key.hash) + FILE_SUFFIX);
+    }
+
+
+    private static byte[] requestBytes(AnalysisRequest request) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            request.writeTo(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+
+    /**
+     * The file and the question asked about it.
+     */
+    private static final class Key {
+
+        private final String path;
+        private final byte[] request;
+        private final long hash;
+
+
+        Key(String path, byte[] request) {
+            this.path = path;
+            this.request = request;
+            long hash = WordHash.hash(path);
+            for (byte b : request) {
+                hash = (hash ^ (b & 0xFF)) * 0x100000001B3L;
+            }
+            this.hash = WordHash.mix(hash);
+        }
+
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(hash);
+        }
+
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) other;
+            return hash == that.hash && path.equals(that.path) && Arrays.equals(request, that.request);
+        }
+    }
+
+
+    /**
+     * The version of a file a report was computed from.
+     */
+    private static final class Identity {
+
+        private final long size;
+        private final long modified;
+        private final String fileKey;
+        private final long modifiedMillis;
+
+
+        Identity(long size, long modified, String fileKey) {
+            this.size = size;
+            this.modified = modified;
+            this.fileKey = fileKey;
+            this.modifiedMillis = TimeUnit.NANOSECONDS.toMillis(modified);
+        }
+
+
+        static Identity of(Path path) throws IOException {
+            BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+            return new Identity(attributes.size(), attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS),
+                    attributes.fileKey() == null ? null : attributes.fileKey().toString());
+        }
+
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(size, modified, fileKey);
+        }
+
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Identity)) {
+                return false;
+            }
+            Identity that = (Identity) other;
+            return size == that.size && modified == that.modified && Objects.equals(fileKey, that.fileKey);
+        }
+    }
+
+
+    private static final class Entry {
+
+        private final Identity identity;
+        private final AnalysisReport report;
+        private final long weight;
+
+
+        Entry(Identity identity, AnalysisReport report) {
+            this.identity = identity;
+            this.report = report;
+            this.weight = report.estimatedSize();
+        }
+    }
+
+
+    /**
+     * Estimates how often keys were looked up recently, in four rows of small saturating counters like a Count-Min sketch.
+     * All counters are halved every ten lookups per counter of a row, so the frequencies follow a changing workload.
+     */
+    private static final class FrequencySketch {
+
+        private static final int ROWS = 4;
+        private static final int MAX_COUNT = 15;
+
+        private final byte[] counters;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+
+        FrequencySketch(int width) {
+            int rowWidth = Integer.highestOneBit(width);
+            this.counters = new byte[rowWidth * ROWS];
+            this.mask = rowWidth - 1;
+            this.sampleSize = 10 * rowWidth;
+        }
+
+
+        void increment(long hash) {
+            boolean added = false;
+            for (int row = 0; row < ROWS; row++) {
+                int index = index(hash, row);
+                if (counters[index] < MAX_COUNT) {
+                    counters[index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions == sampleSize) {
+                for (int i = 0; i < counters.length; i++) {
+                    counters[i] >>= 1;
+                }
+                additions /= 2;
+            }
+        }
+
+
+        int frequency(long hash) {
+            int frequency = MAX_COUNT;
+            for (int row = 0; row < ROWS; row++) {
+                frequency = Math.min(frequency, counters[index(hash, row)]);
+            }
+            return frequency;
+        }
+
+
+        private int index(long hash, int row) {
+            long h2 = (hash >>> 32) | 1;
+            return row * (mask + 1) + (int) ((hash + row * h2) & mask);
+        }
+    }
+
+}
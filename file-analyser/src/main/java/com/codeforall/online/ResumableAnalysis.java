@@ -0,0 +1,192 @@
+package com.codeforall.online;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+
+/**
+ * Analyses a large file in chunks, saving a checkpoint after every few chunks, so that a run that was interrupted
+ * resumes from the last completed chunk instead of starting over.
+ * <p>
+ * The file is split like {@link MappedFileScanner} splits it. A window of chunks is analysed in parallel, the engines of
+ * the chunks are merged in order into the running engine, and the running state is written to the checkpoint file together
+ * with the index of the next chunk. A checkpoint is only used if the file still has the size and modification time it had
+ * and the same metrics are requested; otherwise the analysis starts over. The checkpoint is deleted once the file is done.
+ */
+public final class ResumableAnalysis {
+
+    private static final int CHECKPOINT_MAGIC = 0x46414350;
+    private static final int CHECKPOINT_VERSION = 1;
+
+    private ResumableAnalysis() {
+    }
+
+
+    /**
+     * Analyses a file on the common pool, with checkpoints every few chunks of {@link MappedFileScanner#DEFAULT_CHUNK_SIZE} bytes.
+     *
+     * @param path       The path to the file.
+     * @param request    The metrics to compute.
+     * @param checkpoint The file the running state is saved to, and resumed from if it exists.
+     * @return A report with the requested metrics.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If a requested metric is missing its parameter or the file is compressed.
+     */
+    public static AnalysisReport analyse(Path path, AnalysisRequest request, Path checkpoint) throws IOException {
+        return analyse(path, request, checkpoint, ForkJoinPool.commonPool(), MappedFileScanner.DEFAULT_CHUNK_SIZE);
+    }
+
+
+    /**
+     * Analyses a file in chunks, with a checkpoint after every window of as many chunks as the pool has threads.
+     *
+     * @param path       The path to the file.
+     * @param request    The metrics to compute.
+     * @param checkpoint The file the running state is saved to, and resumed from if it exists.
+     * @param pool       The pool the chunks are analysed on.
+     * @param chunkSize  The approximate number of bytes per chunk.
+     * @return A report with the requested metrics.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If a requested metric is missing its parameter, the chunk size is not positive
+     *                                  or the file is compressed.
+     */
+    public static AnalysisReport analyse(Path path, AnalysisRequest request, Path checkpoint, ForkJoinPool pool, long chunkSize)
+            throws IOException {
+        request.validate();
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        CompressedInput.requireUncompressed(path, "analysed in resumable chunks");
+        BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        long size = attributes.size();
+        long modified = attributes.lastModifiedTime().toMillis();
+
+        long[] boundaries;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            boundaries = MappedFileScanner.findChunkBoundaries(channel, size, chunkSize);
+        }
+        int chunk = 0;
+        AnalysisEngine engine = null;
+        Checkpoint saved = readCheckpoint(checkpoint);
+        if (saved != null && saved.size == size && saved.modified == modified && saved.chunkSize == chunkSize
+                && saved.nextChunk < boundaries.length && request.sameAs(saved.engine.request())) {
+            chunk = saved.nextChunk;
+            engine = saved.engine;
+        }
+        if (engine == null) {
+            engine = new AnalysisEngine(path.toString(), request);
+        }
+
+        int window = Math.max(1, pool.getParallelism());
+        while (chunk < boundaries.length - 1 && !engine.isComplete()) {
+            int windowEnd = Math.min(boundaries.length - 1, chunk + window);
+            List<Future<AnalysisEngine>> chunks = new ArrayList<>();
+            for (int i = chunk; i < windowEnd; i++) {
+                long start = boundaries[i];
+                long end = boundaries[i + 1];
+                chunks.add(pool.submit(() -> {
+                    try {
+                        return AnalysisEngine.analyseRange(path, start, end, request);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+            for (Future<AnalysisEngine> analysed : chunks) {
+                engine.merge(join(analysed));
+            }
+            chunk = windowEnd;
+            writeCheckpoint(checkpoint, new Checkpoint(size, modified, chunkSize, chunk, engine));
+        }
+        Files.deleteIfExists(checkpoint);
+        return engine.report();
+    }
+
+
+    private static AnalysisEngine join(Future<AnalysisEngine> analysed) throws IOException {
+        try {
+            return analysed.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while analysing a chunk", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+
+    /**
+     * Writes the checkpoint next to its final place first and then moves it over the previous one,
+     * so a crash while writing leaves the previous checkpoint intact.
+     */
+    private static void writeCheckpoint(Path checkpoint, Checkpoint state) throws IOException {
+        Path temporary = checkpoint.resolveSibling(checkpoint.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(CHECKPOINT_MAGIC);
+            out.writeInt(CHECKPOINT_VERSION);
+            out.writeLong(state.size);
+            out.writeLong(state.modified);
+            out.writeLong(state.chunkSize);
+            out.writeInt(state.nextChunk);
+            state.engine.writeTo(out);
+        }
+        Files.move(temporary, checkpoint, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+
+    /**
+     * @return The saved checkpoint, or null if there is none or it is not a checkpoint this version can read.
+     */
+    private static Checkpoint readCheckpoint(Path checkpoint) {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(checkpoint)))) {
+            if (in.readInt() != CHECKPOINT_MAGIC || in.readInt() != CHECKPOINT_VERSION) {
+                return null;
+            }
+            long size = in.readLong();
+            long modified = in.readLong();
+            long chunkSize = in.readLong();
+            int nextChunk = in.readInt();
+            return new Checkpoint(size, modified, chunkSize, nextChunk, AnalysisEngine.readFrom(in));
+        } catch (IOException e) {
+            // a missing or damaged checkpoint only costs the work it would have saved
+            return null;
+        }
+    }
+
+
+    private static class Checkpoint {
+
+        private final long size;
+        private final long modified;
+        private final long chunkSize;
+        private final int nextChunk;
+        private final AnalysisEngine engine;
+
+        Checkpoint(long size, long modified, long chunkSize, int nextChunk, AnalysisEngine engine) {
+            this.size = size;
+            this.modified = modified;
+            this.chunkSize = chunkSize;
+            this.nextChunk = nextChunk;
+            this.engine = engine;
+        }
+    }
+
+}
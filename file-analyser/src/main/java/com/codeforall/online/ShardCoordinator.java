@@ -0,0 +1,149 @@
+package com.codeforall.online;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+
+/**
+ * Analyses a file with several worker processes on this machine, as a small model of a distributed run.
+ * <p>
+ * The file is split into as many shards as there are workers, each ending right after a line terminator.
+ * Every shard is analysed by a {@link ShardWorker} started with the class path of this JVM, which writes the state of its
+ * engine to a file; the coordinator then merges the states in the order of the shards. Only the request and the states
+ * travel between the processes, so the same scheme works for workers on other machines that can read the file.
+ */
+public final class ShardCoordinator {
+
+    private ShardCoordinator() {
+    }
+
+
+    /**
+     * Analyses a file with worker processes and merges their results.
+     *
+     * @param path    The path to the file.
+     * @param request The metrics to compute.
+     * @param workers The number of worker processes.
+     * @return A report with the requested metrics.
+     * @throws IOException              If an I/O error occurs or a worker fails.
+     * @throws IllegalArgumentException If a requested metric is missing its parameter, the number of workers is not positive
+     *                                  or the file is compressed.
+     */
+    public static AnalysisReport analyse(Path path, AnalysisRequest request, int workers) throws IOException {
+        request.validate();
+        if (workers <= 0) {
+            throw new IllegalArgumentException("Number of workers must be positive: " + workers);
+        }
+        CompressedInput.requireUncompressed(path, "split into shards");
+        long[] boundaries;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            boundaries = MappedFileScanner.findChunkBoundaries(channel, size, Math.max(1, (size + workers - 1) / workers));
+        }
+
+        Path work = Files.createTempDirectory("shards");
+        try {
+            Path requestFile = work.resolve("request");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(requestFile)))) {
+                request.writeTo(out);
+            }
+            List<Process> processes = new ArrayList<>();
+            try {
+                for (int shard = 0; shard < boundaries.length - 1; shard++) {
+                    processes.add(startWorker(path, boundaries[shard], boundaries[shard + 1], requestFile, work, shard));
+                }
+                AnalysisEngine engine = new AnalysisEngine(path.toString(), request);
+                for (int shard = 0; shard < processes.size(); shard++) {
+                    awaitWorker(processes.get(shard), work, shard);
+                    try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(stateFile(work, shard))))) {
+                        engine.merge(AnalysisEngine.readFrom(in));
+                    }
+                }
+                return engine.report();
+            } finally {
+                processes.forEach(Process::destroy);
+            }
+        } finally {
+            try (Stream<Path> files = Files.walk(work)) {
+                for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+
+    private static Process startWorker(Path path, long start, long end, Path requestFile, Path work, int shard) throws IOException {
+        Path java = Paths.get(System.getProperty("java.home"), "bin", "java");
+        ProcessBuilder builder = new ProcessBuilder(java.toString(), "-cp", System.getProperty("java.class.path"),
+                ShardWorker.class.getName(), path.toAbsolutePath().toString(), Long.toString(start), Long.toString(end),
+                requestFile.toString(), stateFile(work, shard).toString());
+        builder.redirectErrorStream(true);
+        builder.redirectOutput(logFile(work, shard).toFile());
+        return builder.start();
+    }
+
+
+    private static void awaitWorker(Process process, Path work, int shard) throws IOException {
+        int status;
+        try {
+            status = process.waitFor();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for shard " + shard, e);
+        }
+        if (status != 0) {
+            String log = new String(Files.readAllBytes(logFile(work, shard)), StandardCharsets.UTF_8);
+            throw new IOException("Worker of shard " + shard + " exited with status " + status + ":\n" + log);
+        }
+    }
+
+
+    private static Path stateFile(Path work, int shard) {
+        return work.resolve("shard-" + shard + ".state");
+    }
+
+
+    private static Path logFile(Path work, int shard) {
+        return work.resolve("shard-" + shard + ".log");
+    }
+
+
+    /**
+     * Analyses a file with worker processes and prints the result.
+     * Usage: {@code ShardCoordinator <file> [workers]}.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: ShardCoordinator <file> [workers]");
+            System.exit(2);
+        }
+        int workers = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+        AnalysisRequest request = new AnalysisRequest(Metric.LINE_COUNT, Metric.WORD_COUNT, Metric.UNIQUE_WORD_COUNT,
+                Metric.NON_EMPTY_LINE_COUNT, Metric.AVERAGE_LINE_LENGTH, Metric.AVERAGE_WORD_LENGTH,
+                Metric.SHORTEST_LINE, Metric.LONGEST_LINE);
+        AnalysisReport report = analyse(Paths.get(args[0]), request, workers);
+        System.out.println("Lines: " + report.getLineCount());
+        System.out.println("Words: " + report.getWordCount());
+        System.out.println("Unique words: " + report.getUniqueWordCount());
+        System.out.println("Non-empty lines: " + report.getNonEmptyLineCount());
+        System.out.println("Average line length: " + report.getAverageLineLength());
+        System.out.println("Average word length: " + report.getAverageWordLength());
+        System.out.println("Shortest line: " + report.getShortestLine().orElse(""));
+        System.out.println("Longest line: " + report.getLongestLine().orElse(""));
+    }
+
+}
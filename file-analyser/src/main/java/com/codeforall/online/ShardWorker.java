@@ -0,0 +1,44 @@
+package com.codeforall.online;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+
+/**
+ * The worker process of a {@link ShardCoordinator}: analyses one byte range of a file and writes the state of its engine.
+ * <p>
+ * Usage: {@code ShardWorker <file> <start> <end> <request file> <state file>}, where the request file holds a request written
+ * by the coordinator. The process exits with status 0 once the state file is complete.
+ */
+public final class ShardWorker {
+
+    private ShardWorker() {
+    }
+
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 5) {
+            System.err.println("Usage: ShardWorker <file> <start> <end> <request file> <state file>");
+            System.exit(2);
+        }
+        Path file = Paths.get(args[0]);
+        long start = Long.parseLong(args[1]);
+        long end = Long.parseLong(args[2]);
+
+        AnalysisRequest request;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(Paths.get(args[3]))))) {
+            request = AnalysisRequest.readFrom(in);
+        }
+        AnalysisEngine engine = AnalysisEngine.analyseRange(file, start, end, request);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(Paths.get(args[4]))))) {
+            engine.writeTo(out);
+        }
+    }
+
+}
@@ -0,0 +1,139 @@
+package com.codeforall.online;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+
+/**
+ * Builds {@link WordSketch sketches} of the words of files, for the approximate operations of {@link FileAnalyser}.
+ * A file is split into chunks like {@link MappedFileScanner} splits it, every chunk is sketched on its own thread into
+ * a sketch of its own, and the sketches are merged; at most one sketch per thread is alive at a time, so the memory used
+ * does not depend on the size of the file. Several files are sketched one after the other into one merged sketch.
+ * A compressed file cannot be split into chunks, so it is sketched as a whole while it is decompressed on other threads.
+ * <p>
+ * The charset of every file is detected with {@link CharsetDetector}, and malformed input is replaced rather than reported,
+ * since an estimate does not suffer from a few bad bytes.
+ */
+public final class Sketches {
+
+    private Sketches() {
+    }
+
+
+    /**
+     * Sketches the words of a file on the common pool.
+     *
+     * @param path    The path to the file.
+     * @param factory Creates an empty sketch; every sketch it creates must have the same parameters.
+     * @param <S>     The type of sketch.
+     * @return A sketch of all words of the file.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If the charset of the file does not encode ASCII as single bytes.
+     */
+    public static <S extends WordSketch<S>> S sketch(Path path, Supplier<S> factory) throws IOException {
+        return sketch(List.of(path), factory, ForkJoinPool.commonPool(), MappedFileScanner.DEFAULT_CHUNK_SIZE);
+    }
+
+
+    /**
+     * Sketches the words of several files into one sketch.
+     *
+     * @param paths     The paths to the files.
+     * @param factory   Creates an empty sketch; every sketch it creates must have the same parameters.
+     * @param pool      The pool the chunks are sketched on.
+     * @param chunkSize The approximate number of bytes per chunk.
+     * @param <S>       The type of sketch.
+     * @return A sketch of all words of all files.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If the charset of a file does not encode ASCII as single bytes.
+     */
+    public static <S extends WordSketch<S>> S sketch(List<Path> paths, Supplier<S> factory, ForkJoinPool pool, long chunkSize)
+            throws IOException {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        S sketch = factory.get();
+        int window = Math.max(1, pool.getParallelism());
+        for (Path path : paths) {
+            Charset charset = CharsetDetector.detect(path);
+            if (!LineReader.isAsciiCompatible(charset)) {
+                throw new IllegalArgumentException("Only files in a charset that encodes ASCII as single bytes can be sketched: " + path);
+            }
+            if (CompressedInput.isCompressed(path)) {
+                sketchLines(CompressedInput.open(path), true, charset, sketch);
+                continue;
+            }
+            long[] boundaries;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                boundaries = MappedFileScanner.findChunkBoundaries(channel, Files.size(path), chunkSize);
+            }
+            for (int chunk = 0; chunk < boundaries.length - 1; chunk += window) {
+                List<Future<S>> chunks = new ArrayList<>();
+                for (int i = chunk; i < Math.min(boundaries.length - 1, chunk + window); i++) {
+                    long start = boundaries[i];
+                    long end = boundaries[i + 1];
+                    chunks.add(pool.submit(() -> {
+                        try {
+                            return sketchRange(path, start, end, charset, factory.get());
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    }));
+                }
+                for (Future<S> sketched : chunks) {
+                    sketch.merge(join(sketched));
+                }
+            }
+        }
+        return sketch;
+    }
+
+
+    private static <S extends WordSketch<S>> S sketchRange(Path path, long start, long end, Charset charset, S sketch) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return sketchLines(new FileRangeInputStream(channel, start, end), start == 0, charset, sketch);
+        }
+    }
+
+
+    private static <S extends WordSketch<S>> S sketchLines(InputStream in, boolean atStart, Charset charset, S sketch) throws IOException {
+        WordTokenizer tokenizer = new WordTokenizer();
+        try (LineReader reader = new LineReader(in, charset, true, atStart)) {
+            while (reader.next()) {
+                tokenizer.reset(reader.text());
+                for (WordTokenizer.Token token = tokenizer.next(); token != null; token = tokenizer.next()) {
+                    sketch.add(token);
+                }
+            }
+        }
+        return sketch;
+    }
+
+
+    private static <S> S join(Future<S> sketched) throws IOException {
+        try {
+            return sketched.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while sketching a chunk", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+}
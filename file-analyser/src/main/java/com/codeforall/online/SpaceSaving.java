@@ -0,0 +1,295 @@
+package com.codeforall.online;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * Finds the most frequent words in a fixed amount of memory, with the Space-Saving algorithm.
+ * The sketch keeps k counters; a word that has no counter takes over the smallest one, inheriting its count as the
+ * possible overcount of the new word. Every count is therefore at most N / k too high, N being the number of words added,
+ * and every word occurring more than N / k times is sure to be kept.
+ * <p>
+ * The counters are a min-heap, found by the hash of their word through a primitive map, so a word that is already
+ * counted costs no allocation, and only a word that takes over a counter is turned into a String.
+ * Merging adds the counts of the words both sketches keep and charges a word kept by only one of them with the smallest
+ * count of the other, so merged counts are never too low either.
+ */
+public class SpaceSaving implements WordSketch<SpaceSaving> {
+
+    private final int capacity;
+    private final long[] hashes;
+    private final String[] words;
+    private final long[] counts;
+    private final LongIntMap positions;
+    private int size;
+    private long total;
+
+
+    /**
+     * Creates a sketch with the given number of counters.
+     *
+     * @param capacity The number of counters k, at least as many as the number of most frequent words wanted.
+     * @throws IllegalArgumentException If the capacity is not positive.
+     */
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.hashes = new long[capacity];
+        this.words = new String[capacity];
+        this.counts = new long[capacity];
+        this.positions = new LongIntMap(capacity);
+    }
+
+
+    /**
+     * Creates a sketch whose counts are at most the given fraction of all words too high.
+     *
+     * @param epsilon The largest overcount, as a fraction of the total number of words, such as 0.001.
+     * @param n       The number of most frequent words wanted.
+     * @return The sketch.
+     * @throws IllegalArgumentException If epsilon is not between 0 and 1.
+     */
+    public static SpaceSaving forError(double epsilon, int n) {
+        if (!(epsilon > 0 && epsilon < 1)) {
+            throw new IllegalArgumentException("Epsilon must be between 0 and 1: " + epsilon);
+        }
+        return new SpaceSaving((int) Math.max(n, Math.ceil(1 / epsilon)));
+    }
+
+
+    @Override
+    public void add(CharSequence word) {
+        add(word, 1);
+    }
+
+
+    /**
+     * Adds occurrences of a word.
+     *
+     * @param word  The word, in any case.
+     * @param count The number of occurrences.
+     */
+    public void add(CharSequence word, long count) {
+        add(WordHash.hash(word), word, count);
+        total += count;
+    }
+
+
+    /**
+     * @return The total number of words added.
+     */
+    public long getTotalCount() {
+        return total;
+    }
+
+
+    /**
+     * Finds the words with the highest counts, which are the most frequent words when their counts are clearly apart.
+     *
+     * @param n The number of words to return, at most the capacity of the sketch.
+     * @return The words in lower case with their estimated counts, which are never below the true counts, highest first.
+     */
+    public List<Map.Entry<String, Long>> mostFrequent(int n) {
+        TopN<Integer> top = new TopN<>(n, Comparator.<Integer>comparingLong(i -> counts[i]).reversed()
+                .thenComparing(i -> words[i]));
+        for (int i = 0; i < size; i++) {
+            top.offer(i);
+        }
+        List<Map.Entry<String, Long>> mostFrequent = new ArrayList<>(top.size());
+        for (int i : top.toList()) {
+            mostFrequent.add(new AbstractMap.SimpleImmutableEntry<>(words[i], counts[i]));
+        }
+        return mostFrequent;
+    }
+
+
+    /**
+     * @param word The word, in any case.
+     * @return The estimated count of the word if it is kept, or the largest count a word that is not kept may have.
+     */
+    public long estimate(CharSequence word) {
+        int position = positions.get(WordHash.hash(word));
+        if (position != LongIntMap.MISSING) {
+            return counts[position];
+        }
+        return size < capacity ? 0 : counts[0];
+    }
+
+
+    /**
+     * @return The number of occurrences by which any count may exceed the true count.
+     */
+    public long errorBound() {
+        return size < capacity ? 0 : counts[0];
+    }
+
+
+    @Override
+    public SpaceSaving merge(SpaceSaving other) {
+        if (other.capacity != capacity) {
+            throw new IllegalArgumentException("Cannot merge sketches of " + capacity + " and " + other.capacity + " counters");
+        }
+        long thisMinimum = errorBound();
+        long otherMinimum = other.errorBound();
+        long[] mergedHashes = new long[size + other.size];
+        String[] mergedWords = new String[mergedHashes.length];
+        long[] mergedCounts = new long[mergedHashes.length];
+        int merged = 0;
+        for (int i = 0; i < size; i++) {
+            int position = other.positions.get(hashes[i]);
+            mergedHashes[merged] = hashes[i];
+            mergedWords[merged] = words[i];
+            if (position == LongIntMap.MISSING) {
+                mergedCounts[merged] = counts[i] + otherMinimum;
+            } else {
+                mergedCounts[merged] = counts[i] + other.counts[position];
+            }
+            merged++;
+        }
+        for (int i = 0; i < other.size; i++) {
+            if (positions.get(other.hashes[i]) == LongIntMap.MISSING) {
+                mergedHashes[merged] = other.hashes[i];
+                mergedWords[merged] = other.words[i];
+                mergedCounts[merged] = other.counts[i] + thisMinimum;
+                merged++;
+            }
+        }
+
+        // keep the k highest counts
+        Integer[] order = new Integer[merged];
+        for (int i = 0; i < merged; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(mergedCounts[b], mergedCounts[a]));
+        positions.clear();
+        size = 0;
+        for (int i = 0; i < Math.min(capacity, merged); i++) {
+            int entry = order[i];
+            push(mergedHashes[entry], mergedWords[entry], mergedCounts[entry]);
+        }
+        total += other.total;
+        return this;
+    }
+
+
+    @Override
+    public void writeTo(DataOutput out) throws IOException {
+        StateCodec.writeVarLong(out, capacity);
+        StateCodec.writeVarLong(out, total);
+        StateCodec.writeVarLong(out, size);
+        for (int i = 0; i < size; i++) {
+            StateCodec.writeString(out, words[i]);
+            StateCodec.writeVarLong(out, counts[i]);
+        }
+    }
+
+
+    /**
+     * Reads a sketch written by {@link #writeTo(DataOutput)}.
+     *
+     * @param in The input to read from.
+     * @return The sketch.
+     * @throws IOException If an I/O error occurs or the input is not a sketch.
+     */
+    public static SpaceSaving readFrom(DataInput in) throws IOException {
+        SpaceSaving sketch = new SpaceSaving(StateCodec.readVarInt(in));
+        sketch.total = StateCodec.readVarLong(in);
+        int size = StateCodec.readVarInt(in);
+        if (size > sketch.capacity) {
+            throw new IOException("Space-Saving sketch with " + size + " of " + sketch.capacity + " counters used");
+        }
+        for (int i = 0; i < size; i++) {
+            String word = StateCodec.readString(in);
+            sketch.push(WordHash.hash(word), word, StateCodec.readVarLong(in));
+        }
+        return sketch;
+    }
+
+
+    private void add(long hash, CharSequence word, long count) {
+        int position = positions.get(hash);
+        if (position != LongIntMap.MISSING) {
+            counts[position] += count;
+            siftDown(position);
+        } else if (size < capacity) {
+            push(hash, WordTokenizer.fold(word), count);
+        } else {
+            // the new word takes over the smallest counter, which is the root of the heap, and inherits its count
+            positions.remove(hashes[0]);
+            long minimum = counts[0];
+            hashes[0] = hash;
+            words[0] = WordTokenizer.fold(word);
+            counts[0] = minimum + count;
+            positions.put(hash, 0);
+            siftDown(0);
+        }
+    }
+
+
+    private void push(long hash, String word, long count) {
+        int position = size++;
+        hashes[position] = hash;
+        words[position] = word;
+        counts[position] = count;
+        positions.put(hash, position);
+        siftUp(position);
+    }
+
+
+    private void siftUp(int position) {
+        while (position > 0) {
+            int parent = (position - 1) >>> 1;
+            if (counts[parent] <= counts[position]) {
+                return;
+            }
+            swap(parent, position);
+            position = parent;
+        }
+    }
+
+
+    private void siftDown(int position) {
+        while (true) {
+            int smallest = position;
+            int left = 2 * position + 1;
+            int right = left + 1;
+            if (left < size && counts[left] < counts[smallest]) {
+                smallest = left;
+            }
+            if (right < size && counts[right] < counts[smallest]) {
+                smallest = right;
+            }
+            if (smallest == position) {
+                return;
+            }
+            swap(position, smallest);
+            position = smallest;
+        }
+    }
+
+
+    private void swap(int i, int j) {
+        long hash = hashes[i];
+        hashes[i] = hashes[j];
+        hashes[j] = hash;
+        String word = words[i];
+        words[i] = words[j];
+        words[j] = word;
+        long count = counts[i];
+        counts[i] = counts[j];
+        counts[j] = count;
+        positions.put(hashes[i], i);
+        positions.put(hashes[j], j);
+    }
+
+}
@@ -0,0 +1,123 @@
+package com.codeforall.online;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collection;
+
+
+/**
+ * Encodes the primitive parts of serialized analysis state compactly: numbers as variable-length integers,
+ * so that the many small counts and lengths take one or two bytes, and strings as length-prefixed UTF-8.
+ */
+final class StateCodec {
+
+    private static final int READ_CHUNK_SIZE = 64 * 1024;
+    private static final int MAX_INITIAL_CAPACITY = 1024;
+
+    private StateCodec() {
+    }
+
+
+    static void writeVarLong(DataOutput out, long value) throws IOException {
+        if (value < 0) {
+            throw new IllegalArgumentException("Value must not be negative: " + value);
+        }
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+
+    static long readVarLong(DataInput in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed variable-length number");
+    }
+
+
+    static int readVarInt(DataInput in) throws IOException {
+        long value = readVarLong(in);
+        if (value > Integer.MAX_VALUE) {
+            throw new IOException("Number out of range: " + value);
+        }
+        return (int) value;
+    }
+
+
+    /**
+     * Writes a string that may be null, which {@link #readString(DataInput)} gives back as null.
+     */
+    static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            writeVarLong(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, bytes.length + 1L);
+        out.write(bytes);
+    }
+
+
+    static String readString(DataInput in) throws IOException {
+        int length = readVarInt(in);
+        if (length == 0) {
+            return null;
+        }
+        return new String(readBytes(in, length - 1), StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Reads a number of bytes that was itself read from the input. The array grows as the bytes arrive rather than being
+     * allocated for the whole length up front, so a damaged length ends with an {@link java.io.EOFException} instead of
+     * an {@link OutOfMemoryError}.
+     */
+    static byte[] readBytes(DataInput in, int length) throws IOException {
+        byte[] bytes = new byte[Math.min(length, READ_CHUNK_SIZE)];
+        in.readFully(bytes);
+        while (bytes.length < length) {
+            int read = bytes.length;
+            bytes = Arrays.copyOf(bytes, (int) Math.min(length, 2L * read));
+            in.readFully(bytes, read, bytes.length - read);
+        }
+        return bytes;
+    }
+
+
+    /**
+     * @return The capacity to start a collection of a number of elements read from the input with, which the collection
+     * grows past as the elements arrive, so that a damaged count does not allocate a huge collection up front.
+     */
+    static int initialCapacity(int count) {
+        return Math.min(count, MAX_INITIAL_CAPACITY);
+    }
+
+
+    static void writeStrings(DataOutput out, Collection<String> values) throws IOException {
+        writeVarLong(out, values.size());
+        for (String value : values) {
+            writeString(out, value);
+        }
+    }
+
+
+    static <C extends Collection<String>> C readStrings(DataInput in, C into) throws IOException {
+        int size = readVarInt(in);
+        for (int i = 0; i < size; i++) {
+            into.add(readString(in));
+        }
+        return into;
+    }
+
+}
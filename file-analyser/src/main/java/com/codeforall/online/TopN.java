@@ -0,0 +1,219 @@
+package com.codeforall.online;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collector;
+
+
+/**
+ * Keeps the n best elements of a stream of any length in O(n) memory and O(log n) time per element.
+ * The elements are held in a heap whose root is the worst element kept, so a new element
+ * only has to beat the root to get in. The heap grows with the elements kept, up to n,
+ * so a large n costs nothing until that many elements are offered.
+ * Ties are broken by encounter order: of two equal elements the one offered first ranks higher,
+ * which gives the same result as a stable sort followed by a limit, and makes the result reproducible.
+ * A TopN is not thread-safe; use {@link #collector(int, Comparator)} to select in parallel streams.
+ *
+ * @param <T> The type of the elements.
+ */
+public class TopN<T> {
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int MAX_ARRAY_SIZE = Integer.MAX_VALUE - 8;
+
+    private final int capacity;
+    private final Comparator<? super T> order;
+    private Object[] elements;
+    private long[] sequences;
+    private int size;
+    private long offered;
+
+
+    /**
+     * Creates an empty selection.
+     *
+     * @param n     The number of elements to keep.
+     * @param order The order of the elements, best first.
+     */
+    public TopN(int n, Comparator<? super T> order) {
+        if (n < 0) {
+            throw new IllegalArgumentException("n must not be negative: " + n);
+        }
+        this.capacity = n;
+        this.order = order;
+        this.elements = new Object[Math.min(n, INITIAL_CAPACITY)];
+        this.sequences = new long[elements.length];
+    }
+
+
+    /**
+     * Creates a collector that selects the n best elements of a stream, best first.
+     *
+     * @param n     The number of elements to keep.
+     * @param order The order of the elements, best first.
+     * @param <T>   The type of the elements.
+     * @return A collector returning at most n elements, best first.
+     */
+    public static <T> Collector<T, TopN<T>, List<T>> collector(int n, Comparator<? super T> order) {
+        return Collector.of(() -> new TopN<T>(n, order), TopN::offer, TopN::addAll, TopN::toList);
+    }
+
+
+    /**
+     * Offers an element to the selection.
+     *
+     * @param element The element.
+     * @return True if the element is kept for now, false if it ranks below all n elements kept.
+     */
+    public boolean offer(T element) {
+        long sequence = offered++;
+        if (size < capacity) {
+            if (size == elements.length) {
+                grow();
+            }
+            elements[size] = element;
+            sequences[size] = sequence;
+            siftUp(size++);
+            return true;
+        }
+        if (capacity == 0 || compare(element, sequence, 0) <= 0) {
+            return false;
+        }
+        elements[0] = element;
+        sequences[0] = sequence;
+        siftDown(0);
+        return true;
+    }
+
+
+    /**
+     * Offers every element of another selection, as if they were offered after the elements of this one.
+     *
+     * @param other The selection to merge into this one.
+     * @return This selection.
+     */
+    public TopN<T> addAll(TopN<T> other) {
+        Integer[] indexes = new Integer[other.size];
+        for (int i = 0; i < other.size; i++) {
+            indexes[i] = i;
+        }
+        Arrays.sort(indexes, Comparator.comparingLong(i -> other.sequences[i]));
+        for (int i : indexes) {
+            offer(other.element(i));
+        }
+        return this;
+    }
+
+
+    /**
+     * @return True if n elements are kept, so a new element has to beat {@link #worst()} to get in.
+     */
+    public boolean isFull() {
+        return size == capacity;
+    }
+
+
+    /**
+     * @return The worst element kept, or null if none is kept.
+     */
+    public T worst() {
+        return size == 0 ? null : element(0);
+    }
+
+
+    /**
+     * @return The number of elements kept.
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * @return The elements kept, best first.
+     */
+    public List<T> toList() {
+        Integer[] indexes = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            indexes[i] = i;
+        }
+        Arrays.sort(indexes, (a, b) -> -compare(element(a), sequences[a], b));
+        List<T> list = new ArrayList<>(size);
+        for (int i : indexes) {
+            list.add(element(i));
+        }
+        return list;
+    }
+
+
+    /**
+     * Compares an element with the element kept at an index of the heap.
+     *
+     * @return A positive number if the element ranks higher, a negative number if it ranks lower, 0 if it is the same element.
+     */
+    private int compare(T element, long sequence, int index) {
+        int compared = order.compare(element(index), element);
+        return compared != 0 ? compared : Long.compare(sequences[index], sequence);
+    }
+
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (compare(element(parent), sequences[parent], index) <= 0) {
+                return;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+
+    private void siftDown(int index) {
+        while (true) {
+            int worst = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && compare(element(worst), sequences[worst], left) > 0) {
+                worst = left;
+            }
+            if (right < size && compare(element(worst), sequences[worst], right) > 0) {
+                worst = right;
+            }
+            if (worst == index) {
+                return;
+            }
+            swap(index, worst);
+            index = worst;
+        }
+    }
+
+
+    private void grow() {
+        int length = (int) Math.min(Math.min(capacity, MAX_ARRAY_SIZE), 2L * elements.length);
+        if (length <= size) {
+            throw new OutOfMemoryError("Cannot keep more than " + size + " elements");
+        }
+        elements = Arrays.copyOf(elements, length);
+        sequences = Arrays.copyOf(sequences, length);
+    }
+
+
+    private void swap(int i, int j) {
+        Object element = elements[i];
+        elements[i] = elements[j];
+        elements[j] = element;
+        long sequence = sequences[i];
+        sequences[i] = sequences[j];
+        sequences[j] = sequence;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private T element(int index) {
+        return (T) elements[index];
+    }
+
+}
@@ -0,0 +1,148 @@
+package com.codeforall.online;
+
+import jdk.jfr.EventType;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+
+/**
+ * Switches the instrumentation of the analysis operations on and off, and hands every finished {@link OperationTrace} on.
+ * <p>
+ * Tracing is on while at least one {@link Listener} is registered or a Flight Recorder recording enables the
+ * {@value OperationEvent#NAME} event, for example with
+ * {@code -XX:StartFlightRecording:com.codeforall.online.Operation#enabled=true}. Each operation checks this once when it starts;
+ * while tracing is off, operations create no trace, take no time measurements and run the same line loops as without
+ * instrumentation.
+ */
+public final class Tracing {
+
+    private static final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    private static final EventType eventType = EventType.getEventType(OperationEvent.class);
+    private static final com.sun.management.ThreadMXBean allocationBean = allocationBean();
+
+    private static volatile boolean listening;
+
+    private Tracing() {
+    }
+
+
+    /**
+     * Receives the trace of every operation when it ends.
+     * Calls are made from the thread that ran the operation, which waits while the listener runs,
+     * and may be made concurrently when operations run on several threads.
+     */
+    public interface Listener {
+
+        /**
+         * @param trace The trace of an operation that ended, successfully or not.
+         */
+        void onOperation(OperationTrace trace);
+    }
+
+
+    /**
+     * Registers a listener, turning tracing on.
+     *
+     * @param listener The listener.
+     */
+    public static void addListener(Listener listener) {
+        listeners.add(listener);
+        listening = true;
+    }
+
+
+    /**
+     * Unregisters a listener; tracing turns off with the last one unless Flight Recorder records the operations.
+     *
+     * @param listener The listener.
+     */
+    public static void removeListener(Listener listener) {
+        listeners.remove(listener);
+        listening = !listeners.isEmpty();
+    }
+
+
+    /**
+     * @return True if operations are traced, false otherwise.
+     */
+    public static boolean isEnabled() {
+        return listening || eventType.isEnabled();
+    }
+
+
+    /**
+     * Starts the trace of an operation if tracing is on.
+     *
+     * @param operation The name of the operation.
+     * @param filename  The path to the file the operation reads.
+     * @return The trace, or null if tracing is off.
+     */
+    static OperationTrace begin(String operation, String filename) {
+        if (!isEnabled()) {
+            return null;
+        }
+        OperationTrace trace = new OperationTrace(operation, filename, allocatedBytes());
+        if (eventType.isEnabled()) {
+            trace.event = new OperationEvent();
+            trace.event.begin();
+        }
+        return trace;
+    }
+
+
+    /**
+     * Ends the trace of an operation and hands it to Flight Recorder and the listeners.
+     *
+     * @param trace The trace, or null if the operation is not traced.
+     */
+    static void end(OperationTrace trace) {
+        if (trace == null) {
+            return;
+        }
+        trace.finish(allocatedBytes());
+        if (trace.event != null) {
+            trace.event.end();
+        }
+        OperationEvent event = trace.event;
+        if (event != null && event.shouldCommit()) {
+            event.operation = trace.getOperation();
+            event.file = trace.getFilename();
+            event.bytes = trace.getByteCount();
+            event.lines = trace.getLineCount();
+            event.words = trace.getWordCount();
+            event.allocated = trace.getAllocatedBytes();
+            event.read = trace.getPhaseNanos(OperationTrace.Phase.READ);
+            event.decode = trace.getPhaseNanos(OperationTrace.Phase.DECODE);
+            event.tokenize = trace.getPhaseNanos(OperationTrace.Phase.TOKENIZE);
+            event.aggregate = trace.getPhaseNanos(OperationTrace.Phase.AGGREGATE);
+            event.commit();
+        }
+        for (Listener listener : listeners) {
+            listener.onOperation(trace);
+        }
+    }
+
+
+    /**
+     * @return The bytes the current thread has allocated so far, or -1 if the JVM does not measure it.
+     */
+    private static long allocatedBytes() {
+        return allocationBean == null ? -1 : allocationBean.getCurrentThreadAllocatedBytes();
+    }
+
+
+    private static com.sun.management.ThreadMXBean allocationBean() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean allocation = (com.sun.management.ThreadMXBean) bean;
+            if (allocation.isThreadAllocatedMemorySupported() && allocation.isThreadAllocatedMemoryEnabled()) {
+                return allocation;
+            }
+        }
+        return null;
+    }
+
+}
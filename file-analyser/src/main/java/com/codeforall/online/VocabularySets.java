@@ -0,0 +1,334 @@
+package com.codeforall.online;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+
+/**
+ * Compares the vocabularies of any number of files: the words they all share, or the words found in any of them.
+ * Words are compared folded to lower case, as {@link FileAnalyser#findCommonWordsBetweenFiles(String, String)} does.
+ * <p>
+ * In memory, every file is read concurrently into its own {@link WordFrequencyTable}, and the tables are combined
+ * starting from the smallest one. When the vocabularies do not fit in memory, the partitioned variants spill every
+ * file's words to disk in hash partitions, so that only one partition has to be held in memory at a time.
+ */
+public class VocabularySets {
+
+    /**
+     * Finds the words that occur in every one of the specified files.
+     *
+     * @param files The paths to the files.
+     * @return The words shared by all files, in lower case.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static Set<String> intersection(List<Path> files) throws IOException {
+        List<WordFrequencyTable> vocabularies = readAll(files);
+        vocabularies.sort(Comparator.comparingInt(WordFrequencyTable::size));
+        Set<String> words = new HashSet<>();
+        if (vocabularies.isEmpty()) {
+            return words;
+        }
+        WordFrequencyTable smallest = vocabularies.get(0);
+        for (int id = 0; id < smallest.size(); id++) {
+            if (isInAll(smallest, id, vocabularies)) {
+                words.add(smallest.word(id));
+            }
+        }
+        return words;
+    }
+
+
+    /**
+     * Finds the words that occur in any of the specified files.
+     *
+     * @param files The paths to the files.
+     * @return The words of all files, in lower case.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static Set<String> union(List<Path> files) throws IOException {
+        WordFrequencyTable all = new WordFrequencyTable();
+        for (WordFrequencyTable vocabulary : readAll(files)) {
+            all.addAll(vocabulary);
+        }
+        return new HashSet<>(all.asMap().keySet());
+    }
+
+
+    /**
+     * Finds the words that occur in every one of the specified files, holding only one hash partition of the
+     * vocabularies in memory at a time, so the intersection works even when the vocabularies do not fit in memory.
+     *
+     * @param files          The paths to the files.
+     * @param spillDirectory The directory for the temporary partition files, which are deleted afterwards.
+     * @param partitions     The number of hash partitions.
+     * @param spillThreshold The number of distinct words a file may hold in memory before they are spilled.
+     * @param sink           The consumer receiving the words shared by all files, in lower case, in no particular order.
+     * @return The number of words handed to the sink.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static long intersection(List<Path> files, Path spillDirectory, int partitions, int spillThreshold,
+                                    Consumer<String> sink) throws IOException {
+        return partitioned(files, spillDirectory, partitions, spillThreshold, true, sink);
+    }
+
+
+    /**
+     * Finds the words that occur in any of the specified files, holding only one hash partition of the
+     * vocabularies in memory at a time, so the union works even when the vocabularies do not fit in memory.
+     *
+     * @param files          The paths to the files.
+     * @param spillDirectory The directory for the temporary partition files, which are deleted afterwards.
+     * @param partitions     The number of hash partitions.
+     * @param spillThreshold The number of distinct words a file may hold in memory before they are spilled.
+     * @param sink           The consumer receiving the words of all files, in lower case, in no particular order.
+     * @return The number of words handed to the sink.
+     * @throws IOException If an I/O error occurs.
+     */
+    public static long union(List<Path> files, Path spillDirectory, int partitions, int spillThreshold,
+                             Consumer<String> sink) throws IOException {
+        return partitioned(files, spillDirectory, partitions, spillThreshold, false, sink);
+    }
+
+
+    /**
+     * Reads the vocabulary of every file concurrently on the common fork/join pool.
+     */
+    private static List<WordFrequencyTable> readAll(List<Path> files) throws IOException {
+        List<CompletableFuture<WordFrequencyTable>> reads = new ArrayList<>();
+        for (Path file : files) {
+            reads.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return AnalysisEngine.analyse(file.toString(), new AnalysisRequest(Metric.WORD_FREQUENCY)).getWordFrequencyTable();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }));
+        }
+        List<WordFrequencyTable> vocabularies = new ArrayList<>();
+        try {
+            for (CompletableFuture<WordFrequencyTable> read : reads) {
+                vocabularies.add(read.join());
+            }
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+        return vocabularies;
+    }
+
+
+    private static boolean isInAll(WordFrequencyTable table, int id, List<WordFrequencyTable> vocabularies) {
+        for (WordFrequencyTable vocabulary : vocabularies) {
+            if (vocabulary != table && vocabulary.indexOf(table, id) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private static long partitioned(List<Path> files, Path spillDirectory, int partitions, int spillThreshold,
+                                    boolean intersection, Consumer<String> sink) throws IOException {
+        if (partitions <= 0 || spillThreshold <= 0) {
+            throw new IllegalArgumentException("Partitions and spill threshold must be positive: " + partitions + ", " + spillThreshold);
+        }
+        Path directory = Files.createTempDirectory(spillDirectory, "vocabulary");
+        try {
+            List<CompletableFuture<Void>> spills = new ArrayList<>();
+            for (int file = 0; file < files.size(); file++) {
+                int fileIndex = file;
+                spills.add(CompletableFuture.runAsync(() -> {
+                    try {
+                        spill(files.get(fileIndex), fileIndex, directory, partitions, spillThreshold);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }));
+            }
+            try {
+                CompletableFuture.allOf(spills.toArray(new CompletableFuture<?>[0])).join();
+            } catch (CompletionException e) {
+                throw unwrap(e);
+            }
+
+            long found = 0;
+            for (int partition = 0; partition < partitions; partition++) {
+                found += intersection
+                        ? intersectPartition(files.size(), directory, partition, sink)
+                        : unitePartition(files.size(), directory, partition, sink);
+            }
+            return found;
+        } finally {
+            try (var spilled = Files.list(directory)) {
+                for (Path path : (Iterable<Path>) spilled::iterator) {
+                    Files.deleteIfExists(path);
+                }
+            }
+            Files.deleteIfExists(directory);
+        }
+    }
+
+
+    /**
+     * Reads the words of a file and appends them to its partition files whenever too many are held in memory.
+     * A word may be spilled more than once; duplicates are removed when the partition is read back.
+     */
+    private static void spill(Path file, int fileIndex, Path directory, int partitions, int spillThreshold) throws IOException {
+        Spiller spiller = new Spiller(fileIndex, directory, partitions, spillThreshold);
+        // read the way the in-memory variants read, so both find the same words in any charset
+        AnalysisEngine.forEachLine(file, null, false, spiller);
+        flush(spiller.words, fileIndex, directory, partitions);
+    }
+
+
+    private static void flush(WordFrequencyTable words, int fileIndex, Path directory, int partitions) throws IOException {
+        List<List<String>> byPartition = new ArrayList<>();
+        for (int partition = 0; partition < partitions; partition++) {
+            byPartition.add(new ArrayList<>());
+        }
+        for (int id = 0; id < words.size(); id++) {
+            String word = words.word(id);
+            byPartition.get(partitionOf(word, partitions)).add(word);
+        }
+        for (int partition = 0; partition < partitions; partition++) {
+            if (byPartition.get(partition).isEmpty()) {
+                continue;
+            }
+            try (BufferedWriter writer = Files.newBufferedWriter(partitionPath(directory, fileIndex, partition), StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                for (String word : byPartition.get(partition)) {
+                    writer.write(word);
+                    writer.newLine();
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Narrows the words of the partition of the first file down to those found in the same partition of every other file.
+     */
+    private static long intersectPartition(int fileCount, Path directory, int partition, Consumer<String> sink) throws IOException {
+        WordFrequencyTable first = new WordFrequencyTable();
+        readPartition(directory, 0, partition, word -> first.add(word, 1));
+        WordFrequencyTable common = first;
+        for (int file = 1; file < fileCount && common.size() > 0; file++) {
+            WordFrequencyTable candidates = common;
+            BitSet found = new BitSet(candidates.size());
+            readPartition(directory, file, partition, word -> {
+                int id = candidates.indexOf(word);
+                if (id >= 0) {
+                    found.set(id);
+                }
+            });
+            common = new WordFrequencyTable(found.cardinality());
+            for (int id = found.nextSetBit(0); id >= 0; id = found.nextSetBit(id + 1)) {
+                common.add(candidates.word(id), 1);
+            }
+        }
+        return emit(common, sink);
+    }
+
+
+    private static long unitePartition(int fileCount, Path directory, int partition, Consumer<String> sink) throws IOException {
+        WordFrequencyTable all = new WordFrequencyTable();
+        for (int file = 0; file < fileCount; file++) {
+            readPartition(directory, file, partition, word -> all.add(word, 1));
+        }
+        return emit(all, sink);
+    }
+
+
+    /**
+     * Reads back the words one file spilled to a partition, which may contain duplicates.
+     */
+    private static void readPartition(Path directory, int file, int partition, Consumer<String> consumer) throws IOException {
+        Path path = partitionPath(directory, file, partition);
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            String word;
+            while ((word = reader.readLine()) != null) {
+                consumer.accept(word);
+            }
+        }
+    }
+
+
+    private static long emit(WordFrequencyTable words, Consumer<String> sink) {
+        for (int id = 0; id < words.size(); id++) {
+            sink.accept(words.word(id));
+        }
+        return words.size();
+    }
+
+
+    private static int partitionOf(String word, int partitions) {
+        // spread the String hash, whose low bits alone would favour some partitions
+        return Math.floorMod(word.hashCode() * 0x9E3779B9, partitions);
+    }
+
+
+    private static Path partitionPath(Path directory, int file, int partition) {
+        return directory.resolve(file + "-" + partition + ".words");
+    }
+
+
+    /**
+     * Collects the words of the lines of one file, spilling them to its partition files whenever it holds too many.
+     */
+    private static class Spiller implements AnalysisEngine.LineConsumer {
+
+        private final WordTokenizer tokenizer = new WordTokenizer();
+        private final int fileIndex;
+        private final Path directory;
+        private final int partitions;
+        private final int spillThreshold;
+        private WordFrequencyTable words = new WordFrequencyTable();
+
+
+        Spiller(int fileIndex, Path directory, int partitions, int spillThreshold) {
+            this.fileIndex = fileIndex;
+            this.directory = directory;
+            this.partitions = partitions;
+            this.spillThreshold = spillThreshold;
+        }
+
+
+        @Override
+        public void accept(CharSequence line) throws IOException {
+            tokenizer.reset(line);
+            for (WordTokenizer.Token token = tokenizer.next(); token != null; token = tokenizer.next()) {
+                words.increment(token);
+            }
+            if (words.size() >= spillThreshold) {
+                flush(words, fileIndex, directory, partitions);
+                words = new WordFrequencyTable();
+            }
+        }
+    }
+
+
+    private static IOException unwrap(CompletionException e) {
+        if (e.getCause() instanceof UncheckedIOException) {
+            return ((UncheckedIOException) e.getCause()).getCause();
+        }
+        throw e;
+    }
+
+}
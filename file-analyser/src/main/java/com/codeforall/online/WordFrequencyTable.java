@@ -0,0 +1,500 @@
+package com.codeforall.online;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+
+/**
+ * Counts how often every distinct word occurs, using a fraction of the memory of a {@code HashMap<String, Long>}.
+ * Words are folded to lower case and their characters are appended to one shared arena, counts are kept in a {@code long[]},
+ * and a linear-probing hash table of ints maps every word to its entry; no object is created per word or per occurrence.
+ * Every distinct word gets a dense id, in the order the words were first seen, which stays valid as the table grows.
+ * {@link #asMap()} gives a read-only {@code Map<String, Long>} view for callers that expect a map.
+ * A table is not thread-safe.
+ */
+public class WordFrequencyTable {
+
+    private static final int DEFAULT_CAPACITY = 1024;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] slots;
+    private int mask;
+
+    private char[] arena;
+    private int arenaSize;
+    private int[] offsets;
+    private int[] hashes;
+    private long[] counts;
+    private int size;
+    private long total;
+
+
+    /**
+     * Creates an empty table.
+     */
+    public WordFrequencyTable() {
+        this(DEFAULT_CAPACITY);
+    }
+
+
+    /**
+     * Creates an empty table sized for the given number of distinct words.
+     *
+     * @param expectedWords The number of distinct words expected.
+     */
+    public WordFrequencyTable(int expectedWords) {
+        int capacity = Integer.highestOneBit(Math.max(16, (int) Math.min(1 << 30, expectedWords / LOAD_FACTOR)) - 1) << 1;
+        this.slots = new int[capacity];
+        this.mask = capacity - 1;
+        int entries = Math.max(16, expectedWords);
+        this.arena = new char[entries * 8];
+        this.offsets = new int[entries + 1];
+        this.hashes = new int[entries];
+        this.counts = new long[entries];
+    }
+
+
+    /**
+     * Counts one occurrence of the given word, ignoring its case.
+     *
+     * @param token The word.
+     * @return The id of the word.
+     */
+    public int increment(WordTokenizer.Token token) {
+        return add(token, true, 1);
+    }
+
+
+    /**
+     * Adds occurrences of the given word, which is taken as it is.
+     *
+     * @param word  The word, already in lower case.
+     * @param count The number of occurrences to add.
+     * @return The id of the word.
+     */
+    public int add(CharSequence word, long count) {
+        return add(word, false, count);
+    }
+
+
+    /**
+     * Adds every word and count of another table to this one.
+     *
+     * @param other The table to merge into this one.
+     */
+    public void addAll(WordFrequencyTable other) {
+        for (int id = 0; id < other.size; id++) {
+            add(other.word(id), other.counts[id]);
+        }
+    }
+
+
+    /**
+     * Writes every word and count in id order, so that {@link #readFrom(DataInput)} gives every word its id back.
+     *
+     * @param out The output to write to.
+     * @throws IOException If an I/O error occurs.
+     */
+    public void writeTo(DataOutput out) throws IOException {
+        StateCodec.writeVarLong(out, size);
+        for (int id = 0; id < size; id++) {
+            StateCodec.writeString(out, word(id));
+            StateCodec.writeVarLong(out, counts[id]);
+        }
+    }
+
+
+    /**
+     * Reads a table written by {@link #writeTo(DataOutput)}.
+     *
+     * @param in The input to read from.
+     * @return The table.
+     * @throws IOException If an I/O error occurs or the input is malformed.
+     */
+    public static WordFrequencyTable readFrom(DataInput in) throws IOException {
+        int size = StateCodec.readVarInt(in);
+        WordFrequencyTable table = new WordFrequencyTable(StateCodec.initialCapacity(size));
+        for (int id = 0; id < size; id++) {
+            String word = StateCodec.readString(in);
+            if (word == null) {
+                throw new IOException("Malformed word frequency table");
+            }
+            table.add(word, StateCodec.readVarLong(in));
+        }
+        return table;
+    }
+
+
+    /**
+     * Looks up the given word, ignoring its case.
+     *
+     * @param token The word.
+     * @return The id of the word, or -1 if it is not in the table.
+     */
+    public int indexOf(WordTokenizer.Token token) {
+        return indexOf(token, true);
+    }
+
+
+    /**
+     * Looks up the given word, which is taken as it is.
+     *
+     * @param word The word, in lower case.
+     * @return The id of the word, or -1 if it is not in the table.
+     */
+    public int indexOf(CharSequence word) {
+        return indexOf(word, false);
+    }
+
+
+    /**
+     * Looks up a word of another table without copying it, reusing the hash that table already computed.
+     *
+     * @param other   The table holding the word.
+     * @param otherId The id of the word in that table.
+     * @return The id of the word in this table, or -1 if it is not in this table.
+     */
+    public int indexOf(WordFrequencyTable other, int otherId) {
+        other.checkId(otherId);
+        int hash = other.hashes[otherId];
+        int offset = other.offsets[otherId];
+        int length = other.offsets[otherId + 1] - offset;
+        int slot = hash & mask;
+        while (slots[slot] != 0) {
+            int id = slots[slot] - 1;
+            if (hashes[id] == hash && offsets[id + 1] - offsets[id] == length
+                    && Arrays.equals(arena, offsets[id], offsets[id] + length, other.arena, offset, offset + length)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+
+    /**
+     * @return The number of distinct words.
+     */
+    public int size() {
+        return size;
+    }
+
+
+    /**
+     * @return The number of occurrences of all words together.
+     */
+    public long total() {
+        return total;
+    }
+
+
+    /**
+     * @param id The id of a word.
+     * @return The word, in lower case.
+     */
+    public String word(int id) {
+        checkId(id);
+        return new String(arena, offsets[id], offsets[id + 1] - offsets[id]);
+    }
+
+
+    /**
+     * @param id The id of a word.
+     * @return The number of characters of the word.
+     */
+    public int wordLength(int id) {
+        checkId(id);
+        return offsets[id + 1] - offsets[id];
+    }
+
+
+    /**
+     * @param id The id of a word.
+     * @return The number of occurrences of the word.
+     */
+    public long count(int id) {
+        checkId(id);
+        return counts[id];
+    }
+
+
+    /**
+     * @param word The word, in lower case.
+     * @return The number of occurrences of the word, or 0 if it is not in the table.
+     */
+    public long count(CharSequence word) {
+        int id = indexOf(word);
+        return id < 0 ? 0 : counts[id];
+    }
+
+
+    /**
+     * @return The approximate number of bytes of memory the table holds on to.
+     */
+    long estimatedSize() {
+        return 64 + 2L * arena.length + 4L * slots.length + 4L * offsets.length + 4L * hashes.length + 8L * counts.length;
+    }
+
+
+    /**
+     * Finds the n most frequent words in O(size log n) time, keeping only n candidates at a time.
+     * Words with the same count are ranked in the order they were first seen.
+     *
+     * @param n The number of words to find.
+     * @return The most frequent words and their counts, most frequent first.
+     */
+    public List<Map.Entry<String, Long>> mostFrequent(int n) {
+        TopN<Integer> top = new TopN<>(n, (a, b) -> Long.compare(counts[b], counts[a]));
+        for (int id = 0; id < size; id++) {
+            if (!top.isFull() || (n > 0 && counts[id] > counts[top.worst()])) {
+                top.offer(id);
+            }
+        }
+        List<Map.Entry<String, Long>> words = new ArrayList<>(top.size());
+        for (int id : top.toList()) {
+            words.add(new AbstractMap.SimpleImmutableEntry<>(word(id), counts[id]));
+        }
+        return words;
+    }
+
+
+    /**
+     * Orders the words most frequent first, words with the same count in the order they were first seen.
+     *
+     * @return The ids of all the words, in that order.
+     */
+    int[] idsByCount() {
+        long maxCount = 0;
+        for (int id = 0; id < size; id++) {
+            maxCount = Math.max(maxCount, counts[id]);
+        }
+        int[] ids = new int[size];
+        if (maxCount <= Integer.MAX_VALUE) {
+            // sort the count and id of every word packed into one long, without boxing
+            long[] keys = new long[size];
+            for (int id = 0; id < size; id++) {
+                keys[id] = (Integer.MAX_VALUE - counts[id]) << 32 | id;
+            }
+            Arrays.sort(keys);
+            for (int i = 0; i < size; i++) {
+                ids[i] = (int) keys[i];
+            }
+            return ids;
+        }
+        Integer[] boxed = new Integer[size];
+        for (int id = 0; id < size; id++) {
+            boxed[id] = id;
+        }
+        Arrays.sort(boxed, (a, b) -> counts[a] != counts[b] ? Long.compare(counts[b], counts[a]) : Integer.compare(a, b));
+        for (int i = 0; i < size; i++) {
+            ids[i] = boxed[i];
+        }
+        return ids;
+    }
+
+
+    /**
+     * @return A read-only map view of the words and their counts, which reflects later changes to the table.
+     */
+    public Map<String, Long> asMap() {
+        return new MapView();
+    }
+
+
+    private int add(CharSequence word, boolean fold, long count) {
+        int hash = hash(word, fold);
+        int slot = hash & mask;
+        while (slots[slot] != 0) {
+            int id = slots[slot] - 1;
+            if (hashes[id] == hash && matches(id, word, fold)) {
+                counts[id] += count;
+                total += count;
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        int id = append(word, fold, hash);
+        counts[id] = count;
+        total += count;
+        slots[slot] = id + 1;
+        if (size > slots.length * LOAD_FACTOR) {
+            rehash(slots.length << 1);
+        }
+        return id;
+    }
+
+
+    private int indexOf(CharSequence word, boolean fold) {
+        int hash = hash(word, fold);
+        int slot = hash & mask;
+        while (slots[slot] != 0) {
+            int id = slots[slot] - 1;
+            if (hashes[id] == hash && matches(id, word, fold)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+
+    private int append(CharSequence word, boolean fold, int hash) {
+        int length = word.length();
+        if (size == hashes.length) {
+            int entries = hashes.length << 1;
+            offsets = Arrays.copyOf(offsets, entries + 1);
+            hashes = Arrays.copyOf(hashes, entries);
+            counts = Arrays.copyOf(counts, entries);
+        }
+        if (arena.length - arenaSize < length) {
+            long grown = Math.max((long) arena.length << 1, (long) arenaSize + length);
+            if (grown > Integer.MAX_VALUE - 8) {
+                throw new IllegalStateException("Word arena is full: " + arenaSize + " characters");
+            }
+            arena = Arrays.copyOf(arena, (int) grown);
+        }
+        for (int i = 0; i < length; i++) {
+            char c = word.charAt(i);
+            arena[arenaSize + i] = fold ? WordTokenizer.fold(c) : c;
+        }
+        arenaSize += length;
+
+        int id = size++;
+        hashes[id] = hash;
+        offsets[id + 1] = arenaSize;
+        return id;
+    }
+
+
+    private void rehash(int capacity) {
+        int[] rehashed = new int[capacity];
+        int rehashedMask = capacity - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & rehashedMask;
+            while (rehashed[slot] != 0) {
+                slot = (slot + 1) & rehashedMask;
+            }
+            rehashed[slot] = id + 1;
+        }
+        slots = rehashed;
+        mask = rehashedMask;
+    }
+
+
+    private boolean matches(int id, CharSequence word, boolean fold) {
+        int offset = offsets[id];
+        int length = word.length();
+        if (offsets[id + 1] - offset != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = word.charAt(i);
+            if (arena[offset + i] != (fold ? WordTokenizer.fold(c) : c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    /**
+     * Hashes the characters of a word and spreads the bits, since slots are picked from the lowest bits only.
+     */
+    private static int hash(CharSequence word, boolean fold) {
+        int hash = 0;
+        int length = word.length();
+        for (int i = 0; i < length; i++) {
+            char c = word.charAt(i);
+            hash = 31 * hash + (fold ? WordTokenizer.fold(c) : c);
+        }
+        hash ^= hash >>> 16;
+        hash *= 0x85EBCA6B;
+        hash ^= hash >>> 13;
+        hash *= 0xC2B2AE35;
+        return hash ^ (hash >>> 16);
+    }
+
+
+    private void checkId(int id) {
+        if (id < 0 || id >= size) {
+            throw new IndexOutOfBoundsException("Word id " + id + " out of range [0, " + size + ")");
+        }
+    }
+
+
+    /**
+     * A read-only {@code Map<String, Long>} over the table, so callers of {@link FileAnalyser#getWordFrequency(String)} keep working.
+     */
+    private class MapView extends AbstractMap<String, Long> {
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+
+        @Override
+        public boolean containsKey(Object key) {
+            return key instanceof CharSequence && indexOf((CharSequence) key) >= 0;
+        }
+
+
+        @Override
+        public Long get(Object key) {
+            if (!(key instanceof CharSequence)) {
+                return null;
+            }
+            int id = indexOf((CharSequence) key);
+            return id < 0 ? null : counts[id];
+        }
+
+
+        @Override
+        public Set<Entry<String, Long>> entrySet() {
+            return new AbstractSet<>() {
+
+                @Override
+                public int size() {
+                    return size;
+                }
+
+
+                @Override
+                public Iterator<Entry<String, Long>> iterator() {
+                    return new Iterator<>() {
+
+                        private int next;
+
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < size;
+                        }
+
+
+                        @Override
+                        public Entry<String, Long> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            int id = next++;
+                            return new SimpleImmutableEntry<>(word(id), counts[id]);
+                        }
+                    };
+                }
+            };
+        }
+    }
+
+}
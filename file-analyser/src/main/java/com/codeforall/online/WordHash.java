@@ -0,0 +1,33 @@
+package com.codeforall.online;
+
+
+/**
+ * Hashes words to 64 bits for the sketches, ignoring case, so that a live {@link WordTokenizer.Token} can be hashed
+ * without creating a String. The characters are mixed with FNV-1a and the result is scrambled with the MurmurHash3 finalizer,
+ * so every bit of the hash depends on every character, as the sketches need.
+ */
+final class WordHash {
+
+    private static final long FNV_OFFSET_BASIS = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private WordHash() {
+    }
+
+
+    static long hash(CharSequence word) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0, length = word.length(); i < length; i++) {
+            hash = (hash ^ WordTokenizer.fold(word.charAt(i))) * FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+
+    static long mix(long hash) {
+        hash = (hash ^ (hash >>> 33)) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ (hash >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return hash ^ (hash >>> 33);
+    }
+
+}
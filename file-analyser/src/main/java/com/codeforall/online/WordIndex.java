@@ -0,0 +1,627 @@
+package com.codeforall.online;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+
+/**
+ * A persistent inverted index of the words of a file, stored beside it as {@code <file>.idx}.
+ * For every distinct word (folded to lower case) the index records how often it occurs and the lines it occurs in,
+ * with their line numbers and byte offsets, together with the line, word and unique word counts of the file.
+ * Once built, word queries are answered by a binary search in the memory-mapped dictionary instead of a scan of the file.
+ * Lines containing a word are found through a sorted table of the suffixes of all words, so a query only looks at the
+ * words that contain it. The index remembers the size and modification time of the file it was built from and is ignored
+ * as soon as either changes. Files in any charset that encodes ASCII as single bytes can be indexed; the index records
+ * the charset it read the file in, and whether malformed input was replaced, and reads the matching lines back alike.
+ * <p>
+ * Layout, big-endian: a header, the name of the charset, a table of fixed-size dictionary entries sorted by the UTF-8 bytes of their word,
+ * the UTF-8 bytes of all words, the suffix table as (entry, start) pairs of ints sorted by the bytes of the word from
+ * that start on, and the postings of all words as (line number, byte offset) pairs of longs.
+ * The whole index is mapped, so an open index holds no file descriptor.
+ */
+public class WordIndex {
+
+    private static final int MAGIC = 0x46414958;
+    private static final int VERSION = 3;
+    private static final int HEADER_SIZE = 88;
+    private static final int ENTRY_SIZE = 32;
+    private static final int SUFFIX_SIZE = 8;
+    private static final int POSTING_SIZE = 16;
+    private static final int POSTINGS_SEGMENT_SIZE = 1 << 30;
+    private static final int LINE_WINDOW_SIZE = 64 * 1024;
+    private static final int MAX_OPEN_INDEXES = 16;
+
+    private static final Map<Path, WordIndex> OPEN_INDEXES = Collections.synchronizedMap(new IndexCache());
+
+    private final Path source;
+    private final MappedByteBuffer dictionary;
+    private final MappedByteBuffer[] postingSegments;
+    private final long sourceSize;
+    private final long sourceModified;
+    private final long lineCount;
+    private final long wordCount;
+    private final int termCount;
+    private final Charset charset;
+    private final boolean lenient;
+    private final int dictionaryOffset;
+    private final long termsOffset;
+    private final long suffixesOffset;
+    private final int suffixCount;
+
+
+    private WordIndex(Path source, ByteBuffer header, FileChannel channel) throws IOException {
+        this.source = source;
+        this.sourceSize = header.getLong(8);
+        this.sourceModified = header.getLong(16);
+        this.lineCount = header.getLong(24);
+        this.wordCount = header.getLong(32);
+        this.termCount = header.getInt(40);
+        this.lenient = header.getInt(44) != 0;
+        this.dictionaryOffset = (int) header.getLong(48);
+        this.termsOffset = header.getLong(56);
+        this.suffixesOffset = header.getLong(64);
+        this.suffixCount = (int) header.getLong(72);
+        long postingsOffset = header.getLong(80);
+        if (postingsOffset > Integer.MAX_VALUE) {
+            throw new IOException("Word index dictionary is too large to map: " + indexPath(source));
+        }
+        this.dictionary = channel.map(FileChannel.MapMode.READ_ONLY, 0, postingsOffset);
+        byte[] charsetName = new byte[dictionary.getShort(HEADER_SIZE)];
+        dictionary.get(HEADER_SIZE + 2, charsetName);
+        try {
+            this.charset = Charset.forName(new String(charsetName, StandardCharsets.US_ASCII));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Word index charset is not supported: " + indexPath(source), e);
+        }
+
+        // segments are a multiple of the posting size, so no posting straddles two of them
+        long postingsSize = channel.size() - postingsOffset;
+        this.postingSegments = new MappedByteBuffer[(int) ((postingsSize + POSTINGS_SEGMENT_SIZE - 1) / POSTINGS_SEGMENT_SIZE)];
+        for (int i = 0; i < postingSegments.length; i++) {
+            long start = (long) i * POSTINGS_SEGMENT_SIZE;
+            postingSegments[i] = channel.map(FileChannel.MapMode.READ_ONLY, postingsOffset + start,
+                    Math.min(POSTINGS_SEGMENT_SIZE, postingsSize - start));
+        }
+    }
+
+
+    /**
+     * @param source The path to an indexed file.
+     * @return The path of the index of that file.
+     */
+    public static Path indexPath(Path source) {
+        return source.resolveSibling(source.getFileName() + ".idx");
+    }
+
+
+    /**
+     * Returns the index of the specified file if it exists and was built from the file as it is now.
+     * The most recently used indexes stay mapped between calls, so repeated queries only pay for checking the file's attributes.
+     *
+     * @param source The path to the indexed file.
+     * @return The index, or null if there is no index, it was written by another version, or the file changed since it was built.
+     * @throws IOException If an I/O error occurs or the index is not a word index.
+     */
+    public static WordIndex openIfFresh(Path source) throws IOException {
+        Path key = source.toAbsolutePath().normalize();
+        BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+        WordIndex index = OPEN_INDEXES.get(key);
+        if (index != null && index.isBuiltFrom(attributes)) {
+            return index;
+        }
+        if (index != null) {
+            OPEN_INDEXES.remove(key, index);
+        }
+        if (!Files.exists(indexPath(key))) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(indexPath(key), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            if (channel.size() < 8) {
+                throw new IOException("Not a word index: " + indexPath(key));
+            }
+            readFully(channel, header.limit(8), 0);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not a word index: " + indexPath(key));
+            }
+            if (header.getInt(4) != VERSION) {
+                return null;
+            }
+            readFully(channel, header.limit(HEADER_SIZE), 0);
+            index = new WordIndex(key, header, channel);
+        }
+        if (!index.isBuiltFrom(attributes)) {
+            return null;
+        }
+        WordIndex previous = OPEN_INDEXES.putIfAbsent(key, index);
+        return previous != null ? previous : index;
+    }
+
+
+    /**
+     * Scans the specified file once in its detected charset, see {@link CharsetDetector}, and writes its index beside it,
+     * replacing any previous index. Malformed input is reported as an exception.
+     *
+     * @param source The path to the file.
+     * @return The path of the index.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If the file is compressed, or its charset does not encode ASCII as single bytes.
+     * @see #build(Path, Charset, boolean)
+     */
+    public static Path build(Path source) throws IOException {
+        return build(source, null, false);
+    }
+
+
+    /**
+     * Scans the specified file once and writes its index beside it, replacing any previous index.
+     * Compressed files, and files in a charset that does not encode ASCII as single bytes, cannot be indexed,
+     * since matching lines are read back from the file at their byte offsets.
+     *
+     * @param source  The path to the file.
+     * @param charset The charset of the file, or null to detect it, see {@link CharsetDetector}.
+     * @param lenient True to replace malformed input with {@code '\uFFFD'}, false to report it as an exception.
+     * @return The path of the index.
+     * @throws IOException              If an I/O error occurs.
+     * @throws IllegalArgumentException If the file is compressed, or the charset does not encode ASCII as single bytes.
+     */
+    public static Path build(Path source, Charset charset, boolean lenient) throws IOException {
+        Path key = source.toAbsolutePath().normalize();
+        CompressedInput.requireUncompressed(key, "indexed");
+        Charset fileCharset = charset != null ? charset : CharsetDetector.detect(key);
+        if (!LineReader.isAsciiCompatible(fileCharset)) {
+            throw new IllegalArgumentException("Only files in a charset that encodes ASCII as single bytes can be indexed: "
+                    + source + " (" + fileCharset + ")");
+        }
+        BasicFileAttributes attributes = Files.readAttributes(key, BasicFileAttributes.class);
+
+        WordFrequencyTable vocabulary = new WordFrequencyTable();
+        long[][] postings = new long[1024][];
+        int[] postingSizes = new int[1024];
+        long lineCount = 0;
+        try (LineReader reader = LineReader.open(key, fileCharset, lenient)) {
+            WordTokenizer tokenizer = new WordTokenizer();
+            while (reader.next()) {
+                lineCount++;
+                tokenizer.reset(reader.text());
+                for (WordTokenizer.Token token = tokenizer.next(); token != null; token = tokenizer.next()) {
+                    int id = vocabulary.increment(token);
+                    if (id == postings.length) {
+                        postings = Arrays.copyOf(postings, id << 1);
+                        postingSizes = Arrays.copyOf(postingSizes, id << 1);
+                    }
+                    if (postings[id] == null) {
+                        postings[id] = new long[4];
+                    }
+                    // one posting per line, however often the word occurs in it
+                    int size = postingSizes[id];
+                    if (size > 0 && postings[id][size - 2] == reader.lineNumber()) {
+                        continue;
+                    }
+                    if (size == postings[id].length) {
+                        postings[id] = Arrays.copyOf(postings[id], size << 1);
+                    }
+                    postings[id][size] = reader.lineNumber();
+                    postings[id][size + 1] = reader.offset();
+                    postingSizes[id] = size + 2;
+                }
+            }
+        }
+
+        int termCount = vocabulary.size();
+        byte[][] terms = new byte[termCount][];
+        Integer[] order = new Integer[termCount];
+        long termsSize = 0;
+        for (int id = 0; id < termCount; id++) {
+            terms[id] = vocabulary.word(id).getBytes(StandardCharsets.UTF_8);
+            order[id] = id;
+            termsSize += terms[id].length;
+        }
+        byte[][] unsortedTerms = terms;
+        Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(unsortedTerms[a], unsortedTerms[b]));
+        byte[][] sortedTerms = new byte[termCount][];
+        for (int entry = 0; entry < termCount; entry++) {
+            sortedTerms[entry] = terms[order[entry]];
+        }
+        long[] suffixes = sortSuffixes(sortedTerms);
+        byte[] charsetName = fileCharset.name().getBytes(StandardCharsets.US_ASCII);
+        long dictionaryOffset = HEADER_SIZE + 2 + charsetName.length;
+        long termsOffset = dictionaryOffset + (long) termCount * ENTRY_SIZE;
+        long suffixesOffset = termsOffset + termsSize;
+        long postingsOffset = suffixesOffset + (long) suffixes.length * SUFFIX_SIZE;
+
+        Path index = indexPath(key);
+        Path temporary = index.resolveSibling(index.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(attributes.size());
+            out.writeLong(attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS));
+            out.writeLong(lineCount);
+            out.writeLong(vocabulary.total());
+            out.writeInt(termCount);
+            out.writeInt(lenient ? 1 : 0);
+            out.writeLong(dictionaryOffset);
+            out.writeLong(termsOffset);
+            out.writeLong(suffixesOffset);
+            out.writeLong(suffixes.length);
+            out.writeLong(postingsOffset);
+            out.writeShort(charsetName.length);
+            out.write(charsetName);
+
+            long termPosition = 0;
+            long postingPosition = 0;
+            for (int id : order) {
+                out.writeInt((int) termPosition);
+                out.writeInt(terms[id].length);
+                out.writeLong(vocabulary.count(id));
+                out.writeLong(postingPosition);
+                out.writeLong(postingSizes[id] / 2);
+                termPosition += terms[id].length;
+                postingPosition += (long) postingSizes[id] / 2 * POSTING_SIZE;
+            }
+            for (int id : order) {
+                out.write(terms[id]);
+            }
+            for (long suffix : suffixes) {
+                out.writeLong(suffix);
+            }
+            for (int id : order) {
+                for (int i = 0; i < postingSizes[id]; i++) {
+                    out.writeLong(postings[id][i]);
+                }
+            }
+        }
+        Files.move(temporary, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        OPEN_INDEXES.remove(key);
+        return index;
+    }
+
+
+    /**
+     * @return The number of lines in the file.
+     */
+    public long getLineCount() {
+        return lineCount;
+    }
+
+
+    /**
+     * @return The number of words in the file.
+     */
+    public long getWordCount() {
+        return wordCount;
+    }
+
+
+    /**
+     * @return The number of unique words in the file.
+     */
+    public long getUniqueWordCount() {
+        return termCount;
+    }
+
+
+    /**
+     * Counts the occurrences of a word, ignoring case, as {@link FileAnalyser#countWordOccurrences(String, String)} does.
+     *
+     * @param word The word.
+     * @return The number of occurrences of the word in the file.
+     */
+    public long countOccurrences(String word) {
+        int entry = find(WordTokenizer.fold(word).getBytes(StandardCharsets.UTF_8));
+        return entry < 0 ? 0 : dictionary.getLong(entryOffset(entry) + 8);
+    }
+
+
+    /**
+     * Finds the lines that contain a word, ignoring case, as {@link FileAnalyser#findLinesContainingWord(String, String)} does.
+     * Since words never span whitespace, a line contains the word exactly when one of its words does.
+     * The words containing it are the words with a suffix that starts with it, which sit next to each other in the
+     * suffix table, so they are found with a binary search and only the matching lines are read from the file.
+     *
+     * @param word The word, which must not be empty or contain whitespace.
+     * @return The lines containing the word, in file order.
+     * @throws IOException If an I/O error occurs.
+     */
+    public List<LineMatch> findLinesContaining(String word) throws IOException {
+        byte[] folded = WordTokenizer.fold(word).getBytes(StandardCharsets.UTF_8);
+        BitSet entries = new BitSet();
+        for (int suffix = firstSuffixFrom(folded); suffix < suffixCount && compareSuffix(suffix, folded) == 0; suffix++) {
+            entries.set(dictionary.getInt(suffixOffset(suffix)));
+        }
+
+        // the postings of every word that contains the query, merged by line number
+        List<long[]> postings = new ArrayList<>();
+        for (int entry = entries.nextSetBit(0); entry >= 0; entry = entries.nextSetBit(entry + 1)) {
+            readPostings(entry, postings);
+        }
+        postings.sort((a, b) -> Long.compare(a[0], b[0]));
+
+        List<LineMatch> matches = new ArrayList<>(postings.size());
+        try (FileChannel file = FileChannel.open(source, StandardOpenOption.READ)) {
+            LineFetcher fetcher = new LineFetcher(file, charset, lenient);
+            long previousLine = 0;
+            for (long[] posting : postings) {
+                if (posting[0] != previousLine) {
+                    matches.add(new LineMatch(posting[0], posting[1], fetcher.lineAt(posting[1])));
+                    previousLine = posting[0];
+                }
+            }
+        }
+        return matches;
+    }
+
+
+    private boolean isBuiltFrom(BasicFileAttributes attributes) {
+        return attributes.size() == sourceSize && attributes.lastModifiedTime().to(TimeUnit.NANOSECONDS) == sourceModified;
+    }
+
+
+    /**
+     * Binary searches the dictionary, whose words are sorted by their unsigned UTF-8 bytes.
+     *
+     * @return The entry of the word, or -1 if it is not in the dictionary.
+     */
+    private int find(byte[] word) {
+        int low = 0;
+        int high = termCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int compared = compareTerm(middle, word);
+            if (compared < 0) {
+                low = middle + 1;
+            } else if (compared > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+
+    private int compareTerm(int entry, byte[] word) {
+        int start = (int) (termsOffset + dictionary.getInt(entryOffset(entry)));
+        int length = dictionary.getInt(entryOffset(entry) + 4);
+        for (int i = 0; i < Math.min(length, word.length); i++) {
+            int compared = Integer.compare(dictionary.get(start + i) & 0xFF, word[i] & 0xFF);
+            if (compared != 0) {
+                return compared;
+            }
+        }
+        return Integer.compare(length, word.length);
+    }
+
+
+    /**
+     * Binary searches the suffix table for the first suffix that is not smaller than the given bytes.
+     *
+     * @return The index of that suffix, or the number of suffixes if every suffix is smaller.
+     */
+    private int firstSuffixFrom(byte[] prefix) {
+        int low = 0;
+        int high = suffixCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareSuffix(middle, prefix) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+
+    /**
+     * Compares the start of a suffix with the given bytes.
+     *
+     * @return 0 if the suffix starts with the bytes, otherwise the order of the suffix relative to them.
+     */
+    private int compareSuffix(int suffix, byte[] prefix) {
+        int entry = dictionary.getInt(suffixOffset(suffix));
+        int skip = dictionary.getInt(suffixOffset(suffix) + 4);
+        int start = (int) (termsOffset + dictionary.getInt(entryOffset(entry))) + skip;
+        int length = dictionary.getInt(entryOffset(entry) + 4) - skip;
+        for (int i = 0; i < Math.min(length, prefix.length); i++) {
+            int compared = Integer.compare(dictionary.get(start + i) & 0xFF, prefix[i] & 0xFF);
+            if (compared != 0) {
+                return compared;
+            }
+        }
+        return length < prefix.length ? -1 : 0;
+    }
+
+
+    private void readPostings(int entry, List<long[]> postings) {
+        long position = dictionary.getLong(entryOffset(entry) + 16);
+        long count = dictionary.getLong(entryOffset(entry) + 24);
+        for (long i = 0; i < count; i++, position += POSTING_SIZE) {
+            MappedByteBuffer segment = postingSegments[(int) (position / POSTINGS_SEGMENT_SIZE)];
+            int offset = (int) (position % POSTINGS_SEGMENT_SIZE);
+            postings.add(new long[] {segment.getLong(offset), segment.getLong(offset + 8)});
+        }
+    }
+
+
+    private int entryOffset(int entry) {
+        return dictionaryOffset + entry * ENTRY_SIZE;
+    }
+
+
+    private int suffixOffset(int suffix) {
+        return (int) (suffixesOffset + (long) suffix * SUFFIX_SIZE);
+    }
+
+
+    /**
+     * Lists every suffix of every word that starts at a character, as its entry in the high int and its start in the low int,
+     * and sorts them by their unsigned UTF-8 bytes with a merge sort, so that no suffix is boxed.
+     *
+     * @param terms The UTF-8 bytes of the words, in entry order.
+     * @return The sorted suffixes.
+     */
+    private static long[] sortSuffixes(byte[][] terms) {
+        int count = 0;
+        for (byte[] term : terms) {
+            for (byte b : term) {
+                if ((b & 0xC0) != 0x80) {
+                    count++;
+                }
+            }
+        }
+        long[] suffixes = new long[count];
+        int next = 0;
+        for (int entry = 0; entry < terms.length; entry++) {
+            for (int start = 0; start < terms[entry].length; start++) {
+                if ((terms[entry][start] & 0xC0) != 0x80) {
+                    suffixes[next++] = (long) entry << 32 | start;
+                }
+            }
+        }
+
+        long[] from = suffixes;
+        long[] to = new long[count];
+        for (int width = 1; width < count; width <<= 1) {
+            for (int low = 0; low < count; low += width << 1) {
+                int middle = Math.min(low + width, count);
+                int high = Math.min(low + (width << 1), count);
+                int left = low;
+                int right = middle;
+                for (int i = low; i < high; i++) {
+                    if (right >= high || (left < middle && compareSuffixes(terms, from[left], from[right]) <= 0)) {
+                        to[i] = from[left++];
+                    } else {
+                        to[i] = from[right++];
+                    }
+                }
+            }
+            long[] swap = from;
+            from = to;
+            to = swap;
+        }
+        return from;
+    }
+
+
+    private static int compareSuffixes(byte[][] terms, long a, long b) {
+        byte[] first = terms[(int) (a >>> 32)];
+        byte[] second = terms[(int) (b >>> 32)];
+        return Arrays.compareUnsigned(first, (int) a, first.length, second, (int) b, second.length);
+    }
+
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Unexpected end of word index");
+            }
+        }
+    }
+
+
+    /**
+     * Keeps the most recently used indexes, so that indexes of files no longer queried can be garbage collected.
+     */
+    private static class IndexCache extends LinkedHashMap<Path, WordIndex> {
+
+        private static final long serialVersionUID = 1L;
+
+
+        IndexCache() {
+            super(MAX_OPEN_INDEXES, 0.75f, true);
+        }
+
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Path, WordIndex> eldest) {
+            return size() > MAX_OPEN_INDEXES;
+        }
+    }
+
+
+    /**
+     * Reads lines at increasing offsets of a file through one window of the file,
+     * so lines that are close together cost a single read, whether few or most lines are wanted.
+     */
+    private static class LineFetcher {
+
+        private final FileChannel file;
+        private final CharsetDecoder decoder;
+        private ByteBuffer window = ByteBuffer.allocate(LINE_WINDOW_SIZE).limit(0);
+        private long windowStart;
+
+
+        LineFetcher(FileChannel file, Charset charset, boolean lenient) {
+            CodingErrorAction action = lenient ? CodingErrorAction.REPLACE : CodingErrorAction.REPORT;
+            this.file = file;
+            this.decoder = charset.newDecoder().onMalformedInput(action).onUnmappableCharacter(action);
+        }
+
+
+        /**
+         * @param offset The byte offset at which the line starts.
+         * @return The line, up to its line terminator or the end of the file.
+         * @throws IOException If an I/O error occurs or the line is malformed and the index was not built leniently.
+         */
+        String lineAt(long offset) throws IOException {
+            while (true) {
+                if (offset >= windowStart && offset <= windowStart + window.limit()) {
+                    int start = (int) (offset - windowStart);
+                    for (int i = start; i < window.limit(); i++) {
+                        byte b = window.get(i);
+                        if (b == '\n' || b == '\r') {
+                            return decode(start, i);
+                        }
+                    }
+                    if (windowStart + window.limit() >= file.size()) {
+                        return decode(start, window.limit());
+                    }
+                    if (start == 0 && window.limit() == window.capacity()) {
+                        // the line does not fit in the window
+                        window = ByteBuffer.allocate(window.capacity() << 1).limit(0);
+                    }
+                }
+                window.clear();
+                windowStart = offset;
+                while (window.hasRemaining() && file.read(window, windowStart + window.position()) > 0) {
+                    // keep reading until the window is full or the file ends
+                }
+                window.flip();
+            }
+        }
+
+
+        private String decode(int start, int end) throws IOException {
+            CharBuffer chars = decoder.reset().decode(window.duplicate().position(start).limit(end));
+            return chars.toString();
+        }
+    }
+
+}
@@ -0,0 +1,42 @@
+package com.codeforall.online;
+
+import java.io.DataOutput;
+import java.io.IOException;
+
+
+/**
+ * A fixed-size summary of the words of any amount of text, which answers a question about them approximately,
+ * within an error bound chosen when the sketch is created. Words are compared ignoring case, as everywhere else.
+ * <p>
+ * Sketches of the same kind and size can be merged, so the parts of a file, or several files, can be sketched on
+ * separate threads or processes and combined; see {@link Sketches}. A sketch is not thread-safe.
+ *
+ * @param <S> The type of the sketch itself.
+ */
+public interface WordSketch<S extends WordSketch<S>> {
+
+    /**
+     * Adds one occurrence of a word.
+     *
+     * @param word The word, in any case; a live {@link WordTokenizer.Token} is not kept.
+     */
+    void add(CharSequence word);
+
+    /**
+     * Adds everything another sketch has seen, as if its words had been added to this sketch.
+     *
+     * @param other A sketch created with the same parameters.
+     * @return This sketch.
+     * @throws IllegalArgumentException If the other sketch was created with different parameters.
+     */
+    S merge(S other);
+
+    /**
+     * Writes the sketch in a compact binary form, which the {@code readFrom} method of the sketch class reads back.
+     *
+     * @param out The output to write to.
+     * @throws IOException If an I/O error occurs.
+     */
+    void writeTo(DataOutput out) throws IOException;
+
+}
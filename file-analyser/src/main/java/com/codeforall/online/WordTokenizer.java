@@ -0,0 +1,291 @@
+package com.codeforall.online;
+
+
+/**
+ * Splits text into words without regular expressions and without allocating per word.
+ * A word is a maximal run of characters that are not whitespace, where whitespace is the same set
+ * {@code "\\s"} matches: space, tab, line feed, vertical tab, form feed and carriage return. Empty words are never produced.
+ * Every word is handed out through one reusable {@link Token} view over the text, which folds case on the fly;
+ * a String is only created when a caller decides to keep a word. Lines of ASCII bytes from a {@link LineReader} are scanned
+ * on their bytes, without decoding them.
+ * A tokenizer is not thread-safe, but can be reused for any number of texts with {@link #reset(CharSequence)}.
+ */
+public class WordTokenizer {
+
+    private final Token token = new Token();
+    private CharSequence text = "";
+    private int position;
+
+
+    /**
+     * Starts tokenizing a new text.
+     *
+     * @param text The text to split into words, typically one line.
+     * @return This tokenizer.
+     */
+    public WordTokenizer reset(CharSequence text) {
+        this.text = text;
+        this.position = 0;
+        return this;
+    }
+
+
+    /**
+     * Moves to the next word of the text.
+     *
+     * @return The shared token view positioned on the next word, or null if there are no more words.
+     */
+    public Token next() {
+        if (text instanceof AsciiText) {
+            return nextAscii((AsciiText) text);
+        }
+        int length = text.length();
+        int start = position;
+        while (start < length && isWhitespace(text.charAt(start))) {
+            start++;
+        }
+        if (start == length) {
+            position = length;
+            return null;
+        }
+        int end = start + 1;
+        while (end < length && !isWhitespace(text.charAt(end))) {
+            end++;
+        }
+        position = end;
+        return token.wrap(text, start, end);
+    }
+
+
+    /**
+     * Moves to the next word of a line of ASCII bytes, scanning the bytes themselves.
+     */
+    private Token nextAscii(AsciiText ascii) {
+        byte[] bytes = ascii.bytes;
+        int offset = ascii.start;
+        int length = ascii.length();
+        int start = position;
+        while (start < length && isWhitespace(bytes[offset + start])) {
+            start++;
+        }
+        if (start == length) {
+            position = length;
+            return null;
+        }
+        int end = start + 1;
+        while (end < length && !isWhitespace(bytes[offset + end])) {
+            end++;
+        }
+        position = end;
+        return token.wrap(ascii, start, end);
+    }
+
+
+    /**
+     * Checks whether a character separates words.
+     *
+     * @param c The character to check.
+     * @return True if the character is whitespace, false otherwise.
+     */
+    public static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == 0x0B || c == '\f' || c == '\r';
+    }
+
+
+    /**
+     * Folds the case of a single character, the way every word is compared.
+     *
+     * @param c The character to fold.
+     * @return The lower-case form of the character.
+     */
+    public static char fold(char c) {
+        if (c < 0x80) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+        }
+        return Character.toLowerCase(c);
+    }
+
+
+    /**
+     * Folds the case of a whole word, the way every word is compared.
+     *
+     * @param word The word to fold.
+     * @return The lower-case form of the word.
+     */
+    public static String fold(CharSequence word) {
+        char[] folded = new char[word.length()];
+        for (int i = 0; i < folded.length; i++) {
+            folded[i] = fold(word.charAt(i));
+        }
+        return new String(folded);
+    }
+
+
+    /**
+     * A view of one word inside the text being tokenized.
+     * The live token of a tokenizer is repositioned by every call to {@link WordTokenizer#next()};
+     * {@link #freeze()} returns a copy that can be kept, for example as a key in a hash-based collection.
+     * Equality and hashing are case-insensitive: two tokens are equal when their folded characters are equal,
+     * and the hash code is that of the folded word as a String.
+     */
+    public static final class Token implements CharSequence {
+
+        private CharSequence text;
+        private int start;
+        private int end;
+
+
+        private Token() {
+        }
+
+
+        private Token wrap(CharSequence text, int start, int end) {
+            this.text = text;
+            this.start = start;
+            this.end = end;
+            return this;
+        }
+
+
+        /**
+         * @return The offset of the first character of the word in the text.
+         */
+        public int start() {
+            return start;
+        }
+
+
+        /**
+         * @return The offset just after the last character of the word in the text.
+         */
+        public int end() {
+            return end;
+        }
+
+
+        @Override
+        public int length() {
+            return end - start;
+        }
+
+
+        /**
+         * @param index The index of the character inside the word.
+         * @return The character at the given index, in its original case.
+         */
+        @Override
+        public char charAt(int index) {
+            return text.charAt(start + index);
+        }
+
+
+        /**
+         * @param index The index of the character inside the word.
+         * @return The character at the given index, folded to lower case.
+         */
+        public char foldedCharAt(int index) {
+            return fold(text.charAt(start + index));
+        }
+
+
+        @Override
+        public CharSequence subSequence(int from, int to) {
+            return text.subSequence(start + from, start + to);
+        }
+
+
+        /**
+         * Checks whether this word equals an already folded word, ignoring the case of this word.
+         *
+         * @param foldedWord A word in lower case, as returned by {@link WordTokenizer#fold(CharSequence)}.
+         * @return True if the words are equal, false otherwise.
+         */
+        public boolean equalsFolded(CharSequence foldedWord) {
+            int length = length();
+            if (foldedWord.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (foldedCharAt(i) != foldedWord.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+
+        /**
+         * Checks whether this word reads the same backward as forward, ignoring case.
+         *
+         * @return True if the word is a palindrome, false otherwise.
+         */
+        public boolean isPalindrome() {
+            int length = length();
+            for (int i = 0; i < length / 2; i++) {
+                if (foldedCharAt(i) != foldedCharAt(length - i - 1)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+
+        /**
+         * @return A token that holds a lower-case copy of this word and is not affected by the tokenizer moving on.
+         */
+        public Token freeze() {
+            String folded = toFoldedString();
+            return new Token().wrap(folded, 0, folded.length());
+        }
+
+
+        /**
+         * @return The word in its original case.
+         */
+        @Override
+        public String toString() {
+            return text.subSequence(start, end).toString();
+        }
+
+
+        /**
+         * @return The word folded to lower case.
+         */
+        public String toFoldedString() {
+            return fold(this);
+        }
+
+
+        @Override
+        public int hashCode() {
+            int hash = 0;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + fold(text.charAt(i));
+            }
+            return hash;
+        }
+
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Token)) {
+                return false;
+            }
+            Token that = (Token) other;
+            int length = length();
+            if (that.length() != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (foldedCharAt(i) != that.foldedCharAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+}
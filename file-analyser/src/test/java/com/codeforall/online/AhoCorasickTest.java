@@ -0,0 +1,80 @@
+package com.codeforall.online;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AhoCorasickTest {
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void reportsOverlappingOccurrencesInTheOrderTheyEnd() {
+        AhoCorasick automaton = new AhoCorasick(List.of("he", "she", "his", "hers"));
+        List<String> found = new ArrayList<>();
+
+        automaton.findAll("uSHErs", (word, start, end) -> found.add(word + ":" + start + "-" + end));
+
+        assertEquals(List.of("0:2-4", "1:1-4", "3:2-6"), found);
+    }
+
+
+    @Test
+    void matchesWordsOutsideAscii() {
+        AhoCorasick automaton = new AhoCorasick(List.of("ÉTÉ", "naïve"));
+
+        assertTrue(automaton.isAnyFoundIn("un été chaud"));
+        assertTrue(automaton.isAnyFoundIn("NAÏVE"));
+        assertFalse(automaton.isAnyFoundIn("naive ete"));
+    }
+
+
+    @Test
+    void findLinesContainingWordsMatchesOneSearchPerWord() throws IOException {
+        Path file = Files.write(directory.resolve("lines.txt"),
+                List.of("GET /index", "POST /login", "get /login", "nothing"));
+        String filename = file.toString();
+
+        Map<String, List<String>> lines = FileAnalyser.findLinesContainingWords(filename, List.of("get", "login", "missing"));
+
+        assertEquals(List.of("get", "login", "missing"), new ArrayList<>(lines.keySet()));
+        for (String word : lines.keySet()) {
+            assertEquals(FileAnalyser.findLinesContainingWord(filename, word), lines.get(word), word);
+        }
+    }
+
+
+    @Test
+    void findLinesContainingWordsReadsAnyCharset() throws IOException {
+        Path latin1 = Files.writeString(directory.resolve("latin1.txt"), "déjà vu\nDÉJÀ\nvu\n", StandardCharsets.ISO_8859_1);
+        Path utf16 = Files.writeString(directory.resolve("utf16.txt"), "déjà vu\nDÉJÀ\nvu\n", StandardCharsets.UTF_16);
+
+        for (Path file : List.of(latin1, utf16)) {
+            Map<String, List<String>> lines = FileAnalyser.findLinesContainingWords(file.toString(), List.of("déjà", "vu"));
+
+            assertEquals(List.of("déjà vu", "DÉJÀ"), lines.get("déjà"), file.toString());
+            assertEquals(List.of("déjà vu", "vu"), lines.get("vu"), file.toString());
+        }
+    }
+
+
+    @Test
+    void emptyWordsAreRejected() {
+        assertThrows(IllegalArgumentException.class, () -> new AhoCorasick(List.of("a", "")));
+    }
+
+}
@@ -0,0 +1,255 @@
+package com.codeforall.online;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AnalysisEngineTest {
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void analyseComputesEveryRequestedMetricInOnePass() throws IOException {
+        Path file = write("the quick brown fox", "", "a level 42 racecar", "The end");
+        AnalysisRequest request = new AnalysisRequest(EnumSet.of(Metric.LINE_COUNT, Metric.WORD_COUNT, Metric.NON_EMPTY_LINE_COUNT,
+                Metric.UNIQUE_WORD_COUNT, Metric.WORD_OCCURRENCES, Metric.LINES_CONTAINING_WORD, Metric.SHORTEST_LINE,
+                Metric.LONGEST_LINE, Metric.LINES_CONTAINING_NUMBERS, Metric.TOP_N_FREQUENT_WORDS, Metric.PALINDROMIC_WORDS,
+                Metric.FIRST_WORD_LONGER_THAN_N))
+                .word("the")
+                .topN(1)
+                .minWordLength(4);
+
+        AnalysisReport report = AnalysisEngine.analyse(file.toString(), request);
+
+        assertEquals(4, report.getLineCount());
+        assertEquals(10, report.getWordCount());
+        assertEquals(3, report.getNonEmptyLineCount());
+        assertEquals(9, report.getUniqueWordCount());
+        assertEquals(2, report.getWordOccurrences());
+        assertEquals(List.of("the quick brown fox", "The end"), report.getLinesContainingWord());
+        assertEquals(Optional.of(""), report.getShortestLine());
+        assertEquals(Optional.of("the quick brown fox"), report.getLongestLine());
+        assertEquals(List.of("a level 42 racecar"), report.getLinesContainingNumbers());
+        assertEquals(List.of(new AbstractMap.SimpleImmutableEntry<>("the", 2L)), report.getTopNFrequentWords());
+        assertEquals(List.of("a", "level", "racecar"), report.getPalindromicWords());
+        assertEquals(Optional.of("quick"), report.getFirstWordLongerThanN());
+    }
+
+
+    @Test
+    void pushedLinesGiveTheSameReportAsTheFile() throws IOException {
+        String[] lines = {"one two three", "  ", "two three", "three"};
+        AnalysisRequest request = new AnalysisRequest(Metric.WORD_COUNT, Metric.NON_EMPTY_LINE_COUNT, Metric.WORD_FREQUENCY,
+                Metric.AVERAGE_LINE_LENGTH);
+
+        AnalysisEngine engine = new AnalysisEngine("pushed", request);
+        for (String line : lines) {
+            engine.acceptLine(line);
+        }
+        AnalysisReport pushed = engine.report();
+        AnalysisReport read = AnalysisEngine.analyse(write(lines).toString(), request);
+
+        assertEquals(read.getWordCount(), pushed.getWordCount());
+        assertEquals(read.getNonEmptyLineCount(), pushed.getNonEmptyLineCount());
+        assertEquals(read.getWordFrequency(), pushed.getWordFrequency());
+        assertEquals(read.getAverageLineLength(), pushed.getAverageLineLength());
+        assertEquals(3L, pushed.getWordFrequency().get("three"));
+    }
+
+
+    @Test
+    void metricsThatWereNotRequestedCannotBeRead() throws IOException {
+        AnalysisReport report = AnalysisEngine.analyse(write("a b").toString(), new AnalysisRequest(Metric.LINE_COUNT));
+
+        assertEquals(1, report.getLineCount());
+        assertThrows(IllegalStateException.class, report::getWordCount);
+    }
+
+
+    @Test
+    void metricsMissingTheirParameterAreRejected() {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> new AnalysisEngine("file", new AnalysisRequest(Metric.WORD_OCCURRENCES)));
+        assertTrue(e.getMessage().contains("word"));
+    }
+
+
+    @Test
+    void numberParametersAreTrackedApartFromTheirValues() throws IOException {
+        Path file = write("a bb", "ccc");
+
+        // any word is longer than a negative n
+        assertEquals(Optional.of("a"), FileAnalyser.getFirstWordWithMoreThanNCharacters(file.toString(), -1));
+        assertEquals(Optional.of("a"), FileAnalyser.getFirstWordWithMoreThanNCharacters(file.toString(), -5));
+        assertEquals(Optional.of("ccc"), FileAnalyser.getFirstWordWithMoreThanNCharacters(file.toString(), 2));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> FileAnalyser.findTopNLongestWord(file.toString(), -1));
+        assertEquals("n must not be negative: -1", e.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> new AnalysisEngine("file", new AnalysisRequest(Metric.FIRST_WORD_LONGER_THAN_N)));
+        assertThrows(IllegalArgumentException.class, () -> new AnalysisEngine("file", new AnalysisRequest(Metric.TOP_N_LONGEST_LINES)));
+    }
+
+
+    @Test
+    void mergedRangesGiveTheWholeFileReport() throws IOException {
+        Path file = Files.writeString(directory.resolve("lines.txt"), corpus(), StandardCharsets.UTF_8);
+        AnalysisRequest request = AnalysisRequest.all("the", 3, "\\d{2}");
+        long[] boundaries;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            boundaries = MappedFileScanner.findChunkBoundaries(channel, Files.size(file), 300);
+        }
+        List<AnalysisEngine> ranges = new ArrayList<>();
+        for (int i = 0; i + 1 < boundaries.length; i++) {
+            ranges.add(AnalysisEngine.analyseRange(file, boundaries[i], boundaries[i + 1], request));
+        }
+
+        // merging is associative, so pairs can be merged first as long as their order is kept
+        AnalysisEngine merged = ranges.get(0);
+        for (int i = 1; i + 1 < ranges.size(); i += 2) {
+            merged.merge(ranges.get(i).merge(ranges.get(i + 1)));
+        }
+        if (ranges.size() % 2 == 0) {
+            merged.merge(ranges.get(ranges.size() - 1));
+        }
+
+        assertTrue(boundaries.length > 4);
+        assertSameReport(AnalysisEngine.analyse(file.toString(), request), merged.report());
+    }
+
+
+    @Test
+    void stateReadBackGoesOnLikeTheOriginal() throws IOException {
+        AnalysisRequest request = AnalysisRequest.all("the", 3, "\\d{2}");
+        String[] lines = corpus().split("\n");
+        AnalysisEngine original = new AnalysisEngine("lines", request);
+        for (int i = 0; i < lines.length / 2; i++) {
+            original.acceptLine(lines[i]);
+        }
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        original.writeTo(new DataOutputStream(bytes));
+        AnalysisEngine restored = AnalysisEngine.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        for (int i = lines.length / 2; i < lines.length; i++) {
+            original.acceptLine(lines[i]);
+            restored.acceptLine(lines[i]);
+        }
+
+        assertSameReport(original.report(), restored.report());
+        ByteArrayOutputStream again = new ByteArrayOutputStream();
+        restored.writeTo(new DataOutputStream(again));
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        original.writeTo(new DataOutputStream(expected));
+        assertArrayEquals(expected.toByteArray(), again.toByteArray());
+    }
+
+
+    @Test
+    void enginesOfDifferentRequestsCannotBeMerged() {
+        AnalysisEngine lines = new AnalysisEngine("a", new AnalysisRequest(Metric.LINE_COUNT));
+        AnalysisEngine words = new AnalysisEngine("b", new AnalysisRequest(Metric.WORD_COUNT));
+
+        assertThrows(IllegalArgumentException.class, () -> lines.merge(words));
+        assertThrows(IOException.class, () -> AnalysisEngine.readFrom(new DataInputStream(new ByteArrayInputStream(new byte[8]))));
+    }
+
+
+    static void assertSameReport(AnalysisReport expected, AnalysisReport actual) {
+        assertEquals(expected.getMetrics(), actual.getMetrics());
+        for (Metric metric : expected.getMetrics()) {
+            switch (metric) {
+                case LINE_COUNT:
+                    assertEquals(expected.getLineCount(), actual.getLineCount());
+                    break;
+                case WORD_COUNT:
+                    assertEquals(expected.getWordCount(), actual.getWordCount());
+                    break;
+                case NON_EMPTY_LINE_COUNT:
+                    assertEquals(expected.getNonEmptyLineCount(), actual.getNonEmptyLineCount());
+                    break;
+                case UNIQUE_WORD_COUNT:
+                    assertEquals(expected.getUniqueWordCount(), actual.getUniqueWordCount());
+                    break;
+                case WORD_OCCURRENCES:
+                    assertEquals(expected.getWordOccurrences(), actual.getWordOccurrences());
+                    break;
+                case LINES_CONTAINING_WORD:
+                    assertEquals(expected.getLinesContainingWord(), actual.getLinesContainingWord());
+                    break;
+                case AVERAGE_LINE_LENGTH:
+                    assertEquals(expected.getAverageLineLength(), actual.getAverageLineLength(), 1e-9);
+                    break;
+                case AVERAGE_WORD_LENGTH:
+                    assertEquals(expected.getAverageWordLength(), actual.getAverageWordLength(), 1e-9);
+                    break;
+                case SHORTEST_LINE:
+                    assertEquals(expected.getShortestLine(), actual.getShortestLine());
+                    break;
+                case LONGEST_LINE:
+                    assertEquals(expected.getLongestLine(), actual.getLongestLine());
+                    break;
+                case TOP_N_LONGEST_WORDS:
+                    assertEquals(expected.getTopNLongestWords(), actual.getTopNLongestWords());
+                    break;
+                case TOP_N_FREQUENT_WORDS:
+                    assertEquals(expected.getTopNFrequentWords(), actual.getTopNFrequentWords());
+                    break;
+                case TOP_N_LONGEST_LINES:
+                    assertEquals(expected.getTopNLongestLines(), actual.getTopNLongestLines());
+                    break;
+                case FIRST_WORD_LONGER_THAN_N:
+                    assertEquals(expected.getFirstWordLongerThanN(), actual.getFirstWordLongerThanN());
+                    break;
+                case WORD_FREQUENCY:
+                    assertEquals(expected.getWordFrequency(), actual.getWordFrequency());
+                    break;
+                case LINES_CONTAINING_NUMBERS:
+                    assertEquals(expected.getLinesContainingNumbers(), actual.getLinesContainingNumbers());
+                    break;
+                case LINES_MATCHING_REGEX:
+                    assertEquals(expected.getLinesMatchingRegex(), actual.getLinesMatchingRegex());
+                    break;
+                case PALINDROMIC_WORDS:
+                    assertEquals(expected.getPalindromicWords(), actual.getPalindromicWords());
+                    break;
+                default:
+                    throw new AssertionError("Metric not compared: " + metric);
+            }
+        }
+    }
+
+
+    private static String corpus() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            text.append(i % 9 == 0 ? "" : "The " + "abcdefghij".substring(i % 10) + " level wow " + i % 37 + " équipe").append('\n');
+        }
+        return text.toString();
+    }
+
+
+    private Path write(String... lines) throws IOException {
+        return Files.write(Files.createTempFile(directory, "lines", ".txt"), List.of(lines));
+    }
+
+}
@@ -0,0 +1,51 @@
+package com.codeforall.online;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AnalysisServerTest {
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void malformedRequestsAreAnsweredWithTheirStatus() throws IOException {
+        Path file = Files.write(directory.resolve("lines.txt"), List.of("one two", "two"));
+        String name = URLEncoder.encode(file.toString(), StandardCharsets.UTF_8);
+
+        try (AnalysisServer server = new AnalysisServer().port(0).threads(2).warmUp(false).start()) {
+            assertEquals(200, status(server, "file=" + name + "&metrics=top_n_frequent_words&n=1"));
+            assertEquals(200, status(server, "file=" + name + "&metrics=first_word_longer_than_n&minWordLength=0"));
+            assertEquals(400, status(server, "file=" + name + "&metrics=top_n_frequent_words&n=2147483647"));
+            assertEquals(400, status(server, "file=" + name + "&metrics=top_n_frequent_words&n=-1"));
+            assertEquals(400, status(server, "file=" + name + "&metrics=first_word_longer_than_n&minWordLength=" + (AnalysisServer.MAX_NUMBER_PARAMETER + 1)));
+            assertEquals(400, status(server, "file=" + name + "&metrics=top_n_frequent_words&n=many"));
+            assertEquals(400, status(server, "file=" + name + "&metrics=no_such_metric"));
+            assertEquals(404, status(server, "file=" + name + "x&metrics=line_count"));
+        }
+    }
+
+
+    private static int status(AnalysisServer server, String query) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) URI.create("http://localhost:" + server.getPort() + "/analyse?" + query)
+                .toURL().openConnection();
+        try {
+            return connection.getResponseCode();
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+}
@@ -0,0 +1,159 @@
+package com.codeforall.online;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.NotDirectoryException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class BatchAnalyserTest {
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void largeFilesSplitIntoChunksGiveTheWholeFileReport() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            text.append(i % 7 == 0 ? "" : "word" + i % 50 + " the Level " + i).append(i % 5 == 0 ? "\r\n" : "\n");
+        }
+        Path file = Files.writeString(directory.resolve("large.txt"), text, StandardCharsets.UTF_8);
+        Files.writeString(directory.resolve("small.txt"), "the end", StandardCharsets.UTF_8);
+        AnalysisRequest request = new AnalysisRequest(EnumSet.of(Metric.LINE_COUNT, Metric.WORD_COUNT, Metric.NON_EMPTY_LINE_COUNT,
+                Metric.WORD_FREQUENCY, Metric.LONGEST_LINE, Metric.FIRST_WORD_LONGER_THAN_N, Metric.PALINDROMIC_WORDS,
+                Metric.LINES_CONTAINING_NUMBERS))
+                .minWordLength(5);
+        Map<String, AnalysisReport> reports = new HashMap<>();
+
+        BatchAnalyser.Summary summary = new BatchAnalyser(request)
+                .threads(4)
+                .smallFileSize(1024)
+                .largeFileSize(1024)
+                .chunkSize(4096)
+                .analyse(directory, null, listener(reports, new ArrayList<>()));
+
+        AnalysisReport whole = AnalysisEngine.analyse(file.toString(), request);
+        AnalysisReport split = reports.get(file.toString());
+        assertEquals(2, summary.getFileCount());
+        assertEquals(whole.getLineCount(), split.getLineCount());
+        assertEquals(whole.getWordCount(), split.getWordCount());
+        assertEquals(whole.getNonEmptyLineCount(), split.getNonEmptyLineCount());
+        assertEquals(whole.getWordFrequency(), split.getWordFrequency());
+        assertEquals(whole.getLongestLine(), split.getLongestLine());
+        assertEquals(whole.getFirstWordLongerThanN(), split.getFirstWordLongerThanN());
+        assertEquals(whole.getPalindromicWords(), split.getPalindromicWords());
+        assertEquals(whole.getLinesContainingNumbers(), split.getLinesContainingNumbers());
+        assertEquals(whole.getLineCount() + 1, summary.getAggregate().getLineCount());
+    }
+
+
+    @Test
+    void globSelectsFilesBelowTheRoot() throws IOException {
+        Files.createDirectories(directory.resolve("logs/old"));
+        Files.writeString(directory.resolve("logs/app.log"), "a b\nc\n");
+        Files.writeString(directory.resolve("logs/old/app.log"), "d\n");
+        Files.writeString(directory.resolve("notes.txt"), "e f g\n");
+        Map<String, AnalysisReport> reports = new HashMap<>();
+
+        BatchAnalyser.Summary summary = new BatchAnalyser(new AnalysisRequest(Metric.LINE_COUNT, Metric.WORD_COUNT))
+                .analyse(directory, "**.log", listener(reports, new ArrayList<>()));
+
+        assertEquals(2, summary.getFileCount());
+        assertEquals(0, summary.getFailedFileCount());
+        assertEquals(3, summary.getAggregate().getLineCount());
+        assertEquals(4, summary.getAggregate().getWordCount());
+        assertEquals(2, reports.size());
+    }
+
+
+    @Test
+    void missingRootIsAnError() throws IOException {
+        BatchAnalyser batch = new BatchAnalyser(new AnalysisRequest(Metric.LINE_COUNT));
+        List<Path> failures = new ArrayList<>();
+
+        assertThrows(NoSuchFileException.class, () -> batch.analyse(directory.resolve("missing"), null, listener(new HashMap<>(), failures)));
+        Path file = Files.writeString(directory.resolve("file.txt"), "a");
+        assertThrows(NotDirectoryException.class, () -> batch.analyse(file, null, listener(new HashMap<>(), failures)));
+        assertEquals(List.of(), failures);
+    }
+
+
+    @Test
+    void splitFileTakesOneOpenFile() throws Exception {
+        Path descriptors = Paths.get("/proc/self/fd");
+        assumeTrue(Files.isDirectory(descriptors));
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) {
+            text.append("word").append(i % 50).append(" the ").append(i).append('\n');
+        }
+        Path file = Files.writeString(directory.resolve("large.txt"), text, StandardCharsets.UTF_8);
+        AnalysisRequest request = new AnalysisRequest(Metric.LINE_COUNT, Metric.WORD_FREQUENCY);
+        Map<String, AnalysisReport> reports = new HashMap<>();
+        int before = count(descriptors);
+        AtomicInteger peak = new AtomicInteger(before);
+        AtomicBoolean done = new AtomicBoolean();
+        Thread sampler = new Thread(() -> {
+            while (!done.get()) {
+                peak.accumulateAndGet(count(descriptors), Math::max);
+            }
+        });
+
+        sampler.start();
+        try {
+            new BatchAnalyser(request).threads(4).maxOpenFiles(1).largeFileSize(1024).chunkSize(4096)
+                    .analyse(directory, null, listener(reports, new ArrayList<>()));
+        } finally {
+            done.set(true);
+            sampler.join();
+        }
+
+        AnalysisEngineTest.assertSameReport(AnalysisEngine.analyse(file.toString(), request), reports.get(file.toString()));
+        // the file being analysed and the directory being walked
+        assertTrue(peak.get() - before <= 2, "open files: " + (peak.get() - before));
+    }
+
+
+    private static int count(Path directory) {
+        try (Stream<Path> files = Files.list(directory)) {
+            return (int) files.count();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+
+    private static BatchAnalyser.Listener listener(Map<String, AnalysisReport> reports, List<Path> failures) {
+        return new BatchAnalyser.Listener() {
+            @Override
+            public void onFile(AnalysisReport report) {
+                reports.put(report.getFilename(), report);
+            }
+
+            @Override
+            public void onFailure(Path file, IOException cause) {
+                failures.add(file);
+            }
+        };
+    }
+
+}
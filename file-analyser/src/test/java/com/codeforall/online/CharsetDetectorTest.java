@@ -0,0 +1,127 @@
+package com.codeforall.online;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class CharsetDetectorTest {
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void byteOrderMarksDecide() {
+        assertEquals(StandardCharsets.UTF_8, detect(0xEF, 0xBB, 0xBF, 0xFF, 0xFE));
+        assertEquals(StandardCharsets.UTF_16, detect(0xFE, 0xFF, 0, 'a'));
+        assertEquals(StandardCharsets.UTF_16, detect(0xFF, 0xFE, 'a', 0));
+    }
+
+
+    @Test
+    void utf16WithoutAMarkIsFoundByItsZeros() {
+        assertEquals(StandardCharsets.UTF_16LE, detect("some text\n".getBytes(StandardCharsets.UTF_16LE)));
+        assertEquals(StandardCharsets.UTF_16BE, detect("some text\n".getBytes(StandardCharsets.UTF_16BE)));
+    }
+
+
+    @Test
+    void textIsUtf8UnlessItsInvalidBytesOutnumberItsValidSequences() {
+        assertEquals(StandardCharsets.UTF_8, detect("plain ASCII\n".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(StandardCharsets.UTF_8, detect("CAFÉ café €\n".getBytes(StandardCharsets.UTF_8)));
+        assertEquals(StandardCharsets.ISO_8859_1, detect("CAFÉ café\n".getBytes(StandardCharsets.ISO_8859_1)));
+        // a stray byte among valid sequences
+        assertEquals(StandardCharsets.UTF_8, detect(bytes("abc d", 0xFF, "e f\nCAFÉ café\n")));
+        // overlong forms and surrogates are not valid UTF-8
+        assertEquals(StandardCharsets.ISO_8859_1, detect(bytes("a", 0xC0, 0x80, "b")));
+        assertEquals(StandardCharsets.ISO_8859_1, detect(bytes("a", 0xED, 0xA0, 0x80, "b")));
+        // a sequence cut off by the end of the sample
+        assertEquals(StandardCharsets.UTF_8, detect(bytes("caf", 0xE2, 0x82)));
+    }
+
+
+    @Test
+    void strayByteInUtf8IsReportedOrReplaced() throws IOException {
+        Path file = Files.write(directory.resolve("lines.txt"), bytes("abc d", 0xFF, "e f\nCAFÉ café\n"));
+        AnalysisRequest request = new AnalysisRequest(Metric.LINE_COUNT, Metric.WORD_FREQUENCY);
+
+        assertEquals(StandardCharsets.UTF_8, CharsetDetector.detect(file));
+        assertThrows(IOException.class, () -> AnalysisEngine.analyse(file.toString(), request));
+        AnalysisReport report = AnalysisEngine.analyse(file.toString(), request.lenient(true));
+        assertEquals(2, report.getLineCount());
+        assertEquals(2, report.getWordFrequency().get("café"));
+    }
+
+
+    @Test
+    void latin1TextIsReadWhateverTheMode() throws IOException {
+        Path file = Files.write(directory.resolve("lines.txt"), "CAFÉ café\n".getBytes(StandardCharsets.ISO_8859_1));
+        AnalysisRequest request = new AnalysisRequest(Metric.WORD_FREQUENCY);
+
+        assertEquals(2, AnalysisEngine.analyse(file.toString(), request).getWordFrequency().get("café"));
+        assertEquals(2, AnalysisEngine.analyse(file.toString(), request.lenient(true)).getWordFrequency().get("café"));
+    }
+
+
+    @Test
+    void utf8ByteOrderMarkIsSkippedButKeepsItsOffsets() throws IOException {
+        // a U+FEFF at the start of a later line is a character, not a mark
+        Path file = Files.write(directory.resolve("lines.txt"), bytes(0xEF, 0xBB, 0xBF, "hello world\nhello\n\uFEFFhello\n"));
+        AnalysisRequest request = new AnalysisRequest(Metric.WORD_COUNT, Metric.WORD_FREQUENCY);
+
+        AnalysisReport report = AnalysisEngine.analyse(file.toString(), request);
+        assertEquals(2, report.getWordFrequency().get("hello"));
+        assertEquals(4, report.getWordCount());
+        assertEquals(2, FileAnalyser.countWordOccurrences(file.toString(), "hello"));
+        AnalysisEngine first = AnalysisEngine.analyseRange(file, 0, 21, request);
+        AnalysisEngineTest.assertSameReport(report, first.merge(AnalysisEngine.analyseRange(file, 21, Files.size(file), request)).report());
+
+        List<Long> offsets = new ArrayList<>();
+        LineSearch.forEach(file, null, false, LineSearch.containingWord("hello"), 10, match -> offsets.add(match.getByteOffset()));
+        assertEquals(List.of(3L, 15L, 21L), offsets);
+        WordIndex.build(file);
+        assertEquals(List.of("hello world", "hello", "\uFEFFhello"),
+                WordIndex.openIfFresh(file).findLinesContaining("hello").stream().map(LineMatch::getLine).collect(Collectors.toList()));
+    }
+
+
+    private static Charset detect(int... bytes) {
+        byte[] sample = new byte[bytes.length];
+        for (int i = 0; i < bytes.length; i++) {
+            sample[i] = (byte) bytes[i];
+        }
+        return detect(sample);
+    }
+
+
+    private static Charset detect(byte[] sample) {
+        return CharsetDetector.detect(sample, sample.length);
+    }
+
+
+    private static byte[] bytes(Object... parts) {
+        // strings in UTF-8, numbers as single bytes
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (Object part : parts) {
+            if (part instanceof String) {
+                out.writeBytes(((String) part).getBytes(StandardCharsets.UTF_8));
+            } else {
+                out.write((Integer) part);
+            }
+        }
+        return out.toByteArray();
+    }
+
+}
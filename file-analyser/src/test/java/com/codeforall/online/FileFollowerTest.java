@@ -0,0 +1,122 @@
+package com.codeforall.online;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FileFollowerTest {
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void onlyCompleteAppendedLinesAreAnalysed() throws IOException {
+        Path file = directory.resolve("app.log");
+        try (FileFollower follower = new FileFollower(file, new AnalysisRequest(Metric.LINE_COUNT, Metric.WORD_COUNT))) {
+            assertFalse(follower.poll());
+
+            Files.writeString(file, "one two\nthree");
+            assertTrue(follower.poll());
+            assertEquals(1, follower.report().getLineCount());
+            assertEquals(8, follower.offset());
+
+            Files.writeString(file, " four\n", StandardOpenOption.APPEND);
+            assertTrue(follower.poll());
+            assertFalse(follower.poll());
+            assertEquals(2, follower.report().getLineCount());
+            assertEquals(4, follower.report().getWordCount());
+        }
+    }
+
+
+    @Test
+    void renamedFileIsReadToItsEndBeforeTheNewOne() throws IOException {
+        Path file = directory.resolve("app.log");
+        Files.writeString(file, "a\n");
+        try (FileFollower follower = new FileFollower(file, new AnalysisRequest(Metric.LINE_COUNT))) {
+            follower.poll();
+            Files.writeString(file, "b\n", StandardOpenOption.APPEND);
+            Files.move(file, directory.resolve("app.log.1"));
+            Files.writeString(file, "c\nd\n");
+
+            follower.poll();
+
+            assertEquals(4, follower.report().getLineCount());
+        }
+    }
+
+
+    @Test
+    void truncationStartsOver() throws IOException {
+        Path file = Files.writeString(directory.resolve("app.log"), "first line\nsecond line\n");
+        try (FileFollower follower = new FileFollower(file, new AnalysisRequest(Metric.LINE_COUNT))) {
+            follower.poll();
+
+            Files.writeString(file, "new\n");
+            assertTrue(follower.poll());
+
+            assertEquals(1, follower.report().getLineCount());
+        }
+    }
+
+
+    @Test
+    void copyTruncateIsSeenAfterTheFileGrewBack() throws IOException {
+        Path file = Files.writeString(directory.resolve("app.log"), "old 1\nold 2\n");
+        try (FileFollower follower = new FileFollower(file, new AnalysisRequest(Metric.LINE_COUNT, Metric.WORD_FREQUENCY))) {
+            follower.poll();
+
+            // copytruncate: the same file is emptied in place, and more than was read before is written before the next poll
+            Files.copy(file, directory.resolve("app.log.1"));
+            Files.writeString(file, "new 1\nnew 2\nnew 3\n", StandardOpenOption.TRUNCATE_EXISTING);
+            assertTrue(follower.poll());
+
+            assertEquals(3, follower.report().getLineCount());
+            assertEquals(0, follower.report().getWordFrequency().getOrDefault("old", 0L));
+            assertEquals(3, follower.report().getWordFrequency().get("new"));
+        }
+    }
+
+
+    @Test
+    void charsetOfTheFileIsDetected() throws IOException {
+        Path file = directory.resolve("app.log");
+        try (FileFollower follower = new FileFollower(file, new AnalysisRequest(Metric.WORD_FREQUENCY))) {
+            assertFalse(follower.poll());
+
+            Files.write(file, "café crème\n".getBytes(StandardCharsets.ISO_8859_1));
+            assertTrue(follower.poll());
+
+            assertEquals(1, follower.report().getWordFrequency().get("café"));
+        }
+    }
+
+
+    @Test
+    void malformedAppendedLineDoesNotStopTheFollower() throws IOException {
+        Path file = Files.writeString(directory.resolve("app.log"), "été one\n", StandardCharsets.UTF_8);
+        try (FileFollower follower = new FileFollower(file, new AnalysisRequest(Metric.LINE_COUNT, Metric.WORD_FREQUENCY))) {
+            follower.poll();
+
+            Files.write(file, new byte[] {'b', 'a', (byte) 0xFF, 'd', '\n'}, StandardOpenOption.APPEND);
+            assertTrue(follower.poll());
+            Files.writeString(file, "été two\n", StandardOpenOption.APPEND);
+            assertTrue(follower.poll());
+
+            assertEquals(3, follower.report().getLineCount());
+            assertEquals(2, follower.report().getWordFrequency().get("été"));
+            assertEquals(Files.size(file), follower.offset());
+        }
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.codeforall.online;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LineSearchTest {
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void streamGivesLineNumbersAndByteOffsets() throws IOException {
+        Path file = Files.writeString(directory.resolve("lines.txt"), "Alpha\r\nbeta\n\nALPHABET é\nalp\n", StandardCharsets.UTF_8);
+
+        List<String> found;
+        try (Stream<LineMatch> matches = FileAnalyser.streamLinesContainingWord(file.toString(), "alpha")) {
+            found = matches.map(LineMatch::toString).collect(Collectors.toList());
+        }
+
+        assertEquals(List.of("1:0: Alpha", "4:13: ALPHABET é"), found);
+    }
+
+
+    @Test
+    void streamingSearchesMatchTheListSearches() throws IOException {
+        Path file = write("error 404 at /index", "all good", "Error again", "retry 3 times");
+        String filename = file.toString();
+
+        assertEquals(FileAnalyser.findLinesContainingWord(filename, "error"), lines(FileAnalyser.streamLinesContainingWord(filename, "error")));
+        assertEquals(FileAnalyser.findLinesContainingNumbers(filename), lines(FileAnalyser.streamLinesContainingNumbers(filename)));
+        assertEquals(FileAnalyser.findLinesMatchingRegex(filename, "[a-z]+ \\d"),
+                lines(FileAnalyser.streamLinesMatchingRegex(filename, "[a-z]+ \\d")));
+    }
+
+
+    @Test
+    void limitStopsTheSearch() throws IOException {
+        Path file = write("1", "2", "3", "4");
+        List<Long> lineNumbers = new ArrayList<>();
+
+        long found = FileAnalyser.findLinesContainingNumbers(file.toString(), 2, match -> lineNumbers.add(match.getLineNumber()));
+
+        assertEquals(2, found);
+        assertEquals(List.of(1L, 2L), lineNumbers);
+        assertEquals(0, FileAnalyser.findLinesContainingNumbers(file.toString(), 0, match -> lineNumbers.add(-1L)));
+        assertThrows(IllegalArgumentException.class, () -> FileAnalyser.findLinesContainingNumbers(file.toString(), -1, match -> { }));
+    }
+
+
+    @Test
+    void searchesReadTheDetectedOrRequestedCharset() throws IOException {
+        Path latin1 = Files.writeString(directory.resolve("latin1.txt"), "café noir\nthé vert\nCAFÉ crème\n", StandardCharsets.ISO_8859_1);
+        Path utf16 = Files.writeString(directory.resolve("utf16.txt"), "café\n", StandardCharsets.UTF_16);
+
+        assertEquals(List.of("café noir", "CAFÉ crème"), lines(FileAnalyser.streamLinesContainingWord(latin1.toString(), "café")));
+        List<Long> offsets = new ArrayList<>();
+        LineSearch.forEach(latin1, StandardCharsets.ISO_8859_1, false, LineSearch.containingWord("crème"), 10,
+                match -> offsets.add(match.getByteOffset()));
+        assertEquals(List.of(19L), offsets);
+        assertEquals(List.of("caf\uFFFD noir", "CAF\uFFFD cr\uFFFDme"),
+                lines(LineSearch.stream(latin1, StandardCharsets.UTF_8, true, LineSearch.containingWord("caf"))));
+        assertThrows(IllegalArgumentException.class, () -> FileAnalyser.streamLinesContainingWord(utf16.toString(), "café"));
+    }
+
+
+    @Test
+    void containingNumberAgreesWithTheRegex() {
+        for (String line : List.of("", "abc", "a1", "٣", "x 9", "42")) {
+            assertEquals(line.matches(".*\\d+.*") && line.chars().anyMatch(c -> c >= '0' && c <= '9'),
+                    LineSearch.containingNumber().test(line), line);
+        }
+    }
+
+
+    @Test
+    void requiredLiteralIsOnlyTakenWhenEveryMatchHasIt() {
+        assertEquals(" error ", LineSearch.requiredLiteral(Pattern.compile("\\d+ error \\w+")));
+        assertEquals("abc", LineSearch.requiredLiteral(Pattern.compile("abcd?")));
+        assertNull(LineSearch.requiredLiteral(Pattern.compile("error|warning")));
+        assertNull(LineSearch.requiredLiteral(Pattern.compile("error", Pattern.CASE_INSENSITIVE)));
+    }
+
+
+    @Test
+    void prefilteredRegexMatchesLikeTheRegexAlone() {
+        List<String> lines = List.of("timeout after 30s", "TIMEOUT after 5s", "timeout", "after 1s timeout", "ok");
+        for (String regex : List.of("timeout after \\d+s", "(time)?out", "t[io]meout", "ti.eout a", "a|timeout", "x*timeout")) {
+            Pattern pattern = Pattern.compile(regex);
+            for (String line : lines) {
+                assertEquals(pattern.matcher(line).find(), LineSearch.matching(pattern).test(line), regex + " on " + line);
+            }
+        }
+    }
+
+
+    private static List<String> lines(Stream<LineMatch> matches) {
+        try (matches) {
+            return matches.map(LineMatch::getLine).collect(Collectors.toList());
+        }
+    }
+
+
+    private Path write(String... lines) throws IOException {
+        return Files.write(Files.createTempFile(directory, "lines", ".txt"), List.of(lines));
+    }
+
+}
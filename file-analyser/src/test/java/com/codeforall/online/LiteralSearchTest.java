@@ -0,0 +1,58 @@
+package com.codeforall.online;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LiteralSearchTest {
+
+    @Test
+    void findsTheFirstOccurrenceLikeIndexOf() {
+        Random random = new Random(7);
+        for (int round = 0; round < 2000; round++) {
+            String text = randomText(random, random.nextInt(40));
+            String literal = randomText(random, 1 + random.nextInt(4));
+
+            assertEquals(text.indexOf(literal), new LiteralSearch(literal, false).indexIn(text), literal + " in " + text);
+        }
+    }
+
+
+    @Test
+    void ignoresCaseWhenAsked() {
+        LiteralSearch search = new LiteralSearch("Café", true);
+
+        assertEquals(3, search.indexIn("Le CAFÉ noir"));
+        assertTrue(search.isFoundIn("un café"));
+        assertFalse(new LiteralSearch("Café", false).isFoundIn("un café"));
+    }
+
+
+    @Test
+    void emptyLiteralIsFoundEverywhere() {
+        assertEquals(0, new LiteralSearch("", true).indexIn("anything"));
+        assertEquals(0, new LiteralSearch("", false).indexIn(""));
+    }
+
+
+    @Test
+    void charactersSharingASlotDoNotSkipMatches() {
+        // 'a' and 'š' share a slot of the shift table
+        assertEquals(3, new LiteralSearch("ab", false).indexIn("šššab"));
+        assertEquals(2, new LiteralSearch("šb", false).indexIn("aašb"));
+    }
+
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            text.append("abAB š".charAt(random.nextInt(6)));
+        }
+        return text.toString();
+    }
+
+}
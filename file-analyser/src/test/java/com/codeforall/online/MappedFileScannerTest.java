@@ -0,0 +1,64 @@
+package com.codeforall.online;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MappedFileScannerTest {
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void chunksCountLikeTheEngine() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            text.append("line ").append(i).append(i % 3 == 0 ? "  with\tmore words\r\n" : "\n");
+            if (i % 100 == 0) {
+                text.append('\n');
+            }
+        }
+        text.append("last line without terminator");
+        Path file = Files.writeString(directory.resolve("lines.txt"), text, StandardCharsets.UTF_8);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            MappedFileScanner.Counts counts = MappedFileScanner.scan(file, pool, 1000);
+            AnalysisReport report = AnalysisEngine.analyse(file.toString(), new AnalysisRequest(Metric.LINE_COUNT, Metric.WORD_COUNT));
+
+            assertEquals(report.getLineCount(), counts.getLineCount());
+            assertEquals(report.getWordCount(), counts.getWordCount());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+
+    @Test
+    void emptyFileHasNoLines() throws IOException {
+        MappedFileScanner.Counts counts = MappedFileScanner.scan(Files.createFile(directory.resolve("empty.txt")));
+
+        assertEquals(0, counts.getLineCount());
+        assertEquals(0, counts.getWordCount());
+    }
+
+
+    @Test
+    void filesWhoseCharsetIsNotAsciiCompatibleAreRejected() throws IOException {
+        Path file = Files.writeString(directory.resolve("utf16.txt"), "\u010Aat dog\n\u010A\n", StandardCharsets.UTF_16);
+
+        assertEquals(2, FileAnalyser.countLines(file.toString()));
+        assertThrows(IllegalArgumentException.class, () -> FileAnalyser.countLinesParallel(file.toString()));
+        assertThrows(IllegalArgumentException.class, () -> FileAnalyser.countWordsParallel(file.toString()));
+    }
+
+}
@@ -0,0 +1,118 @@
+package com.codeforall.online;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NGramTableTest {
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void ngramsAreCountedIgnoringCaseWithinLines() {
+        NGramTable bigrams = NGramTable.ngrams(2, 100);
+        NGramTable trigrams = NGramTable.ngrams(3, 100);
+        for (String line : List.of("The cat sat", "the CAT sat down", "down the")) {
+            bigrams.countLine(line);
+            trigrams.countLine(line);
+        }
+
+        assertEquals(2, bigrams.count("the", "cat"));
+        assertEquals(2, bigrams.count("Cat", "Sat"));
+        assertEquals(1, bigrams.count("down", "the"));
+        // not across the end of a line
+        assertEquals(0, bigrams.count("sat", "the"));
+        assertEquals(6, bigrams.getTotalCount());
+        assertEquals(2, trigrams.count("the", "cat", "sat"));
+        assertEquals(List.of(Map.entry("the cat", 2L), Map.entry("cat sat", 2L)), bigrams.mostFrequent(2));
+        assertEquals(0, bigrams.getErrorBound());
+        assertThrows(IllegalArgumentException.class, () -> bigrams.count("the", "cat", "sat"));
+    }
+
+
+    @Test
+    void cooccurrencesArePairsWithinTheWindowInEitherOrder() {
+        NGramTable pairs = NGramTable.cooccurrences(3, 100);
+        pairs.countLine("a b c d");
+        pairs.countLine("b a a");
+
+        assertEquals(3, pairs.count("a", "b"));
+        assertEquals(3, pairs.count("b", "a"));
+        assertEquals(1, pairs.count("a", "c"));
+        assertEquals(0, pairs.count("a", "d"));
+        // a word does not pair with itself
+        assertEquals(0, pairs.count("a", "a"));
+    }
+
+
+    @Test
+    void chunksCountedInParallelAddUpToTheWholeFile() throws IOException {
+        StringBuilder text = new StringBuilder();
+        NGramTable serial = NGramTable.ngrams(3, NGramTable.DEFAULT_MAX_ENTRIES);
+        for (int i = 0; i < 20_000; i++) {
+            String line = "word" + i % 13 + " Été word" + i % 7 + " and word" + i % 5;
+            text.append(line).append('\n');
+            serial.countLine(line);
+        }
+        Path file = Files.writeString(directory.resolve("lines.txt"), text, StandardCharsets.UTF_8);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            NGramTable parallel = NGramCounter.count(List.of(file), () -> NGramTable.ngrams(3, NGramTable.DEFAULT_MAX_ENTRIES),
+                    pool, 4096);
+
+            assertEquals(serial.size(), parallel.size());
+            assertEquals(serial.getTotalCount(), parallel.getTotalCount());
+            assertEquals(serial.mostFrequent(serial.size()), parallel.mostFrequent(parallel.size()));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+
+    @Test
+    void droppedCountsStayWithinTheErrorBound() {
+        NGramTable bigrams = NGramTable.ngrams(2, 64);
+        Map<String, Long> exact = new HashMap<>();
+        for (int i = 0; i < 5_000; i++) {
+            // a few frequent bigrams among many rare ones
+            String line = i % 4 == 0 ? "common pair" : "rare" + i + " word" + i % 3;
+            bigrams.countLine(line);
+            String[] words = line.split(" ");
+            exact.merge(words[0] + " " + words[1], 1L, Long::sum);
+        }
+
+        assertTrue(bigrams.size() <= 64);
+        assertTrue(bigrams.getErrorBound() > 0);
+        for (Map.Entry<String, Long> entry : exact.entrySet()) {
+            long counted = bigrams.count(entry.getKey().split(" "));
+            assertTrue(counted <= entry.getValue() && entry.getValue() - counted <= bigrams.getErrorBound(), entry.getKey());
+        }
+        assertEquals(Map.entry("common pair", 1250L), bigrams.mostFrequent(1).get(0));
+    }
+
+
+    @Test
+    void tablesWithDifferentParametersAreRefused() {
+        assertThrows(IllegalArgumentException.class, () -> NGramTable.ngrams(4, 100));
+        assertThrows(IllegalArgumentException.class, () -> NGramTable.cooccurrences(1, 100));
+        assertThrows(IllegalArgumentException.class, () -> NGramTable.ngrams(2, 0));
+        assertThrows(IllegalArgumentException.class, () -> NGramTable.ngrams(2, 100).merge(NGramTable.ngrams(3, 100)));
+        assertThrows(IllegalArgumentException.class, () -> NGramTable.ngrams(2, 100).merge(NGramTable.cooccurrences(2, 100)));
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.codeforall.online;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ParallelGzipInputStreamTest {
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void bgzfBlocksAreReadInOrder() throws IOException {
+        byte[] text = text(200_000);
+
+        assertArrayEquals(text, decompress(bgzf(text, 10_000)));
+    }
+
+
+    @Test
+    void zeroPaddingAfterTheLastMemberEndsTheStream() throws IOException {
+        byte[] text = text(50_000);
+        byte[] compressed = bgzf(text, 8_000);
+        byte[] padded = Arrays.copyOf(compressed, compressed.length + 512);
+        Path plain = Files.write(directory.resolve("lines.txt"), text);
+        Path file = Files.write(directory.resolve("lines.txt.gz"), padded);
+        AnalysisRequest request = new AnalysisRequest(Metric.LINE_COUNT, Metric.WORD_COUNT);
+
+        assertArrayEquals(text, decompress(padded));
+        AnalysisEngineTest.assertSameReport(AnalysisEngine.analyse(plain.toString(), request), AnalysisEngine.analyse(file.toString(), request));
+    }
+
+
+    @Test
+    void plainGzipMembersAreReadOneAfterTheOther() throws IOException {
+        byte[] first = text(30_000);
+        byte[] second = "last line\n".getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream members = new ByteArrayOutputStream();
+        members.write(gzip(first));
+        members.write(gzip(second));
+        members.write(new byte[100]);
+
+        byte[] expected = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, expected, first.length, second.length);
+        assertArrayEquals(expected, decompress(members.toByteArray()));
+    }
+
+
+    @Test
+    void corruptBlockIsReported() {
+        byte[] compressed = bgzf(text(20_000), 5_000);
+        // the CRC of the first block, just before the size in its trailer
+        int firstBlockSize = (compressed[16] & 0xFF | (compressed[17] & 0xFF) << 8) + 1;
+        compressed[firstBlockSize - 8] ^= 1;
+
+        assertThrows(IOException.class, () -> decompress(compressed));
+    }
+
+
+    private static byte[] decompress(byte[] compressed) throws IOException {
+        try (InputStream in = new ParallelGzipInputStream(new ByteArrayInputStream(compressed), ForkJoinPool.commonPool(), 2)) {
+            return in.readAllBytes();
+        }
+    }
+
+
+    private static byte[] bgzf(byte[] bytes, int blockSize) {
+        // BGZF blocks are gzip members carrying their compressed size in a "BC" extra field
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int start = 0; start < bytes.length; start += blockSize) {
+            int length = Math.min(blockSize, bytes.length - start);
+            Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+            deflater.setInput(bytes, start, length);
+            deflater.finish();
+            byte[] data = new byte[length + 1024];
+            int compressed = deflater.deflate(data);
+            deflater.end();
+            CRC32 crc = new CRC32();
+            crc.update(bytes, start, length);
+
+            int memberSize = 18 + compressed + 8;
+            out.writeBytes(new byte[] {0x1F, (byte) 0x8B, 8, 4, 0, 0, 0, 0, 0, (byte) 0xFF, 6, 0, 'B', 'C', 2, 0,
+                    (byte) (memberSize - 1), (byte) ((memberSize - 1) >> 8)});
+            out.write(data, 0, compressed);
+            writeInt(out, crc.getValue());
+            writeInt(out, length);
+        }
+        return out.toByteArray();
+    }
+
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+
+    private static void writeInt(ByteArrayOutputStream out, long value) {
+        for (int i = 0; i < 4; i++) {
+            out.write((int) (value >> (8 * i)));
+        }
+    }
+
+
+    private static byte[] text(int size) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; text.length() < size; i++) {
+            text.append("line ").append(i).append(i % 3 == 0 ? " word" : "").append('\n');
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+}
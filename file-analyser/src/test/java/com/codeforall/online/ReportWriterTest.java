@@ -0,0 +1,154 @@
+package com.codeforall.online;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ReportWriterTest {
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void jsonLinesEscapeStringsAndWriteMissingValuesAsNull() throws IOException {
+        Path file = Files.write(directory.resolve("a.txt"), List.of("say \"hi\"\tto C:\\é", "", "hi"));
+        AnalysisReport report = AnalysisEngine.analyse(file.toString(), new AnalysisRequest(EnumSet.of(Metric.LINE_COUNT,
+                Metric.LONGEST_LINE, Metric.FIRST_WORD_LONGER_THAN_N, Metric.TOP_N_FREQUENT_WORDS)).topN(1).minWordLength(20));
+        String name = file.toString().replace("\\", "\\\\");
+
+        assertEquals(List.of(
+                "{\"file\":\"" + name + "\",\"metric\":\"LINE_COUNT\",\"value\":3}",
+                "{\"file\":\"" + name + "\",\"metric\":\"LONGEST_LINE\",\"value\":\"say \\\"hi\\\"\\u0009to C:\\\\é\"}",
+                "{\"file\":\"" + name + "\",\"metric\":\"TOP_N_FREQUENT_WORDS\",\"word\":\"say\",\"count\":1}",
+                "{\"file\":\"" + name + "\",\"metric\":\"FIRST_WORD_LONGER_THAN_N\",\"value\":null}"),
+                lines(write(ReportWriter.Format.JSON_LINES, false, report)));
+    }
+
+
+    @Test
+    void csvQuotesFieldsThatNeedIt() throws IOException {
+        Path file = Files.write(directory.resolve("b.txt"), List.of("x, \"y\"", "x"));
+        AnalysisReport report = AnalysisEngine.analyse(file.toString(), new AnalysisRequest(Metric.WORD_COUNT, Metric.WORD_FREQUENCY));
+
+        assertEquals(List.of(
+                "file,metric,key,value",
+                file + ",WORD_COUNT,,3",
+                file + ",WORD_FREQUENCY,\"x,\",1",
+                file + ",WORD_FREQUENCY,\"\"\"y\"\"\",1",
+                file + ",WORD_FREQUENCY,x,1"),
+                lines(write(ReportWriter.Format.CSV, false, report)));
+    }
+
+
+    @Test
+    void sortedFrequenciesComeMostFrequentFirst() throws IOException {
+        Path file = Files.write(directory.resolve("c.txt"), List.of("a b b c c c"));
+        AnalysisReport report = AnalysisEngine.analyse(file.toString(), new AnalysisRequest(Metric.WORD_FREQUENCY));
+
+        List<String> keys = new ArrayList<>();
+        for (String line : lines(write(ReportWriter.Format.CSV, true, report)).subList(1, 4)) {
+            keys.add(line.split(",")[2]);
+        }
+
+        assertEquals(List.of("c", "b", "a"), keys);
+    }
+
+
+    @Test
+    void binaryRecordsReadBackToTheReport() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 20_000; i++) {
+            text.append("word").append(i).append(i % 3 == 0 ? " Été\n" : "\n");
+        }
+        Path file = Files.writeString(directory.resolve("d.txt"), text, StandardCharsets.UTF_8);
+        AnalysisReport report = AnalysisEngine.analyse(file.toString(), new AnalysisRequest(EnumSet.of(Metric.LINE_COUNT,
+                Metric.AVERAGE_LINE_LENGTH, Metric.SHORTEST_LINE, Metric.FIRST_WORD_LONGER_THAN_N, Metric.WORD_FREQUENCY))
+                .minWordLength(50));
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(write(ReportWriter.Format.BINARY, false, report, report)));
+
+        assertEquals(ReportWriter.BINARY_MAGIC, in.readInt());
+        assertEquals(ReportWriter.BINARY_VERSION, in.readInt());
+        for (int copy = 0; copy < 2; copy++) {
+            assertEquals(0, in.readUnsignedByte());
+            assertEquals(file.toString(), readString(in));
+            Map<Metric, Object> values = new LinkedHashMap<>();
+            Map<String, Long> frequencies = new LinkedHashMap<>();
+            for (int kind = in.readUnsignedByte(); kind != 0xFF; kind = in.readUnsignedByte()) {
+                Metric metric = Metric.values()[in.readUnsignedByte()];
+                switch (kind) {
+                    case 1:
+                        values.put(metric, StateCodec.readVarLong(in));
+                        break;
+                    case 2:
+                        values.put(metric, in.readDouble());
+                        break;
+                    case 3:
+                        values.put(metric, readString(in));
+                        break;
+                    case 4:
+                        values.put(metric, null);
+                        break;
+                    default:
+                        assertEquals(5, kind);
+                        frequencies.put(readString(in), StateCodec.readVarLong(in));
+                }
+            }
+
+            assertEquals(report.getLineCount(), values.get(Metric.LINE_COUNT));
+            assertEquals(report.getAverageLineLength(), values.get(Metric.AVERAGE_LINE_LENGTH));
+            assertEquals(report.getShortestLine().orElseThrow(), values.get(Metric.SHORTEST_LINE));
+            assertEquals(null, values.get(Metric.FIRST_WORD_LONGER_THAN_N));
+            assertEquals(4, values.size());
+            assertEquals(report.getWordFrequency(), frequencies);
+        }
+        assertEquals(-1, in.read());
+    }
+
+
+    @Test
+    void closedWriterRefusesReports() throws IOException {
+        ReportWriter writer = new ReportWriter(new ByteArrayOutputStream(), ReportWriter.Format.JSON_LINES);
+        writer.close();
+
+        assertThrows(IllegalStateException.class, () -> writer.write(new AnalysisReport("a", EnumSet.of(Metric.LINE_COUNT))));
+    }
+
+
+    private static byte[] write(ReportWriter.Format format, boolean sortFrequencies, AnalysisReport... reports) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ReportWriter writer = new ReportWriter(out, format).sortFrequencies(sortFrequencies)) {
+            for (AnalysisReport report : reports) {
+                writer.write(report);
+            }
+        }
+        return out.toByteArray();
+    }
+
+
+    private static String readString(DataInputStream in) throws IOException {
+        return new String(in.readNBytes((int) StateCodec.readVarLong(in)), StandardCharsets.UTF_8);
+    }
+
+
+    private static List<String> lines(byte[] bytes) {
+        return List.of(new String(bytes, StandardCharsets.UTF_8).split("\n"));
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.codeforall.online;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ResultCacheTest {
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void changedFileIsAnalysedAgain() throws IOException {
+        Path file = write("one two", "three");
+        AnalysisRequest request = new AnalysisRequest(Metric.LINE_COUNT, Metric.WORD_COUNT);
+        ResultCache cache = new ResultCache();
+
+        assertEquals(3, cache.analyse(file.toString(), request).getWordCount());
+        assertEquals(3, cache.analyse(file.toString(), request).getWordCount());
+        Files.write(file, List.of("one two", "three", "four"));
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minusSeconds(30)));
+        AnalysisReport changed = cache.analyse(file.toString(), request);
+
+        assertEquals(3, changed.getLineCount());
+        assertEquals(4, changed.getWordCount());
+        ResultCache.Stats stats = cache.stats();
+        assertEquals(1, stats.getHitCount());
+        assertEquals(2, stats.getMissCount());
+        assertEquals(1, stats.getInvalidationCount());
+        assertEquals(1, stats.getEntryCount());
+    }
+
+
+    @Test
+    void differentRequestsAreCachedApart() throws IOException {
+        Path file = write("alpha beta", "beta");
+        ResultCache cache = new ResultCache();
+
+        assertEquals(1, cache.analyse(file.toString(), AnalysisRequest.all("alpha", 2, "\\w")).getWordOccurrences());
+        assertEquals(2, cache.analyse(file.toString(), AnalysisRequest.all("beta", 2, "\\w")).getWordOccurrences());
+        assertEquals(0, cache.stats().getHitCount());
+    }
+
+
+    @Test
+    void persistedReportsOutliveTheCache() throws IOException {
+        Path file = write("one two", "three");
+        Path reports = directory.resolve("reports");
+        AnalysisRequest request = new AnalysisRequest(Metric.WORD_FREQUENCY);
+        AnalysisReport report = new ResultCache().persistTo(reports).analyse(file.toString(), request);
+
+        ResultCache restarted = new ResultCache().persistTo(reports);
+
+        AnalysisEngineTest.assertSameReport(report, restarted.analyse(file.toString(), request));
+        assertEquals(1, restarted.stats().getDiskHitCount());
+        restarted.invalidate(file.toString());
+        assertEquals(List.of(), list(reports));
+    }
+
+
+    @Test
+    void damagedPersistedReportIsAnalysedAgain() throws IOException {
+        Path file = write("one two", "three");
+        Path reports = directory.resolve("reports");
+        AnalysisRequest request = new AnalysisRequest(Metric.WORD_COUNT);
+        new ResultCache().persistTo(reports).analyse(file.toString(), request);
+        Path persisted = list(reports).get(0);
+        // a path length of 2 GB that is not there
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(persisted))) {
+            out.writeInt(0x46414352);
+            out.writeInt(2);
+            out.write(new byte[] {(byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07});
+        }
+
+        ResultCache restarted = new ResultCache().persistTo(reports);
+
+        assertEquals(3, restarted.analyse(file.toString(), request).getWordCount());
+        assertEquals(1, restarted.stats().getMissCount());
+        assertEquals(1, restarted.stats().getInvalidationCount());
+        ResultCache repaired = new ResultCache().persistTo(reports);
+        assertEquals(3, repaired.analyse(file.toString(), request).getWordCount());
+        assertEquals(1, repaired.stats().getDiskHitCount());
+    }
+
+
+    @Test
+    void reportIsReturnedWhenItCannotBePersisted() throws IOException {
+        Path file = write("one two", "three");
+        Path notADirectory = write("in the way");
+        ResultCache cache = new ResultCache().persistTo(notADirectory);
+
+        assertEquals(3, cache.analyse(file.toString(), new AnalysisRequest(Metric.WORD_COUNT)).getWordCount());
+        assertEquals(1, cache.stats().getWriteFailureCount());
+        assertEquals(3, cache.analyse(file.toString(), new AnalysisRequest(Metric.WORD_COUNT)).getWordCount());
+        assertEquals(1, cache.stats().getHitCount());
+    }
+
+
+    private static List<Path> list(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.collect(Collectors.toList());
+        }
+    }
+
+
+    private Path write(String... lines) throws IOException {
+        // older than the modification time resolution, so the reports are cached
+        Path file = Files.write(Files.createTempFile(directory, "lines", ".txt"), List.of(lines));
+        Files.setLastModifiedTime(file, FileTime.from(Instant.now().minusSeconds(60)));
+        return file;
+    }
+
+}
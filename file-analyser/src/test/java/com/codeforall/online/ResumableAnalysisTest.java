@@ -0,0 +1,88 @@
+package com.codeforall.online;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResumableAnalysisTest {
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void completedRunDeletesItsCheckpoint() throws IOException {
+        Path file = Files.writeString(directory.resolve("lines.txt"), lines(), StandardCharsets.UTF_8);
+        Path checkpoint = directory.resolve("run.checkpoint");
+        AnalysisRequest request = AnalysisRequest.all("alpha", 2, "\\d");
+
+        AnalysisReport report = ResumableAnalysis.analyse(file, request, checkpoint, ForkJoinPool.commonPool(), 256);
+
+        AnalysisEngineTest.assertSameReport(AnalysisEngine.analyse(file.toString(), request), report);
+        assertFalse(Files.exists(checkpoint));
+    }
+
+
+    @Test
+    void interruptedRunResumesFromItsLastCheckpoint() throws IOException {
+        byte[] bytes = lines().getBytes(StandardCharsets.UTF_8);
+        int last = bytes.length - 2;
+        bytes[last] = (byte) 0xFF;
+        Path file = Files.write(directory.resolve("lines.txt"), bytes);
+        FileTime modified = Files.getLastModifiedTime(file);
+        Path checkpoint = directory.resolve("run.checkpoint");
+        AnalysisRequest request = new AnalysisRequest(Metric.LINE_COUNT, Metric.WORD_FREQUENCY).charset(StandardCharsets.UTF_8);
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            // the malformed byte in the last chunk stops the run after the earlier chunks were saved
+            assertThrows(IOException.class, () -> ResumableAnalysis.analyse(file, request, checkpoint, pool, 256));
+            assertTrue(Files.exists(checkpoint));
+
+            // repairing the file without changing its size or time keeps the checkpoint valid, so the changed first word is not read again
+            bytes[last] = 'x';
+            bytes[0] = 'b';
+            Files.write(file, bytes);
+            Files.setLastModifiedTime(file, modified);
+            AnalysisReport report = ResumableAnalysis.analyse(file, request, checkpoint, pool, 256);
+
+            assertEquals(200, report.getLineCount());
+            assertEquals(200, report.getWordFrequency().get("alpha"));
+            assertEquals(1, report.getWordFrequency().get("x"));
+            assertFalse(Files.exists(checkpoint));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+
+    @Test
+    void damagedCheckpointIsIgnored() throws IOException {
+        Path file = Files.writeString(directory.resolve("lines.txt"), lines(), StandardCharsets.UTF_8);
+        Path checkpoint = Files.write(directory.resolve("run.checkpoint"), new byte[] {1, 2, 3});
+
+        AnalysisReport report = ResumableAnalysis.analyse(file, new AnalysisRequest(Metric.LINE_COUNT), checkpoint);
+
+        assertEquals(200, report.getLineCount());
+    }
+
+
+    private static String lines() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 199; i++) {
+            text.append("alpha ").append(i).append('\n');
+        }
+        return text.append("alpha z\n").toString();
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.codeforall.online;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SketchesTest {
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void hyperLogLogStaysWithinItsError() throws IOException {
+        HyperLogLog sketch = new HyperLogLog(0.02);
+        for (int i = 0; i < 100_000; i++) {
+            sketch.add("word" + i % 50_000);
+        }
+
+        assertEquals(50_000, sketch.estimate(), 50_000 * 0.02 * 3);
+        assertArrayEquals(bytes(sketch), bytes(HyperLogLog.readFrom(input(bytes(sketch)))));
+    }
+
+
+    @Test
+    void countMinNeverUndercounts() throws IOException {
+        CountMinSketch sketch = new CountMinSketch(0.001, 0.99);
+        for (int i = 0; i < 20_000; i++) {
+            sketch.add("w" + i % 1000, i % 1000 == 7 ? 5 : 1);
+        }
+
+        assertTrue(sketch.estimate("W7") >= 100);
+        assertTrue(sketch.estimate("w7") <= 100 + sketch.errorBound());
+        assertEquals(sketch.estimate("w3"), CountMinSketch.readFrom(input(bytes(sketch))).estimate("w3"));
+    }
+
+
+    @Test
+    void spaceSavingFindsTheHeavyHitters() throws IOException {
+        SpaceSaving sketch = SpaceSaving.forError(0.01, 3);
+        for (int i = 0; i < 10_000; i++) {
+            sketch.add(i % 10 == 0 ? "heavy" : i % 10 == 1 ? "Medium" : "rare" + i);
+        }
+
+        List<Map.Entry<String, Long>> top = sketch.mostFrequent(2);
+        assertEquals("heavy", top.get(0).getKey());
+        assertEquals("medium", top.get(1).getKey());
+        assertTrue(top.get(0).getValue() >= 1000 && top.get(0).getValue() <= 1000 + sketch.errorBound());
+        assertEquals(top, SpaceSaving.readFrom(input(bytes(sketch))).mostFrequent(2));
+    }
+
+
+    @Test
+    void minHashEstimatesSharedWords() throws IOException {
+        MinHash first = new MinHash(0.02);
+        MinHash second = new MinHash(0.02);
+        for (int i = 0; i < 4000; i++) {
+            first.add("w" + i);
+            second.add("w" + (i + 2000));
+        }
+
+        assertEquals(2000, first.estimateShared(second), 200);
+        assertEquals(first.similarity(second), MinHash.readFrom(input(bytes(first))).similarity(second), 1e-12);
+    }
+
+
+    @Test
+    void mergedSketchesEqualTheSketchOfAllWords() throws IOException {
+        HyperLogLog all = new HyperLogLog(0.05);
+        HyperLogLog left = new HyperLogLog(0.05);
+        HyperLogLog right = new HyperLogLog(0.05);
+        for (int i = 0; i < 5000; i++) {
+            all.add("w" + i);
+            (i % 2 == 0 ? left : right).add("w" + i);
+        }
+
+        assertArrayEquals(bytes(all), bytes(left.merge(right)));
+        assertThrows(IllegalArgumentException.class, () -> left.merge(new HyperLogLog(0.01)));
+    }
+
+
+    @Test
+    void chunkedFileSketchMatchesOneSketchOfTheFile() throws IOException {
+        List<String> lines = new ArrayList<>();
+        HyperLogLog expected = new HyperLogLog(0.05);
+        for (int i = 0; i < 2000; i++) {
+            lines.add("Word" + i + " shared");
+            expected.add("Word" + i);
+            expected.add("shared");
+        }
+        Path file = Files.write(directory.resolve("lines.txt"), lines);
+
+        HyperLogLog sketched = Sketches.sketch(List.of(file), () -> new HyperLogLog(0.05), ForkJoinPool.commonPool(), 1024);
+
+        assertArrayEquals(bytes(expected), bytes(sketched));
+    }
+
+
+    private static byte[] bytes(WordSketch<?> sketch) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        sketch.writeTo(new DataOutputStream(bytes));
+        return bytes.toByteArray();
+    }
+
+
+    private static DataInputStream input(byte[] bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.codeforall.online;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TopNTest {
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void keepsWhatAStableSortAndLimitKeeps() {
+        Random random = new Random(42);
+        List<Integer> values = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            values.add(random.nextInt(500));
+        }
+        Comparator<Integer> descending = Comparator.reverseOrder();
+        TopN<Integer> top = new TopN<>(100, descending);
+        values.forEach(top::offer);
+
+        assertEquals(values.stream().sorted(descending).limit(100).collect(Collectors.toList()), top.toList());
+        assertTrue(top.isFull());
+    }
+
+
+    @Test
+    void breaksTiesByEncounterOrder() {
+        TopN<String> top = new TopN<>(3, Comparator.comparingInt(String::length).reversed());
+        for (String word : List.of("bb", "aa", "c", "dd", "eee")) {
+            top.offer(word);
+        }
+
+        assertEquals(List.of("eee", "bb", "aa"), top.toList());
+        assertEquals("aa", top.worst());
+        assertFalse(top.offer("ff"));
+    }
+
+
+    @Test
+    void parallelCollectorMatchesSerialSelection() {
+        Comparator<Integer> byLastDigit = Comparator.comparingInt(i -> i % 10);
+        List<Integer> serial = IntStream.range(0, 5000).boxed().collect(TopN.collector(25, byLastDigit));
+        List<Integer> parallel = IntStream.range(0, 5000).boxed().parallel().collect(TopN.collector(25, byLastDigit));
+
+        assertEquals(serial, parallel);
+        assertEquals(IntStream.range(0, 25).map(i -> i * 10).boxed().collect(Collectors.toList()), serial);
+    }
+
+
+    @Test
+    void hugeLimitOnlyHoldsWhatWasOffered() {
+        TopN<Integer> top = new TopN<>(Integer.MAX_VALUE, Comparator.naturalOrder());
+        for (int i = 0; i < 1000; i++) {
+            top.offer(i);
+        }
+
+        assertEquals(1000, top.size());
+        assertFalse(top.isFull());
+        assertEquals(0, top.toList().get(0));
+        assertEquals(999, top.worst());
+    }
+
+
+    @Test
+    void hugeLimitReturnsEveryWord() throws IOException {
+        Path file = Files.write(directory.resolve("words.txt"), List.of("a bb ccc", "dddd"));
+
+        assertEquals(List.of("dddd", "ccc", "bb", "a"), FileAnalyser.findTopNLongestWord(file.toString(), Integer.MAX_VALUE));
+        assertEquals(4, FileAnalyser.findTopNMostFrequentWords(file.toString(), 300_000_000).size());
+    }
+
+
+    @Test
+    void zeroKeepsNothingAndNegativeIsRejected() {
+        TopN<Integer> top = new TopN<>(0, Comparator.naturalOrder());
+
+        assertFalse(top.offer(1));
+        assertEquals(List.of(), top.toList());
+        assertThrows(IllegalArgumentException.class, () -> new TopN<Integer>(-1, Comparator.naturalOrder()));
+    }
+
+}
@@ -0,0 +1,87 @@
+package com.codeforall.online;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TracingTest {
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void listenerReceivesTheTraceOfEveryOperation() throws IOException {
+        Path file = Files.writeString(directory.resolve("lines.txt"), lines(1000), StandardCharsets.UTF_8);
+        AnalysisRequest request = new AnalysisRequest(EnumSet.of(Metric.LINE_COUNT, Metric.WORD_COUNT, Metric.WORD_FREQUENCY,
+                Metric.LONGEST_LINE, Metric.PALINDROMIC_WORDS));
+        AnalysisReport untraced = AnalysisEngine.analyse(file.toString(), request);
+        List<OperationTrace> traces = new CopyOnWriteArrayList<>();
+        Tracing.Listener listener = traces::add;
+
+        Tracing.addListener(listener);
+        AnalysisReport traced;
+        MappedFileScanner.Counts counts;
+        try {
+            assertTrue(Tracing.isEnabled());
+            traced = AnalysisEngine.analyse(file.toString(), request);
+            counts = MappedFileScanner.scan(file, ForkJoinPool.commonPool(), 4096);
+        } finally {
+            Tracing.removeListener(listener);
+        }
+
+        // sampling every few lines must not change what the lines add up to
+        AnalysisEngineTest.assertSameReport(untraced, traced);
+        assertEquals(List.of("analyse", "scan"), List.of(traces.get(0).getOperation(), traces.get(1).getOperation()));
+        OperationTrace analysis = traces.get(0);
+        assertEquals(file.toString(), analysis.getFilename());
+        assertEquals(Files.size(file), analysis.getByteCount());
+        assertEquals(1000, analysis.getLineCount());
+        assertEquals(untraced.getWordCount(), analysis.getWordCount());
+        long phases = 0;
+        for (OperationTrace.Phase phase : OperationTrace.Phase.values()) {
+            phases += analysis.getPhaseNanos(phase);
+        }
+        assertTrue(phases > 0 && phases <= analysis.getDurationNanos(), analysis.toString());
+        OperationTrace scan = traces.get(1);
+        assertEquals(counts.getLineCount(), scan.getLineCount());
+        assertEquals(0, scan.getPhaseNanos(OperationTrace.Phase.TOKENIZE));
+    }
+
+
+    @Test
+    void operationsAreNotTracedWithoutListeners() throws IOException {
+        Path file = Files.writeString(directory.resolve("lines.txt"), lines(10), StandardCharsets.UTF_8);
+        List<OperationTrace> traces = new CopyOnWriteArrayList<>();
+        Tracing.Listener listener = traces::add;
+        Tracing.addListener(listener);
+        Tracing.removeListener(listener);
+
+        AnalysisEngine.analyse(file.toString(), new AnalysisRequest(Metric.LINE_COUNT));
+
+        assertFalse(Tracing.isEnabled());
+        assertEquals(List.of(), traces);
+    }
+
+
+    private static String lines(int count) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            text.append(i % 10 == 0 ? "" : "level word" + i % 37 + " Été " + i).append('\n');
+        }
+        return text.toString();
+    }
+
+}
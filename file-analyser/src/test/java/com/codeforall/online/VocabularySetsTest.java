@@ -0,0 +1,97 @@
+package com.codeforall.online;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VocabularySetsTest {
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void intersectionAndUnionFoldCase() throws IOException {
+        Path first = write("The cat", "sat on THE mat");
+        Path second = write("the dog sat", "", "on a log");
+
+        assertEquals(Set.of("the", "sat", "on"), FileAnalyser.findCommonWordsBetweenFiles(first.toString(), second.toString()));
+        assertEquals(Set.of("the", "cat", "sat", "on", "mat", "dog", "a", "log"),
+                FileAnalyser.findAllWordsAcrossFiles(List.of(first.toString(), second.toString())));
+        assertEquals(Set.of(), FileAnalyser.findCommonWordsAcrossFiles(List.of(first.toString(), second.toString(), write().toString())));
+    }
+
+
+    @Test
+    void partitionedSetsMatchTheInMemorySets() throws IOException {
+        Random random = new Random(11);
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            List<String> lines = new ArrayList<>();
+            for (int j = 0; j < 300; j++) {
+                lines.add("w" + random.nextInt(400) + " W" + random.nextInt(400) + " common");
+            }
+            files.add(write(lines.toArray(new String[0])));
+        }
+        Path spillDirectory = Files.createDirectory(directory.resolve("spill"));
+
+        Set<String> intersection = new HashSet<>();
+        long shared = VocabularySets.intersection(files, spillDirectory, 4, 50, intersection::add);
+        Set<String> union = new HashSet<>();
+        long all = VocabularySets.union(files, spillDirectory, 4, 50, union::add);
+
+        assertEquals(VocabularySets.intersection(files), intersection);
+        assertEquals(intersection.size(), shared);
+        assertTrue(intersection.contains("common"));
+        assertEquals(VocabularySets.union(files), union);
+        assertEquals(union.size(), all);
+        try (Stream<Path> left = Files.list(spillDirectory)) {
+            assertEquals(0, left.count());
+        }
+    }
+
+
+    @Test
+    void partitionedSetsReadFilesInTheirOwnCharsets() throws IOException {
+        List<Path> files = List.of(
+                Files.writeString(directory.resolve("utf8.txt"), "Crème brûlée\nthé\n", StandardCharsets.UTF_8),
+                Files.writeString(directory.resolve("latin1.txt"), "crème THÉ\nbrûlée\n", StandardCharsets.ISO_8859_1),
+                Files.writeString(directory.resolve("utf16.txt"), "thé crème\nbrûlée noire\n", StandardCharsets.UTF_16));
+        Set<String> intersection = new HashSet<>();
+        Set<String> union = new HashSet<>();
+
+        VocabularySets.intersection(files, directory, 2, 1, intersection::add);
+        VocabularySets.union(files, directory, 2, 1, union::add);
+
+        assertEquals(Set.of("crème", "brûlée", "thé"), intersection);
+        assertEquals(VocabularySets.intersection(files), intersection);
+        assertEquals(VocabularySets.union(files), union);
+    }
+
+
+    @Test
+    void partitionsMustBePositive() {
+        assertThrows(IllegalArgumentException.class,
+                () -> VocabularySets.union(List.of(write("a")), directory, 0, 10, word -> { }));
+    }
+
+
+    private Path write(String... lines) throws IOException {
+        return Files.write(Files.createTempFile(directory, "lines", ".txt"), List.of(lines));
+    }
+
+}
@@ -0,0 +1,89 @@
+package com.codeforall.online;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.AbstractMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class WordFrequencyTableTest {
+
+    @Test
+    void countsLikeAHashMapWhileItGrows() {
+        WordFrequencyTable table = new WordFrequencyTable(4);
+        Map<String, Long> expected = new HashMap<>();
+        WordTokenizer tokenizer = new WordTokenizer();
+        for (int i = 0; i < 20_000; i++) {
+            String word = "Word" + (i * 7919 % 5000);
+            tokenizer.reset(word);
+            table.increment(tokenizer.next());
+            expected.merge(word.toLowerCase(), 1L, Long::sum);
+        }
+
+        assertEquals(expected.size(), table.size());
+        assertEquals(20_000, table.total());
+        assertEquals(expected, table.asMap());
+        assertEquals(expected, new HashMap<>(table.asMap()));
+    }
+
+
+    @Test
+    void idsFollowTheOrderWordsWereFirstSeen() {
+        WordFrequencyTable table = new WordFrequencyTable();
+        WordTokenizer tokenizer = new WordTokenizer().reset("b A a c B");
+        for (WordTokenizer.Token token = tokenizer.next(); token != null; token = tokenizer.next()) {
+            table.increment(token);
+        }
+
+        assertEquals("b", table.word(0));
+        assertEquals("a", table.word(1));
+        assertEquals("c", table.word(2));
+        assertEquals(2, table.count("a"));
+        assertEquals(2, table.indexOf("c"));
+        assertEquals(-1, table.indexOf("C"));
+        assertEquals(-1, table.indexOf("d"));
+        assertEquals(0, table.count("d"));
+        assertNull(table.asMap().get("d"));
+        assertFalse(table.asMap().containsKey("A"));
+    }
+
+
+    @Test
+    void mostFrequentBreaksTiesByFirstSeen() {
+        WordFrequencyTable table = new WordFrequencyTable();
+        table.add("x", 1);
+        table.add("y", 3);
+        table.add("z", 3);
+        table.add("w", 5);
+
+        assertEquals(List.of(entry("w", 5), entry("y", 3), entry("z", 3)), table.mostFrequent(3));
+        assertEquals(List.of(), table.mostFrequent(0));
+        assertEquals(4, table.mostFrequent(10).size());
+    }
+
+
+    @Test
+    void addAllMergesCounts() {
+        WordFrequencyTable first = new WordFrequencyTable();
+        first.add("a", 2);
+        first.add("b", 1);
+        WordFrequencyTable second = new WordFrequencyTable();
+        second.add("b", 4);
+        second.add("c", 1);
+
+        first.addAll(second);
+
+        assertEquals(Map.of("a", 2L, "b", 5L, "c", 1L), first.asMap());
+    }
+
+
+    private static Map.Entry<String, Long> entry(String word, long count) {
+        return new AbstractMap.SimpleImmutableEntry<>(word, count);
+    }
+
+}
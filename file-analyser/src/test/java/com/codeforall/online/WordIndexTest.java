@@ -0,0 +1,131 @@
+package com.codeforall.online;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class WordIndexTest {
+
+    @TempDir
+    Path directory;
+
+
+    @Test
+    void findsTheSameLinesAsAScan() throws IOException {
+        Random random = new Random(3);
+        String[] words = {"error", "Terror", "ERR", "warn", "warning", "naïve", "été", "x", "a-b", "42"};
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            StringBuilder line = new StringBuilder();
+            for (int j = random.nextInt(6); j > 0; j--) {
+                line.append(words[random.nextInt(words.length)]).append(random.nextBoolean() ? " " : "\t");
+            }
+            lines.add(line.toString());
+        }
+        Path file = Files.write(directory.resolve("lines.txt"), lines);
+        WordIndex.build(file);
+        WordIndex index = WordIndex.openIfFresh(file);
+        assertNotNull(index);
+
+        for (String query : List.of("err", "error", "ERROR", "rr", "r", "warn", "ing", "ï", "AÏV", "té", "-", "42", "2", "missing", "errors")) {
+            List<String> scanned = AnalysisEngine.analyse(file.toString(), new AnalysisRequest(Metric.LINES_CONTAINING_WORD).word(query))
+                    .getLinesContainingWord();
+            List<String> found = index.findLinesContaining(query).stream().map(LineMatch::getLine).collect(Collectors.toList());
+            assertEquals(scanned, found, query);
+        }
+    }
+
+
+    @Test
+    void answersCountsAndKeepsByteOffsets() throws IOException {
+        Path file = Files.write(directory.resolve("lines.txt"), List.of("Été chaud", "", "été", "hiver"));
+        WordIndex.build(file);
+        WordIndex index = WordIndex.openIfFresh(file);
+
+        assertEquals(4, index.getLineCount());
+        assertEquals(4, index.getWordCount());
+        assertEquals(3, index.getUniqueWordCount());
+        assertEquals(2, index.countOccurrences("ÉTÉ"));
+        assertEquals(0, index.countOccurrences("été chaud"));
+        List<LineMatch> matches = index.findLinesContaining("été");
+        assertEquals(List.of(1L, 3L), List.of(matches.get(0).getLineNumber(), matches.get(1).getLineNumber()));
+        assertEquals(List.of(0L, 13L), List.of(matches.get(0).getByteOffset(), matches.get(1).getByteOffset()));
+    }
+
+
+    @Test
+    void indexReadsTheLinesBackInTheCharsetOfTheFile() throws IOException {
+        Path latin1 = Files.writeString(directory.resolve("latin1.txt"), "Été chaud\nhiver\nété\n", StandardCharsets.ISO_8859_1);
+        Path utf16 = Files.writeString(directory.resolve("utf16.txt"), "été\n", StandardCharsets.UTF_16);
+
+        FileAnalyser.buildIndex(latin1.toString());
+        WordIndex index = WordIndex.openIfFresh(latin1);
+
+        assertEquals(2, index.countOccurrences("été"));
+        assertEquals(List.of("Été chaud", "été"), FileAnalyser.findLinesContainingWord(latin1.toString(), "ÉT"));
+        assertEquals(16, index.findLinesContaining("été").get(1).getByteOffset());
+        assertThrows(IllegalArgumentException.class, () -> FileAnalyser.buildIndex(utf16.toString()));
+        assertFalse(Files.exists(WordIndex.indexPath(utf16)));
+    }
+
+
+    @Test
+    void changedFileIsNoLongerAnswered() throws IOException {
+        Path file = Files.write(directory.resolve("lines.txt"), List.of("one two"));
+        WordIndex.build(file);
+        assertEquals(1, FileAnalyser.findLinesContainingWord(file.toString(), "two").size());
+
+        Files.write(file, List.of("three two", "two"), StandardOpenOption.APPEND);
+
+        assertNull(WordIndex.openIfFresh(file));
+        assertEquals(3, FileAnalyser.findLinesContainingWord(file.toString(), "two").size());
+    }
+
+
+    @Test
+    void indexOfAnotherVersionIsIgnored() throws IOException {
+        Path file = Files.write(directory.resolve("lines.txt"), List.of("one"));
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(WordIndex.indexPath(file)))) {
+            out.writeInt(0x46414958);
+            out.writeInt(1);
+            out.write(new byte[64]);
+        }
+
+        assertNull(WordIndex.openIfFresh(file));
+        assertEquals(List.of("one"), FileAnalyser.findLinesContainingWord(file.toString(), "on"));
+    }
+
+
+    @Test
+    void manyIndexesCanBeUsedInTurn() throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Path file = Files.write(directory.resolve("file" + i + ".txt"), List.of("word" + i, "other"));
+            WordIndex.build(file);
+            files.add(file);
+        }
+
+        for (int round = 0; round < 2; round++) {
+            for (int i = 0; i < files.size(); i++) {
+                assertEquals(List.of("word" + i), FileAnalyser.findLinesContainingWord(files.get(i).toString(), "word"));
+            }
+        }
+    }
+
+}
@@ -0,0 +1,76 @@
+package com.codeforall.online;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WordTokenizerTest {
+
+    @Test
+    void splitsLikeSplitOnWhitespace() {
+        String line = " \tHello,  world!\u000Bagain\f \r end ";
+
+        List<String> expected = new ArrayList<>(Arrays.asList(line.trim().split("\\s+")));
+        assertEquals(expected, words(line));
+        assertEquals(List.of("Hello,", "world!", "again", "end"), expected);
+    }
+
+
+    @Test
+    void asciiBytesSplitLikeTheirString() {
+        String line = "  bytes straight\tfrom a  LineReader ";
+        byte[] bytes = line.getBytes(StandardCharsets.US_ASCII);
+
+        assertEquals(words(line), words(new AsciiText().wrap(bytes, 0, bytes.length)));
+    }
+
+
+    @Test
+    void blankTextHasNoWords() {
+        assertNull(new WordTokenizer().reset(" \t ").next());
+        assertNull(new WordTokenizer().reset("").next());
+    }
+
+
+    @Test
+    void tokensCompareAndFoldCase() {
+        WordTokenizer.Token token = new WordTokenizer().reset("  RaceCar ").next();
+
+        assertEquals("RaceCar", token.toString());
+        assertEquals("racecar", token.toFoldedString());
+        assertTrue(token.equalsFolded("racecar"));
+        assertFalse(token.equalsFolded("RaceCar"));
+        assertTrue(token.isPalindrome());
+        assertFalse(new WordTokenizer().reset("ab").next().isPalindrome());
+    }
+
+
+    @Test
+    void frozenTokenOutlivesTheTokenizer() {
+        WordTokenizer tokenizer = new WordTokenizer().reset("First second");
+        WordTokenizer.Token frozen = tokenizer.next().freeze();
+        tokenizer.next();
+        tokenizer.reset("other text").next();
+
+        assertEquals("first", frozen.toString());
+    }
+
+
+    private static List<String> words(CharSequence text) {
+        List<String> words = new ArrayList<>();
+        WordTokenizer tokenizer = new WordTokenizer().reset(text);
+        for (WordTokenizer.Token token = tokenizer.next(); token != null; token = tokenizer.next()) {
+            words.add(token.toString());
+        }
+        return words;
+    }
+
+}